@@ -6,6 +6,7 @@ import androidx.media3.common.Timeline
 import androidx.media3.session.MediaBrowser
 import com.cappielloantonio.tempo.repository.QueueRepository
 import com.cappielloantonio.tempo.service.MediaManager
+import com.cappielloantonio.tempo.service.QueueWindow
 import com.cappielloantonio.tempo.subsonic.models.Child
 import com.cappielloantonio.tempo.util.MappingUtil
 import com.google.common.util.concurrent.ListenableFuture
@@ -152,10 +153,10 @@ object QueueEngine {
     suspend fun init(future: ListenableFuture<MediaBrowser?>, media: List<Child?>) = queueOperation(
         future = future,
         queryDB = {
-            val items = mappingStrategy.map(media)
-            val startIndex = queueRepository.lastPlayedMediaIndex
+            val window = QueueWindow.slice(media, queueRepository.lastPlayedMediaIndex)
             val timestamp = queueRepository.lastPlayedMediaTimestamp
-            MediaItemsInfo(items, startIndex, timestamp)
+            QueueWindow.attach(window)
+            MediaItemsInfo(window.mediaItems, window.startIndex, timestamp)
         },
         applyToPlayer = initOpretion,
         writeToDatabase = {
@@ -166,10 +167,14 @@ object QueueEngine {
     suspend fun check(future: ListenableFuture<MediaBrowser?>) = queueOperation(
         future = future,
         queryDB = {
-            val items = mappingStrategy.map(queueRepository.media)
-            val startIndex = queueRepository.lastPlayedMediaIndex
+            val window = QueueWindow.load(queueRepository.lastPlayedMediaIndex)
             val timestamp = queueRepository.lastPlayedMediaTimestamp
-            MediaItemsInfo(items, startIndex, timestamp)
+            if (window == null) {
+                MediaItemsInfo(emptyList(), 0, timestamp)
+            } else {
+                QueueWindow.attach(window)
+                MediaItemsInfo(window.mediaItems, window.startIndex, timestamp)
+            }
         },
         applyToPlayer = { mediaBrowser, itemInfo ->
             if (mediaBrowser.mediaItemCount < 1  && itemInfo.mediaItems.isNotEmpty()) {
@@ -2,12 +2,16 @@ package cn.sffzh.tempus.util
 
 import android.net.ConnectivityManager
 import android.net.Network
+import android.net.NetworkCapabilities
 
 class NetworkCallbackImpl(
     private val onAvailable: () -> Unit,
-    private val onLost: () -> Unit
+    private val onLost: () -> Unit,
+    private val onCapabilitiesChanged: (NetworkCapabilities) -> Unit = {}
 ) : ConnectivityManager.NetworkCallback() {
 
     override fun onAvailable(network: Network) = onAvailable()
     override fun onLost(network: Network) = onLost()
+    override fun onCapabilitiesChanged(network: Network, networkCapabilities: NetworkCapabilities) =
+        onCapabilitiesChanged(networkCapabilities)
 }
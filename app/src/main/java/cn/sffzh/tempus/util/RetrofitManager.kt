@@ -1,18 +1,27 @@
 package com.cappielloantonio.tempo.subsonic
 
+import android.util.Log
 import com.cappielloantonio.tempo.App
 import com.cappielloantonio.tempo.BuildConfig
+import com.cappielloantonio.tempo.subsonic.base.ApiResponse
 import com.cappielloantonio.tempo.subsonic.utils.CacheUtil
 import com.cappielloantonio.tempo.subsonic.utils.EmptyDateTypeAdapter
+import com.cappielloantonio.tempo.subsonic.utils.ModelTypeAdapterFactory
+import com.google.gson.Gson
 import com.google.gson.GsonBuilder
 import com.google.gson.Strictness
 import okhttp3.Cache
 import okhttp3.OkHttpClient
+import okhttp3.RequestBody
+import okhttp3.ResponseBody
 import okhttp3.logging.HttpLoggingInterceptor
+import retrofit2.Converter
 import retrofit2.Retrofit
 import retrofit2.converter.gson.GsonConverterFactory
+import java.lang.reflect.Type
 import java.util.Date
 import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.CopyOnWriteArrayList
 import java.util.concurrent.TimeUnit
 
 /**
@@ -27,6 +36,8 @@ object RetrofitManager {
     private val sharedGson by lazy {
         GsonBuilder()
             .registerTypeAdapter(Date::class.java, EmptyDateTypeAdapter())
+            // 歌曲、专辑、艺术家用手写的流式解析，不走反射
+            .registerTypeAdapterFactory(ModelTypeAdapterFactory())
             .setStrictness(Strictness.LENIENT)
             .create()
     }
@@ -51,6 +62,35 @@ object RetrofitManager {
         builder.build()
     }
 
+    // 图片请求复用同一个连接池（HTTP/2 下可多路复用），但不记录响应体，也不写入 HTTP 缓存：
+    // Glide 有自己的磁盘缓存
+    private val imageOkHttpClient: OkHttpClient by lazy {
+        sharedOkHttpClient.newBuilder()
+            .apply { interceptors().clear() }
+            .cache(null)
+            .callTimeout(30, TimeUnit.SECONDS)
+            .connectTimeout(10, TimeUnit.SECONDS)
+            .readTimeout(10, TimeUnit.SECONDS)
+            .build()
+    }
+
+    // 下载到外部文件夹用：同一个连接池，不记录响应体、不缓存；大文件不设总超时，只限制读超时
+    private val downloadOkHttpClient: OkHttpClient by lazy {
+        sharedOkHttpClient.newBuilder()
+            .apply { interceptors().clear() }
+            .cache(null)
+            .callTimeout(0, TimeUnit.SECONDS)
+            .readTimeout(60, TimeUnit.SECONDS)
+            .build()
+    }
+
+    // 每个解析成功的 Subsonic 响应都会交给这些监听器，例如用于建立本地搜索索引
+    private val responseListeners = CopyOnWriteArrayList<ResponseListener>()
+
+    private val converterFactory: Converter.Factory by lazy {
+        ObservingConverterFactory(GsonConverterFactory.create(sharedGson))
+    }
+
     private val sharedCache: Cache by lazy {
         Cache(App.getContext().cacheDir, 10 * 1024 * 1024)
     }
@@ -65,7 +105,7 @@ object RetrofitManager {
         val retrofit = retrofitCache.getOrPut(baseUrl) {
             Retrofit.Builder()
                 .baseUrl(baseUrl)
-                .addConverterFactory(GsonConverterFactory.create(sharedGson))
+                .addConverterFactory(converterFactory)
                 .client(sharedOkHttpClient)
                 .build()
         }
@@ -73,4 +113,70 @@ object RetrofitManager {
         return retrofit.create(serviceClass)
     }
 
+    /**
+     * 解析 Subsonic 响应所用的 Gson，例如用于 [ResponseStreamer] 的流式解析
+     */
+    @JvmStatic
+    fun getGson(): Gson = sharedGson
+
+    /**
+     * 供 Glide 加载图片使用的 OkHttpClient
+     */
+    @JvmStatic
+    fun getImageClient(): OkHttpClient = imageOkHttpClient
+
+    /**
+     * 供下载到外部文件夹使用的 OkHttpClient
+     */
+    @JvmStatic
+    fun getDownloadClient(): OkHttpClient = downloadOkHttpClient
+
+    /**
+     * 注册一个监听器，在 OkHttp 的线程上接收每个解析后的 [ApiResponse]，耗时操作需自行切换线程
+     */
+    @JvmStatic
+    fun addResponseListener(listener: ResponseListener) {
+        responseListeners.add(listener)
+    }
+
+    fun interface ResponseListener {
+        fun onResponse(response: ApiResponse)
+    }
+
+    private class ObservingConverterFactory(private val delegate: Converter.Factory) : Converter.Factory() {
+        override fun responseBodyConverter(
+            type: Type,
+            annotations: Array<out Annotation>,
+            retrofit: Retrofit
+        ): Converter<ResponseBody, *>? {
+            val converter = delegate.responseBodyConverter(type, annotations, retrofit) ?: return null
+            if (type != ApiResponse::class.java) return converter
+
+            return Converter<ResponseBody, Any?> { body ->
+                converter.convert(body).also { response ->
+                    if (response is ApiResponse) notifyListeners(response)
+                }
+            }
+        }
+
+        override fun requestBodyConverter(
+            type: Type,
+            parameterAnnotations: Array<out Annotation>,
+            methodAnnotations: Array<out Annotation>,
+            retrofit: Retrofit
+        ): Converter<*, RequestBody>? {
+            return delegate.requestBodyConverter(type, parameterAnnotations, methodAnnotations, retrofit)
+        }
+
+        private fun notifyListeners(response: ApiResponse) {
+            for (listener in responseListeners) {
+                // 监听器出错不能影响请求本身
+                try {
+                    listener.onResponse(response)
+                } catch (e: Exception) {
+                    Log.e("RetrofitManager", "Response listener failed", e)
+                }
+            }
+        }
+    }
 }
\ No newline at end of file
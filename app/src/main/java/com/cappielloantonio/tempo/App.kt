@@ -6,6 +6,10 @@ import android.util.Log
 import cn.sffzh.tempus.util.SubsonicManager
 import com.cappielloantonio.tempo.github.Github
 import com.cappielloantonio.tempo.helper.ThemeHelper
+import com.cappielloantonio.tempo.repository.SearchIndexRepository
+import com.cappielloantonio.tempo.service.FavoriteSync
+import com.cappielloantonio.tempo.service.LibrarySync
+import com.cappielloantonio.tempo.subsonic.RetrofitManager
 import com.cappielloantonio.tempo.subsonic.Subsonic
 import com.cappielloantonio.tempo.util.Preferences
 import com.cappielloantonio.tempo.util.Preferences.getTheme
@@ -67,6 +71,12 @@ class App : Application() {
             ThemeHelper.applyTheme(getTheme(ThemeHelper.DEFAULT_MODE))
         }
 
+        FavoriteSync.start(this)
+
+        val searchIndex by lazy { SearchIndexRepository() }
+        RetrofitManager.addResponseListener { response -> searchIndex.index(response.subsonicResponse) }
+        LibrarySync.start(this)
+
     }
 
 }
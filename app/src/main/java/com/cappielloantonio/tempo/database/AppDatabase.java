@@ -1,37 +1,58 @@
 package com.cappielloantonio.tempo.database;
 
+import androidx.annotation.NonNull;
 import androidx.media3.common.util.UnstableApi;
 import androidx.room.AutoMigration;
 import androidx.room.Database;
 import androidx.room.Room;
 import androidx.room.RoomDatabase;
 import androidx.room.TypeConverters;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
 
 import com.cappielloantonio.tempo.App;
 import com.cappielloantonio.tempo.database.converter.DateConverters;
 import com.cappielloantonio.tempo.database.dao.ChronologyDao;
 import com.cappielloantonio.tempo.database.dao.DownloadDao;
+import com.cappielloantonio.tempo.database.dao.ExternalFileDao;
 import com.cappielloantonio.tempo.database.dao.FavoriteDao;
+import com.cappielloantonio.tempo.database.dao.HomeSnapshotDao;
+import com.cappielloantonio.tempo.database.dao.LibraryDao;
 import com.cappielloantonio.tempo.database.dao.LyricsDao;
+import com.cappielloantonio.tempo.database.dao.PlayEventDao;
 import com.cappielloantonio.tempo.database.dao.PlaylistDao;
 import com.cappielloantonio.tempo.database.dao.QueueDao;
 import com.cappielloantonio.tempo.database.dao.RecentSearchDao;
+import com.cappielloantonio.tempo.database.dao.ResponseCacheDao;
+import com.cappielloantonio.tempo.database.dao.ScrobbleDao;
+import com.cappielloantonio.tempo.database.dao.SearchIndexDao;
 import com.cappielloantonio.tempo.database.dao.ServerDao;
 import com.cappielloantonio.tempo.database.dao.SessionMediaItemDao;
+import com.cappielloantonio.tempo.model.CachedResponse;
 import com.cappielloantonio.tempo.model.Chronology;
 import com.cappielloantonio.tempo.model.Download;
+import com.cappielloantonio.tempo.model.ExternalFile;
 import com.cappielloantonio.tempo.model.Favorite;
+import com.cappielloantonio.tempo.model.HomeSnapshot;
+import com.cappielloantonio.tempo.model.LibraryItem;
 import com.cappielloantonio.tempo.model.LyricsCache;
+import com.cappielloantonio.tempo.model.PlayEvent;
+import com.cappielloantonio.tempo.model.PlayRollup;
 import com.cappielloantonio.tempo.model.Queue;
 import com.cappielloantonio.tempo.model.RecentSearch;
+import com.cappielloantonio.tempo.model.ScrobbleEvent;
+import com.cappielloantonio.tempo.model.SearchItem;
+import com.cappielloantonio.tempo.model.SearchItemFts;
 import com.cappielloantonio.tempo.model.Server;
 import com.cappielloantonio.tempo.model.SessionMediaItem;
 import com.cappielloantonio.tempo.subsonic.models.Playlist;
 
+import java.util.TimeZone;
+
 @UnstableApi
 @Database(
-        version = 13,
-        entities = {Queue.class, Server.class, RecentSearch.class, Download.class, Chronology.class, Favorite.class, SessionMediaItem.class, Playlist.class, LyricsCache.class},
+        version = 22,
+        entities = {Queue.class, Server.class, RecentSearch.class, Download.class, Chronology.class, Favorite.class, SessionMediaItem.class, Playlist.class, LyricsCache.class, PlayEvent.class, PlayRollup.class, ScrobbleEvent.class, SearchItem.class, SearchItemFts.class, LibraryItem.class, CachedResponse.class, ExternalFile.class, HomeSnapshot.class},
         autoMigrations = {@AutoMigration(from = 10, to = 11), @AutoMigration(from = 11, to = 12)}
 )
 @TypeConverters({DateConverters.class})
@@ -39,10 +60,109 @@ public abstract class AppDatabase extends RoomDatabase {
     private final static String DB_NAME = "tempo_db";
     private static AppDatabase instance;
 
+    /**
+     * Adds the play event log and seeds it with one play per song of the chronology, which is all
+     * the history the old table kept.
+     */
+    static final Migration MIGRATION_13_14 = new Migration(13, 14) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `play_event` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, `song_id` TEXT NOT NULL, `server` TEXT NOT NULL, `timestamp` INTEGER NOT NULL, `played_duration` INTEGER NOT NULL, `source` TEXT NOT NULL)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_play_event_server_timestamp` ON `play_event` (`server`, `timestamp`)");
+            db.execSQL("CREATE TABLE IF NOT EXISTS `play_rollup` (`server` TEXT NOT NULL, `granularity` INTEGER NOT NULL, `bucket` INTEGER NOT NULL, `song_id` TEXT NOT NULL, `play_count` INTEGER NOT NULL, `played_duration` INTEGER NOT NULL, PRIMARY KEY(`server`, `granularity`, `bucket`, `song_id`))");
+
+            long offset = TimeZone.getDefault().getOffset(System.currentTimeMillis());
+            String day = "((`timestamp` + " + offset + ") / 86400000)";
+
+            db.execSQL("INSERT INTO `play_event` (`song_id`, `server`, `timestamp`, `played_duration`, `source`) SELECT `id`, IFNULL(`server`, ''), `timestamp`, IFNULL(`duration`, 0) * 1000, '" + PlayEvent.SOURCE_STREAM + "' FROM `chronology`");
+            db.execSQL("INSERT OR IGNORE INTO `play_rollup` SELECT IFNULL(`server`, ''), " + PlayRollup.GRANULARITY_DAY + ", " + day + ", `id`, 1, IFNULL(`duration`, 0) * 1000 FROM `chronology`");
+            db.execSQL("INSERT OR IGNORE INTO `play_rollup` SELECT IFNULL(`server`, ''), " + PlayRollup.GRANULARITY_WEEK + ", (" + day + " + 3) / 7, `id`, 1, IFNULL(`duration`, 0) * 1000 FROM `chronology`");
+        }
+    };
+
+    static final Migration MIGRATION_14_15 = new Migration(14, 15) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `scrobble_outbox` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, `song_id` TEXT NOT NULL, `server` TEXT NOT NULL, `time` INTEGER NOT NULL, `submission` INTEGER NOT NULL, `attempts` INTEGER NOT NULL)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_scrobble_outbox_server_submission_time` ON `scrobble_outbox` (`server`, `submission`, `time`)");
+        }
+    };
+
+    /**
+     * Adds the search index. The triggers are the ones Room generates for an external content
+     * FTS table, under the names it expects.
+     */
+    static final Migration MIGRATION_15_16 = new Migration(15, 16) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `search_item` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, `server` TEXT NOT NULL, `type` TEXT NOT NULL, `item_id` TEXT NOT NULL, `name` TEXT NOT NULL, `terms` TEXT NOT NULL, `payload` TEXT NOT NULL, `updated_at` INTEGER NOT NULL)");
+            db.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS `index_search_item_server_type_item_id` ON `search_item` (`server`, `type`, `item_id`)");
+            db.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS `search_item_fts` USING FTS4(`terms` TEXT NOT NULL, tokenize=unicode61, content=`search_item`)");
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_search_item_fts_BEFORE_UPDATE BEFORE UPDATE ON `search_item` BEGIN DELETE FROM `search_item_fts` WHERE `docid`=OLD.`rowid`; END");
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_search_item_fts_BEFORE_DELETE BEFORE DELETE ON `search_item` BEGIN DELETE FROM `search_item_fts` WHERE `docid`=OLD.`rowid`; END");
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_search_item_fts_AFTER_UPDATE AFTER UPDATE ON `search_item` BEGIN INSERT INTO `search_item_fts`(`docid`, `terms`) VALUES (NEW.`rowid`, NEW.`terms`); END");
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_search_item_fts_AFTER_INSERT AFTER INSERT ON `search_item` BEGIN INSERT INTO `search_item_fts`(`docid`, `terms`) VALUES (NEW.`rowid`, NEW.`terms`); END");
+        }
+    };
+
+    static final Migration MIGRATION_16_17 = new Migration(16, 17) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `library_item` (`server` TEXT NOT NULL, `type` TEXT NOT NULL, `item_id` TEXT NOT NULL, `parent_id` TEXT, `position` INTEGER NOT NULL, `signature` TEXT, `payload` TEXT NOT NULL, `synced_at` INTEGER NOT NULL, PRIMARY KEY(`server`, `type`, `item_id`))");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_library_item_server_type_parent_id` ON `library_item` (`server`, `type`, `parent_id`)");
+        }
+    };
+
+    /**
+     * Adds the sort columns of the catalogues. The mirror is only a cache, so it is dropped and
+     * built again by the next sync instead of being backfilled from the payloads.
+     */
+    static final Migration MIGRATION_17_18 = new Migration(17, 18) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("DROP TABLE IF EXISTS `library_item`");
+            db.execSQL("CREATE TABLE IF NOT EXISTS `library_item` (`server` TEXT NOT NULL, `type` TEXT NOT NULL, `item_id` TEXT NOT NULL, `parent_id` TEXT, `position` INTEGER NOT NULL, `signature` TEXT, `payload` TEXT NOT NULL, `synced_at` INTEGER NOT NULL, `name` TEXT, `artist` TEXT, `year` INTEGER NOT NULL, `created` INTEGER, `played` INTEGER, `play_count` INTEGER NOT NULL, `album_count` INTEGER NOT NULL, PRIMARY KEY(`server`, `type`, `item_id`))");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_library_item_server_type_parent_id` ON `library_item` (`server`, `type`, `parent_id`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_library_item_server_type_position` ON `library_item` (`server`, `type`, `position`)");
+        }
+    };
+
+    static final Migration MIGRATION_18_19 = new Migration(18, 19) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `response_cache` (`key` TEXT NOT NULL, `server` TEXT NOT NULL, `endpoint` TEXT NOT NULL, `payload` TEXT NOT NULL, `fetched_at` INTEGER NOT NULL, PRIMARY KEY(`key`))");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_response_cache_server_endpoint` ON `response_cache` (`server`, `endpoint`)");
+        }
+    };
+
+    static final Migration MIGRATION_19_20 = new Migration(19, 20) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `external_file` (`document_id` TEXT NOT NULL, `tree_uri` TEXT NOT NULL, `name` TEXT NOT NULL, `size` INTEGER NOT NULL, `last_modified` INTEGER NOT NULL, PRIMARY KEY(`document_id`))");
+        }
+    };
+
+    static final Migration MIGRATION_20_21 = new Migration(20, 21) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE `download` ADD COLUMN `sync_source` TEXT");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_download_sync_source` ON `download` (`sync_source`)");
+        }
+    };
+
+    static final Migration MIGRATION_21_22 = new Migration(21, 22) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `home_snapshot` (`server` TEXT NOT NULL, `sector` TEXT NOT NULL, `payload` TEXT NOT NULL, `updated_at` INTEGER NOT NULL, PRIMARY KEY(`server`, `sector`))");
+        }
+    };
+
     public static synchronized AppDatabase getInstance() {
         if (instance == null) {
             instance = Room.databaseBuilder(App.getContext(), AppDatabase.class, DB_NAME)
+                    .addMigrations(MIGRATION_13_14, MIGRATION_14_15, MIGRATION_15_16, MIGRATION_16_17, MIGRATION_17_18, MIGRATION_18_19, MIGRATION_19_20, MIGRATION_20_21, MIGRATION_21_22)
                     .fallbackToDestructiveMigration()
+                    .setQueryExecutor(DatabaseExecutor.getExecutor())
                     .build();
         }
 
@@ -66,4 +186,18 @@ public abstract class AppDatabase extends RoomDatabase {
     public abstract PlaylistDao playlistDao();
 
     public abstract LyricsDao lyricsDao();
+
+    public abstract PlayEventDao playEventDao();
+
+    public abstract ScrobbleDao scrobbleDao();
+
+    public abstract SearchIndexDao searchIndexDao();
+
+    public abstract LibraryDao libraryDao();
+
+    public abstract ResponseCacheDao responseCacheDao();
+
+    public abstract ExternalFileDao externalFileDao();
+
+    public abstract HomeSnapshotDao homeSnapshotDao();
 }
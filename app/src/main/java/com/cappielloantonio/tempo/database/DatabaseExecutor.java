@@ -0,0 +1,176 @@
+package com.cappielloantonio.tempo.database;
+
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.cappielloantonio.tempo.BuildConfig;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The one place database work runs: a bounded pool shared with Room's own query executor.
+ * Blocking network and file work runs on a second, shared pool (see {@link #getIoExecutor}), so
+ * that a long download or sync can't hold up queries. Work that has to stay ordered, or bounded,
+ * goes through a {@link LimitedExecutor} over either pool rather than a thread of its own.
+ * <p>
+ * Every call is named, so that slow queries show up in the log together with their latency.
+ * Awaiting a query on the main thread fails in debug builds.
+ */
+public final class DatabaseExecutor {
+    private static final String TAG = "DatabaseExecutor";
+
+    private static final int POOL_SIZE = 4;
+    private static final long SLOW_QUERY_MS = 100;
+
+    private static final ExecutorService executor = Executors.newFixedThreadPool(POOL_SIZE, new DatabaseThreadFactory());
+    private static final ListeningExecutorService listeningExecutor = MoreExecutors.listeningDecorator(executor);
+    private static final ExecutorService ioExecutor = Executors.newCachedThreadPool(new IoThreadFactory());
+    private static final Map<String, QueryStats> stats = new ConcurrentHashMap<>();
+
+    private DatabaseExecutor() {
+    }
+
+    public static ExecutorService getExecutor() {
+        return executor;
+    }
+
+    /**
+     * The pool for blocking network and file work: streamed responses, prefetches, syncs and
+     * downloads to the external folder. Threads are created as needed and dropped once idle.
+     */
+    public static ExecutorService getIoExecutor() {
+        return ioExecutor;
+    }
+
+    /**
+     * Runs {@code work} in the background without waiting for it.
+     */
+    public static void execute(String name, Runnable work) {
+        executor.execute(() -> {
+            try {
+                measure(name, () -> {
+                    work.run();
+                    return null;
+                });
+            } catch (Exception e) {
+                Log.e(TAG, "Query " + name + " failed", e);
+            }
+        });
+    }
+
+    /**
+     * Runs {@code work} in the background.
+     */
+    public static <T> ListenableFuture<T> submit(String name, Callable<T> work) {
+        return listeningExecutor.submit(() -> measure(name, work));
+    }
+
+    /**
+     * Runs {@code work} in the background and blocks until it completes, returning null if it
+     * fails. Prefer {@link #submit} for new code: this is only a bridge for synchronous callers,
+     * which must not be on the main thread.
+     */
+    public static <T> T await(String name, Callable<T> work) {
+        boolean onMainThread = Looper.myLooper() == Looper.getMainLooper();
+
+        if (BuildConfig.DEBUG && onMainThread) {
+            throw new IllegalStateException("Query " + name + " awaited on the main thread");
+        }
+
+        long start = SystemClock.elapsedRealtime();
+
+        try {
+            // Waiting on the pool from one of its own threads could exhaust it.
+            if (Thread.currentThread() instanceof DatabaseThread) {
+                return measure(name, work);
+            }
+
+            return submit(name, work).get();
+        } catch (Exception e) {
+            Log.e(TAG, "Query " + name + " failed", e);
+            return null;
+        } finally {
+            if (onMainThread) {
+                Log.d(TAG, "Main thread blocked by " + name + " for " + (SystemClock.elapsedRealtime() - start) + " ms");
+            }
+        }
+    }
+
+    /**
+     * Logs the latency recorded for every query name so far.
+     */
+    public static void dumpStats() {
+        for (Map.Entry<String, QueryStats> entry : stats.entrySet()) {
+            Log.i(TAG, entry.getKey() + ": " + entry.getValue());
+        }
+    }
+
+    private static <T> T measure(String name, Callable<T> work) throws Exception {
+        long start = SystemClock.elapsedRealtime();
+
+        try {
+            return work.call();
+        } finally {
+            long elapsed = SystemClock.elapsedRealtime() - start;
+            stats.computeIfAbsent(name, key -> new QueryStats()).record(elapsed);
+
+            if (elapsed >= SLOW_QUERY_MS) {
+                Log.w(TAG, "Slow query " + name + ": " + elapsed + " ms");
+            }
+        }
+    }
+
+    private static class QueryStats {
+        private long count;
+        private long totalMs;
+        private long maxMs;
+
+        synchronized void record(long elapsedMs) {
+            count++;
+            totalMs += elapsedMs;
+            maxMs = Math.max(maxMs, elapsedMs);
+        }
+
+        @NonNull
+        @Override
+        public synchronized String toString() {
+            return count + " calls, avg " + (count > 0 ? totalMs / count : 0) + " ms, max " + maxMs + " ms";
+        }
+    }
+
+    private static class DatabaseThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            return new DatabaseThread(runnable, "database-" + count.incrementAndGet());
+        }
+    }
+
+    private static class IoThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            return new Thread(runnable, "io-" + count.incrementAndGet());
+        }
+    }
+
+    private static class DatabaseThread extends Thread {
+        DatabaseThread(Runnable runnable, String name) {
+            super(runnable, name);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.cappielloantonio.tempo.database;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+/**
+ * Runs tasks on a shared executor, at most {@code limit} of them at a time and in the order they
+ * were submitted. With a limit of one, each task also sees everything the ones before it did.
+ * <p>
+ * It owns no thread: a task waiting for its turn holds none of the shared executor's.
+ */
+public final class LimitedExecutor implements Executor {
+    private final Executor executor;
+    private final Queue<Runnable> queue = new ArrayDeque<>();
+
+    private int limit;
+    private int running;
+
+    public LimitedExecutor(Executor executor, int limit) {
+        this.executor = executor;
+        this.limit = Math.max(1, limit);
+    }
+
+    public synchronized int getLimit() {
+        return limit;
+    }
+
+    public synchronized void setLimit(int limit) {
+        this.limit = Math.max(1, limit);
+        drain();
+    }
+
+    @Override
+    public synchronized void execute(@NonNull Runnable task) {
+        queue.add(task);
+        drain();
+    }
+
+    private void drain() {
+        while (running < limit && !queue.isEmpty()) {
+            Runnable task = queue.poll();
+            running++;
+
+            executor.execute(() -> {
+                try {
+                    task.run();
+                } finally {
+                    finished();
+                }
+            });
+        }
+    }
+
+    private synchronized void finished() {
+        running--;
+        drain();
+    }
+}
@@ -5,6 +5,7 @@ import androidx.room.Dao;
 import androidx.room.Insert;
 import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
+import androidx.room.Transaction;
 
 import com.cappielloantonio.tempo.model.Download;
 
@@ -21,9 +22,27 @@ public interface DownloadDao {
     @Query("SELECT * FROM download WHERE id = :id")
     Download getOne(String id);
 
+    @Query("SELECT id FROM download WHERE download_state = 1")
+    List<String> getCompletedIds();
+
+    @Query("SELECT * FROM download WHERE sync_source = :syncSource")
+    List<Download> getBySyncSource(String syncSource);
+
     @Insert(onConflict = OnConflictStrategy.REPLACE)
     void insert(Download download);
 
+    /**
+     * Stores a finished download, keeping the starred sync that asked for it.
+     */
+    @Transaction
+    default void complete(Download download) {
+        Download existing = getOne(download.getId());
+        if (existing != null && download.getSyncSource() == null) {
+            download.setSyncSource(existing.getSyncSource());
+        }
+        insert(download);
+    }
+
     @Insert(onConflict = OnConflictStrategy.REPLACE)
     void insertAll(List<Download> downloads);
 
@@ -38,4 +57,17 @@ public interface DownloadDao {
 
     @Query("DELETE FROM download")
     void deleteAll();
+
+    /**
+     * Queues {@code added} and forgets {@code removedIds} at once, so that a starred sync is never
+     * half applied.
+     */
+    @Transaction
+    default void applySync(List<Download> added, List<String> removedIds) {
+        // Keeps the number of bound ids below the SQLite variable limit
+        for (int from = 0; from < removedIds.size(); from += 500) {
+            deleteByIds(removedIds.subList(from, Math.min(from + 500, removedIds.size())));
+        }
+        insertAll(added);
+    }
 }
\ No newline at end of file
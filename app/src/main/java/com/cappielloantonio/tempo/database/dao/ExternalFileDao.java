@@ -0,0 +1,38 @@
+package com.cappielloantonio.tempo.database.dao;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+import androidx.room.Transaction;
+
+import com.cappielloantonio.tempo.model.ExternalFile;
+
+import java.util.List;
+
+@Dao
+public interface ExternalFileDao {
+    @Query("SELECT * FROM external_file WHERE tree_uri = :treeUri")
+    List<ExternalFile> getAll(String treeUri);
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insert(ExternalFile externalFile);
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insertAll(List<ExternalFile> externalFiles);
+
+    @Query("DELETE FROM external_file WHERE document_id = :documentId")
+    void delete(String documentId);
+
+    @Query("DELETE FROM external_file")
+    void deleteAll();
+
+    /**
+     * Replaces the whole index, there is only one download folder at a time.
+     */
+    @Transaction
+    default void replaceAll(List<ExternalFile> externalFiles) {
+        deleteAll();
+        insertAll(externalFiles);
+    }
+}
@@ -5,6 +5,7 @@ import androidx.room.Delete;
 import androidx.room.Insert;
 import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
+import androidx.room.Transaction;
 
 import com.cappielloantonio.tempo.model.Favorite;
 
@@ -21,6 +22,17 @@ public interface FavoriteDao {
     @Delete
     void delete(Favorite favorite);
 
+    @Query("DELETE FROM favorite WHERE timestamp IN (:timestamps)")
+    void deleteByTimestampsChunk(List<Long> timestamps);
+
+    @Transaction
+    default void deleteByTimestamps(List<Long> timestamps) {
+        // Keeps the number of bound timestamps below the SQLite variable limit
+        for (int from = 0; from < timestamps.size(); from += 500) {
+            deleteByTimestampsChunk(timestamps.subList(from, Math.min(from + 500, timestamps.size())));
+        }
+    }
+
     @Query("DELETE FROM favorite")
     void deleteAll();
 }
\ No newline at end of file
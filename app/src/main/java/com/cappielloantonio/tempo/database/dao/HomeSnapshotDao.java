@@ -0,0 +1,19 @@
+package com.cappielloantonio.tempo.database.dao;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import com.cappielloantonio.tempo.model.HomeSnapshot;
+
+import java.util.List;
+
+@Dao
+public interface HomeSnapshotDao {
+    @Query("SELECT * FROM home_snapshot WHERE server = :server")
+    List<HomeSnapshot> getAll(String server);
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insert(HomeSnapshot homeSnapshot);
+}
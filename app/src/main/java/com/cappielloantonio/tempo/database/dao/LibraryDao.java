@@ -0,0 +1,83 @@
+package com.cappielloantonio.tempo.database.dao;
+
+import androidx.paging.PagingSource;
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+import androidx.room.RawQuery;
+import androidx.room.Transaction;
+import androidx.sqlite.db.SupportSQLiteQuery;
+
+import com.cappielloantonio.tempo.model.LibraryItem;
+
+import java.util.List;
+
+@Dao
+public interface LibraryDao {
+    // Keeps the number of bound ids below the SQLite variable limit
+    int CHUNK_SIZE = 500;
+
+    @Query("SELECT * FROM library_item WHERE server = :server AND type = :type ORDER BY position")
+    List<LibraryItem> getAll(String server, String type);
+
+    /**
+     * Pages of {@code query}, which selects from library_item with the filter and order of a
+     * catalogue.
+     */
+    @RawQuery(observedEntities = LibraryItem.class)
+    PagingSource<Integer, LibraryItem> getPagingSource(SupportSQLiteQuery query);
+
+    @Query("SELECT * FROM library_item WHERE server = :server AND type = :type AND item_id = :itemId")
+    LibraryItem get(String server, String type, String itemId);
+
+    @Query("SELECT item_id, signature FROM library_item WHERE server = :server AND type = :type")
+    List<LibraryItem.Signature> getSignatures(String server, String type);
+
+    @Query("SELECT item_id FROM library_item WHERE server = :server AND type = :type")
+    List<String> getIds(String server, String type);
+
+    @Query("SELECT COUNT(*) FROM library_item WHERE server = :server AND type = :type")
+    int count(String server, String type);
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insertAll(List<LibraryItem> libraryItems);
+
+    @Query("DELETE FROM library_item WHERE server = :server AND type = :type")
+    void deleteAll(String server, String type);
+
+    @Query("DELETE FROM library_item WHERE server = :server AND type = :type AND item_id IN (:itemIds)")
+    void deleteChunk(String server, String type, List<String> itemIds);
+
+    @Query("DELETE FROM library_item WHERE server = :server AND type = :type AND parent_id IN (:parentIds)")
+    void deleteChildrenChunk(String server, String type, List<String> parentIds);
+
+    @Transaction
+    default void replaceAll(String server, String type, List<LibraryItem> libraryItems) {
+        deleteAll(server, type);
+        insertAll(libraryItems);
+    }
+
+    /**
+     * Replaces the items of {@code type} whose parent is one of {@code parentIds}.
+     */
+    @Transaction
+    default void replaceChildren(String server, String type, List<String> parentIds, List<LibraryItem> libraryItems) {
+        deleteChildren(server, type, parentIds);
+        insertAll(libraryItems);
+    }
+
+    @Transaction
+    default void delete(String server, String type, List<String> itemIds) {
+        for (int from = 0; from < itemIds.size(); from += CHUNK_SIZE) {
+            deleteChunk(server, type, itemIds.subList(from, Math.min(from + CHUNK_SIZE, itemIds.size())));
+        }
+    }
+
+    @Transaction
+    default void deleteChildren(String server, String type, List<String> parentIds) {
+        for (int from = 0; from < parentIds.size(); from += CHUNK_SIZE) {
+            deleteChildrenChunk(server, type, parentIds.subList(from, Math.min(from + CHUNK_SIZE, parentIds.size())));
+        }
+    }
+}
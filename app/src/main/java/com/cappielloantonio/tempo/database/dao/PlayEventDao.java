@@ -0,0 +1,51 @@
+package com.cappielloantonio.tempo.database.dao;
+
+import androidx.lifecycle.LiveData;
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+import androidx.room.Transaction;
+
+import com.cappielloantonio.tempo.model.Chronology;
+import com.cappielloantonio.tempo.model.PlayEvent;
+import com.cappielloantonio.tempo.model.PlayRollup;
+
+import java.util.List;
+
+@Dao
+public interface PlayEventDao {
+    @Insert
+    long insert(PlayEvent playEvent);
+
+    @Query("UPDATE play_rollup SET play_count = play_count + 1, played_duration = played_duration + :playedDuration WHERE server = :server AND granularity = :granularity AND bucket = :bucket AND song_id = :songId")
+    int incrementRollup(String server, int granularity, long bucket, String songId, long playedDuration);
+
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    void insertRollup(PlayRollup playRollup);
+
+    /**
+     * Appends {@code playEvent} and adds it to the day and week it belongs to.
+     */
+    @Transaction
+    default void record(PlayEvent playEvent) {
+        insert(playEvent);
+        addToRollup(playEvent, PlayRollup.GRANULARITY_DAY, PlayRollup.dayOf(playEvent.getTimestamp()));
+        addToRollup(playEvent, PlayRollup.GRANULARITY_WEEK, PlayRollup.weekOf(playEvent.getTimestamp()));
+    }
+
+    default void addToRollup(PlayEvent playEvent, int granularity, long bucket) {
+        // UPSERT needs SQLite 3.24, which older devices do not ship.
+        if (incrementRollup(playEvent.getServer(), granularity, bucket, playEvent.getSongId(), playEvent.getPlayedDuration()) == 0) {
+            insertRollup(new PlayRollup(playEvent.getServer(), granularity, bucket, playEvent.getSongId(), 1, playEvent.getPlayedDuration()));
+        }
+    }
+
+    /**
+     * The most played songs of the buckets from {@code fromBucket} on, with the metadata stored
+     * when they were last played. Songs last played from another server, whose metadata was
+     * overwritten, are left out.
+     */
+    @Query("SELECT chronology.* FROM (SELECT song_id, SUM(play_count) AS plays FROM play_rollup WHERE server = :server AND granularity = :granularity AND bucket >= :fromBucket GROUP BY song_id ORDER BY plays DESC LIMIT :count) AS top INNER JOIN chronology ON chronology.id = top.song_id AND IFNULL(chronology.server, '') = :server ORDER BY top.plays DESC")
+    LiveData<List<Chronology>> getMostPlayed(String server, int granularity, long fromBucket, int count);
+}
@@ -5,28 +5,49 @@ import androidx.room.Dao;
 import androidx.room.Insert;
 import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
+import androidx.room.Transaction;
 
 import com.cappielloantonio.tempo.model.Queue;
 
 import java.util.List;
 
+/**
+ * The queue is ordered by {@code track_order}, a sparse key: consecutive rows are spaced by
+ * {@link #KEY_GAP} so that an insert or a move only has to pick a free key between its two
+ * neighbours instead of renumbering every following row. The whole table is renumbered only
+ * when two neighbours run out of room between them.
+ */
 @Dao
 public interface QueueDao {
-    @Query("SELECT * FROM queue")
+    long KEY_GAP = 1L << 16;
+
+    @Query("SELECT * FROM queue ORDER BY track_order")
     LiveData<List<Queue>> getAll();
 
-    @Query("SELECT * FROM queue")
+    @Query("SELECT * FROM queue ORDER BY track_order")
     List<Queue> getAllSimple();
 
+    @Query("SELECT * FROM queue ORDER BY track_order LIMIT :limit OFFSET :position")
+    List<Queue> getRange(int position, int limit);
+
+    @Query("SELECT track_order FROM queue ORDER BY track_order LIMIT 1 OFFSET :position")
+    Long getKeyAt(int position);
+
     @Insert(onConflict = OnConflictStrategy.REPLACE)
     void insert(Queue songQueueObject);
 
     @Insert(onConflict = OnConflictStrategy.REPLACE)
     void insertAll(List<Queue> songQueueObjects);
 
-    @Query("DELETE FROM queue WHERE queue.track_order=:position")
+    @Query("UPDATE queue SET track_order=:newKey WHERE track_order=:oldKey")
+    void updateKey(long oldKey, long newKey);
+
+    @Query("DELETE FROM queue WHERE track_order=(SELECT track_order FROM queue ORDER BY track_order LIMIT 1 OFFSET :position)")
     void delete(int position);
 
+    @Query("DELETE FROM queue WHERE track_order IN (SELECT track_order FROM queue ORDER BY track_order LIMIT :count OFFSET :position)")
+    void deleteRange(int position, int count);
+
     @Query("DELETE FROM queue")
     void deleteAll();
 
@@ -41,4 +62,92 @@ public interface QueueDao {
 
     @Query("SELECT * FROM queue ORDER BY last_play DESC LIMIT 1")
     Queue getLastPlayed();
-}
\ No newline at end of file
+
+    @Query("SELECT COUNT(*) FROM queue WHERE track_order < (SELECT track_order FROM queue ORDER BY last_play DESC LIMIT 1)")
+    int getLastPlayedIndex();
+
+    @Transaction
+    default void replaceAll(List<Queue> media) {
+        deleteAll();
+
+        for (int i = 0; i < media.size(); i++) {
+            media.get(i).setTrackOrder(i * KEY_GAP);
+        }
+
+        insertAll(media);
+    }
+
+    @Transaction
+    default void insertAt(int position, List<Queue> media) {
+        if (media.isEmpty()) return;
+
+        if (!assignKeys(position, media)) {
+            rebalance();
+            assignKeys(position, media);
+        }
+
+        insertAll(media);
+    }
+
+    @Transaction
+    default void move(int from, int to) {
+        if (from == to) return;
+
+        for (int attempt = 0; attempt < 2; attempt++) {
+            Long key = getKeyAt(from);
+            if (key == null) return;
+
+            int lowerPosition = from < to ? to : to - 1;
+            Long lower = lowerPosition >= 0 ? getKeyAt(lowerPosition) : null;
+            Long upper = getKeyAt(lowerPosition + 1);
+
+            if (lower == null && upper == null) return;
+
+            if (upper == null) {
+                updateKey(key, lower + KEY_GAP);
+                return;
+            } else if (lower == null) {
+                updateKey(key, upper - KEY_GAP);
+                return;
+            } else if (upper - lower >= 2) {
+                updateKey(key, lower + (upper - lower) / 2);
+                return;
+            }
+
+            rebalance();
+        }
+    }
+
+    private boolean assignKeys(int position, List<Queue> media) {
+        position = Math.min(position, count());
+
+        Long lower = position > 0 ? getKeyAt(position - 1) : null;
+        Long upper = getKeyAt(position);
+        int size = media.size();
+
+        long first;
+        long step;
+
+        if (upper == null) {
+            step = KEY_GAP;
+            first = lower != null ? lower + KEY_GAP : 0;
+        } else if (lower == null) {
+            step = KEY_GAP;
+            first = upper - KEY_GAP * size;
+        } else {
+            step = (upper - lower) / (size + 1);
+            if (step < 1) return false;
+            first = lower + step;
+        }
+
+        for (int i = 0; i < size; i++) {
+            media.get(i).setTrackOrder(first + step * i);
+        }
+
+        return true;
+    }
+
+    private void rebalance() {
+        replaceAll(getAllSimple());
+    }
+}
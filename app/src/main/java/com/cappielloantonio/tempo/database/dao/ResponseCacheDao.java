@@ -0,0 +1,26 @@
+package com.cappielloantonio.tempo.database.dao;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import com.cappielloantonio.tempo.model.CachedResponse;
+
+@Dao
+public interface ResponseCacheDao {
+    @Query("SELECT * FROM response_cache WHERE `key` = :key")
+    CachedResponse get(String key);
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insert(CachedResponse cachedResponse);
+
+    @Query("UPDATE response_cache SET fetched_at = :fetchedAt WHERE `key` = :key")
+    void touch(String key, long fetchedAt);
+
+    @Query("DELETE FROM response_cache WHERE server = :server AND endpoint = :endpoint")
+    void delete(String server, String endpoint);
+
+    @Query("DELETE FROM response_cache WHERE fetched_at < :before")
+    void deleteOlderThan(long before);
+}
@@ -0,0 +1,41 @@
+package com.cappielloantonio.tempo.database.dao;
+
+import androidx.lifecycle.LiveData;
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.Query;
+
+import com.cappielloantonio.tempo.model.ScrobbleEvent;
+
+import java.util.List;
+
+@Dao
+public interface ScrobbleDao {
+    @Insert
+    long insert(ScrobbleEvent scrobbleEvent);
+
+    @Query("SELECT * FROM scrobble_outbox WHERE server = :server AND submission = :submission AND attempts < :maxAttempts ORDER BY time LIMIT :limit")
+    List<ScrobbleEvent> getPending(String server, boolean submission, int maxAttempts, int limit);
+
+    @Query("DELETE FROM scrobble_outbox WHERE id IN (:ids)")
+    void delete(List<Long> ids);
+
+    @Query("UPDATE scrobble_outbox SET attempts = attempts + 1 WHERE id IN (:ids)")
+    void incrementAttempts(List<Long> ids);
+
+    /**
+     * Drops the now playing events the server no longer cares about: all but the latest one, and
+     * that one too once it is older than {@code before}.
+     */
+    @Query("DELETE FROM scrobble_outbox WHERE submission = 0 AND (time < :before OR id NOT IN (SELECT id FROM scrobble_outbox WHERE submission = 0 ORDER BY time DESC LIMIT 1))")
+    void deleteStaleNowPlaying(long before);
+
+    @Query("SELECT COUNT(*) FROM scrobble_outbox WHERE submission = 1 AND attempts < :maxAttempts")
+    LiveData<Integer> countPending(int maxAttempts);
+
+    @Query("SELECT COUNT(*) FROM scrobble_outbox WHERE submission = 1 AND attempts >= :maxAttempts")
+    LiveData<Integer> countFailed(int maxAttempts);
+
+    @Query("UPDATE scrobble_outbox SET attempts = 0 WHERE attempts >= :maxAttempts")
+    void resetFailed(int maxAttempts);
+}
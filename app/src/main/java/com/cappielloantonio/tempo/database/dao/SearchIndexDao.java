@@ -0,0 +1,56 @@
+package com.cappielloantonio.tempo.database.dao;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+import androidx.room.Transaction;
+
+import com.cappielloantonio.tempo.model.SearchItem;
+
+import java.util.List;
+
+@Dao
+public interface SearchIndexDao {
+    @Query("UPDATE search_item SET name = :name, terms = :terms, payload = :payload, updated_at = :updatedAt WHERE server = :server AND type = :type AND item_id = :itemId")
+    int update(String server, String type, String itemId, String name, String terms, String payload, long updatedAt);
+
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    void insert(SearchItem searchItem);
+
+    /**
+     * Adds or refreshes {@code searchItems}. REPLACE is avoided on purpose: the rows it deletes
+     * would not fire the triggers that keep the full-text index in sync.
+     */
+    @Transaction
+    default void upsert(List<SearchItem> searchItems) {
+        for (SearchItem searchItem : searchItems) {
+            if (update(searchItem.getServer(), searchItem.getType(), searchItem.getItemId(), searchItem.getName(), searchItem.getTerms(), searchItem.getPayload(), searchItem.getUpdatedAt()) == 0) {
+                insert(searchItem);
+            }
+        }
+    }
+
+    /**
+     * Items of {@code type} matching the FTS {@code match} expression, shortest names first.
+     */
+    @Query("SELECT search_item.* FROM search_item INNER JOIN search_item_fts ON search_item.id = search_item_fts.rowid WHERE search_item_fts MATCH :match AND search_item.server = :server AND search_item.type = :type ORDER BY LENGTH(search_item.name) LIMIT :limit")
+    List<SearchItem> search(String server, String type, String match, int limit);
+
+    @Query("SELECT search_item.name FROM search_item INNER JOIN search_item_fts ON search_item.id = search_item_fts.rowid WHERE search_item_fts MATCH :match AND search_item.server = :server ORDER BY LENGTH(search_item.name) LIMIT :limit")
+    List<String> suggest(String server, String match, int limit);
+
+    @Query("SELECT item_id FROM search_item WHERE server = :server AND type = :type")
+    List<String> getItemIds(String server, String type);
+
+    @Query("DELETE FROM search_item WHERE server = :server AND type = :type AND item_id IN (:itemIds)")
+    void deleteChunk(String server, String type, List<String> itemIds);
+
+    @Transaction
+    default void delete(String server, String type, List<String> itemIds) {
+        // Keeps the number of bound ids below the SQLite variable limit
+        for (int from = 0; from < itemIds.size(); from += 500) {
+            deleteChunk(server, type, itemIds.subList(from, Math.min(from + 500, itemIds.size())));
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.cappielloantonio.tempo.glide;
+
+import android.net.Uri;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.cappielloantonio.tempo.util.Preferences;
+
+import java.util.Objects;
+
+/**
+ * A Glide model for a Subsonic {@code getCoverArt} image.
+ * <p>
+ * Only the server, the cover art id and the requested size identify the image, so that the disk
+ * cache survives salt/token rotation. The auth params are added by {@link CoverArtLoader} when the
+ * image is actually fetched.
+ */
+public final class CoverArt {
+    private final String server;
+    private final String id;
+    private final int size;
+
+    public CoverArt(@NonNull String server, @NonNull String id, int size) {
+        this.server = server;
+        this.id = id;
+        this.size = size;
+    }
+
+    /**
+     * Returns the cover art {@code id} of the server currently in use.
+     */
+    public static CoverArt of(@NonNull String id, int size) {
+        return new CoverArt(getServerKey(), id, size);
+    }
+
+    /**
+     * Parses a URL built by {@link CustomGlideRequest#createUrl}, or returns null if {@code url} is
+     * not a {@code getCoverArt} URL of the server currently in use.
+     */
+    @Nullable
+    public static CoverArt fromUrl(@NonNull String url) {
+        String address = Preferences.getInUseServerAddress();
+        if (address == null || !url.startsWith(address)) return null;
+
+        Uri uri = Uri.parse(url);
+        if (!"getCoverArt".equals(uri.getLastPathSegment())) return null;
+
+        String id = uri.getQueryParameter("id");
+        if (id == null || id.isEmpty()) return null;
+
+        String size = uri.getQueryParameter("size");
+
+        try {
+            return new CoverArt(getServerKey(), id, size != null ? Integer.parseInt(size) : -1);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * The disk cache key of the image.
+     */
+    public String getCacheKey() {
+        return "coverArt|" + server + "|" + id + "|" + size;
+    }
+
+    private static String getServerKey() {
+        // The id stays the same when switching between the local and the remote address.
+        String serverId = Preferences.getServerId();
+        if (serverId != null) return serverId;
+
+        String server = Preferences.getServer();
+        return server != null ? server : "";
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof CoverArt)) return false;
+        CoverArt that = (CoverArt) o;
+        return size == that.size && server.equals(that.server) && id.equals(that.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(server, id, size);
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return getCacheKey();
+    }
+}
@@ -0,0 +1,37 @@
+package com.cappielloantonio.tempo.glide;
+
+import androidx.annotation.NonNull;
+
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.model.ModelLoader;
+import com.bumptech.glide.load.model.ModelLoaderFactory;
+import com.bumptech.glide.load.model.MultiModelLoaderFactory;
+import com.bumptech.glide.signature.ObjectKey;
+
+import java.io.InputStream;
+
+public class CoverArtLoader implements ModelLoader<CoverArt, InputStream> {
+    @Override
+    public boolean handles(@NonNull CoverArt model) {
+        return true;
+    }
+
+    @Override
+    public LoadData<InputStream> buildLoadData(@NonNull CoverArt model, int width, int height, @NonNull Options options) {
+        String key = model.getCacheKey();
+        return new LoadData<>(new ObjectKey(key), new OkHttpStreamFetcher(key, () -> CustomGlideRequest.createUrl(model.getId(), model.getSize())));
+    }
+
+    public static class Factory implements ModelLoaderFactory<CoverArt, InputStream> {
+        @NonNull
+        @Override
+        public ModelLoader<CoverArt, InputStream> build(@NonNull MultiModelLoaderFactory multiFactory) {
+            return new CoverArtLoader();
+        }
+
+        @Override
+        public void teardown() {
+            // No-op
+        }
+    }
+}
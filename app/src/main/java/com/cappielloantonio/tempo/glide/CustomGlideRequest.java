@@ -110,23 +110,22 @@ public class CustomGlideRequest {
                                           String coverId,
                                           int size,
                                           CustomTarget<Bitmap> target) {
-        String url = createUrl(coverId, size);
         Glide.with(context)
                 .asBitmap()
-                .load(url)
+                .load(coverId != null ? CoverArt.of(coverId, size) : null)
                 .apply(createRequestOptions(context, coverId, ResourceType.Album))
                 .into(target);
     }
 
     public static class Builder {
         private final RequestManager requestManager;
-        private String item;
+        private CoverArt item;
 
         private Builder(Context context, String item, ResourceType type) {
             this.requestManager = Glide.with(context);
 
             if (item != null && !Preferences.isDataSavingMode()) {
-                this.item = createUrl(item, Preferences.getImageSize());
+                this.item = CoverArt.of(item, Preferences.getImageSize());
             }
 
             requestManager.applyDefaultRequestOptions(createRequestOptions(context, item, type));
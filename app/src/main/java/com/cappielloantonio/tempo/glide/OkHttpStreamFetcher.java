@@ -0,0 +1,175 @@
+package com.cappielloantonio.tempo.glide;
+
+import androidx.annotation.NonNull;
+
+import com.bumptech.glide.Priority;
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.data.DataFetcher;
+import com.cappielloantonio.tempo.subsonic.RetrofitManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * Fetches images with the shared OkHttp client.
+ * <p>
+ * Concurrent fetches of the same cache key share one request: Glide only merges loads that also
+ * have the same size and transformations, while the same cover is often shown at several sizes at
+ * once (list, mini player, notification). The request is asynchronous, so no Glide thread waits
+ * on it, and a cancelled fetch fails at once whether or not others still wait for the request.
+ */
+class OkHttpStreamFetcher implements DataFetcher<InputStream> {
+    private static final Map<String, InFlight> IN_FLIGHT = new HashMap<>();
+
+    private final String key;
+    private final Supplier<String> url;
+
+    private InFlight inFlight;
+    private DataCallback<? super InputStream> callback;
+    private boolean cancelled;
+
+    /**
+     * @param url resolved only when a request is actually sent, so that it carries the current
+     *            auth params.
+     */
+    OkHttpStreamFetcher(String key, Supplier<String> url) {
+        this.key = key;
+        this.url = url;
+    }
+
+    @Override
+    public void loadData(@NonNull Priority priority, @NonNull DataCallback<? super InputStream> callback) {
+        InFlight current;
+        boolean owner;
+
+        synchronized (IN_FLIGHT) {
+            if (cancelled) {
+                callback.onLoadFailed(new IOException("Cancelled"));
+                return;
+            }
+
+            current = IN_FLIGHT.get(key);
+            owner = current == null;
+
+            if (owner) {
+                Request request;
+
+                try {
+                    request = new Request.Builder().url(url.get()).build();
+                } catch (RuntimeException e) {
+                    callback.onLoadFailed(e);
+                    return;
+                }
+
+                current = new InFlight(key, RetrofitManager.getImageClient().newCall(request));
+                IN_FLIGHT.put(key, current);
+            }
+
+            this.callback = callback;
+            current.fetchers.add(this);
+            inFlight = current;
+        }
+
+        if (owner) {
+            current.call.enqueue(current);
+        }
+    }
+
+    @Override
+    public void cleanup() {
+        // The body is fully read into memory by the request.
+    }
+
+    @Override
+    public void cancel() {
+        synchronized (IN_FLIGHT) {
+            if (cancelled) return;
+            cancelled = true;
+
+            // Not started, or already answered
+            if (inFlight == null || !inFlight.fetchers.remove(this)) return;
+
+            // The request keeps running as long as another load is waiting for it. Once nobody
+            // is, it is forgotten first, so that a new load does not join a cancelled call.
+            if (inFlight.fetchers.isEmpty()) {
+                IN_FLIGHT.remove(key, inFlight);
+                inFlight.call.cancel();
+            }
+        }
+
+        callback.onLoadFailed(new IOException("Cancelled"));
+    }
+
+    @NonNull
+    @Override
+    public Class<InputStream> getDataClass() {
+        return InputStream.class;
+    }
+
+    @NonNull
+    @Override
+    public DataSource getDataSource() {
+        return DataSource.REMOTE;
+    }
+
+    private static class InFlight implements Callback {
+        private final String key;
+        private final Call call;
+        private final List<OkHttpStreamFetcher> fetchers = new ArrayList<>();
+
+        InFlight(String key, Call call) {
+            this.key = key;
+            this.call = call;
+        }
+
+        @Override
+        public void onResponse(@NonNull Call call, @NonNull Response response) {
+            try (response) {
+                ResponseBody body = response.body();
+
+                if (!response.isSuccessful() || body == null) {
+                    throw new IOException("Request failed with status code: " + response.code());
+                }
+
+                deliver(body.bytes(), null);
+            } catch (IOException e) {
+                deliver(null, e);
+            }
+        }
+
+        @Override
+        public void onFailure(@NonNull Call call, @NonNull IOException e) {
+            deliver(null, e);
+        }
+
+        private void deliver(byte[] bytes, Exception error) {
+            List<OkHttpStreamFetcher> waiting;
+
+            synchronized (IN_FLIGHT) {
+                IN_FLIGHT.remove(key, this);
+                waiting = new ArrayList<>(fetchers);
+                fetchers.clear();
+            }
+
+            for (OkHttpStreamFetcher fetcher : waiting) {
+                if (bytes != null) {
+                    fetcher.callback.onDataReady(new ByteArrayInputStream(bytes));
+                } else {
+                    fetcher.callback.onLoadFailed(error);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.cappielloantonio.tempo.model
+
+import androidx.annotation.Keep
+import androidx.room.ColumnInfo
+import androidx.room.Entity
+import androidx.room.Index
+import androidx.room.PrimaryKey
+
+/**
+ * A Subsonic response kept by [com.cappielloantonio.tempo.subsonic.ResponseCache], keyed by the
+ * server, the endpoint and the params that select the data.
+ */
+@Keep
+@Entity(
+    tableName = "response_cache",
+    indices = [Index(value = ["server", "endpoint"])]
+)
+data class CachedResponse(
+    @PrimaryKey
+    @ColumnInfo(name = "key")
+    var key: String,
+    @ColumnInfo(name = "server")
+    var server: String,
+    @ColumnInfo(name = "endpoint")
+    var endpoint: String,
+    @ColumnInfo(name = "payload")
+    var payload: String,
+    @ColumnInfo(name = "fetched_at")
+    var fetchedAt: Long
+)
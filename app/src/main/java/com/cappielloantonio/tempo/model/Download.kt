@@ -3,13 +3,17 @@ package com.cappielloantonio.tempo.model
 import androidx.annotation.Keep
 import androidx.room.ColumnInfo
 import androidx.room.Entity
+import androidx.room.Index
 import androidx.room.PrimaryKey
 import com.cappielloantonio.tempo.subsonic.models.Child
 import kotlinx.parcelize.Parcelize
 
 @Keep
 @Parcelize
-@Entity(tableName = "download")
+@Entity(
+    tableName = "download",
+    indices = [Index(value = ["sync_source"])]
+)
 class Download(
     @PrimaryKey override val id: String,
     @ColumnInfo(name = "playlist_id")
@@ -20,6 +24,9 @@ class Download(
     var downloadState: Int = 0,
     @ColumnInfo(name = "download_uri", defaultValue = "")
     var downloadUri: String? = null,
+    // The starred sync that asked for it, see StarredSyncPlanner; null for downloads the user asked for
+    @ColumnInfo(name = "sync_source")
+    var syncSource: String? = null,
 ) : Child(id) {
     constructor(child: Child) : this(child.id) {
         parentId = child.parentId
@@ -0,0 +1,27 @@
+package com.cappielloantonio.tempo.model
+
+import androidx.annotation.Keep
+import androidx.room.ColumnInfo
+import androidx.room.Entity
+import androidx.room.PrimaryKey
+
+/**
+ * A file in the user's download folder, as last seen by
+ * [com.cappielloantonio.tempo.util.ExternalDirectoryScanner] or written by
+ * [com.cappielloantonio.tempo.util.ExternalAudioWriter].
+ */
+@Keep
+@Entity(tableName = "external_file")
+data class ExternalFile(
+    @PrimaryKey
+    @ColumnInfo(name = "document_id")
+    var documentId: String,
+    @ColumnInfo(name = "tree_uri")
+    var treeUri: String,
+    @ColumnInfo(name = "name")
+    var name: String,
+    @ColumnInfo(name = "size")
+    var size: Long,
+    @ColumnInfo(name = "last_modified")
+    var lastModified: Long
+)
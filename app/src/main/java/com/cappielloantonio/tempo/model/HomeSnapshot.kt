@@ -0,0 +1,25 @@
+package com.cappielloantonio.tempo.model
+
+import androidx.annotation.Keep
+import androidx.room.ColumnInfo
+import androidx.room.Entity
+
+/**
+ * What a home sector last showed for a server, so that the home screen renders it at once on the
+ * next start while the sector is fetched again.
+ */
+@Keep
+@Entity(
+    tableName = "home_snapshot",
+    primaryKeys = ["server", "sector"]
+)
+data class HomeSnapshot(
+    @ColumnInfo(name = "server")
+    var server: String,
+    @ColumnInfo(name = "sector")
+    var sector: String,
+    @ColumnInfo(name = "payload")
+    var payload: String,
+    @ColumnInfo(name = "updated_at")
+    var updatedAt: Long
+)
@@ -0,0 +1,68 @@
+package com.cappielloantonio.tempo.model
+
+import androidx.annotation.Keep
+import androidx.room.ColumnInfo
+import androidx.room.Entity
+import androidx.room.Index
+
+/**
+ * An artist, album, song, genre or music folder index of the local library mirror.
+ *
+ * [payload] holds the item as returned by the server. [signature] is made of the fields that
+ * change when the server rescans an item, so that only changed albums get their songs fetched
+ * again. The columns after it are copies of payload fields the catalogues sort on.
+ */
+@Keep
+@Entity(
+    tableName = "library_item",
+    primaryKeys = ["server", "type", "item_id"],
+    indices = [Index(value = ["server", "type", "parent_id"]), Index(value = ["server", "type", "position"])]
+)
+data class LibraryItem(
+    @ColumnInfo(name = "server")
+    var server: String,
+    @ColumnInfo(name = "type")
+    var type: String,
+    @ColumnInfo(name = "item_id")
+    var itemId: String,
+    @ColumnInfo(name = "parent_id")
+    var parentId: String? = null,
+    @ColumnInfo(name = "position")
+    var position: Int,
+    @ColumnInfo(name = "signature")
+    var signature: String? = null,
+    @ColumnInfo(name = "payload")
+    var payload: String,
+    @ColumnInfo(name = "synced_at")
+    var syncedAt: Long,
+    @ColumnInfo(name = "name")
+    var name: String? = null,
+    @ColumnInfo(name = "artist")
+    var artist: String? = null,
+    @ColumnInfo(name = "year")
+    var year: Int = 0,
+    @ColumnInfo(name = "created")
+    var created: Long? = null,
+    @ColumnInfo(name = "played")
+    var played: Long? = null,
+    @ColumnInfo(name = "play_count")
+    var playCount: Long = 0,
+    @ColumnInfo(name = "album_count")
+    var albumCount: Int = 0,
+) {
+    companion object {
+        const val TYPE_ARTIST = "artist"
+        const val TYPE_ALBUM = "album"
+        const val TYPE_SONG = "song"
+        const val TYPE_GENRE = "genre"
+        const val TYPE_INDEXES = "indexes"
+    }
+
+    @Keep
+    data class Signature(
+        @ColumnInfo(name = "item_id")
+        var itemId: String,
+        @ColumnInfo(name = "signature")
+        var signature: String?,
+    )
+}
@@ -0,0 +1,36 @@
+package com.cappielloantonio.tempo.model
+
+import androidx.annotation.Keep
+import androidx.room.ColumnInfo
+import androidx.room.Entity
+import androidx.room.Index
+import androidx.room.PrimaryKey
+
+/**
+ * One play of a song. Rows are only ever appended; the per-period counts live in [PlayRollup].
+ */
+@Keep
+@Entity(
+    tableName = "play_event",
+    indices = [Index(value = ["server", "timestamp"])]
+)
+data class PlayEvent(
+    @PrimaryKey(autoGenerate = true)
+    @ColumnInfo(name = "id")
+    var id: Long = 0,
+    @ColumnInfo(name = "song_id")
+    var songId: String,
+    @ColumnInfo(name = "server")
+    var server: String,
+    @ColumnInfo(name = "timestamp")
+    var timestamp: Long,
+    @ColumnInfo(name = "played_duration")
+    var playedDuration: Long,
+    @ColumnInfo(name = "source")
+    var source: String,
+) {
+    companion object {
+        const val SOURCE_STREAM = "stream"
+        const val SOURCE_DOWNLOAD = "download"
+    }
+}
@@ -0,0 +1,52 @@
+package com.cappielloantonio.tempo.model
+
+import androidx.annotation.Keep
+import androidx.room.ColumnInfo
+import androidx.room.Entity
+import java.util.TimeZone
+
+/**
+ * The plays of a song within one time bucket, kept up to date as [PlayEvent]s are appended.
+ *
+ * Buckets are local days or weeks since the epoch, so a top-N query only reads the buckets of the
+ * period it covers, however long the history is.
+ */
+@Keep
+@Entity(
+    tableName = "play_rollup",
+    primaryKeys = ["server", "granularity", "bucket", "song_id"]
+)
+data class PlayRollup(
+    @ColumnInfo(name = "server")
+    var server: String,
+    @ColumnInfo(name = "granularity")
+    var granularity: Int,
+    @ColumnInfo(name = "bucket")
+    var bucket: Long,
+    @ColumnInfo(name = "song_id")
+    var songId: String,
+    @ColumnInfo(name = "play_count")
+    var playCount: Int,
+    @ColumnInfo(name = "played_duration")
+    var playedDuration: Long,
+) {
+    companion object {
+        const val GRANULARITY_DAY = 0
+        const val GRANULARITY_WEEK = 1
+
+        private const val DAY_MS = 24L * 60 * 60 * 1000
+
+        /** The local day of [timestamp], counted from the epoch. */
+        @JvmStatic
+        fun dayOf(timestamp: Long): Long {
+            return Math.floorDiv(timestamp + TimeZone.getDefault().getOffset(timestamp), DAY_MS)
+        }
+
+        /** The week of [timestamp], counted from the epoch; weeks start on Monday. */
+        @JvmStatic
+        fun weekOf(timestamp: Long): Long {
+            // The epoch was a Thursday.
+            return Math.floorDiv(dayOf(timestamp) + 3, 7L)
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.cappielloantonio.tempo.model
+
+import androidx.annotation.Keep
+import androidx.room.ColumnInfo
+import androidx.room.Entity
+import androidx.room.Index
+import androidx.room.PrimaryKey
+
+/**
+ * A scrobble waiting in the outbox until the server has accepted it.
+ */
+@Keep
+@Entity(
+    tableName = "scrobble_outbox",
+    indices = [Index(value = ["server", "submission", "time"])]
+)
+data class ScrobbleEvent(
+    @PrimaryKey(autoGenerate = true)
+    @ColumnInfo(name = "id")
+    var id: Long = 0,
+    @ColumnInfo(name = "song_id")
+    var songId: String,
+    @ColumnInfo(name = "server")
+    var server: String,
+    @ColumnInfo(name = "time")
+    var time: Long,
+    @ColumnInfo(name = "submission")
+    var submission: Boolean,
+    @ColumnInfo(name = "attempts")
+    var attempts: Int = 0,
+)
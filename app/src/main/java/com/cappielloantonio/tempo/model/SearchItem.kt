@@ -0,0 +1,45 @@
+package com.cappielloantonio.tempo.model
+
+import androidx.annotation.Keep
+import androidx.room.ColumnInfo
+import androidx.room.Entity
+import androidx.room.Index
+import androidx.room.PrimaryKey
+
+/**
+ * An artist, album, song or playlist of the local search index.
+ *
+ * [terms] holds the normalised text that [SearchItemFts] indexes, [payload] the item as returned by
+ * the server, so that local results can be shown like remote ones.
+ */
+@Keep
+@Entity(
+    tableName = "search_item",
+    indices = [Index(value = ["server", "type", "item_id"], unique = true)]
+)
+data class SearchItem(
+    @PrimaryKey(autoGenerate = true)
+    @ColumnInfo(name = "id")
+    var id: Long = 0,
+    @ColumnInfo(name = "server")
+    var server: String,
+    @ColumnInfo(name = "type")
+    var type: String,
+    @ColumnInfo(name = "item_id")
+    var itemId: String,
+    @ColumnInfo(name = "name")
+    var name: String,
+    @ColumnInfo(name = "terms")
+    var terms: String,
+    @ColumnInfo(name = "payload")
+    var payload: String,
+    @ColumnInfo(name = "updated_at")
+    var updatedAt: Long,
+) {
+    companion object {
+        const val TYPE_ARTIST = "artist"
+        const val TYPE_ALBUM = "album"
+        const val TYPE_SONG = "song"
+        const val TYPE_PLAYLIST = "playlist"
+    }
+}
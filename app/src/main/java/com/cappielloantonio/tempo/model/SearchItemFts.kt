@@ -0,0 +1,20 @@
+package com.cappielloantonio.tempo.model
+
+import androidx.annotation.Keep
+import androidx.room.ColumnInfo
+import androidx.room.Entity
+import androidx.room.Fts4
+import androidx.room.FtsOptions
+
+/**
+ * Full-text index over [SearchItem.terms]. Room keeps it in sync with `search_item` through
+ * triggers, so it is never written directly. The unicode61 tokenizer splits and folds words
+ * outside ASCII too, where the default one would treat them as one opaque token.
+ */
+@Keep
+@Fts4(contentEntity = SearchItem::class, tokenizer = FtsOptions.TOKENIZER_UNICODE61)
+@Entity(tableName = "search_item_fts")
+data class SearchItemFts(
+    @ColumnInfo(name = "terms")
+    var terms: String,
+)
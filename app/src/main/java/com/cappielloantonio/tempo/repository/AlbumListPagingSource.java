@@ -0,0 +1,76 @@
+package com.cappielloantonio.tempo.repository;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.paging.PagingState;
+import androidx.paging.guava.ListenableFuturePagingSource;
+
+import com.cappielloantonio.tempo.App;
+import com.cappielloantonio.tempo.subsonic.base.ApiResponse;
+import com.cappielloantonio.tempo.subsonic.models.AlbumID3;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * Pages of a {@code getAlbumList2} list, keyed by offset, for the orders only the server knows
+ * (play counts and dates change without a rescan, so the library mirror can't sort on them).
+ */
+class AlbumListPagingSource extends ListenableFuturePagingSource<Integer, AlbumID3> {
+    private final String type;
+
+    AlbumListPagingSource(String type) {
+        this.type = type;
+    }
+
+    @NonNull
+    @Override
+    public ListenableFuture<LoadResult<Integer, AlbumID3>> loadFuture(@NonNull LoadParams<Integer> params) {
+        SettableFuture<LoadResult<Integer, AlbumID3>> result = SettableFuture.create();
+        int offset = params.getKey() != null ? params.getKey() : 0;
+        int size = params.getLoadSize();
+
+        App.getSubsonicClientInstance(false)
+                .getAlbumSongListClient()
+                .getAlbumList2(type, size, offset, null, null)
+                .enqueue(new Callback<ApiResponse>() {
+                    @Override
+                    public void onResponse(@NonNull Call<ApiResponse> call, @NonNull Response<ApiResponse> response) {
+                        if (!response.isSuccessful() || response.body() == null || response.body().getSubsonicResponse().getAlbumList2() == null) {
+                            result.set(new LoadResult.Error<>(new IOException("Request failed with status code: " + response.code())));
+                            return;
+                        }
+
+                        List<AlbumID3> albums = response.body().getSubsonicResponse().getAlbumList2().getAlbums();
+                        if (albums == null) albums = Collections.emptyList();
+
+                        result.set(new LoadResult.Page<>(
+                                albums,
+                                offset > 0 ? Math.max(0, offset - size) : null,
+                                albums.size() < size ? null : offset + albums.size()
+                        ));
+                    }
+
+                    @Override
+                    public void onFailure(@NonNull Call<ApiResponse> call, @NonNull Throwable t) {
+                        result.set(new LoadResult.Error<>(t));
+                    }
+                });
+
+        return result;
+    }
+
+    @Nullable
+    @Override
+    public Integer getRefreshKey(@NonNull PagingState<Integer, AlbumID3> state) {
+        Integer anchorPosition = state.getAnchorPosition();
+        return anchorPosition != null ? Math.max(0, anchorPosition - state.getConfig().pageSize / 2) : null;
+    }
+}
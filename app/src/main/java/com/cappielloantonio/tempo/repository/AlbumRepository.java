@@ -1,12 +1,18 @@
 package com.cappielloantonio.tempo.repository;
 
 import androidx.annotation.NonNull;
+import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
+import androidx.paging.Pager;
+import androidx.paging.PagingConfig;
+import androidx.paging.PagingData;
+import androidx.paging.PagingLiveData;
 
 import android.util.Log;
 
 import com.cappielloantonio.tempo.App;
 import com.cappielloantonio.tempo.interfaces.DecadesCallback;
+import com.cappielloantonio.tempo.subsonic.ResponseCache;
 import com.cappielloantonio.tempo.subsonic.base.ApiResponse;
 import com.cappielloantonio.tempo.subsonic.models.AlbumID3;
 import com.cappielloantonio.tempo.subsonic.models.AlbumInfo;
@@ -24,6 +30,16 @@ import retrofit2.Callback;
 import retrofit2.Response;
 
 public class AlbumRepository {
+    private static final int PAGE_SIZE = 60;
+
+    /**
+     * The {@code getAlbumList2} list of {@code type}, loaded page by page as it is scrolled.
+     */
+    public LiveData<PagingData<AlbumID3>> getAlbumPages(String type) {
+        Pager<Integer, AlbumID3> pager = new Pager<>(new PagingConfig(PAGE_SIZE), () -> new AlbumListPagingSource(type));
+        return PagingLiveData.getLiveData(pager);
+    }
+
     public MutableLiveData<List<AlbumID3>> getAlbums(String type, int size, Integer fromYear, Integer toYear) {
         MutableLiveData<List<AlbumID3>> listLiveAlbums = new MutableLiveData<>(new ArrayList<>());
 
@@ -58,9 +74,9 @@ public class AlbumRepository {
     public MutableLiveData<List<AlbumID3>> getStarredAlbums(boolean random, int size) {
         MutableLiveData<List<AlbumID3>> starredAlbums = new MutableLiveData<>(new ArrayList<>());
 
-        App.getSubsonicClientInstance(false)
+        ResponseCache.cached(App.getSubsonicClientInstance(false)
                 .getAlbumSongListClient()
-                .getStarred2()
+                .getStarred2())
                 .enqueue(new Callback<ApiResponse>() {
                     @Override
                     public void onResponse(@NonNull Call<ApiResponse> call, @NonNull Response<ApiResponse> response) {
@@ -87,6 +103,34 @@ public class AlbumRepository {
         return starredAlbums;
     }
 
+    /**
+     * Every starred album, for the starred sync. Only set once the server answered, with an empty
+     * list when nothing is starred.
+     */
+    public MutableLiveData<List<AlbumID3>> getAllStarredAlbums() {
+        MutableLiveData<List<AlbumID3>> starredAlbums = new MutableLiveData<>();
+
+        ResponseCache.cached(App.getSubsonicClientInstance(false)
+                .getAlbumSongListClient()
+                .getStarred2())
+                .enqueue(new Callback<ApiResponse>() {
+                    @Override
+                    public void onResponse(@NonNull Call<ApiResponse> call, @NonNull Response<ApiResponse> response) {
+                        if (response.isSuccessful() && response.body() != null && response.body().getSubsonicResponse().getStarred2() != null) {
+                            List<AlbumID3> albums = response.body().getSubsonicResponse().getStarred2().getAlbums();
+                            starredAlbums.setValue(albums != null ? albums : new ArrayList<>());
+                        }
+                    }
+
+                    @Override
+                    public void onFailure(@NonNull Call<ApiResponse> call, @NonNull Throwable t) {
+
+                    }
+                });
+
+        return starredAlbums;
+    }
+
     public void setRating(String id, int rating) {
         App.getSubsonicClientInstance(false)
                 .getMediaAnnotationClient()
@@ -185,9 +229,9 @@ public class AlbumRepository {
     public MutableLiveData<AlbumInfo> getAlbumInfo(String id) {
         MutableLiveData<AlbumInfo> albumInfo = new MutableLiveData<>();
 
-        App.getSubsonicClientInstance(false)
+        ResponseCache.cached(App.getSubsonicClientInstance(false)
                 .getBrowsingClient()
-                .getAlbumInfo2(id)
+                .getAlbumInfo2(id))
                 .enqueue(new Callback<ApiResponse>() {
                     @Override
                     public void onResponse(@NonNull Call<ApiResponse> call, @NonNull Response<ApiResponse> response) {
@@ -1,11 +1,14 @@
 package com.cappielloantonio.tempo.repository;
 
 import androidx.annotation.NonNull;
+import androidx.core.content.ContextCompat;
 import androidx.lifecycle.MutableLiveData;
 import android.util.Log;
 
 import com.cappielloantonio.tempo.App;
 import com.cappielloantonio.tempo.interfaces.MediaCallback;
+import com.cappielloantonio.tempo.subsonic.RequestScheduler;
+import com.cappielloantonio.tempo.subsonic.ResponseCache;
 import com.cappielloantonio.tempo.subsonic.base.ApiResponse;
 import com.cappielloantonio.tempo.subsonic.models.ArtistID3;
 import com.cappielloantonio.tempo.subsonic.models.AlbumID3;
@@ -13,12 +16,14 @@ import com.cappielloantonio.tempo.subsonic.models.ArtistInfo2;
 import com.cappielloantonio.tempo.subsonic.models.Child;
 import com.cappielloantonio.tempo.subsonic.models.IndexID3;
 import com.cappielloantonio.tempo.util.Constants.SeedType;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 import retrofit2.Call;
@@ -26,12 +31,6 @@ import retrofit2.Callback;
 import retrofit2.Response;
 
 public class ArtistRepository {
-    private final AlbumRepository albumRepository;
-
-    public ArtistRepository() {
-        this.albumRepository = new AlbumRepository();
-    }
-
     public void getArtistAllSongs(String artistId, ArtistSongsCallback callback) {
         Log.d("ArtistSync", "Getting albums for artist: " + artistId);
 
@@ -50,7 +49,7 @@ public class ArtistRepository {
                             Log.d("ArtistSync", "Got albums directly: " + albums.size());
                             
                             if (!albums.isEmpty()) {
-                                fetchAllAlbumSongsWithCallback(albums, callback);
+                                fetchAllAlbumSongsWithCallback(albums, RequestScheduler.Priority.BACKGROUND, callback);
                             } else {
                                 Log.d("ArtistSync", "No albums found in artist response");
                                 callback.onSongsCollected(new ArrayList<>());
@@ -69,36 +68,44 @@ public class ArtistRepository {
                 });
     }
 
-    private void fetchAllAlbumSongsWithCallback(List<AlbumID3> albums, ArtistSongsCallback callback) {
+    /**
+     * Collects the songs of {@code albums} in album order, with at most a few requests in flight.
+     */
+    private void fetchAllAlbumSongsWithCallback(List<AlbumID3> albums, RequestScheduler.Priority priority, ArtistSongsCallback callback) {
         if (albums == null || albums.isEmpty()) {
             Log.d("ArtistSync", "No albums to process");
             callback.onSongsCollected(new ArrayList<>());
             return;
         }
 
-        List<Child> allSongs = new ArrayList<>();
-        AtomicInteger remainingAlbums = new AtomicInteger(albums.size());
         Log.d("ArtistSync", "Processing " + albums.size() + " albums");
-        
+
+        List<ListenableFuture<ApiResponse>> responses = new ArrayList<>();
+
         for (AlbumID3 album : albums) {
-            Log.d("ArtistSync", "Getting tracks for album: " + album.getName());
-            MutableLiveData<List<Child>> albumTracks = albumRepository.getAlbumTracks(album.getId());
-            albumTracks.observeForever(songs -> {
-                Log.d("ArtistSync", "Got " + (songs != null ? songs.size() : 0) + " songs from album");
-                if (songs != null) {
-                    allSongs.addAll(songs);
-                }
-                albumTracks.removeObservers(null);
-                
-                int remaining = remainingAlbums.decrementAndGet();
-                Log.d("ArtistSync", "Remaining albums: " + remaining);
-                
-                if (remaining == 0) {
-                    Log.d("ArtistSync", "All albums processed. Total songs: " + allSongs.size());
-                    callback.onSongsCollected(allSongs);
-                }
-            });
+            responses.add(RequestScheduler.getInstance().submit(App.getSubsonicClientInstance(false).getBrowsingClient().getAlbum(album.getId()), priority));
         }
+
+        Futures.addCallback(RequestScheduler.inOrder(responses), new FutureCallback<List<ApiResponse>>() {
+            @Override
+            public void onSuccess(List<ApiResponse> result) {
+                List<Child> allSongs = new ArrayList<>();
+
+                for (ApiResponse response : result) {
+                    if (response != null && response.getSubsonicResponse().getAlbum() != null && response.getSubsonicResponse().getAlbum().getSongs() != null) {
+                        allSongs.addAll(response.getSubsonicResponse().getAlbum().getSongs());
+                    }
+                }
+
+                Log.d("ArtistSync", "All albums processed. Total songs: " + allSongs.size());
+                callback.onSongsCollected(allSongs);
+            }
+
+            @Override
+            public void onFailure(@NonNull Throwable t) {
+                callback.onSongsCollected(new ArrayList<>());
+            }
+        }, ContextCompat.getMainExecutor(App.getContext()));
     }
 
     public interface ArtistSongsCallback {
@@ -137,6 +144,34 @@ public class ArtistRepository {
         return starredArtists;
     }
 
+    /**
+     * Every starred artist, without their info, for the starred sync. Only set once the server
+     * answered, with an empty list when nothing is starred.
+     */
+    public MutableLiveData<List<ArtistID3>> getAllStarredArtists() {
+        MutableLiveData<List<ArtistID3>> starredArtists = new MutableLiveData<>();
+
+        App.getSubsonicClientInstance(false)
+                .getAlbumSongListClient()
+                .getStarred2()
+                .enqueue(new Callback<ApiResponse>() {
+                    @Override
+                    public void onResponse(@NonNull Call<ApiResponse> call, @NonNull Response<ApiResponse> response) {
+                        if (response.isSuccessful() && response.body() != null && response.body().getSubsonicResponse().getStarred2() != null) {
+                            List<ArtistID3> artists = response.body().getSubsonicResponse().getStarred2().getArtists();
+                            starredArtists.setValue(artists != null ? artists : new ArrayList<>());
+                        }
+                    }
+
+                    @Override
+                    public void onFailure(@NonNull Call<ApiResponse> call, @NonNull Throwable t) {
+
+                    }
+                });
+
+        return starredArtists;
+    }
+
     public MutableLiveData<List<ArtistID3>> getArtists(boolean random, int size) {
         MutableLiveData<List<ArtistID3>> listLiveArtists = new MutableLiveData<>();
 
@@ -175,30 +210,39 @@ public class ArtistRepository {
     }
 
     /*
-     * Method that returns essential artist information (cover, album number, etc.)
+     * Method that returns essential artist information (cover, album number, etc.). The list is
+     * posted again as each artist arrives, keeping the order of {@code artists}.
      */
     public void getArtistInfo(List<ArtistID3> artists, MutableLiveData<List<ArtistID3>> list) {
-        List<ArtistID3> liveArtists = list.getValue();
-        if (liveArtists == null) liveArtists = new ArrayList<>();
-        list.setValue(liveArtists);
-
-        for (ArtistID3 artist : artists) {
-            App.getSubsonicClientInstance(false)
-                    .getBrowsingClient()
-                    .getArtist(artist.getId())
-                    .enqueue(new Callback<ApiResponse>() {
-                        @Override
-                        public void onResponse(@NonNull Call<ApiResponse> call, @NonNull Response<ApiResponse> response) {
-                            if (response.isSuccessful() && response.body() != null && response.body().getSubsonicResponse().getArtist() != null) {
-                                addToMutableLiveData(list, response.body().getSubsonicResponse().getArtist());
-                            }
-                        }
+        List<ArtistID3> previousArtists = list.getValue() != null ? new ArrayList<>(list.getValue()) : new ArrayList<>();
+        list.setValue(previousArtists);
 
-                        @Override
-                        public void onFailure(@NonNull Call<ApiResponse> call, @NonNull Throwable t) {
+        // Only touched on the main thread, where the callbacks run
+        ArtistID3[] arrived = new ArtistID3[artists.size()];
 
-                        }
-                    });
+        for (int i = 0; i < artists.size(); i++) {
+            int index = i;
+            ListenableFuture<ApiResponse> response = RequestScheduler.getInstance().submit(App.getSubsonicClientInstance(false).getBrowsingClient().getArtist(artists.get(i).getId()), RequestScheduler.Priority.FOREGROUND);
+
+            Futures.addCallback(response, new FutureCallback<ApiResponse>() {
+                @Override
+                public void onSuccess(ApiResponse result) {
+                    if (result == null || result.getSubsonicResponse().getArtist() == null) return;
+
+                    arrived[index] = result.getSubsonicResponse().getArtist();
+
+                    List<ArtistID3> liveArtists = new ArrayList<>(previousArtists);
+                    for (ArtistID3 artist : arrived) {
+                        if (artist != null) liveArtists.add(artist);
+                    }
+                    list.setValue(liveArtists);
+                }
+
+                @Override
+                public void onFailure(@NonNull Throwable t) {
+
+                }
+            }, ContextCompat.getMainExecutor(App.getContext()));
         }
     }
 
@@ -228,9 +272,9 @@ public class ArtistRepository {
     public MutableLiveData<ArtistInfo2> getArtistFullInfo(String id) {
         MutableLiveData<ArtistInfo2> artistFullInfo = new MutableLiveData<>(null);
 
-        App.getSubsonicClientInstance(false)
+        ResponseCache.cached(App.getSubsonicClientInstance(false)
                 .getBrowsingClient()
-                .getArtistInfo2(id)
+                .getArtistInfo2(id))
                 .enqueue(new Callback<ApiResponse>() {
                     @Override
                     public void onResponse(@NonNull Call<ApiResponse> call, @NonNull Response<ApiResponse> response) {
@@ -322,7 +366,7 @@ public class ArtistRepository {
                                 albumLimit++;
                             Log.d("ArtistRepository", String.format("Retaining %d/%d albums", albumLimit, albums.size()));
 
-                            fetchAllAlbumSongsWithCallback(albums.stream().limit(albumLimit).collect(Collectors.toList()), songs -> {
+                            fetchAllAlbumSongsWithCallback(albums.stream().limit(albumLimit).collect(Collectors.toList()), RequestScheduler.Priority.FOREGROUND, songs -> {
                                 Collections.shuffle(songs);
                                 randomSongs.setValue(songs.stream().limit(count).collect(Collectors.toList()));
                             });
@@ -343,9 +387,9 @@ public class ArtistRepository {
     public MutableLiveData<List<Child>> getTopSongs(String artistName, int count) {
         MutableLiveData<List<Child>> topSongs = new MutableLiveData<>(new ArrayList<>());
 
-        App.getSubsonicClientInstance(false)
+        ResponseCache.cached(App.getSubsonicClientInstance(false)
                 .getBrowsingClient()
-                .getTopSongs(artistName, count)
+                .getTopSongs(artistName, count))
                 .enqueue(new Callback<ApiResponse>() {
                     @Override
                     public void onResponse(@NonNull Call<ApiResponse> call, @NonNull Response<ApiResponse> response) {
@@ -362,10 +406,4 @@ public class ArtistRepository {
 
         return topSongs;
     }
-
-    private void addToMutableLiveData(MutableLiveData<List<ArtistID3>> liveData, ArtistID3 artist) {
-        List<ArtistID3> liveArtists = liveData.getValue();
-        if (liveArtists != null) liveArtists.add(artist);
-        liveData.setValue(liveArtists);
-    }
 }
@@ -16,6 +16,7 @@ import androidx.media3.session.LibraryResult;
 
 import com.cappielloantonio.tempo.App;
 import com.cappielloantonio.tempo.database.AppDatabase;
+import com.cappielloantonio.tempo.database.DatabaseExecutor;
 import com.cappielloantonio.tempo.database.dao.ChronologyDao;
 import com.cappielloantonio.tempo.database.dao.SessionMediaItemDao;
 import com.cappielloantonio.tempo.glide.CustomGlideRequest;
@@ -877,9 +878,7 @@ public class AutomotiveRepository {
             sessionMediaItems.add(sessionMediaItem);
         }
 
-        InsertAllThreadSafe insertAll = new InsertAllThreadSafe(sessionMediaItemDao, sessionMediaItems);
-        Thread thread = new Thread(insertAll);
-        thread.start();
+        DatabaseExecutor.execute("sessionMediaItem.insertAll", () -> sessionMediaItemDao.insertAll(sessionMediaItems));
     }
 
     @OptIn(markerClass = UnstableApi.class)
@@ -893,9 +892,7 @@ public class AutomotiveRepository {
             sessionMediaItems.add(sessionMediaItem);
         }
 
-        InsertAllThreadSafe insertAll = new InsertAllThreadSafe(sessionMediaItemDao, sessionMediaItems);
-        Thread thread = new Thread(insertAll);
-        thread.start();
+        DatabaseExecutor.execute("sessionMediaItem.insertAll", () -> sessionMediaItemDao.insertAll(sessionMediaItems));
     }
 
     @OptIn(markerClass = UnstableApi.class)
@@ -909,119 +906,25 @@ public class AutomotiveRepository {
             sessionMediaItems.add(sessionMediaItem);
         }
 
-        InsertAllThreadSafe insertAll = new InsertAllThreadSafe(sessionMediaItemDao, sessionMediaItems);
-        Thread thread = new Thread(insertAll);
-        thread.start();
+        DatabaseExecutor.execute("sessionMediaItem.insertAll", () -> sessionMediaItemDao.insertAll(sessionMediaItems));
     }
 
     public SessionMediaItem getSessionMediaItem(String id) {
-        SessionMediaItem sessionMediaItem = null;
-
-        GetMediaItemThreadSafe getMediaItemThreadSafe = new GetMediaItemThreadSafe(sessionMediaItemDao, id);
-        Thread thread = new Thread(getMediaItemThreadSafe);
-        thread.start();
-
-        try {
-            thread.join();
-            sessionMediaItem = getMediaItemThreadSafe.getSessionMediaItem();
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-        }
-
-        return sessionMediaItem;
+        return DatabaseExecutor.await("sessionMediaItem.get", () -> sessionMediaItemDao.get(id));
     }
 
+    @OptIn(markerClass = UnstableApi.class)
     public List<MediaItem> getMetadatas(long timestamp) {
-        List<MediaItem> mediaItems = Collections.emptyList();
-
-        GetMediaItemsThreadSafe getMediaItemsThreadSafe = new GetMediaItemsThreadSafe(sessionMediaItemDao, timestamp);
-        Thread thread = new Thread(getMediaItemsThreadSafe);
-        thread.start();
-
-        try {
-            thread.join();
-            mediaItems = getMediaItemsThreadSafe.getMediaItems();
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-        }
+        List<MediaItem> mediaItems = DatabaseExecutor.await("sessionMediaItem.getByTimestamp", () -> {
+            List<MediaItem> items = new ArrayList<>();
+            sessionMediaItemDao.get(timestamp).forEach(sessionMediaItem -> items.add(sessionMediaItem.getMediaItem()));
+            return items;
+        });
 
-        return mediaItems;
+        return mediaItems != null ? mediaItems : Collections.emptyList();
     }
 
     public void deleteMetadata() {
-        DeleteAllThreadSafe delete = new DeleteAllThreadSafe(sessionMediaItemDao);
-        Thread thread = new Thread(delete);
-        thread.start();
-    }
-
-    private static class GetMediaItemThreadSafe implements Runnable {
-        private final SessionMediaItemDao sessionMediaItemDao;
-        private final String id;
-
-        private SessionMediaItem sessionMediaItem;
-
-        public GetMediaItemThreadSafe(SessionMediaItemDao sessionMediaItemDao, String id) {
-            this.sessionMediaItemDao = sessionMediaItemDao;
-            this.id = id;
-        }
-
-        @Override
-        public void run() {
-            sessionMediaItem = sessionMediaItemDao.get(id);
-        }
-
-        public SessionMediaItem getSessionMediaItem() {
-            return sessionMediaItem;
-        }
-    }
-
-    @OptIn(markerClass = UnstableApi.class)
-    private static class GetMediaItemsThreadSafe implements Runnable {
-        private final SessionMediaItemDao sessionMediaItemDao;
-        private final Long timestamp;
-        private final List<MediaItem> mediaItems = new ArrayList<>();
-
-        public GetMediaItemsThreadSafe(SessionMediaItemDao sessionMediaItemDao, Long timestamp) {
-            this.sessionMediaItemDao = sessionMediaItemDao;
-            this.timestamp = timestamp;
-        }
-
-        @Override
-        public void run() {
-            List<SessionMediaItem> sessionMediaItems = sessionMediaItemDao.get(timestamp);
-            sessionMediaItems.forEach(sessionMediaItem -> mediaItems.add(sessionMediaItem.getMediaItem()));
-        }
-
-        public List<MediaItem> getMediaItems() {
-            return mediaItems;
-        }
-    }
-
-    private static class InsertAllThreadSafe implements Runnable {
-        private final SessionMediaItemDao sessionMediaItemDao;
-        private final List<SessionMediaItem> sessionMediaItems;
-
-        public InsertAllThreadSafe(SessionMediaItemDao sessionMediaItemDao, List<SessionMediaItem> sessionMediaItems) {
-            this.sessionMediaItemDao = sessionMediaItemDao;
-            this.sessionMediaItems = sessionMediaItems;
-        }
-
-        @Override
-        public void run() {
-            sessionMediaItemDao.insertAll(sessionMediaItems);
-        }
-    }
-
-    private static class DeleteAllThreadSafe implements Runnable {
-        private final SessionMediaItemDao sessionMediaItemDao;
-
-        public DeleteAllThreadSafe(SessionMediaItemDao sessionMediaItemDao) {
-            this.sessionMediaItemDao = sessionMediaItemDao;
-        }
-
-        @Override
-        public void run() {
-            sessionMediaItemDao.deleteAll();
-        }
+        DatabaseExecutor.execute("sessionMediaItem.deleteAll", sessionMediaItemDao::deleteAll);
     }
 }
@@ -3,37 +3,47 @@ package com.cappielloantonio.tempo.repository;
 import androidx.lifecycle.LiveData;
 
 import com.cappielloantonio.tempo.database.AppDatabase;
+import com.cappielloantonio.tempo.database.DatabaseExecutor;
 import com.cappielloantonio.tempo.database.dao.ChronologyDao;
+import com.cappielloantonio.tempo.database.dao.PlayEventDao;
 import com.cappielloantonio.tempo.model.Chronology;
+import com.cappielloantonio.tempo.model.PlayEvent;
+import com.cappielloantonio.tempo.model.PlayRollup;
 
-import java.util.Calendar;
 import java.util.List;
 
 public class ChronologyRepository {
-    private final ChronologyDao chronologyDao = AppDatabase.getInstance().chronologyDao();
-
-    public LiveData<List<Chronology>> getChronology(String server, long start, long end) {
-        return chronologyDao.getAllFrom(start, end, server);
-    }
+    // Longer periods are read from the weekly buckets, of which there are 7 times fewer.
+    private static final int DAILY_MAX_DAYS = 31;
+    private static final int MOST_PLAYED_COUNT = 20;
+
+    private final AppDatabase database = AppDatabase.getInstance();
+    private final ChronologyDao chronologyDao = database.chronologyDao();
+    private final PlayEventDao playEventDao = database.playEventDao();
+
+    /**
+     * The most played songs of the last {@code days} days, counted by week once the period is
+     * longer than {@link #DAILY_MAX_DAYS}.
+     */
+    public LiveData<List<Chronology>> getMostPlayed(String server, int days) {
+        long now = System.currentTimeMillis();
+
+        if (days <= DAILY_MAX_DAYS) {
+            return playEventDao.getMostPlayed(server, PlayRollup.GRANULARITY_DAY, PlayRollup.dayOf(now) - days + 1, MOST_PLAYED_COUNT);
+        }
 
-    public void insert(Chronology item) {
-        InsertThreadSafe insert = new InsertThreadSafe(chronologyDao, item);
-        Thread thread = new Thread(insert);
-        thread.start();
+        return playEventDao.getMostPlayed(server, PlayRollup.GRANULARITY_WEEK, PlayRollup.weekOf(now) - days / 7 + 1, MOST_PLAYED_COUNT);
     }
 
-    private static class InsertThreadSafe implements Runnable {
-        private final ChronologyDao chronologyDao;
-        private final Chronology item;
+    /**
+     * Records a play of {@code item}, which also becomes its last played entry.
+     */
+    public void insert(Chronology item, long playedDuration, String source) {
+        PlayEvent playEvent = new PlayEvent(0, item.getId(), item.getServer() != null ? item.getServer() : "", item.getTimestamp(), playedDuration, source);
 
-        public InsertThreadSafe(ChronologyDao chronologyDao, Chronology item) {
-            this.chronologyDao = chronologyDao;
-            this.item = item;
-        }
-
-        @Override
-        public void run() {
+        DatabaseExecutor.execute("chronology.insert", () -> database.runInTransaction(() -> {
             chronologyDao.insert(item);
-        }
+            playEventDao.record(playEvent);
+        }));
     }
 }
@@ -4,6 +4,8 @@ import androidx.annotation.NonNull;
 import androidx.lifecycle.MutableLiveData;
 
 import com.cappielloantonio.tempo.App;
+import com.cappielloantonio.tempo.database.DatabaseExecutor;
+import com.cappielloantonio.tempo.subsonic.ResponseCache;
 import com.cappielloantonio.tempo.subsonic.base.ApiResponse;
 import com.cappielloantonio.tempo.subsonic.models.Directory;
 import com.cappielloantonio.tempo.subsonic.models.Indexes;
@@ -18,12 +20,14 @@ import retrofit2.Response;
 public class DirectoryRepository {
     private static final String TAG = "DirectoryRepository";
 
+    private final LibraryRepository libraryRepository = new LibraryRepository();
+
     public MutableLiveData<List<MusicFolder>> getMusicFolders() {
         MutableLiveData<List<MusicFolder>> liveMusicFolders = new MutableLiveData<>();
 
-        App.getSubsonicClientInstance(false)
+        ResponseCache.cached(App.getSubsonicClientInstance(false)
                 .getBrowsingClient()
-                .getMusicFolders()
+                .getMusicFolders())
                 .enqueue(new Callback<ApiResponse>() {
                     @Override
                     public void onResponse(@NonNull Call<ApiResponse> call, @NonNull Response<ApiResponse> response) {
@@ -64,6 +68,43 @@ public class DirectoryRepository {
         return liveIndexes;
     }
 
+    /**
+     * Posts the indexes mirrored on disk first, then asks the server only for what changed since.
+     */
+    public MutableLiveData<Indexes> getMirroredIndexes(String musicFolderId) {
+        MutableLiveData<Indexes> liveIndexes = new MutableLiveData<>();
+
+        DatabaseExecutor.execute("library.getIndexes", () -> {
+            Indexes mirrored = libraryRepository.getIndexes(musicFolderId);
+            if (mirrored != null) liveIndexes.postValue(mirrored);
+
+            App.getSubsonicClientInstance(false)
+                    .getBrowsingClient()
+                    .getIndexes(musicFolderId, mirrored != null ? mirrored.getLastModified() : null)
+                    .enqueue(new Callback<ApiResponse>() {
+                        @Override
+                        public void onResponse(@NonNull Call<ApiResponse> call, @NonNull Response<ApiResponse> response) {
+                            if (response.isSuccessful() && response.body() != null && response.body().getSubsonicResponse().getIndexes() != null) {
+                                Indexes indexes = response.body().getSubsonicResponse().getIndexes();
+
+                                // Nothing is listed when nothing changed since ifModifiedSince
+                                if (mirrored != null && indexes.getIndices() == null && indexes.getChildren() == null) return;
+
+                                liveIndexes.setValue(indexes);
+                                DatabaseExecutor.execute("library.setIndexes", () -> libraryRepository.setIndexes(musicFolderId, indexes));
+                            }
+                        }
+
+                        @Override
+                        public void onFailure(@NonNull Call<ApiResponse> call, @NonNull Throwable t) {
+
+                        }
+                    });
+        });
+
+        return liveIndexes;
+    }
+
     public MutableLiveData<Directory> getMusicDirectory(String id) {
         MutableLiveData<Directory> liveMusicDirectory = new MutableLiveData<>();
 
@@ -1,22 +1,41 @@
 package com.cappielloantonio.tempo.repository;
 
+import android.util.Log;
+
 import androidx.annotation.NonNull;
 
 import com.cappielloantonio.tempo.App;
 import com.cappielloantonio.tempo.database.AppDatabase;
+import com.cappielloantonio.tempo.database.DatabaseExecutor;
 import com.cappielloantonio.tempo.database.dao.FavoriteDao;
 import com.cappielloantonio.tempo.interfaces.StarCallback;
 import com.cappielloantonio.tempo.model.Favorite;
+import com.cappielloantonio.tempo.service.FavoriteSync;
+import com.cappielloantonio.tempo.subsonic.ResponseCache;
+import com.cappielloantonio.tempo.subsonic.api.mediaannotation.MediaAnnotationClient;
 import com.cappielloantonio.tempo.subsonic.base.ApiResponse;
+import com.cappielloantonio.tempo.subsonic.models.ErrorCode;
+import com.cappielloantonio.tempo.subsonic.models.SubsonicResponse;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import retrofit2.Call;
 import retrofit2.Callback;
 import retrofit2.Response;
 
 public class FavoriteRepository {
+    private static final String TAG = "FavoriteRepository";
+
+    // Keeps the request URL well below the usual server limits
+    private static final int SYNC_BATCH_SIZE = 50;
+    private static final long SYNC_DELAY_MS = 2000;
+
     private final FavoriteDao favoriteDao = AppDatabase.getInstance().favoriteDao();
 
     public void star(String id, String albumId, String artistId, StarCallback starCallback) {
@@ -27,6 +46,7 @@ public class FavoriteRepository {
                     @Override
                     public void onResponse(@NonNull Call<ApiResponse> call, @NonNull Response<ApiResponse> response) {
                         if (response.isSuccessful()) {
+                            ResponseCache.invalidate("getStarred2");
                             starCallback.onSuccess();
                         } else {
                             starCallback.onError();
@@ -48,6 +68,7 @@ public class FavoriteRepository {
                     @Override
                     public void onResponse(@NonNull Call<ApiResponse> call, @NonNull Response<ApiResponse> response) {
                         if (response.isSuccessful()) {
+                            ResponseCache.invalidate("getStarred2");
                             starCallback.onSuccess();
                         } else {
                             starCallback.onError();
@@ -61,80 +82,143 @@ public class FavoriteRepository {
                 });
     }
 
-    public List<Favorite> getFavorites() {
-        List<Favorite> favorites = new ArrayList<>();
+    public void starLater(String id, String albumId, String artistId, boolean toStar) {
+        Favorite favorite = new Favorite(System.currentTimeMillis(), id, albumId, artistId, toStar);
+        DatabaseExecutor.execute("favorite.insert", () -> {
+            favoriteDao.insert(favorite);
+            FavoriteSync.request(SYNC_DELAY_MS);
+        });
+    }
+
+    /**
+     * Sends the favorite changes that could not be sent when they were made. Only the latest change
+     * of each song, album or artist is sent, batched into multi-id star and unstar requests.
+     * Blocking, call it off the main thread.
+     *
+     * @return false if the server could not be reached, in which case the changes are kept for a
+     * later sync.
+     */
+    public boolean sync() {
+        Map<Target, List<Favorite>> changesByTarget = new LinkedHashMap<>();
+
+        for (Favorite favorite : favoriteDao.getAll()) {
+            changesByTarget.computeIfAbsent(Target.of(favorite), key -> new ArrayList<>()).add(favorite);
+        }
 
-        GetAllThreadSafe getAllThreadSafe = new GetAllThreadSafe(favoriteDao);
-        Thread thread = new Thread(getAllThreadSafe);
-        thread.start();
+        if (changesByTarget.isEmpty()) return true;
 
-        try {
-            thread.join();
-            favorites = getAllThreadSafe.getFavorites();
-        } catch (InterruptedException e) {
-            e.printStackTrace();
+        List<List<Favorite>> toStar = new ArrayList<>();
+        List<List<Favorite>> toUnstar = new ArrayList<>();
+
+        for (List<Favorite> changes : changesByTarget.values()) {
+            Favorite latest = Collections.max(changes, Comparator.comparingLong(Favorite::getTimestamp));
+            (latest.getToStar() ? toStar : toUnstar).add(changes);
         }
 
-        return favorites;
+        boolean synced = sync(toStar, true) && sync(toUnstar, false);
+        ResponseCache.invalidate("getStarred2");
+
+        return synced;
     }
 
-    private static class GetAllThreadSafe implements Runnable {
-        private final FavoriteDao favoriteDao;
-        private List<Favorite> favorites = new ArrayList<>();
+    private boolean sync(List<List<Favorite>> targets, boolean toStar) {
+        for (int from = 0; from < targets.size(); from += SYNC_BATCH_SIZE) {
+            List<List<Favorite>> batch = targets.subList(from, Math.min(from + SYNC_BATCH_SIZE, targets.size()));
 
-        public GetAllThreadSafe(FavoriteDao favoriteDao) {
-            this.favoriteDao = favoriteDao;
-        }
+            Boolean accepted = send(batch, toStar);
+            if (accepted == null) return false;
 
-        @Override
-        public void run() {
-            favorites = favoriteDao.getAll();
-        }
+            if (accepted || batch.size() == 1) {
+                complete(batch, accepted);
+                continue;
+            }
+
+            // A single unknown id fails the whole request, so find it by sending them one by one.
+            for (List<Favorite> target : batch) {
+                List<List<Favorite>> single = Collections.singletonList(target);
 
-        public List<Favorite> getFavorites() {
-            return favorites;
+                Boolean singleAccepted = send(single, toStar);
+                if (singleAccepted == null) return false;
+
+                complete(single, singleAccepted);
+            }
         }
-    }
 
-    public void starLater(String id, String albumId, String artistId, boolean toStar) {
-        InsertThreadSafe insert = new InsertThreadSafe(favoriteDao, new Favorite(System.currentTimeMillis(), id, albumId, artistId, toStar));
-        Thread thread = new Thread(insert);
-        thread.start();
+        return true;
     }
 
-    private static class InsertThreadSafe implements Runnable {
-        private final FavoriteDao favoriteDao;
-        private final Favorite favorite;
+    /**
+     * Deletes the changes that were sent. A change of something the server does not know would be
+     * rejected again, so it is dropped as well. Changes made since the sync started are left alone.
+     */
+    private void complete(List<List<Favorite>> targets, boolean accepted) {
+        List<Long> timestamps = new ArrayList<>();
 
-        public InsertThreadSafe(FavoriteDao favoriteDao, Favorite favorite) {
-            this.favoriteDao = favoriteDao;
-            this.favorite = favorite;
-        }
+        for (List<Favorite> changes : targets) {
+            if (!accepted) Log.w(TAG, "Server rejected favorite change for " + changes.get(0));
 
-        @Override
-        public void run() {
-            favoriteDao.insert(favorite);
+            for (Favorite favorite : changes) {
+                timestamps.add(favorite.getTimestamp());
+            }
         }
-    }
 
-    public void delete(Favorite favorite) {
-        DeleteThreadSafe delete = new DeleteThreadSafe(favoriteDao, favorite);
-        Thread thread = new Thread(delete);
-        thread.start();
+        favoriteDao.deleteByTimestamps(timestamps);
     }
 
-    private static class DeleteThreadSafe implements Runnable {
-        private final FavoriteDao favoriteDao;
-        private final Favorite favorite;
+    /**
+     * @return whether the server accepted the change, false only if it does not know one of the
+     * targets, or null if it could not be reached or failed for any other reason, e.g. an expired
+     * password, in which case the changes must be kept.
+     */
+    private Boolean send(List<List<Favorite>> targets, boolean toStar) {
+        List<String> ids = new ArrayList<>();
+        List<String> albumIds = new ArrayList<>();
+        List<String> artistIds = new ArrayList<>();
+
+        for (List<Favorite> changes : targets) {
+            Favorite favorite = changes.get(0);
+
+            if (favorite.getSongId() != null) {
+                ids.add(favorite.getSongId());
+            } else if (favorite.getAlbumId() != null) {
+                albumIds.add(favorite.getAlbumId());
+            } else if (favorite.getArtistId() != null) {
+                artistIds.add(favorite.getArtistId());
+            }
+        }
+
+        MediaAnnotationClient client = App.getSubsonicClientInstance(false).getMediaAnnotationClient();
+
+        try {
+            Response<ApiResponse> response = (toStar ? client.star(ids, albumIds, artistIds) : client.unstar(ids, albumIds, artistIds)).execute();
+
+            if (!response.isSuccessful() || response.body() == null) {
+                Log.w(TAG, "Favorite sync failed with status code: " + response.code());
+                return null;
+            }
 
-        public DeleteThreadSafe(FavoriteDao favoriteDao, Favorite favorite) {
-            this.favoriteDao = favoriteDao;
-            this.favorite = favorite;
+            SubsonicResponse subsonicResponse = response.body().getSubsonicResponse();
+            if ("ok".equals(subsonicResponse.getStatus())) return true;
+
+            Integer code = subsonicResponse.getError() != null ? subsonicResponse.getError().getCode() : null;
+            if (code != null && code == ErrorCode.DATA_NOT_FOUND) return false;
+
+            Log.w(TAG, "Favorite sync failed with error code: " + code);
+            return null;
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "Favorite sync failed", e);
+            return null;
         }
+    }
 
-        @Override
-        public void run() {
-            favoriteDao.delete(favorite);
+    /**
+     * The song, album or artist a favorite change applies to.
+     */
+    private record Target(String type, String id) {
+        static Target of(Favorite favorite) {
+            if (favorite.getSongId() != null) return new Target("song", favorite.getSongId());
+            if (favorite.getAlbumId() != null) return new Target("album", favorite.getAlbumId());
+            return new Target("artist", favorite.getArtistId());
         }
     }
 }
@@ -4,6 +4,7 @@ import androidx.annotation.NonNull;
 import androidx.lifecycle.MutableLiveData;
 
 import com.cappielloantonio.tempo.App;
+import com.cappielloantonio.tempo.subsonic.ResponseCache;
 import com.cappielloantonio.tempo.subsonic.base.ApiResponse;
 import com.cappielloantonio.tempo.subsonic.models.Genre;
 
@@ -20,9 +21,9 @@ public class GenreRepository {
     public MutableLiveData<List<Genre>> getGenres(boolean random, int size) {
         MutableLiveData<List<Genre>> genres = new MutableLiveData<>();
 
-        App.getSubsonicClientInstance(false)
+        ResponseCache.cached(App.getSubsonicClientInstance(false)
                 .getBrowsingClient()
-                .getGenres()
+                .getGenres())
                 .enqueue(new Callback<ApiResponse>() {
                     @Override
                     public void onResponse(@NonNull Call<ApiResponse> call, @NonNull Response<ApiResponse> response) {
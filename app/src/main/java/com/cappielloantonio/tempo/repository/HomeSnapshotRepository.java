@@ -0,0 +1,69 @@
+package com.cappielloantonio.tempo.repository;
+
+import android.util.Log;
+
+import com.cappielloantonio.tempo.database.AppDatabase;
+import com.cappielloantonio.tempo.database.DatabaseExecutor;
+import com.cappielloantonio.tempo.database.dao.HomeSnapshotDao;
+import com.cappielloantonio.tempo.model.HomeSnapshot;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonDeserializer;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.JsonSerializer;
+
+import java.lang.reflect.Type;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The last content of each home sector, per server. A snapshot is only what the sector showed, it
+ * is replaced as soon as the sector is fetched again.
+ */
+public class HomeSnapshotRepository {
+    private static final String TAG = "HomeSnapshotRepository";
+
+    // Dates as epoch millis, which read back the same whatever the locale
+    private static final Gson gson = new GsonBuilder()
+            .registerTypeAdapter(Date.class, (JsonSerializer<Date>) (date, type, context) -> new JsonPrimitive(date.getTime()))
+            .registerTypeAdapter(Date.class, (JsonDeserializer<Date>) (json, type, context) -> new Date(json.getAsLong()))
+            .create();
+
+    private final HomeSnapshotDao homeSnapshotDao = AppDatabase.getInstance().homeSnapshotDao();
+
+    /**
+     * The snapshots of {@code server}, parsed with the type of their sector in {@code types}.
+     * Sectors without a type, or whose snapshot no longer parses, are left out.
+     */
+    public ListenableFuture<Map<String, Object>> load(String server, Map<String, Type> types) {
+        return DatabaseExecutor.submit("homeSnapshot.getAll", () -> {
+            Map<String, Object> snapshots = new HashMap<>();
+
+            for (HomeSnapshot snapshot : homeSnapshotDao.getAll(server)) {
+                Type type = types.get(snapshot.getSector());
+                if (type == null) continue;
+
+                try {
+                    Object value = gson.fromJson(snapshot.getPayload(), type);
+                    if (value != null) snapshots.put(snapshot.getSector(), value);
+                } catch (JsonParseException | IllegalStateException | NumberFormatException exception) {
+                    Log.w(TAG, "Dropping the snapshot of " + snapshot.getSector(), exception);
+                }
+            }
+
+            return snapshots;
+        });
+    }
+
+    /**
+     * Keeps {@code value} as the snapshot of {@code sector}. It is serialized right away, so the
+     * caller may go on changing it.
+     */
+    public void save(String server, String sector, Object value) {
+        HomeSnapshot snapshot = new HomeSnapshot(server, sector, gson.toJson(value), System.currentTimeMillis());
+        DatabaseExecutor.execute("homeSnapshot.insert", () -> homeSnapshotDao.insert(snapshot));
+    }
+}
@@ -0,0 +1,441 @@
+package com.cappielloantonio.tempo.repository;
+
+import android.util.Log;
+
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.Transformations;
+import androidx.paging.Pager;
+import androidx.paging.PagingConfig;
+import androidx.paging.PagingData;
+import androidx.paging.PagingDataTransforms;
+import androidx.paging.PagingLiveData;
+import androidx.sqlite.db.SimpleSQLiteQuery;
+
+import com.cappielloantonio.tempo.App;
+import com.cappielloantonio.tempo.database.AppDatabase;
+import com.cappielloantonio.tempo.database.DatabaseExecutor;
+import com.cappielloantonio.tempo.database.dao.LibraryDao;
+import com.cappielloantonio.tempo.model.LibraryItem;
+import com.cappielloantonio.tempo.model.SearchItem;
+import com.cappielloantonio.tempo.service.LibrarySync;
+import com.cappielloantonio.tempo.subsonic.Subsonic;
+import com.cappielloantonio.tempo.subsonic.base.ApiResponse;
+import com.cappielloantonio.tempo.subsonic.models.AlbumID3;
+import com.cappielloantonio.tempo.subsonic.models.ArtistID3;
+import com.cappielloantonio.tempo.subsonic.models.Child;
+import com.cappielloantonio.tempo.subsonic.models.Genre;
+import com.cappielloantonio.tempo.subsonic.models.IndexID3;
+import com.cappielloantonio.tempo.subsonic.models.Indexes;
+import com.cappielloantonio.tempo.subsonic.models.Playlist;
+import com.cappielloantonio.tempo.subsonic.models.SubsonicResponse;
+import com.cappielloantonio.tempo.util.Constants;
+import com.cappielloantonio.tempo.util.Preferences;
+import com.google.gson.Gson;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import retrofit2.Call;
+import retrofit2.Response;
+
+/**
+ * A mirror of the server library in the database, so that the catalogue screens render from disk.
+ * <p>
+ * A sync first asks {@code getIndexes} whether anything changed since the last one, using its
+ * {@code ifModifiedSince} parameter, and stops there if nothing did. Otherwise it refreshes the
+ * artists, genres and albums, and fetches the songs of the albums whose signature changed only.
+ */
+public class LibraryRepository {
+    private static final String TAG = "LibraryRepository";
+
+    private static final int PAGE_SIZE = 500;
+    private static final String ALL_FOLDERS = "";
+
+    // Catalogue pages, a few screens of the grid each
+    private static final int CATALOGUE_PAGE_SIZE = 60;
+
+    private static final Gson gson = new Gson();
+    private static final Random random = new Random();
+
+    private final LibraryDao libraryDao = AppDatabase.getInstance().libraryDao();
+    private final SearchIndexRepository searchIndexRepository = new SearchIndexRepository();
+    private final ScanRepository scanRepository = new ScanRepository();
+
+    /**
+     * The mirrored albums, filtered by name and sorted by {@code order}, one of the
+     * {@code ALBUM_ORDER_BY} constants. Loading them requests a {@link LibrarySync}, which
+     * builds the mirror if it is empty.
+     */
+    public LiveData<PagingData<AlbumID3>> getAlbumPages(String order, String filter) {
+        String orderBy;
+
+        switch (order) {
+            case Constants.ALBUM_ORDER_BY_ARTIST:
+                orderBy = "artist COLLATE NOCASE, name COLLATE NOCASE";
+                break;
+            case Constants.ALBUM_ORDER_BY_YEAR:
+                orderBy = "year, name COLLATE NOCASE";
+                break;
+            case Constants.ALBUM_ORDER_BY_RANDOM:
+                orderBy = getRandomOrderBy();
+                break;
+            case Constants.ALBUM_ORDER_BY_RECENTLY_ADDED:
+                orderBy = "created DESC";
+                break;
+            default:
+                // The order of the alphabeticalByName walk, so the server's collation
+                orderBy = "position";
+                break;
+        }
+
+        return getPages(LibraryItem.TYPE_ALBUM, orderBy, filter, AlbumID3.class);
+    }
+
+    /**
+     * The mirrored artists, filtered by name and sorted by {@code order}, one of the
+     * {@code ARTIST_ORDER_BY} constants. Loading them requests a {@link LibrarySync}, which
+     * builds the mirror if it is empty.
+     */
+    public LiveData<PagingData<ArtistID3>> getArtistPages(String order, String filter) {
+        String orderBy;
+
+        switch (order) {
+            case Constants.ARTIST_ORDER_BY_RANDOM:
+                orderBy = getRandomOrderBy();
+                break;
+            case Constants.ARTIST_ORDER_BY_ALBUM_COUNT:
+                orderBy = "album_count DESC, position";
+                break;
+            default:
+                // The order of getArtists, which ignores the articles the server is set up with
+                orderBy = "position";
+                break;
+        }
+
+        return getPages(LibraryItem.TYPE_ARTIST, orderBy, filter, ArtistID3.class);
+    }
+
+    /**
+     * Blocking, call it off the main thread.
+     */
+    public List<Genre> getGenres() {
+        return getAll(LibraryItem.TYPE_GENRE, Genre.class);
+    }
+
+    /**
+     * The last {@code getIndexes} response for {@code musicFolderId}, or null. Blocking, call it
+     * off the main thread.
+     */
+    public Indexes getIndexes(String musicFolderId) {
+        String server = Preferences.getServerId();
+        if (server == null) return null;
+
+        LibraryItem libraryItem = libraryDao.get(server, LibraryItem.TYPE_INDEXES, musicFolderId != null ? musicFolderId : ALL_FOLDERS);
+        return libraryItem != null ? gson.fromJson(libraryItem.getPayload(), Indexes.class) : null;
+    }
+
+    /**
+     * Blocking, call it off the main thread.
+     */
+    public void setIndexes(String musicFolderId, Indexes indexes) {
+        String server = Preferences.getServerId();
+        if (server == null) return;
+
+        String itemId = musicFolderId != null ? musicFolderId : ALL_FOLDERS;
+        libraryDao.insertAll(Collections.singletonList(new LibraryItem(server, LibraryItem.TYPE_INDEXES, itemId, null, 0, null, gson.toJson(indexes), System.currentTimeMillis(), null, null, 0, null, null, 0, 0)));
+    }
+
+    /**
+     * Whether the mirror of {@code server} has been built. Blocking, call it off the main thread.
+     */
+    public boolean isMirrored(String server) {
+        return libraryDao.count(server, LibraryItem.TYPE_ALBUM) > 0;
+    }
+
+    /**
+     * Brings the mirror of {@code server} up to date. Blocking, call it off the main thread.
+     *
+     * @return false if the server could not be reached or is scanning, in which case the sync has
+     * to be retried later.
+     */
+    public boolean sync(String server) {
+        Subsonic subsonic = App.getSubsonicClientInstance(false);
+
+        Boolean scanning = scanRepository.isScanning();
+        if (scanning == null) return false;
+
+        // The library is only half updated while the server scans it
+        if (scanning) {
+            Log.d(TAG, "Server is scanning, sync postponed");
+            return false;
+        }
+
+        long lastModified = Preferences.getLibraryLastModified(server);
+        boolean mirrored = isMirrored(server);
+
+        SubsonicResponse indexes = fetch(subsonic.getBrowsingClient().getIndexes(null, mirrored ? lastModified : null));
+        if (indexes == null) return false;
+
+        long modified = indexes.getIndexes() != null ? indexes.getIndexes().getLastModified() : 0;
+        boolean changed = !mirrored || modified == 0 || modified > lastModified;
+
+        if (changed) {
+            if (!syncLibrary(subsonic, server)) return false;
+            Preferences.setLibraryLastModified(server, modified);
+        }
+
+        // Playlists are not covered by the scan, and are cheap to check every time
+        SubsonicResponse playlists = fetch(subsonic.getPlaylistClient().getPlaylists());
+        if (playlists == null) return false;
+
+        if (playlists.getPlaylists() != null && playlists.getPlaylists().getPlaylists() != null) {
+            List<String> ids = new ArrayList<>();
+
+            for (Playlist playlist : playlists.getPlaylists().getPlaylists()) {
+                ids.add(playlist.getId());
+            }
+
+            searchIndexRepository.retain(server, SearchItem.TYPE_PLAYLIST, ids);
+        }
+
+        return true;
+    }
+
+    private boolean syncLibrary(Subsonic subsonic, String server) {
+        long now = System.currentTimeMillis();
+
+        SubsonicResponse artists = fetch(subsonic.getBrowsingClient().getArtists());
+        if (artists == null) return false;
+
+        List<LibraryItem> artistItems = new ArrayList<>();
+
+        if (artists.getArtists() != null && artists.getArtists().getIndices() != null) {
+            for (IndexID3 index : artists.getArtists().getIndices()) {
+                if (index.getArtists() == null) continue;
+
+                for (ArtistID3 artist : index.getArtists()) {
+                    if (artist.getId() == null) continue;
+                    artistItems.add(new LibraryItem(server, LibraryItem.TYPE_ARTIST, artist.getId(), null, artistItems.size(), null, gson.toJson(artist), now, artist.getName(), null, 0, null, null, 0, artist.getAlbumCount()));
+                }
+            }
+        }
+
+        SubsonicResponse genres = fetch(subsonic.getBrowsingClient().getGenres());
+        if (genres == null) return false;
+
+        List<LibraryItem> genreItems = new ArrayList<>();
+
+        if (genres.getGenres() != null && genres.getGenres().getGenres() != null) {
+            for (Genre genre : genres.getGenres().getGenres()) {
+                if (genre.getGenre() == null) continue;
+                genreItems.add(new LibraryItem(server, LibraryItem.TYPE_GENRE, genre.getGenre(), null, genreItems.size(), null, gson.toJson(genre), now, genre.getGenre(), null, 0, null, null, 0, genre.getAlbumCount()));
+            }
+        }
+
+        List<AlbumID3> albums = new ArrayList<>();
+
+        for (int offset = 0; ; offset += PAGE_SIZE) {
+            SubsonicResponse page = fetch(subsonic.getAlbumSongListClient().getAlbumList2("alphabeticalByName", PAGE_SIZE, offset, null, null));
+            if (page == null) return false;
+
+            List<AlbumID3> pageAlbums = page.getAlbumList2() != null ? page.getAlbumList2().getAlbums() : null;
+            if (pageAlbums != null) albums.addAll(pageAlbums);
+            if (pageAlbums == null || pageAlbums.size() < PAGE_SIZE) break;
+        }
+
+        Map<String, String> signatures = new HashMap<>();
+
+        for (LibraryItem.Signature signature : libraryDao.getSignatures(server, LibraryItem.TYPE_ALBUM)) {
+            signatures.put(signature.getItemId(), signature.getSignature());
+        }
+
+        boolean songsMirrored = libraryDao.count(server, LibraryItem.TYPE_SONG) > 0;
+        List<LibraryItem> albumItems = new ArrayList<>();
+        List<String> changedAlbums = new ArrayList<>();
+        Set<String> albumIds = new HashSet<>();
+
+        for (AlbumID3 album : albums) {
+            if (album.getId() == null || !albumIds.add(album.getId())) continue;
+
+            String signature = getSignature(album);
+            albumItems.add(new LibraryItem(server, LibraryItem.TYPE_ALBUM, album.getId(), album.getArtistId(), albumItems.size(), signature, gson.toJson(album), now, album.getName(), album.getArtist(), album.getYear(), getTime(album.getCreated()), getTime(album.getPlayed()), album.getPlayCount() != null ? album.getPlayCount() : 0, 0));
+
+            if (!songsMirrored || !signature.equals(signatures.get(album.getId()))) {
+                changedAlbums.add(album.getId());
+            }
+        }
+
+        List<String> removedAlbums = new ArrayList<>();
+
+        for (String albumId : signatures.keySet()) {
+            if (!albumIds.contains(albumId)) removedAlbums.add(albumId);
+        }
+
+        // Fetched before anything is written, so that a failed sync leaves the mirror as it was
+        Map<String, List<Child>> songs = songsMirrored ? null : fetchAllSongs(subsonic);
+
+        if (songs == null) {
+            songs = new LinkedHashMap<>();
+
+            for (String albumId : changedAlbums) {
+                SubsonicResponse album = fetch(subsonic.getBrowsingClient().getAlbum(albumId));
+                if (album == null) return false;
+
+                songs.put(albumId, album.getAlbum() != null && album.getAlbum().getSongs() != null ? album.getAlbum().getSongs() : Collections.emptyList());
+            }
+        }
+
+        List<LibraryItem> songItems = new ArrayList<>();
+
+        for (Map.Entry<String, List<Child>> entry : songs.entrySet()) {
+            int position = 0;
+
+            for (Child song : entry.getValue()) {
+                songItems.add(new LibraryItem(server, LibraryItem.TYPE_SONG, song.getId(), entry.getKey(), position++, null, gson.toJson(song), now, song.getTitle(), song.getArtist(), song.getYear() != null ? song.getYear() : 0, getTime(song.getCreated()), null, 0, 0));
+            }
+        }
+
+        List<String> staleAlbums = new ArrayList<>(removedAlbums);
+        staleAlbums.addAll(songs.keySet());
+
+        AppDatabase.getInstance().runInTransaction(() -> {
+            libraryDao.replaceAll(server, LibraryItem.TYPE_ARTIST, artistItems);
+            libraryDao.replaceAll(server, LibraryItem.TYPE_GENRE, genreItems);
+            libraryDao.replaceAll(server, LibraryItem.TYPE_ALBUM, albumItems);
+            libraryDao.replaceChildren(server, LibraryItem.TYPE_SONG, staleAlbums, songItems);
+        });
+
+        Log.d(TAG, "Synced " + albumItems.size() + " albums, " + changedAlbums.size() + " changed, " + removedAlbums.size() + " removed");
+
+        // The responses above went through the search index already, this only drops what is gone
+        searchIndexRepository.retain(server, SearchItem.TYPE_ARTIST, libraryDao.getIds(server, LibraryItem.TYPE_ARTIST));
+        searchIndexRepository.retain(server, SearchItem.TYPE_ALBUM, libraryDao.getIds(server, LibraryItem.TYPE_ALBUM));
+        searchIndexRepository.retain(server, SearchItem.TYPE_SONG, libraryDao.getIds(server, LibraryItem.TYPE_SONG));
+
+        return true;
+    }
+
+    /**
+     * Lists every song with a few paged {@code search3} calls instead of one {@code getAlbum} per
+     * album, or returns null if the server does not list songs for an empty query.
+     */
+    private Map<String, List<Child>> fetchAllSongs(Subsonic subsonic) {
+        Map<String, List<Child>> songs = new LinkedHashMap<>();
+
+        for (int offset = 0; ; offset += PAGE_SIZE) {
+            SubsonicResponse page = fetch(subsonic.getSearchingClient().search3("", PAGE_SIZE, offset, 0, 0, 0, 0));
+            if (page == null) return null;
+
+            List<Child> pageSongs = page.getSearchResult3() != null ? page.getSearchResult3().getSongs() : null;
+            if (offset == 0 && (pageSongs == null || pageSongs.isEmpty())) return null;
+
+            if (pageSongs != null) {
+                for (Child song : pageSongs) {
+                    if (song.getAlbumId() != null) {
+                        songs.computeIfAbsent(song.getAlbumId(), key -> new ArrayList<>()).add(song);
+                    }
+                }
+            }
+
+            if (pageSongs == null || pageSongs.size() < PAGE_SIZE) break;
+        }
+
+        for (List<Child> albumSongs : songs.values()) {
+            albumSongs.sort((first, second) -> {
+                int disc = Integer.compare(first.getDiscNumber() != null ? first.getDiscNumber() : 0, second.getDiscNumber() != null ? second.getDiscNumber() : 0);
+                return disc != 0 ? disc : Integer.compare(first.getTrack() != null ? first.getTrack() : 0, second.getTrack() != null ? second.getTrack() : 0);
+            });
+        }
+
+        return songs;
+    }
+
+    /**
+     * The fields that change when the songs of {@code album} change. Play counts, ratings and
+     * stars are left out, they change all the time without affecting the track list.
+     */
+    private static String getSignature(AlbumID3 album) {
+        return album.getName() + "|" + album.getArtistId() + "|" + album.getSongCount() + "|" + album.getDuration() + "|" + getTime(album.getCreated()) + "|" + album.getCoverArtId();
+    }
+
+    private static Long getTime(Date date) {
+        return date != null ? date.getTime() : null;
+    }
+
+    private <T> LiveData<PagingData<T>> getPages(String type, String orderBy, String filter, Class<T> clazz) {
+        String server = Preferences.getServerId();
+        List<Object> args = new ArrayList<>();
+        args.add(server != null ? server : "");
+        args.add(type);
+
+        StringBuilder sql = new StringBuilder("SELECT * FROM library_item WHERE server = ? AND type = ?");
+
+        if (filter != null && !filter.trim().isEmpty()) {
+            sql.append(" AND name LIKE ? ESCAPE '\\'");
+            args.add("%" + filter.trim().replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%");
+        }
+
+        sql.append(" ORDER BY ").append(orderBy);
+
+        SimpleSQLiteQuery query = new SimpleSQLiteQuery(sql.toString(), args.toArray());
+        Pager<Integer, LibraryItem> pager = new Pager<>(
+                new PagingConfig(CATALOGUE_PAGE_SIZE, CATALOGUE_PAGE_SIZE, true),
+                () -> libraryDao.getPagingSource(query)
+        );
+
+        // Not part of the load: the pages come from the mirror as it is, and are invalidated as
+        // the sync writes to it
+        LibrarySync.request();
+
+        return Transformations.map(PagingLiveData.getLiveData(pager), pagingData ->
+                PagingDataTransforms.map(pagingData, DatabaseExecutor.getExecutor(), libraryItem -> gson.fromJson(libraryItem.getPayload(), clazz)));
+    }
+
+    /**
+     * A shuffle that stays the same while the pages of one load come in.
+     */
+    private static String getRandomOrderBy() {
+        return "((position + 1) * " + (1 + random.nextInt(Integer.MAX_VALUE - 1)) + ") % " + Integer.MAX_VALUE;
+    }
+
+    private <T> List<T> getAll(String type, Class<T> clazz) {
+        List<T> items = new ArrayList<>();
+
+        String server = Preferences.getServerId();
+        if (server == null) return items;
+
+        for (LibraryItem libraryItem : libraryDao.getAll(server, type)) {
+            items.add(gson.fromJson(libraryItem.getPayload(), clazz));
+        }
+
+        return items;
+    }
+
+    /**
+     * @return the response, or null if the request failed.
+     */
+    private static SubsonicResponse fetch(Call<ApiResponse> call) {
+        try {
+            Response<ApiResponse> response = call.execute();
+
+            if (!response.isSuccessful() || response.body() == null || !"ok".equals(response.body().getSubsonicResponse().getStatus())) {
+                Log.w(TAG, "Library request failed with status code: " + response.code());
+                return null;
+            }
+
+            return response.body().getSubsonicResponse();
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "Library request failed", e);
+            return null;
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.cappielloantonio.tempo.repository;
 import static android.provider.Settings.System.getString;
 
 import android.provider.Settings;
+import android.util.Log;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
@@ -12,7 +13,10 @@ import androidx.lifecycle.MutableLiveData;
 import com.cappielloantonio.tempo.App;
 import com.cappielloantonio.tempo.R;
 import com.cappielloantonio.tempo.database.AppDatabase;
+import com.cappielloantonio.tempo.database.DatabaseExecutor;
 import com.cappielloantonio.tempo.database.dao.PlaylistDao;
+import com.cappielloantonio.tempo.subsonic.ResponseCache;
+import com.cappielloantonio.tempo.subsonic.ResponseStreamer;
 import com.cappielloantonio.tempo.subsonic.base.ApiResponse;
 import com.cappielloantonio.tempo.subsonic.models.Child;
 import com.cappielloantonio.tempo.subsonic.models.Playlist;
@@ -26,14 +30,19 @@ import retrofit2.Callback;
 import retrofit2.Response;
 
 public class PlaylistRepository {
+    private static final String TAG = "PlaylistRepository";
+
+    // Songs decoded before the list shown is updated
+    private static final int PLAYLIST_BATCH_SIZE = 500;
+
     @androidx.media3.common.util.UnstableApi
     private final PlaylistDao playlistDao = AppDatabase.getInstance().playlistDao();
     public MutableLiveData<List<Playlist>> getPlaylists(boolean random, int size) {
         MutableLiveData<List<Playlist>> listLivePlaylists = new MutableLiveData<>(new ArrayList<>());
 
-        App.getSubsonicClientInstance(false)
+        ResponseCache.cached(App.getSubsonicClientInstance(false)
                 .getPlaylistClient()
-                .getPlaylists()
+                .getPlaylists())
                 .enqueue(new Callback<ApiResponse>() {
                     @Override
                     public void onResponse(@NonNull Call<ApiResponse> call, @NonNull Response<ApiResponse> response) {
@@ -58,24 +67,41 @@ public class PlaylistRepository {
     }
 
     public MutableLiveData<List<Child>> getPlaylistSongs(String id) {
+        return getPlaylistSongs(id, null);
+    }
+
+    /**
+     * @param done if not null, the songs decoded so far are also posted while a long playlist
+     *             downloads, and {@code done} is set once no more will come. Until then the list
+     *             is only the start of the playlist, so nothing should act on it as a whole.
+     */
+    public MutableLiveData<List<Child>> getPlaylistSongs(String id, MutableLiveData<Boolean> done) {
+        boolean progressive = done != null;
         MutableLiveData<List<Child>> listLivePlaylistSongs = new MutableLiveData<>();
+        List<Child> songs = new ArrayList<>();
 
-        App.getSubsonicClientInstance(false)
+        // Decoded song by song, without holding the whole response
+        ResponseStreamer.enqueue(App.getSubsonicClientInstance(false)
                 .getPlaylistClient()
-                .getPlaylist(id)
-                .enqueue(new Callback<ApiResponse>() {
+                .getPlaylistStream(id), Child.class, PLAYLIST_BATCH_SIZE, new ResponseStreamer.BatchCallback<Child>() {
                     @Override
-                    public void onResponse(@NonNull Call<ApiResponse> call, @NonNull Response<ApiResponse> response) {
-                        if (response.isSuccessful() && response.body() != null && response.body().getSubsonicResponse().getPlaylist() != null) {
-                            List<Child> songs = response.body().getSubsonicResponse().getPlaylist().getEntries();
-                            listLivePlaylistSongs.setValue(songs);
-                        }
+                    public void onBatch(List<Child> items) {
+                        songs.addAll(items);
+                        if (progressive) listLivePlaylistSongs.postValue(new ArrayList<>(songs));
                     }
 
                     @Override
-                    public void onFailure(@NonNull Call<ApiResponse> call, @NonNull Throwable t) {
+                    public void onComplete(int count) {
+                        if (!progressive || count == 0) listLivePlaylistSongs.postValue(songs);
+                        if (progressive) done.postValue(true);
                     }
-                });
+
+                    @Override
+                    public void onFailure(Throwable t) {
+                        Log.e(TAG, "Failed to load playlist " + id, t);
+                        if (progressive) done.postValue(true);
+                    }
+                }, "playlist", "entry");
 
         return listLivePlaylistSongs;
     }
@@ -117,6 +143,7 @@ public class PlaylistRepository {
                     .enqueue(new Callback<ApiResponse>() {
                         @Override
                         public void onResponse(@NonNull Call<ApiResponse> call, @NonNull Response<ApiResponse> response) {
+                            ResponseCache.invalidate("getPlaylists");
                             Toast.makeText(App.getContext(), App.getContext().getString(R.string.playlist_chooser_dialog_toast_add_success), Toast.LENGTH_SHORT).show();
                         }
 
@@ -135,7 +162,7 @@ public class PlaylistRepository {
                 .enqueue(new Callback<ApiResponse>() {
                     @Override
                     public void onResponse(@NonNull Call<ApiResponse> call, @NonNull Response<ApiResponse> response) {
-
+                        ResponseCache.invalidate("getPlaylists");
                     }
 
                     @Override
@@ -169,7 +196,7 @@ public class PlaylistRepository {
                 .enqueue(new Callback<ApiResponse>() {
                     @Override
                     public void onResponse(@NonNull Call<ApiResponse> call, @NonNull Response<ApiResponse> response) {
-
+                        ResponseCache.invalidate("getPlaylists");
                     }
 
                     @Override
@@ -185,45 +212,11 @@ public class PlaylistRepository {
 
     @androidx.media3.common.util.UnstableApi
     public void insert(Playlist playlist) {
-        InsertThreadSafe insert = new InsertThreadSafe(playlistDao, playlist);
-        Thread thread = new Thread(insert);
-        thread.start();
+        DatabaseExecutor.execute("playlist.insert", () -> playlistDao.insert(playlist));
     }
 
     @androidx.media3.common.util.UnstableApi
     public void delete(Playlist playlist) {
-        DeleteThreadSafe delete = new DeleteThreadSafe(playlistDao, playlist);
-        Thread thread = new Thread(delete);
-        thread.start();
-    }
-
-    private static class InsertThreadSafe implements Runnable {
-        private final PlaylistDao playlistDao;
-        private final Playlist playlist;
-
-        public InsertThreadSafe(PlaylistDao playlistDao, Playlist playlist) {
-            this.playlistDao = playlistDao;
-            this.playlist = playlist;
-        }
-
-        @Override
-        public void run() {
-            playlistDao.insert(playlist);
-        }
-    }
-
-    private static class DeleteThreadSafe implements Runnable {
-        private final PlaylistDao playlistDao;
-        private final Playlist playlist;
-
-        public DeleteThreadSafe(PlaylistDao playlistDao, Playlist playlist) {
-            this.playlistDao = playlistDao;
-            this.playlist = playlist;
-        }
-
-        @Override
-        public void run() {
-            playlistDao.delete(playlist);
-        }
+        DatabaseExecutor.execute("playlist.delete", () -> playlistDao.delete(playlist));
     }
 }
@@ -6,6 +6,7 @@ import androidx.annotation.NonNull;
 import androidx.lifecycle.MutableLiveData;
 
 import com.cappielloantonio.tempo.App;
+import com.cappielloantonio.tempo.subsonic.ResponseCache;
 import com.cappielloantonio.tempo.subsonic.base.ApiResponse;
 import com.cappielloantonio.tempo.subsonic.models.PodcastChannel;
 import com.cappielloantonio.tempo.subsonic.models.PodcastEpisode;
@@ -23,9 +24,9 @@ public class PodcastRepository {
     public MutableLiveData<List<PodcastChannel>> getPodcastChannels(boolean includeEpisodes, String channelId) {
         MutableLiveData<List<PodcastChannel>> livePodcastChannel = new MutableLiveData<>(new ArrayList<>());
 
-        App.getSubsonicClientInstance(false)
+        ResponseCache.cached(App.getSubsonicClientInstance(false)
                 .getPodcastClient()
-                .getPodcasts(includeEpisodes, channelId)
+                .getPodcasts(includeEpisodes, channelId))
                 .enqueue(new Callback<ApiResponse>() {
                     @Override
                     public void onResponse(@NonNull Call<ApiResponse> call, @NonNull Response<ApiResponse> response) {
@@ -67,30 +68,40 @@ public class PodcastRepository {
     }
 
     public Call<ApiResponse> refreshPodcasts() {
+        ResponseCache.invalidate("getPodcasts");
+
         return App.getSubsonicClientInstance(false)
                 .getPodcastClient()
                 .refreshPodcasts();
     }
 
     public Call<ApiResponse> createPodcastChannel(String url) {
+        ResponseCache.invalidate("getPodcasts");
+
         return App.getSubsonicClientInstance(false)
                 .getPodcastClient()
                 .createPodcastChannel(url);
     }
 
     public Call<ApiResponse> deletePodcastChannel(String channelId) {
+        ResponseCache.invalidate("getPodcasts");
+
         return App.getSubsonicClientInstance(false)
                 .getPodcastClient()
                 .deletePodcastChannel(channelId);
     }
 
     public Call<ApiResponse> deletePodcastEpisode(String episodeId) {
+        ResponseCache.invalidate("getPodcasts");
+
         return App.getSubsonicClientInstance(false)
                 .getPodcastClient()
                 .deletePodcastEpisode(episodeId);
     }
 
     public Call<ApiResponse> downloadPodcastEpisode(String episodeId) {
+        ResponseCache.invalidate("getPodcasts");
+
         return App.getSubsonicClientInstance(false)
                 .getPodcastClient()
                 .downloadPodcastEpisode(episodeId);
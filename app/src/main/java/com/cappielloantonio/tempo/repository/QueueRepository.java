@@ -5,10 +5,11 @@ import android.util.Log;
 import androidx.annotation.NonNull;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
-import androidx.lifecycle.Observer;
 
 import com.cappielloantonio.tempo.App;
 import com.cappielloantonio.tempo.database.AppDatabase;
+import com.cappielloantonio.tempo.database.DatabaseExecutor;
+import com.cappielloantonio.tempo.database.LimitedExecutor;
 import com.cappielloantonio.tempo.database.dao.QueueDao;
 import com.cappielloantonio.tempo.model.Queue;
 import com.cappielloantonio.tempo.subsonic.base.ApiResponse;
@@ -16,9 +17,11 @@ import com.cappielloantonio.tempo.subsonic.models.Child;
 import com.cappielloantonio.tempo.subsonic.models.PlayQueue;
 
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
 
 import retrofit2.Call;
 import retrofit2.Callback;
@@ -27,6 +30,10 @@ import retrofit2.Response;
 public class QueueRepository {
     private static final String TAG = "QueueRepository";
 
+    // One at a time: mutations are applied in submission order and reads observe every
+    // mutation submitted before them.
+    private static final Executor QUEUE_EXECUTOR = new LimitedExecutor(DatabaseExecutor.getExecutor(), 1);
+
     private final QueueDao queueDao = AppDatabase.getInstance().queueDao();
 
     public LiveData<List<Queue>> getLiveQueue() {
@@ -34,23 +41,13 @@ public class QueueRepository {
     }
 
     public List<Child> getMedia() {
-        List<Child> media = new ArrayList<>();
-
-        GetMediaThreadSafe getMedia = new GetMediaThreadSafe(queueDao);
-        Thread thread = new Thread(getMedia);
-        thread.start();
-
-        try {
-            thread.join();
-            media = getMedia.getMedia().stream()
-                    .map(Child.class::cast)
-                    .collect(Collectors.toList());
-
-        } catch (InterruptedException e) {
-            Log.e(TAG, "getMedia", e);
-        }
+        List<Queue> media = await(queueDao::getAllSimple, "getMedia");
+        return media != null ? new ArrayList<>(media) : new ArrayList<>();
+    }
 
-        return media;
+    public List<Child> getMedia(int position, int limit) {
+        List<Queue> media = await(() -> queueDao.getRange(position, limit), "getMedia");
+        return media != null ? new ArrayList<>(media) : new ArrayList<>();
     }
 
     public MutableLiveData<PlayQueue> getPlayQueue() {
@@ -114,306 +111,86 @@ public class QueueRepository {
     }
 
     public void insert(Child media, boolean reset, int afterIndex) {
-        try {
-            List<Queue> mediaList = new ArrayList<>();
-
-            if (!reset) {
-                GetMediaThreadSafe getMediaThreadSafe = new GetMediaThreadSafe(queueDao);
-                Thread getMediaThread = new Thread(getMediaThreadSafe);
-                getMediaThread.start();
-                getMediaThread.join();
-
-                mediaList = getMediaThreadSafe.getMedia();
-            }
-
-            Queue queueItem = new Queue(media);
-            mediaList.add(afterIndex, queueItem);
+        List<Queue> mediaList = new ArrayList<>(1);
+        mediaList.add(new Queue(media));
 
-            for (int i = afterIndex; i < mediaList.size(); i++) {
-                mediaList.get(i).setTrackOrder(i);
+        QUEUE_EXECUTOR.execute(() -> {
+            if (reset) {
+                queueDao.replaceAll(mediaList);
+            } else {
+                queueDao.insertAt(afterIndex, mediaList);
             }
-
-            Thread delete = new Thread(new DeleteAllThreadSafe(queueDao));
-            delete.start();
-            delete.join();
-
-            Thread insertAll = new Thread(new InsertAllThreadSafe(queueDao, mediaList));
-            insertAll.start();
-            insertAll.join();
-        } catch (InterruptedException e) {
-            Log.e(TAG, "insert", e);
-        }
+        });
     }
 
     public void insertAll(List<Child> toAdd, boolean reset, int afterIndex) {
+        List<Queue> media = new ArrayList<>(toAdd.size());
+        for (Child item : toAdd) {
+            media.add(new Queue(item));
+        }
 
-        try {
-            List<Queue> media;
-
+        QUEUE_EXECUTOR.execute(() -> {
             if (reset) {
-                media = new ArrayList<>(toAdd.size());
-                for (int i = 0;i< toAdd.size();i ++ ) {
-                    Queue item = new Queue(toAdd.get(i));
-                    item.setTrackOrder(i);
-                    media.add(item);
-                }
-            }else {
-                GetMediaThreadSafe getMediaThreadSafe = new GetMediaThreadSafe(queueDao);
-                Thread getMediaThread = new Thread(getMediaThreadSafe);
-                getMediaThread.start();
-                getMediaThread.join();
-
-                media = getMediaThreadSafe.getMedia();
-
-                HashSet<String> existingIds = new HashSet<>(toAdd.size());
-                List<Queue> newAddItems = new ArrayList<>(toAdd.size());
-
-                int trackIndex = afterIndex;
-                for(Child item :toAdd){
-                    existingIds.add(item.getId());
-                    Queue queue = new Queue(item);
-                    queue.setTrackOrder(trackIndex);
-                    trackIndex ++ ;
-                    newAddItems.add(queue);
-                }
-
-                List<Queue> tails = new ArrayList<>(media.size() - afterIndex);
-                for (int i = afterIndex;i< media.size();i++){
-                    if(!existingIds.contains(media.get(i).getId())){
-                        media.get(i).setTrackOrder(trackIndex);
-                        trackIndex ++ ;
-                        tails.add(media.get(i));
-                    }
-                }
-
-                media.subList(afterIndex, media.size()).clear();
-                media.addAll(newAddItems);
-                media.addAll(tails);
+                queueDao.replaceAll(media);
+            } else {
+                queueDao.insertAt(afterIndex, media);
             }
+        });
+    }
 
-            for(Queue q:media){
-                Log.d(TAG, "insertAll: " + q.getId()  +">-"+ q.getTrackOrder()+">-"+ q.getTitle());
-            }
-
-            Thread delete = new Thread(new DeleteAllThreadSafe(queueDao));
-            delete.start();
-            delete.join();
-
-            Thread insertAll = new Thread(new InsertAllThreadSafe(queueDao, media));
-            insertAll.start();
-            insertAll.join();
-        } catch (InterruptedException e) {
-            Log.e(TAG, "insertAll", e);
-        }
+    public void move(int from, int to) {
+        QUEUE_EXECUTOR.execute(() -> queueDao.move(from, to));
     }
 
     public void delete(int position) {
-        DeleteThreadSafe delete = new DeleteThreadSafe(queueDao, position);
-        Thread thread = new Thread(delete);
-        thread.start();
+        QUEUE_EXECUTOR.execute(() -> queueDao.delete(position));
+    }
+
+    public void deleteRange(int fromPosition, int toPosition) {
+        QUEUE_EXECUTOR.execute(() -> queueDao.deleteRange(fromPosition, toPosition - fromPosition));
     }
 
     public void deleteAll() {
-        DeleteAllThreadSafe deleteAll = new DeleteAllThreadSafe(queueDao);
-        Thread thread = new Thread(deleteAll);
-        thread.start();
+        QUEUE_EXECUTOR.execute(queueDao::deleteAll);
     }
 
     public int count() {
-        int count = 0;
-
-        CountThreadSafe countThread = new CountThreadSafe(queueDao);
-        Thread thread = new Thread(countThread);
-        thread.start();
-
-        try {
-            thread.join();
-            count = countThread.getCount();
-        } catch (InterruptedException e) {
-            Log.e(TAG, "count", e);
-        }
-
-        return count;
+        Integer count = await(queueDao::count, "count");
+        return count != null ? count : 0;
     }
 
     public void setLastPlayedTimestamp(String id) {
-        SetLastPlayedTimestampThreadSafe timestamp = new SetLastPlayedTimestampThreadSafe(queueDao, id);
-        Thread thread = new Thread(timestamp);
-        thread.start();
+        long timestamp = System.currentTimeMillis();
+        QUEUE_EXECUTOR.execute(() -> queueDao.setLastPlay(id, timestamp));
     }
 
     public void setPlayingPausedTimestamp(String id, long ms) {
-        SetPlayingPausedTimestampThreadSafe timestamp = new SetPlayingPausedTimestampThreadSafe(queueDao, id, ms);
-        Thread thread = new Thread(timestamp);
-        thread.start();
+        QUEUE_EXECUTOR.execute(() -> queueDao.setPlayingChanged(id, ms));
     }
 
     public int getLastPlayedMediaIndex() {
-        int index = 0;
-
-        GetLastPlayedMediaThreadSafe getLastPlayedMediaThreadSafe = new GetLastPlayedMediaThreadSafe(queueDao);
-        Thread thread = new Thread(getLastPlayedMediaThreadSafe);
-        thread.start();
-
-        try {
-            thread.join();
-            Queue lastMediaPlayed = getLastPlayedMediaThreadSafe.getQueueItem();
-            if (lastMediaPlayed == null) return 0;
-            index = lastMediaPlayed.getTrackOrder();
-        } catch (InterruptedException e) {
-            Log.e(TAG, "getLastPlayedMediaIndex", e);
-        }
-
-        return index;
+        Integer index = await(queueDao::getLastPlayedIndex, "getLastPlayedMediaIndex");
+        return index != null ? index : 0;
     }
 
     public long getLastPlayedMediaTimestamp() {
-        long timestamp = 0;
-
-        GetLastPlayedMediaThreadSafe getLastPlayedMediaThreadSafe = new GetLastPlayedMediaThreadSafe(queueDao);
-        Thread thread = new Thread(getLastPlayedMediaThreadSafe);
-        thread.start();
-
-        try {
-            thread.join();
-            Queue lastMediaPlayed = getLastPlayedMediaThreadSafe.getQueueItem();
-            if (lastMediaPlayed == null){
-                return 0;
-            }
-            timestamp = lastMediaPlayed.getPlayingChanged();
-        } catch (InterruptedException e) {
-            Log.e(TAG, "getLastPlayedMediaTimestamp", e);
-        }
-
-        return timestamp;
+        Queue lastMediaPlayed = await(queueDao::getLastPlayed, "getLastPlayedMediaTimestamp");
+        return lastMediaPlayed != null ? lastMediaPlayed.getPlayingChanged() : 0;
     }
 
-    private static class GetMediaThreadSafe implements Runnable {
-        private final QueueDao queueDao;
-        private List<Queue> media;
-
-        public GetMediaThreadSafe(QueueDao queueDao) {
-            this.queueDao = queueDao;
-        }
-
-        @Override
-        public void run() {
-            media = queueDao.getAllSimple();
-        }
+    /**
+     * Runs a read on the queue executor, behind any mutation submitted before it, and waits
+     * for the result. Must not be called on the database pool, which the read needs a thread of.
+     */
+    private static <T> T await(Callable<T> query, String name) {
+        FutureTask<T> task = new FutureTask<>(query);
+        QUEUE_EXECUTOR.execute(task);
 
-        public List<Queue> getMedia() {
-            return media;
-        }
-    }
-
-    private static class InsertAllThreadSafe implements Runnable {
-        private final QueueDao queueDao;
-        private final List<Queue> media;
-
-        public InsertAllThreadSafe(QueueDao queueDao, List<Queue> media) {
-            this.queueDao = queueDao;
-            this.media = media;
-        }
-
-        @Override
-        public void run() {
-            queueDao.insertAll(media);
-        }
-    }
-
-    private static class DeleteThreadSafe implements Runnable {
-        private final QueueDao queueDao;
-        private final int position;
-
-        public DeleteThreadSafe(QueueDao queueDao, int position) {
-            this.queueDao = queueDao;
-            this.position = position;
-        }
-
-        @Override
-        public void run() {
-            queueDao.delete(position);
-        }
-    }
-
-    private static class DeleteAllThreadSafe implements Runnable {
-        private final QueueDao queueDao;
-
-        public DeleteAllThreadSafe(QueueDao queueDao) {
-            this.queueDao = queueDao;
-        }
-
-        @Override
-        public void run() {
-            queueDao.deleteAll();
-        }
-    }
-
-    private static class CountThreadSafe implements Runnable {
-        private final QueueDao queueDao;
-        private int count = 0;
-
-        public CountThreadSafe(QueueDao queueDao) {
-            this.queueDao = queueDao;
-        }
-
-        @Override
-        public void run() {
-            count = queueDao.count();
-        }
-
-        public int getCount() {
-            return count;
-        }
-    }
-
-    private static class SetLastPlayedTimestampThreadSafe implements Runnable {
-        private final QueueDao queueDao;
-        private final String mediaId;
-
-        public SetLastPlayedTimestampThreadSafe(QueueDao queueDao, String mediaId) {
-            this.queueDao = queueDao;
-            this.mediaId = mediaId;
-        }
-
-        @Override
-        public void run() {
-            queueDao.setLastPlay(mediaId, System.currentTimeMillis());
-        }
-    }
-
-    private static class SetPlayingPausedTimestampThreadSafe implements Runnable {
-        private final QueueDao queueDao;
-        private final String mediaId;
-        private final long ms;
-
-        public SetPlayingPausedTimestampThreadSafe(QueueDao queueDao, String mediaId, long ms) {
-            this.queueDao = queueDao;
-            this.mediaId = mediaId;
-            this.ms = ms;
-        }
-
-        @Override
-        public void run() {
-            queueDao.setPlayingChanged(mediaId, ms);
-        }
-    }
-
-    private static class GetLastPlayedMediaThreadSafe implements Runnable {
-        private final QueueDao queueDao;
-        private Queue lastMediaPlayed;
-
-        public GetLastPlayedMediaThreadSafe(QueueDao queueDao) {
-            this.queueDao = queueDao;
-        }
-
-        @Override
-        public void run() {
-            lastMediaPlayed = queueDao.getLastPlayed();
-        }
-
-        public Queue getQueueItem() {
-            return lastMediaPlayed;
+        try {
+            return task.get();
+        } catch (ExecutionException | InterruptedException e) {
+            Log.e(TAG, name, e);
+            return null;
         }
     }
 }
@@ -4,6 +4,7 @@ import androidx.annotation.NonNull;
 import androidx.lifecycle.MutableLiveData;
 
 import com.cappielloantonio.tempo.App;
+import com.cappielloantonio.tempo.subsonic.ResponseCache;
 import com.cappielloantonio.tempo.subsonic.base.ApiResponse;
 import com.cappielloantonio.tempo.subsonic.models.InternetRadioStation;
 
@@ -18,9 +19,9 @@ public class RadioRepository {
     public MutableLiveData<List<InternetRadioStation>> getInternetRadioStations() {
         MutableLiveData<List<InternetRadioStation>> radioStation = new MutableLiveData<>(new ArrayList<>());
 
-        App.getSubsonicClientInstance(false)
+        ResponseCache.cached(App.getSubsonicClientInstance(false)
                 .getInternetRadioClient()
-                .getInternetRadioStations()
+                .getInternetRadioStations())
                 .enqueue(new Callback<ApiResponse>() {
                     @Override
                     public void onResponse(@NonNull Call<ApiResponse> call, @NonNull Response<ApiResponse> response) {
@@ -39,18 +40,24 @@ public class RadioRepository {
     }
 
         public Call<ApiResponse> createInternetRadioStation(String name, String streamURL, String homepageURL) {
+        ResponseCache.invalidate("getInternetRadioStations");
+
         return App.getSubsonicClientInstance(false)
                 .getInternetRadioClient()
                 .createInternetRadioStation(streamURL, name, homepageURL);
     }
 
     public Call<ApiResponse> updateInternetRadioStation(String id, String name, String streamURL, String homepageURL) {
+        ResponseCache.invalidate("getInternetRadioStations");
+
         return App.getSubsonicClientInstance(false)
                 .getInternetRadioClient()
                 .updateInternetRadioStation(id, streamURL, name, homepageURL);
     }
 
     public Call<ApiResponse> deleteInternetRadioStation(String id) {
+        ResponseCache.invalidate("getInternetRadioStations");
+
         return App.getSubsonicClientInstance(false)
                 .getInternetRadioClient()
                 .deleteInternetRadioStation(id);
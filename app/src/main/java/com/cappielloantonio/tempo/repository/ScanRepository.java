@@ -5,9 +5,13 @@ import androidx.annotation.NonNull;
 import com.cappielloantonio.tempo.App;
 import com.cappielloantonio.tempo.interfaces.ScanCallback;
 import com.cappielloantonio.tempo.subsonic.base.ApiResponse;
+import com.cappielloantonio.tempo.subsonic.models.SubsonicResponse;
+
+import java.io.IOException;
 
 import retrofit2.Call;
 import retrofit2.Callback;
+import retrofit2.Response;
 
 public class ScanRepository {
     public void startScan(ScanCallback callback) {
@@ -36,7 +40,7 @@ public class ScanRepository {
     public void getScanStatus(ScanCallback callback) {
         App.getSubsonicClientInstance(false)
                 .getMediaLibraryScanningClient()
-                .startScan()
+                .getScanStatus()
                 .enqueue(new Callback<ApiResponse>() {
                     @Override
                     public void onResponse(@NonNull Call<ApiResponse> call, @NonNull retrofit2.Response<ApiResponse> response) {
@@ -55,4 +59,28 @@ public class ScanRepository {
                     }
                 });
     }
+
+    /**
+     * Whether the server is scanning its library, or null if it could not be asked. Blocking, call
+     * it off the main thread.
+     */
+    public Boolean isScanning() {
+        try {
+            Response<ApiResponse> response = App.getSubsonicClientInstance(false)
+                    .getMediaLibraryScanningClient()
+                    .getScanStatus()
+                    .execute();
+
+            if (!response.isSuccessful() || response.body() == null || response.body().getSubsonicResponse() == null) {
+                return null;
+            }
+
+            SubsonicResponse subsonicResponse = response.body().getSubsonicResponse();
+            if (subsonicResponse.getError() != null) return null;
+
+            return subsonicResponse.getScanStatus() != null && subsonicResponse.getScanStatus().isScanning();
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
 }
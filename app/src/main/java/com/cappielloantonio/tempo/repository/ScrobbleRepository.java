@@ -0,0 +1,147 @@
+package com.cappielloantonio.tempo.repository;
+
+import android.util.Log;
+
+import androidx.lifecycle.LiveData;
+
+import com.cappielloantonio.tempo.App;
+import com.cappielloantonio.tempo.database.AppDatabase;
+import com.cappielloantonio.tempo.database.DatabaseExecutor;
+import com.cappielloantonio.tempo.database.dao.ScrobbleDao;
+import com.cappielloantonio.tempo.model.ScrobbleEvent;
+import com.cappielloantonio.tempo.subsonic.base.ApiResponse;
+import com.cappielloantonio.tempo.subsonic.models.ErrorCode;
+import com.cappielloantonio.tempo.subsonic.models.SubsonicResponse;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import retrofit2.Response;
+
+public class ScrobbleRepository {
+    private static final String TAG = "ScrobbleRepository";
+
+    // Keeps the request URL well below the usual server limits
+    private static final int BATCH_SIZE = 50;
+    private static final int MAX_ATTEMPTS = 5;
+    private static final long NOW_PLAYING_TTL_MS = 10 * 60 * 1000;
+
+    private final ScrobbleDao scrobbleDao = AppDatabase.getInstance().scrobbleDao();
+
+    /**
+     * Scrobbles waiting to be sent.
+     */
+    public LiveData<Integer> getPendingCount() {
+        return scrobbleDao.countPending(MAX_ATTEMPTS);
+    }
+
+    /**
+     * Scrobbles the server rejected {@link #MAX_ATTEMPTS} times, which are no longer sent.
+     */
+    public LiveData<Integer> getFailedCount() {
+        return scrobbleDao.countFailed(MAX_ATTEMPTS);
+    }
+
+    public void retryFailed() {
+        DatabaseExecutor.execute("scrobble.resetFailed", () -> scrobbleDao.resetFailed(MAX_ATTEMPTS));
+    }
+
+    /**
+     * Blocking, call it off the main thread.
+     */
+    public void insert(ScrobbleEvent scrobbleEvent) {
+        scrobbleDao.insert(scrobbleEvent);
+    }
+
+    /**
+     * Sends the pending scrobbles of {@code server}, oldest first, in batches. Blocking, call it
+     * off the main thread.
+     *
+     * @return false if the server could not be reached, in which case the rest of the outbox is
+     * left for a later flush.
+     */
+    public boolean flush(String server) {
+        scrobbleDao.deleteStaleNowPlaying(System.currentTimeMillis() - NOW_PLAYING_TTL_MS);
+        return flush(server, true) && flush(server, false);
+    }
+
+    private boolean flush(String server, boolean submission) {
+        while (true) {
+            List<ScrobbleEvent> batch = scrobbleDao.getPending(server, submission, MAX_ATTEMPTS, BATCH_SIZE);
+            if (batch.isEmpty()) return true;
+
+            Boolean accepted = send(batch, submission);
+            if (accepted == null) return false;
+
+            if (accepted || batch.size() == 1) {
+                complete(batch, accepted);
+                continue;
+            }
+
+            // A single unknown id fails the whole request, so find it by sending them one by one.
+            for (ScrobbleEvent scrobbleEvent : batch) {
+                List<ScrobbleEvent> single = Collections.singletonList(scrobbleEvent);
+
+                Boolean singleAccepted = send(single, submission);
+                if (singleAccepted == null) return false;
+
+                complete(single, singleAccepted);
+            }
+        }
+    }
+
+    private void complete(List<ScrobbleEvent> scrobbleEvents, boolean accepted) {
+        List<Long> ids = new ArrayList<>(scrobbleEvents.size());
+
+        for (ScrobbleEvent scrobbleEvent : scrobbleEvents) {
+            ids.add(scrobbleEvent.getId());
+        }
+
+        if (accepted) {
+            scrobbleDao.delete(ids);
+        } else {
+            scrobbleDao.incrementAttempts(ids);
+        }
+    }
+
+    /**
+     * @return whether the server accepted the scrobbles, false only if it does not know one of
+     * the songs, or null if it could not be reached or failed for any other reason, e.g. an
+     * expired password, which is no fault of the scrobbles.
+     */
+    private Boolean send(List<ScrobbleEvent> scrobbleEvents, boolean submission) {
+        List<String> ids = new ArrayList<>(scrobbleEvents.size());
+        List<Long> times = new ArrayList<>(scrobbleEvents.size());
+
+        for (ScrobbleEvent scrobbleEvent : scrobbleEvents) {
+            ids.add(scrobbleEvent.getSongId());
+            times.add(scrobbleEvent.getTime());
+        }
+
+        try {
+            Response<ApiResponse> response = App.getSubsonicClientInstance(false)
+                    .getMediaAnnotationClient()
+                    .scrobble(ids, times, submission)
+                    .execute();
+
+            if (!response.isSuccessful() || response.body() == null) {
+                Log.w(TAG, "Scrobble request failed with status code: " + response.code());
+                return null;
+            }
+
+            SubsonicResponse subsonicResponse = response.body().getSubsonicResponse();
+            if ("ok".equals(subsonicResponse.getStatus())) return true;
+
+            Integer code = subsonicResponse.getError() != null ? subsonicResponse.getError().getCode() : null;
+            if (code != null && code == ErrorCode.DATA_NOT_FOUND) return false;
+
+            Log.w(TAG, "Scrobble request failed with error code: " + code);
+            return null;
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "Scrobble request failed", e);
+            return null;
+        }
+    }
+}
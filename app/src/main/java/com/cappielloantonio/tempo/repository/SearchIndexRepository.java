@@ -0,0 +1,298 @@
+package com.cappielloantonio.tempo.repository;
+
+import android.util.Log;
+
+import com.cappielloantonio.tempo.database.AppDatabase;
+import com.cappielloantonio.tempo.database.DatabaseExecutor;
+import com.cappielloantonio.tempo.database.LimitedExecutor;
+import com.cappielloantonio.tempo.database.dao.SearchIndexDao;
+import com.cappielloantonio.tempo.model.SearchItem;
+import com.cappielloantonio.tempo.subsonic.models.AlbumID3;
+import com.cappielloantonio.tempo.subsonic.models.ArtistID3;
+import com.cappielloantonio.tempo.subsonic.models.Child;
+import com.cappielloantonio.tempo.subsonic.models.IndexID3;
+import com.cappielloantonio.tempo.subsonic.models.Playlist;
+import com.cappielloantonio.tempo.subsonic.models.SearchResult3;
+import com.cappielloantonio.tempo.subsonic.models.SubsonicResponse;
+import com.cappielloantonio.tempo.util.ExternalAudioReader;
+import com.cappielloantonio.tempo.util.Preferences;
+import com.google.gson.Gson;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * A local full-text index of the artists, albums, songs and playlists seen in server responses,
+ * so that searches can be answered before the server replies, and offline.
+ */
+public class SearchIndexRepository {
+    private static final String TAG = "SearchIndexRepository";
+
+    // Writes run in order, so that a prune never overtakes the responses indexed before it
+    private static final Executor writer = new LimitedExecutor(DatabaseExecutor.getExecutor(), 1);
+    private static final Gson gson = new Gson();
+
+    private final SearchIndexDao searchIndexDao = AppDatabase.getInstance().searchIndexDao();
+
+    /**
+     * Indexes every artist, album, song and playlist of {@code response} in the background.
+     */
+    public void index(SubsonicResponse response) {
+        String server = Preferences.getServerId();
+        if (server == null) return;
+
+        writer.execute(() -> {
+            try {
+                List<SearchItem> searchItems = collect(response, server, System.currentTimeMillis());
+                if (!searchItems.isEmpty()) searchIndexDao.upsert(searchItems);
+            } catch (Exception e) {
+                Log.e(TAG, "Failed to index response", e);
+            }
+        });
+    }
+
+    /**
+     * Drops the items of {@code type} that are not in {@code itemIds}, once everything indexed so
+     * far has been written.
+     */
+    public void retain(String server, String type, Collection<String> itemIds) {
+        Set<String> kept = new HashSet<>(itemIds);
+
+        writer.execute(() -> {
+            try {
+                List<String> removed = new ArrayList<>();
+
+                for (String itemId : searchIndexDao.getItemIds(server, type)) {
+                    if (!kept.contains(itemId)) removed.add(itemId);
+                }
+
+                if (!removed.isEmpty()) searchIndexDao.delete(server, type, removed);
+            } catch (Exception e) {
+                Log.e(TAG, "Failed to prune " + type, e);
+            }
+        });
+    }
+
+    /**
+     * Blocking, call it off the main thread.
+     */
+    public SearchResult3 search(String query, int count) {
+        SearchResult3 result = new SearchResult3();
+        result.setArtists(new ArrayList<>());
+        result.setAlbums(new ArrayList<>());
+        result.setSongs(new ArrayList<>());
+
+        String server = Preferences.getServerId();
+        String match = toMatch(query);
+        if (server == null || match == null) return result;
+
+        for (SearchItem searchItem : searchIndexDao.search(server, SearchItem.TYPE_ARTIST, match, count)) {
+            result.getArtists().add(gson.fromJson(searchItem.getPayload(), ArtistID3.class));
+        }
+
+        for (SearchItem searchItem : searchIndexDao.search(server, SearchItem.TYPE_ALBUM, match, count)) {
+            result.getAlbums().add(gson.fromJson(searchItem.getPayload(), AlbumID3.class));
+        }
+
+        for (SearchItem searchItem : searchIndexDao.search(server, SearchItem.TYPE_SONG, match, count)) {
+            result.getSongs().add(gson.fromJson(searchItem.getPayload(), Child.class));
+        }
+
+        return result;
+    }
+
+    /**
+     * Names matching {@code query}, shortest first. Blocking, call it off the main thread.
+     */
+    public List<String> suggest(String query, int count) {
+        String server = Preferences.getServerId();
+        String match = toMatch(query);
+        if (server == null || match == null) return Collections.emptyList();
+
+        return searchIndexDao.suggest(server, match, count);
+    }
+
+    /**
+     * A prefix match on every word of {@code query}, or null if it has none.
+     */
+    private static String toMatch(String query) {
+        List<String> tokens = tokenize(query, true);
+        if (tokens.isEmpty()) return null;
+
+        StringBuilder match = new StringBuilder();
+
+        for (String token : tokens) {
+            if (match.length() > 0) match.append(' ');
+            match.append(token).append('*');
+        }
+
+        return match.toString();
+    }
+
+    /**
+     * Splits {@code text} into words with the diacritics stripped and in lowercase. Both the
+     * indexed terms and the queries go through here, so that compatibility forms such as
+     * full-width letters match their plain ones, and so that CJK runs are split the same way.
+     */
+    private static List<String> tokenize(String text, boolean query) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) return tokens;
+
+        // Composed again, so that kana voicing marks and Hangul jamo stay in their word
+        String normalized = Normalizer.normalize(ExternalAudioReader.normalizeForComparison(text), Normalizer.Form.NFC);
+
+        for (String word : normalized.split("[^\\p{L}\\p{N}]+")) {
+            int start = 0;
+
+            while (start < word.length()) {
+                boolean cjk = isCjk(word.codePointAt(start));
+                int end = start;
+
+                while (end < word.length() && isCjk(word.codePointAt(end)) == cjk) {
+                    end += Character.charCount(word.codePointAt(end));
+                }
+
+                if (cjk) {
+                    addGrams(tokens, word.substring(start, end), query);
+                } else {
+                    tokens.add(word.substring(start, end));
+                }
+
+                start = end;
+            }
+        }
+
+        return tokens;
+    }
+
+    /**
+     * CJK is written without spaces, so a run is indexed as its characters and its pairs of
+     * adjacent characters. A query looks for all of its pairs, or for the character alone when
+     * the run has only one.
+     */
+    private static void addGrams(List<String> tokens, String run, boolean query) {
+        int[] codePoints = run.codePoints().toArray();
+
+        if (!query || codePoints.length == 1) {
+            for (int codePoint : codePoints) {
+                tokens.add(new String(Character.toChars(codePoint)));
+            }
+        }
+
+        for (int i = 0; i + 1 < codePoints.length; i++) {
+            tokens.add(new String(codePoints, i, 2));
+        }
+    }
+
+    private static boolean isCjk(int codePoint) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(codePoint);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+
+    private static List<SearchItem> collect(SubsonicResponse response, String server, long now) {
+        List<SearchItem> searchItems = new ArrayList<>();
+
+        if (response.getSearchResult3() != null) {
+            addArtists(searchItems, response.getSearchResult3().getArtists(), server, now);
+            addAlbums(searchItems, response.getSearchResult3().getAlbums(), server, now);
+            addSongs(searchItems, response.getSearchResult3().getSongs(), server, now);
+        }
+
+        if (response.getStarred2() != null) {
+            addArtists(searchItems, response.getStarred2().getArtists(), server, now);
+            addAlbums(searchItems, response.getStarred2().getAlbums(), server, now);
+            addSongs(searchItems, response.getStarred2().getSongs(), server, now);
+        }
+
+        if (response.getArtists() != null && response.getArtists().getIndices() != null) {
+            for (IndexID3 index : response.getArtists().getIndices()) {
+                addArtists(searchItems, index.getArtists(), server, now);
+            }
+        }
+
+        if (response.getArtist() != null) {
+            addAlbums(searchItems, response.getArtist().getAlbums(), server, now);
+        }
+
+        if (response.getAlbum() != null) {
+            addSongs(searchItems, response.getAlbum().getSongs(), server, now);
+        }
+
+        if (response.getAlbumList2() != null) {
+            addAlbums(searchItems, response.getAlbumList2().getAlbums(), server, now);
+        }
+
+        if (response.getRandomSongs() != null) {
+            addSongs(searchItems, response.getRandomSongs().getSongs(), server, now);
+        }
+
+        if (response.getSongsByGenre() != null) {
+            addSongs(searchItems, response.getSongsByGenre().getSongs(), server, now);
+        }
+
+        if (response.getTopSongs() != null) {
+            addSongs(searchItems, response.getTopSongs().getSongs(), server, now);
+        }
+
+        if (response.getPlaylists() != null && response.getPlaylists().getPlaylists() != null) {
+            for (Playlist playlist : response.getPlaylists().getPlaylists()) {
+                add(searchItems, server, SearchItem.TYPE_PLAYLIST, playlist.getId(), playlist.getName(), playlist, now, playlist.getName());
+            }
+        }
+
+        return searchItems;
+    }
+
+    private static void addArtists(List<SearchItem> searchItems, List<ArtistID3> artists, String server, long now) {
+        if (artists == null) return;
+
+        for (ArtistID3 artist : artists) {
+            add(searchItems, server, SearchItem.TYPE_ARTIST, artist.getId(), artist.getName(), artist, now, artist.getName());
+        }
+    }
+
+    private static void addAlbums(List<SearchItem> searchItems, List<AlbumID3> albums, String server, long now) {
+        if (albums == null) return;
+
+        for (AlbumID3 album : albums) {
+            add(searchItems, server, SearchItem.TYPE_ALBUM, album.getId(), album.getName(), album, now, album.getName(), album.getArtist());
+        }
+    }
+
+    private static void addSongs(List<SearchItem> searchItems, List<Child> songs, String server, long now) {
+        if (songs == null) return;
+
+        for (Child song : songs) {
+            if (song.isDir()) continue;
+            add(searchItems, server, SearchItem.TYPE_SONG, song.getId(), song.getTitle(), song, now, song.getTitle(), song.getArtist(), song.getAlbum());
+        }
+    }
+
+    /**
+     * @param texts the names the item can be found by, any of them may be null.
+     */
+    private static void add(List<SearchItem> searchItems, String server, String type, String id, String name, Object payload, long now, String... texts) {
+        if (id == null || name == null) return;
+
+        List<String> tokens = new ArrayList<>();
+
+        for (String text : texts) {
+            tokens.addAll(tokenize(text, false));
+        }
+
+        if (tokens.isEmpty()) return;
+
+        String terms = String.join(" ", tokens);
+
+        searchItems.add(new SearchItem(0, server, type, id, name, terms, gson.toJson(payload), now));
+    }
+}
@@ -5,6 +5,7 @@ import androidx.lifecycle.MutableLiveData;
 
 import com.cappielloantonio.tempo.App;
 import com.cappielloantonio.tempo.database.AppDatabase;
+import com.cappielloantonio.tempo.database.DatabaseExecutor;
 import com.cappielloantonio.tempo.database.dao.RecentSearchDao;
 import com.cappielloantonio.tempo.model.RecentSearch;
 import com.cappielloantonio.tempo.subsonic.base.ApiResponse;
@@ -16,8 +17,12 @@ import com.cappielloantonio.tempo.subsonic.models.SearchResult3;
 import com.cappielloantonio.tempo.util.Preferences;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
 
 import retrofit2.Call;
 import retrofit2.Callback;
@@ -25,6 +30,7 @@ import retrofit2.Response;
 
 public class SearchingRepository {
     private final RecentSearchDao recentSearchDao = AppDatabase.getInstance().recentSearchDao();
+    private final SearchIndexRepository searchIndexRepository = new SearchIndexRepository();
 
     public MutableLiveData<SearchResult2> search2(String query) {
         MutableLiveData<SearchResult2> result = new MutableLiveData<>();
@@ -49,8 +55,14 @@ public class SearchingRepository {
         return result;
     }
 
+    /**
+     * Answers from the local search index first, then merges in the server results.
+     */
     public MutableLiveData<SearchResult3> search3(String query) {
         MutableLiveData<SearchResult3> result = new MutableLiveData<>();
+        LocalFirst<SearchResult3> localFirst = new LocalFirst<>(result, SearchingRepository::merge);
+
+        DatabaseExecutor.execute("searchIndex.search", () -> localFirst.setLocal(searchIndexRepository.search(query, 20)));
 
         App.getSubsonicClientInstance(false)
                 .getSearchingClient()
@@ -58,8 +70,8 @@ public class SearchingRepository {
                 .enqueue(new Callback<ApiResponse>() {
                     @Override
                     public void onResponse(@NonNull Call<ApiResponse> call, @NonNull Response<ApiResponse> response) {
-                        if (response.isSuccessful() && response.body() != null) {
-                            result.setValue(response.body().getSubsonicResponse().getSearchResult3());
+                        if (response.isSuccessful() && response.body() != null && response.body().getSubsonicResponse().getSearchResult3() != null) {
+                            localFirst.setRemote(response.body().getSubsonicResponse().getSearchResult3());
                         }
                     }
 
@@ -72,8 +84,18 @@ public class SearchingRepository {
         return result;
     }
 
+    /**
+     * Answers from the local search index first, then merges in the server suggestions.
+     */
     public MutableLiveData<List<String>> getSuggestions(String query) {
         MutableLiveData<List<String>> suggestions = new MutableLiveData<>();
+        LocalFirst<List<String>> localFirst = new LocalFirst<>(suggestions, (remote, local) -> {
+            LinkedHashSet<String> merged = new LinkedHashSet<>(remote);
+            merged.addAll(local);
+            return new ArrayList<>(merged);
+        });
+
+        DatabaseExecutor.execute("searchIndex.suggest", () -> localFirst.setLocal(new ArrayList<>(new LinkedHashSet<>(searchIndexRepository.suggest(query, 15)))));
 
         App.getSubsonicClientInstance(false)
                 .getSearchingClient()
@@ -105,7 +127,7 @@ public class SearchingRepository {
                             LinkedHashSet<String> hashSet = new LinkedHashSet<>(newSuggestions);
                             ArrayList<String> suggestionsWithoutDuplicates = new ArrayList<>(hashSet);
 
-                            suggestions.setValue(suggestionsWithoutDuplicates);
+                            localFirst.setRemote(suggestionsWithoutDuplicates);
                         }
                     }
 
@@ -119,84 +141,74 @@ public class SearchingRepository {
     }
 
     public void insert(RecentSearch recentSearch) {
-        InsertThreadSafe insert = new InsertThreadSafe(recentSearchDao, recentSearch);
-        Thread thread = new Thread(insert);
-        thread.start();
+        DatabaseExecutor.execute("recentSearch.insert", () -> recentSearchDao.insert(recentSearch));
     }
 
     public void delete(RecentSearch recentSearch) {
-        DeleteThreadSafe delete = new DeleteThreadSafe(recentSearchDao, recentSearch);
-        Thread thread = new Thread(delete);
-        thread.start();
+        DatabaseExecutor.execute("recentSearch.delete", () -> recentSearchDao.delete(recentSearch));
     }
 
-    public List<String> getRecentSearchSuggestion() {
-        List<String> recent = new ArrayList<>();
+    public MutableLiveData<List<String>> getRecentSearchSuggestion() {
+        MutableLiveData<List<String>> suggestions = new MutableLiveData<>();
 
-        RecentThreadSafe suggestionsThread = new RecentThreadSafe(recentSearchDao);
-        Thread thread = new Thread(suggestionsThread);
-        thread.start();
+        DatabaseExecutor.execute("recentSearch.get", () -> suggestions.postValue(
+                Preferences.isSearchSortingChronologicallyEnabled() ? recentSearchDao.getRecent() : recentSearchDao.getAlpha()));
 
-        try {
-            thread.join();
-            recent = suggestionsThread.getRecent();
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-        }
+        return suggestions;
+    }
 
-        return recent;
+    /**
+     * The server results first, then the local ones the server did not return.
+     */
+    private static SearchResult3 merge(SearchResult3 remote, SearchResult3 local) {
+        SearchResult3 merged = new SearchResult3();
+        merged.setArtists(merge(remote.getArtists(), local.getArtists(), ArtistID3::getId));
+        merged.setAlbums(merge(remote.getAlbums(), local.getAlbums(), AlbumID3::getId));
+        merged.setSongs(merge(remote.getSongs(), local.getSongs(), Child::getId));
+        return merged;
     }
 
-    private static class DeleteThreadSafe implements Runnable {
-        private final RecentSearchDao recentSearchDao;
-        private final RecentSearch recentSearch;
+    private static <T> List<T> merge(List<T> remote, List<T> local, Function<T, String> id) {
+        List<T> merged = remote != null ? new ArrayList<>(remote) : new ArrayList<>();
+        if (local == null) return merged;
 
-        public DeleteThreadSafe(RecentSearchDao recentSearchDao, RecentSearch recentSearch) {
-            this.recentSearchDao = recentSearchDao;
-            this.recentSearch = recentSearch;
-        }
+        Set<String> ids = new HashSet<>();
 
-        @Override
-        public void run() {
-            recentSearchDao.delete(recentSearch);
+        for (T item : merged) {
+            ids.add(id.apply(item));
         }
-    }
 
-    private static class InsertThreadSafe implements Runnable {
-        private final RecentSearchDao recentSearchDao;
-        private final RecentSearch recentSearch;
-
-        public InsertThreadSafe(RecentSearchDao recentSearchDao, RecentSearch recentSearch) {
-            this.recentSearchDao = recentSearchDao;
-            this.recentSearch = recentSearch;
+        for (T item : local) {
+            if (ids.add(id.apply(item))) merged.add(item);
         }
 
-        @Override
-        public void run() {
-            recentSearchDao.insert(recentSearch);
-        }
+        return merged;
     }
 
-    private static class RecentThreadSafe implements Runnable {
-        private final RecentSearchDao recentSearchDao;
-        private List<String> recent = new ArrayList<>();
+    /**
+     * Posts the local answer as soon as it is known, and the merged answer once the server
+     * replies, whichever of the two comes first.
+     */
+    private static class LocalFirst<T> {
+        private final MutableLiveData<T> result;
+        private final BinaryOperator<T> merge;
+
+        private T local;
+        private T remote;
 
-        public RecentThreadSafe(RecentSearchDao recentSearchDao) {
-            this.recentSearchDao = recentSearchDao;
+        LocalFirst(MutableLiveData<T> result, BinaryOperator<T> merge) {
+            this.result = result;
+            this.merge = merge;
         }
 
-        @Override
-        public void run() {
-            if(Preferences.isSearchSortingChronologicallyEnabled()){
-                recent = recentSearchDao.getRecent();
-            }
-            else {
-                recent = recentSearchDao.getAlpha();
-            }
+        synchronized void setLocal(T local) {
+            this.local = local;
+            result.postValue(remote != null ? merge.apply(remote, local) : local);
         }
 
-        public List<String> getRecent() {
-            return recent;
+        synchronized void setRemote(T remote) {
+            this.remote = remote;
+            result.postValue(local != null ? merge.apply(remote, local) : remote);
         }
     }
 }
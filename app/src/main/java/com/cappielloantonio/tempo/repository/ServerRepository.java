@@ -4,6 +4,7 @@ import androidx.lifecycle.LiveData;
 import androidx.media3.common.util.UnstableApi;
 
 import com.cappielloantonio.tempo.database.AppDatabase;
+import com.cappielloantonio.tempo.database.DatabaseExecutor;
 import com.cappielloantonio.tempo.database.dao.ServerDao;
 import com.cappielloantonio.tempo.model.Server;
 
@@ -20,44 +21,10 @@ public class ServerRepository {
     }
 
     public void insert(Server server) {
-        InsertThreadSafe insert = new InsertThreadSafe(serverDao, server);
-        Thread thread = new Thread(insert);
-        thread.start();
+        DatabaseExecutor.execute("server.insert", () -> serverDao.insert(server));
     }
 
     public void delete(Server server) {
-        DeleteThreadSafe delete = new DeleteThreadSafe(serverDao, server);
-        Thread thread = new Thread(delete);
-        thread.start();
-    }
-
-    private static class InsertThreadSafe implements Runnable {
-        private final ServerDao serverDao;
-        private final Server server;
-
-        public InsertThreadSafe(ServerDao serverDao, Server server) {
-            this.serverDao = serverDao;
-            this.server = server;
-        }
-
-        @Override
-        public void run() {
-            serverDao.insert(server);
-        }
-    }
-
-    private static class DeleteThreadSafe implements Runnable {
-        private final ServerDao serverDao;
-        private final Server server;
-
-        public DeleteThreadSafe(ServerDao serverDao, Server server) {
-            this.serverDao = serverDao;
-            this.server = server;
-        }
-
-        @Override
-        public void run() {
-            serverDao.delete(server);
-        }
+        DatabaseExecutor.execute("server.delete", () -> serverDao.delete(server));
     }
 }
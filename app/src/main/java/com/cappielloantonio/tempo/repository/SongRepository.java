@@ -6,6 +6,7 @@ import androidx.annotation.NonNull;
 import androidx.lifecycle.MutableLiveData;
 
 import com.cappielloantonio.tempo.App;
+import com.cappielloantonio.tempo.subsonic.ResponseCache;
 import com.cappielloantonio.tempo.subsonic.base.ApiResponse;
 import com.cappielloantonio.tempo.subsonic.models.Child;
 import com.cappielloantonio.tempo.subsonic.models.SubsonicResponse;
@@ -33,9 +34,9 @@ public class SongRepository {
     public MutableLiveData<List<Child>> getStarredSongs(boolean random, int size) {
         MutableLiveData<List<Child>> starredSongs = new MutableLiveData<>(Collections.emptyList());
 
-        App.getSubsonicClientInstance(false)
+        ResponseCache.cached(App.getSubsonicClientInstance(false)
                 .getAlbumSongListClient()
-                .getStarred2()
+                .getStarred2())
                 .enqueue(new Callback<ApiResponse>() {
                     @Override
                     public void onResponse(@NonNull Call<ApiResponse> call, @NonNull Response<ApiResponse> response) {
@@ -60,6 +61,32 @@ public class SongRepository {
         return starredSongs;
     }
 
+    /**
+     * Every starred song, for the starred sync. Only set once the server answered, with an empty
+     * list when nothing is starred, so a failed request can't be taken for everything un-starred.
+     */
+    public MutableLiveData<List<Child>> getAllStarredSongs() {
+        MutableLiveData<List<Child>> starredSongs = new MutableLiveData<>();
+
+        ResponseCache.cached(App.getSubsonicClientInstance(false)
+                .getAlbumSongListClient()
+                .getStarred2())
+                .enqueue(new Callback<ApiResponse>() {
+                    @Override
+                    public void onResponse(@NonNull Call<ApiResponse> call, @NonNull Response<ApiResponse> response) {
+                        if (response.isSuccessful() && response.body() != null && response.body().getSubsonicResponse().getStarred2() != null) {
+                            List<Child> songs = response.body().getSubsonicResponse().getStarred2().getSongs();
+                            starredSongs.setValue(songs != null ? songs : new ArrayList<>());
+                        }
+                    }
+
+                    @Override
+                    public void onFailure(@NonNull Call<ApiResponse> call, @NonNull Throwable t) {}
+                });
+
+        return starredSongs;
+    }
+
     /**
      * Used by ViewModels. Updates the LiveData list incrementally as songs are found.
      */
@@ -308,13 +335,6 @@ public class SongRepository {
         return randomSongsSample;
     }
 
-    public void scrobble(String id, boolean submission) {
-        App.getSubsonicClientInstance(false).getMediaAnnotationClient().scrobble(id, submission).enqueue(new Callback<ApiResponse>() {
-            @Override public void onResponse(@NonNull Call<ApiResponse> call, @NonNull Response<ApiResponse> response) {}
-            @Override public void onFailure(@NonNull Call<ApiResponse> call, @NonNull Throwable t) {}
-        });
-    }
-
     public void setRating(String id, int rating) {
         App.getSubsonicClientInstance(false).getMediaAnnotationClient().setRating(id, rating).enqueue(new Callback<ApiResponse>() {
             @Override public void onResponse(@NonNull Call<ApiResponse> call, @NonNull Response<ApiResponse> response) {}
@@ -15,6 +15,7 @@ import android.os.Bundle
 import android.os.IBinder
 import android.os.Handler
 import android.os.Looper
+import android.os.SystemClock
 import android.util.Log
 import androidx.media3.common.*
 import androidx.media3.common.util.UnstableApi
@@ -54,6 +55,7 @@ open class BaseMediaService : MediaLibraryService() {
     protected lateinit var mediaLibrarySession: MediaLibrarySession
     private lateinit var networkCallback: CustomNetworkCallback
     private lateinit var equalizerManager: EqualizerManager
+    private lateinit var streamingCachePrefetcher: StreamingCachePrefetcher
     private val widgetUpdateHandler = Handler(Looper.getMainLooper())
     private var widgetUpdateScheduled = false
     private val widgetUpdateRunnable = object : Runnable {
@@ -70,6 +72,12 @@ open class BaseMediaService : MediaLibraryService() {
 
     private val binder = LocalBinder()
 
+    // How long the current item has actually been playing: pauses, buffering and skipped parts
+    // don't count. This is what the chronology records as the played duration.
+    private var listenedMediaId: String? = null
+    private var listenedMs = 0L
+    private var playingSince = 0L
+
     open fun playerInitHook() {
         initializeExoPlayer()
         initializeMediaLibrarySession(exoplayer)
@@ -95,17 +103,14 @@ open class BaseMediaService : MediaLibraryService() {
         if (player.mediaItemCount > 0) return
 
         val queueRepository = QueueRepository()
-        val storedQueue = queueRepository.media
-        if (storedQueue.isNullOrEmpty()) return
-
-        val mediaItems = MappingUtil.mapMediaItems(storedQueue)
-        if (mediaItems.isEmpty()) return
 
         val lastIndex = try {
             queueRepository.lastPlayedMediaIndex
         } catch (_: Exception) {
             0
-        }.coerceIn(0, mediaItems.size - 1)
+        }
+
+        val window = QueueWindow.load(lastIndex) ?: return
 
         val lastPosition = try {
             queueRepository.lastPlayedMediaTimestamp
@@ -113,8 +118,9 @@ open class BaseMediaService : MediaLibraryService() {
             0L
         }.let { if (it < 0L) 0L else it }
 
-        player.setMediaItems(mediaItems, lastIndex, lastPosition)
+        player.setMediaItems(window.mediaItems, window.startIndex, lastPosition)
         player.prepare()
+        QueueWindow.attach(window)
         updateWidget(player)
     }
 
@@ -127,9 +133,17 @@ open class BaseMediaService : MediaLibraryService() {
                 if (reason == Player.MEDIA_ITEM_TRANSITION_REASON_SEEK || reason == Player.MEDIA_ITEM_TRANSITION_REASON_AUTO) {
                     MediaManager.setLastPlayedTimestamp(mediaItem)
                 }
+                resetListenedTime(mediaItem.mediaId, player.isPlaying)
+                QueueWindow.onMediaItemTransition(player, reason)
                 updateWidget(player)
             }
 
+            override fun onTimelineChanged(timeline: Timeline, reason: Int) {
+                if (reason == Player.TIMELINE_CHANGE_REASON_PLAYLIST_CHANGED) {
+                    ChildStore.pin((0 until player.mediaItemCount).mapTo(HashSet()) { player.getMediaItemAt(it).mediaId })
+                }
+            }
+
             override fun onTracksChanged(tracks: Tracks) {
                 Log.d(javaClass.toString(), "onTracksChanged " + player.currentMediaItemIndex)
                 ReplayGainUtil.setReplayGain(player, tracks)
@@ -171,10 +185,12 @@ open class BaseMediaService : MediaLibraryService() {
             override fun onIsPlayingChanged(isPlaying: Boolean) {
                 Log.d(javaClass.toString(), "onIsPlayingChanged " + player.currentMediaItemIndex)
                 if (isPlaying) {
+                    startListening()
                     MediaManager.scrobble(player.currentMediaItem, false)
                     scheduleWidgetUpdates()
                     Preferences.setIsPaused(false)
                 }else{
+                    stopListening()
                     MediaManager.setPlayingPausedTimestamp(
                         player.currentMediaItem,
                         player.currentPosition
@@ -194,7 +210,7 @@ open class BaseMediaService : MediaLibraryService() {
                     player.mediaMetadata.extras?.getString("type") == Constants.MEDIA_TYPE_MUSIC
                 ) {
                     MediaManager.scrobble(player.currentMediaItem, true)
-                    MediaManager.saveChronology(player.currentMediaItem)
+                    MediaManager.saveChronology(player.currentMediaItem, getListenedTime(player.currentMediaItem))
                 }
                 updateWidget(player)
             }
@@ -210,7 +226,7 @@ open class BaseMediaService : MediaLibraryService() {
                 if (reason == Player.DISCONTINUITY_REASON_AUTO_TRANSITION) {
                     if (oldPosition.mediaItem?.mediaMetadata?.extras?.getString("type") == Constants.MEDIA_TYPE_MUSIC) {
                         MediaManager.scrobble(oldPosition.mediaItem, true)
-                        MediaManager.saveChronology(oldPosition.mediaItem)
+                        MediaManager.saveChronology(oldPosition.mediaItem, getListenedTime(oldPosition.mediaItem))
                     }
 
                     if (newPosition.mediaItem?.mediaMetadata?.extras?.getString("type") == Constants.MEDIA_TYPE_MUSIC) {
@@ -219,6 +235,10 @@ open class BaseMediaService : MediaLibraryService() {
                 }
             }
 
+            override fun onIsLoadingChanged(isLoading: Boolean) {
+                if (player is ExoPlayer) streamingCachePrefetcher.onLoadingChanged(player)
+            }
+
             override fun onShuffleModeEnabledChanged(shuffleModeEnabled: Boolean) {
                 Preferences.setShuffleModeEnabled(shuffleModeEnabled)
             }
@@ -237,6 +257,31 @@ open class BaseMediaService : MediaLibraryService() {
         }
     }
 
+    private fun startListening() {
+        if (playingSince == 0L) playingSince = SystemClock.elapsedRealtime()
+    }
+
+    private fun stopListening() {
+        if (playingSince != 0L) {
+            listenedMs += SystemClock.elapsedRealtime() - playingSince
+            playingSince = 0L
+        }
+    }
+
+    private fun getListenedTime(mediaItem: MediaItem?): Long {
+        if (mediaItem == null || mediaItem.mediaId != listenedMediaId) return 0L
+
+        val running = if (playingSince != 0L) SystemClock.elapsedRealtime() - playingSince else 0L
+        return listenedMs + running
+    }
+
+    private fun resetListenedTime(mediaId: String, isPlaying: Boolean) {
+        listenedMediaId = mediaId
+        listenedMs = 0L
+        playingSince = 0L
+        if (isPlaying) startListening()
+    }
+
     fun setPlayer(oldPlayer: Player?, newPlayer: Player) {
         if (oldPlayer === newPlayer) return
         if (oldPlayer != null) {
@@ -271,6 +316,8 @@ open class BaseMediaService : MediaLibraryService() {
     override fun onCreate() {
         super.onCreate()
 
+        streamingCachePrefetcher = StreamingCachePrefetcher(this)
+        ScrobbleOutbox.start(this)
         playerInitHook()
         initializeEqualizerManager()
         initializeNetworkListener()
@@ -283,6 +330,8 @@ open class BaseMediaService : MediaLibraryService() {
 
     override fun onDestroy() {
         releaseNetworkCallback()
+        streamingCachePrefetcher.release()
+        ScrobbleOutbox.stop()
         equalizerManager.release()
         stopWidgetUpdates()
         releasePlayers()
@@ -0,0 +1,198 @@
+package com.cappielloantonio.tempo.service;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.exoplayer.offline.Download;
+import androidx.media3.exoplayer.offline.DownloadManager;
+
+import com.cappielloantonio.tempo.util.Preferences;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Decides how many downloads run at once and which go first.
+ * <p>
+ * With the parallel downloads setting on automatic, the number is tuned to the throughput
+ * measured over the last few seconds: it keeps moving the way that made downloads faster, and
+ * backs off when more connections stop helping. Songs the user downloads by hand go before those
+ * of a starred sync, which wait, stopped, until the others are done.
+ */
+@UnstableApi
+public class DownloadScheduler implements DownloadManager.Listener {
+    private static final String TAG = "DownloadScheduler";
+
+    // Also the size of the download manager's thread pool
+    public static final int MAX_PARALLEL_DOWNLOADS = 6;
+    public static final int MIN_RETRY_COUNT = 10;
+
+    // Background downloads waiting for the user's own
+    public static final int STOP_REASON_DEFERRED = 1;
+
+    private static final long SAMPLE_INTERVAL_MS = 5000;
+    // Throughput changes smaller than this are noise
+    private static final double THRESHOLD = 0.1;
+
+    private final DownloadManager downloadManager;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable sampler = this::sample;
+
+    private final Set<String> foregroundIds = new HashSet<>();
+    private final Map<String, Long> sampledBytes = new HashMap<>();
+
+    private boolean automatic;
+    private int parallelDownloads;
+    private int direction = 1;
+    private long transferred;
+    private double lastThroughput;
+    private boolean sampling;
+
+    public DownloadScheduler(DownloadManager downloadManager) {
+        this.downloadManager = downloadManager;
+
+        downloadManager.setMinRetryCount(MIN_RETRY_COUNT);
+        setMaxParallel(Preferences.getDownloadMaxParallel());
+        downloadManager.addListener(this);
+    }
+
+    /**
+     * Applies the parallel downloads setting, 0 for automatic, which starts from the download
+     * manager's default.
+     */
+    public void setMaxParallel(int setting) {
+        automatic = setting <= 0;
+        parallelDownloads = automatic ? DownloadManager.DEFAULT_MAX_PARALLEL_DOWNLOADS : Math.min(setting, MAX_PARALLEL_DOWNLOADS);
+        lastThroughput = 0;
+        direction = 1;
+
+        downloadManager.setMaxParallelDownloads(parallelDownloads);
+    }
+
+    /**
+     * Lets {@code id}, downloaded by hand, go before what a sync queued. Must be called on the main
+     * thread, before the download is added.
+     */
+    public void prioritize(String id) {
+        foregroundIds.add(id);
+
+        for (Download download : downloadManager.getCurrentDownloads()) {
+            if (download.state == Download.STATE_QUEUED && !foregroundIds.contains(download.request.id)) {
+                downloadManager.setStopReason(download.request.id, STOP_REASON_DEFERRED);
+            }
+        }
+    }
+
+    /**
+     * The stop reason to add a background download with.
+     */
+    public int getBackgroundStopReason() {
+        return foregroundIds.isEmpty() ? Download.STOP_REASON_NONE : STOP_REASON_DEFERRED;
+    }
+
+    @Override
+    public void onInitialized(@NonNull DownloadManager downloadManager) {
+        // Nothing is waited for after a restart
+        if (foregroundIds.isEmpty()) resumeDeferred();
+    }
+
+    @Override
+    public void onDownloadChanged(@NonNull DownloadManager downloadManager, @NonNull Download download, @Nullable Exception finalException) {
+        if (download.state == Download.STATE_DOWNLOADING && !sampling) {
+            sampling = true;
+            handler.postDelayed(sampler, SAMPLE_INTERVAL_MS);
+        }
+
+        if (download.isTerminalState()) {
+            Long sampled = sampledBytes.remove(download.request.id);
+            if (sampled != null) transferred += Math.max(0, download.getBytesDownloaded() - sampled);
+
+            finishForeground(download.request.id);
+        }
+    }
+
+    @Override
+    public void onDownloadRemoved(@NonNull DownloadManager downloadManager, @NonNull Download download) {
+        sampledBytes.remove(download.request.id);
+        finishForeground(download.request.id);
+    }
+
+    @Override
+    public void onIdle(@NonNull DownloadManager downloadManager) {
+        handler.removeCallbacks(sampler);
+        sampling = false;
+        sampledBytes.clear();
+        transferred = 0;
+    }
+
+    private void finishForeground(String id) {
+        if (foregroundIds.remove(id) && foregroundIds.isEmpty()) {
+            resumeDeferred();
+        }
+    }
+
+    private void resumeDeferred() {
+        for (Download download : downloadManager.getCurrentDownloads()) {
+            if (download.stopReason == STOP_REASON_DEFERRED) {
+                downloadManager.setStopReason(download.request.id, Download.STOP_REASON_NONE);
+            }
+        }
+    }
+
+    private void sample() {
+        int running = 0;
+        boolean started = false;
+
+        for (Download download : downloadManager.getCurrentDownloads()) {
+            if (download.state != Download.STATE_DOWNLOADING) continue;
+
+            long bytes = download.getBytesDownloaded();
+            Long sampled = sampledBytes.put(download.request.id, bytes);
+            if (sampled != null) transferred += Math.max(0, bytes - sampled);
+            else started = true;
+            running++;
+        }
+
+        double throughput = transferred * 1000.0 / SAMPLE_INTERVAL_MS;
+        transferred = 0;
+
+        if (running == 0) {
+            sampling = false;
+            return;
+        }
+
+        // Only a full set of downloads running for the whole interval says anything about the number
+        if (automatic && !started && running >= parallelDownloads) {
+            adapt(throughput);
+        }
+
+        handler.postDelayed(sampler, SAMPLE_INTERVAL_MS);
+    }
+
+    private void adapt(double throughput) {
+        if (lastThroughput > 0) {
+            if (throughput < lastThroughput * (1 - THRESHOLD)) {
+                direction = -direction;
+            } else if (throughput < lastThroughput * (1 + THRESHOLD)) {
+                // No better with more, fewer connections are kinder to the server
+                direction = -1;
+            }
+        }
+
+        lastThroughput = throughput;
+
+        int next = Math.max(1, Math.min(MAX_PARALLEL_DOWNLOADS, parallelDownloads + direction));
+        if (next == parallelDownloads) return;
+
+        Log.d(TAG, "Parallel downloads " + parallelDownloads + " -> " + next + " at " + (long) throughput / 1024 + " KB/s");
+
+        parallelDownloads = next;
+        downloadManager.setMaxParallelDownloads(parallelDownloads);
+    }
+}
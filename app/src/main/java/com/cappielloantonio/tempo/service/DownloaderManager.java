@@ -3,8 +3,10 @@ package com.cappielloantonio.tempo.service;
 import static androidx.media3.common.util.Assertions.checkNotNull;
 
 import android.content.Context;
+import android.net.Uri;
 
 import androidx.annotation.Nullable;
+import androidx.media3.common.C;
 import androidx.media3.common.MediaItem;
 import androidx.media3.common.util.Log;
 import androidx.media3.common.util.UnstableApi;
@@ -22,8 +24,9 @@ import com.cappielloantonio.tempo.repository.DownloadRepository;
 import com.cappielloantonio.tempo.util.DownloadUtil;
 
 import java.io.IOException;
-import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @UnstableApi
 public class DownloaderManager {
@@ -32,28 +35,45 @@ public class DownloaderManager {
     private final Context context;
     private final DataSource.Factory dataSourceFactory;
     private final DownloadIndex downloadIndex;
+    private final DownloadScheduler downloadScheduler;
 
-    private static HashMap<String, Download> downloads;
+    private static final Map<String, Download> downloads = new ConcurrentHashMap<>();
 
-    public DownloaderManager(Context context, DataSource.Factory dataSourceFactory, DownloadManager downloadManager) {
+    public DownloaderManager(Context context, DataSource.Factory dataSourceFactory, DownloadManager downloadManager, DownloadScheduler downloadScheduler) {
         this.context = context.getApplicationContext();
         this.dataSourceFactory = dataSourceFactory;
+        this.downloadScheduler = downloadScheduler;
 
-        downloads = new HashMap<>();
+        downloads.clear();
         downloadIndex = downloadManager.getDownloadIndex();
 
         loadDownloads();
     }
 
     private DownloadRequest buildDownloadRequest(MediaItem mediaItem) {
-        return DownloadHelper
-                .forMediaItem(
-                        context,
-                        mediaItem,
-                        DownloadUtil.buildRenderersFactory(context, false),
-                        dataSourceFactory)
-                .getDownloadRequest(Util.getUtf8Bytes(checkNotNull(mediaItem.mediaId)))
-                .copyWithId(mediaItem.mediaId);
+        MediaItem.LocalConfiguration localConfiguration = checkNotNull(mediaItem.localConfiguration);
+        byte[] data = Util.getUtf8Bytes(checkNotNull(mediaItem.mediaId));
+
+        // Songs are single files, only adaptive streams need the helper and its renderers to pick tracks
+        if (Util.inferContentTypeForUriAndMimeType(localConfiguration.uri, localConfiguration.mimeType) != C.CONTENT_TYPE_OTHER) {
+            DownloadHelper downloadHelper = DownloadHelper.forMediaItem(
+                    context,
+                    mediaItem,
+                    DownloadUtil.buildRenderersFactory(context, false),
+                    dataSourceFactory);
+
+            try {
+                return downloadHelper.getDownloadRequest(data).copyWithId(mediaItem.mediaId);
+            } finally {
+                downloadHelper.release();
+            }
+        }
+
+        return new DownloadRequest.Builder(mediaItem.mediaId, localConfiguration.uri)
+                .setMimeType(localConfiguration.mimeType)
+                .setCustomCacheKey(localConfiguration.customCacheKey)
+                .setData(data)
+                .build();
     }
 
     public boolean isDownloaded(String mediaId) {
@@ -61,6 +81,16 @@ public class DownloaderManager {
         return download != null && download.state != Download.STATE_FAILED;
     }
 
+    /**
+     * The URI {@code mediaId} was downloaded from, which its bytes are cached under, or null if it
+     * is not downloaded. Read from memory, so it is safe on any thread.
+     */
+    @Nullable
+    public Uri getDownloadUri(String mediaId) {
+        @Nullable Download download = downloads.get(mediaId);
+        return download != null && download.state != Download.STATE_FAILED ? download.request.uri : null;
+    }
+
     public boolean isDownloaded(MediaItem mediaItem) {
         return isDownloaded(mediaItem.mediaId);
     }
@@ -72,6 +102,7 @@ public class DownloaderManager {
     public void download(MediaItem mediaItem, com.cappielloantonio.tempo.model.Download download) {
         download.setDownloadUri(mediaItem.requestMetadata.mediaUri.toString());
 
+        downloadScheduler.prioritize(mediaItem.mediaId);
         DownloadService.sendAddDownload(context, DownloaderService.class, buildDownloadRequest(mediaItem), false);
         insertDatabase(download);
     }
@@ -82,8 +113,29 @@ public class DownloaderManager {
         }
     }
 
+    /**
+     * Hands {@code mediaItems} to the download manager in one go, and drops {@code removedIds},
+     * instead of sending the service an intent per song. The database rows are left to the caller.
+     * Must be called on the main thread.
+     */
+    public void enqueue(List<MediaItem> mediaItems, List<String> removedIds) {
+        DownloadManager downloadManager = DownloadUtil.getDownloadManager(context);
+
+        for (String id : removedIds) {
+            downloadManager.removeDownload(id);
+            downloads.remove(id);
+        }
+
+        for (MediaItem mediaItem : mediaItems) {
+            downloadManager.addDownload(buildDownloadRequest(mediaItem), downloadScheduler.getBackgroundStopReason());
+        }
+
+        // One intent, which also starts the service that keeps the downloads going
+        DownloadService.sendSetRequirements(context, DownloaderService.class, DownloadUtil.getDownloadRequirements(), false);
+    }
+
     public void remove(MediaItem mediaItem, com.cappielloantonio.tempo.model.Download download) {
-        DownloadService.sendRemoveDownload(context, DownloaderService.class, buildDownloadRequest(mediaItem).id, false);
+        DownloadService.sendRemoveDownload(context, DownloaderService.class, mediaItem.mediaId, false);
         deleteDatabase(download.getId());
         downloads.remove(download.getId());
     }
@@ -15,6 +15,7 @@ import androidx.media3.exoplayer.scheduler.Requirements;
 import androidx.media3.exoplayer.scheduler.Scheduler;
 
 import com.cappielloantonio.tempo.R;
+import com.cappielloantonio.tempo.database.DatabaseExecutor;
 import com.cappielloantonio.tempo.util.DownloadUtil;
 
 import java.util.List;
@@ -89,22 +90,33 @@ public class DownloaderService extends androidx.media3.exoplayer.offline.Downloa
 
         @Override
         public void onDownloadChanged(@NonNull DownloadManager downloadManager, Download download, @Nullable Exception finalException) {
-            Notification notification;
+            if (download.state != Download.STATE_COMPLETED && download.state != Download.STATE_FAILED) {
+                return;
+            }
 
             if (download.state == Download.STATE_COMPLETED) {
-                notification = notificationHelper.buildDownloadCompletedNotification(context, R.drawable.ic_check_circle, null, DownloaderManager.getDownloadNotificationMessage(download.request.id));
-                notification = Notification.Builder.recoverBuilder(context, notification).setGroup(DownloadUtil.DOWNLOAD_NOTIFICATION_SUCCESSFUL_GROUP).build();
-                NotificationUtil.setNotification(this.context, successfulDownloadGroupNotificationId, successfulDownloadGroupNotification);
                 DownloaderManager.updateRequestDownload(download);
-            } else if (download.state == Download.STATE_FAILED) {
-                notification = notificationHelper.buildDownloadFailedNotification(context, R.drawable.ic_error, null, DownloaderManager.getDownloadNotificationMessage(download.request.id));
-                notification = Notification.Builder.recoverBuilder(context, notification).setGroup(DownloadUtil.DOWNLOAD_NOTIFICATION_FAILED_GROUP).build();
-                NotificationUtil.setNotification(this.context, failedDownloadGroupNotificationId, failedDownloadGroupNotification);
-            } else {
-                return;
             }
 
-            NotificationUtil.setNotification(context, nextNotificationId++, notification);
+            int notificationId = nextNotificationId++;
+
+            // The title comes from the database, so the notification is built off the main thread
+            DatabaseExecutor.execute("downloads.notify", () -> {
+                String message = DownloaderManager.getDownloadNotificationMessage(download.request.id);
+                Notification notification;
+
+                if (download.state == Download.STATE_COMPLETED) {
+                    notification = notificationHelper.buildDownloadCompletedNotification(context, R.drawable.ic_check_circle, null, message);
+                    notification = Notification.Builder.recoverBuilder(context, notification).setGroup(DownloadUtil.DOWNLOAD_NOTIFICATION_SUCCESSFUL_GROUP).build();
+                    NotificationUtil.setNotification(context, successfulDownloadGroupNotificationId, successfulDownloadGroupNotification);
+                } else {
+                    notification = notificationHelper.buildDownloadFailedNotification(context, R.drawable.ic_error, null, message);
+                    notification = Notification.Builder.recoverBuilder(context, notification).setGroup(DownloadUtil.DOWNLOAD_NOTIFICATION_FAILED_GROUP).build();
+                    NotificationUtil.setNotification(context, failedDownloadGroupNotificationId, failedDownloadGroupNotification);
+                }
+
+                NotificationUtil.setNotification(context, notificationId, notification);
+            });
         }
 
         @Override
@@ -0,0 +1,19 @@
+package com.cappielloantonio.tempo.service
+
+import android.content.Context
+import com.cappielloantonio.tempo.repository.FavoriteRepository
+
+/**
+ * Sends the favorite changes made while offline in the background, see [FavoriteRepository.sync].
+ */
+object FavoriteSync {
+    private val repository by lazy { FavoriteRepository() }
+    private val scheduler = SyncScheduler { repository.sync() }
+
+    /** Starts watching the network and sends whatever was left over. */
+    @JvmStatic
+    fun start(context: Context) = scheduler.start(context)
+
+    @JvmStatic
+    fun request(delayMs: Long) = scheduler.request(delayMs)
+}
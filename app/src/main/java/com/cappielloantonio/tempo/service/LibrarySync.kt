@@ -0,0 +1,49 @@
+package com.cappielloantonio.tempo.service
+
+import android.content.Context
+import androidx.lifecycle.LiveData
+import androidx.lifecycle.MutableLiveData
+import com.cappielloantonio.tempo.repository.LibraryRepository
+import com.cappielloantonio.tempo.util.Preferences
+
+/**
+ * Keeps the local library mirror, and with it the search index, up to date, see
+ * [LibraryRepository.sync].
+ */
+object LibrarySync {
+    // A sync that finds nothing changed costs two small requests
+    private const val MIN_INTERVAL_MS = 15 * 60 * 1000L
+
+    private val repository by lazy { LibraryRepository() }
+    private val scheduler = SyncScheduler(::sync)
+    private val syncing = MutableLiveData(false)
+
+    /** Starts watching the network and syncs if the last sync is old enough. */
+    @JvmStatic
+    fun start(context: Context) = scheduler.start(context)
+
+    /** Syncs if the last sync is old enough, e.g. when a catalogue is opened. */
+    @JvmStatic
+    fun request() = scheduler.request(0)
+
+    /** Whether a sync is talking to the server, e.g. to show progress while the mirror is empty. */
+    @JvmStatic
+    fun isSyncing(): LiveData<Boolean> = syncing
+
+    private fun sync(): Boolean {
+        val server = Preferences.getServerId() ?: return true
+        val now = System.currentTimeMillis()
+        if (now - Preferences.getLastLibrarySync(server) < MIN_INTERVAL_MS && repository.isMirrored(server)) return true
+
+        syncing.postValue(true)
+        val synced = try {
+            repository.sync(server)
+        } finally {
+            syncing.postValue(false)
+        }
+        if (!synced) return false
+
+        Preferences.setLastLibrarySync(server, now)
+        return true
+    }
+}
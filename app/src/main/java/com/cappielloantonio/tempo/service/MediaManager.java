@@ -19,6 +19,7 @@ import androidx.media3.session.MediaBrowser;
 
 import com.cappielloantonio.tempo.interfaces.MediaIndexCallback;
 import com.cappielloantonio.tempo.model.Chronology;
+import com.cappielloantonio.tempo.model.PlayEvent;
 import com.cappielloantonio.tempo.repository.ChronologyRepository;
 import com.cappielloantonio.tempo.repository.QueueRepository;
 import com.cappielloantonio.tempo.repository.SongRepository;
@@ -36,6 +37,7 @@ import com.google.common.util.concurrent.MoreExecutors;
 
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.ExecutionException;
@@ -137,6 +139,7 @@ public class MediaManager {
                         }
                         mediaBrowser.stop();
                         mediaBrowser.clearMediaItems();
+                        QueueWindow.reset(0);
                         clearDatabase();
                     }
                 } catch (ExecutionException | InterruptedException e) {
@@ -203,16 +206,16 @@ public class MediaManager {
             if (browser.getMediaItemCount() < 1) {
                 // 1. 先在后台线程查询数据库
                 backgroundExecutor.execute(() -> {
-                    List<Child> media = getQueueRepository().getMedia();
                     int lastIndex = getQueueRepository().getLastPlayedMediaIndex();
                     long lastPos = getQueueRepository().getLastPlayedMediaTimestamp();
+                    QueueWindow.Window window = QueueWindow.load(lastIndex);
                     // 2. 查询完后再切回主线程更新播放器
-                    if (media != null && !media.isEmpty()) {
-                        List<MediaItem> mediaItems = MappingUtil.mapMediaItems(media);
+                    if (window != null) {
                         new Handler(Looper.getMainLooper()).post(() -> {
-                            browser.setMediaItems(mediaItems);
-                            browser.seekTo(lastIndex, lastPos);
+                            browser.setMediaItems(window.getMediaItems());
+                            browser.seekTo(window.getStartIndex(), lastPos);
                             browser.prepare();
+                            QueueWindow.attach(window);
                             Log.d(TAG, "brower is prepared.");
                         });
                     }
@@ -228,10 +231,12 @@ public class MediaManager {
                     if (mediaBrowserListenableFuture.isDone()) {
                         MediaBrowser mediaBrowser = mediaBrowserListenableFuture.get();
                         assert mediaBrowser != null;
+                        QueueWindow.Window window = QueueWindow.slice(media, getQueueRepository().getLastPlayedMediaIndex());
                         mediaBrowser.clearMediaItems();
-                        mediaBrowser.setMediaItems(MappingUtil.mapMediaItems(media));
-                        mediaBrowser.seekTo(getQueueRepository().getLastPlayedMediaIndex(), getQueueRepository().getLastPlayedMediaTimestamp());
+                        mediaBrowser.setMediaItems(window.getMediaItems());
+                        mediaBrowser.seekTo(window.getStartIndex(), getQueueRepository().getLastPlayedMediaTimestamp());
                         mediaBrowser.prepare();
+                        QueueWindow.attach(window);
                     }
                 } catch (ExecutionException | InterruptedException e) {
                     Log.e(TAG, "init", e);
@@ -276,6 +281,7 @@ public class MediaManager {
                 browser.setMediaItem(MappingUtil.mapMediaItem(medias.get(0)));
                 browser.prepare();
                 browser.play();
+                QueueWindow.reset(1);
                 enqueueDatabase(medias.get(0));
                 getQueueRepository().insert(medias.get(0), true, 0);
                 return;
@@ -283,20 +289,23 @@ public class MediaManager {
 
             new Handler(Looper.getMainLooper()).post(() -> {
                 justStarted.set(true);
-                browser.setMediaItems(MappingUtil.mapMediaItems(medias), startIndex, 0);
+                QueueWindow.Window window = QueueWindow.slice(medias, startIndex);
+                int playerIndex = window.getStartIndex();
+                browser.setMediaItems(window.getMediaItems(), playerIndex, 0);
                 browser.prepare();
+                QueueWindow.attach(window);
 
                 Player.Listener timelineListener = new Player.Listener() {
                     @Override
                     public void onTimelineChanged(@NonNull Timeline timeline, int reason) {
 
                         int itemCount = browser.getMediaItemCount();
-                        if (startIndex >= 0 && startIndex < itemCount) {
-                            browser.seekTo(startIndex, 0);
+                        if (playerIndex >= 0 && playerIndex < itemCount) {
+                            browser.seekTo(playerIndex, 0);
                             browser.play();
                             browser.removeListener(this);
                         } else {
-                            Log.d(TAG, "Cannot start playback: itemCount=" + itemCount + ", startIndex=" + startIndex);
+                            Log.d(TAG, "Cannot start playback: itemCount=" + itemCount + ", startIndex=" + playerIndex);
                         }
                     }
                 };
@@ -319,25 +328,27 @@ public class MediaManager {
                 try {
                     if (mediaBrowserListenableFuture.isDone()) {
                         final MediaBrowser browser = mediaBrowserListenableFuture.get();
-                        final List<MediaItem> items = MappingUtil.mapMediaItems(media);
+                        final QueueWindow.Window window = QueueWindow.slice(media, startIndex);
+                        final int playerIndex = window.getStartIndex();
 
                         new Handler(Looper.getMainLooper()).post(() -> {
                             justStarted.set(true);
                             assert browser != null;
-                            browser.setMediaItems(items, startIndex, 0);
+                            browser.setMediaItems(window.getMediaItems(), playerIndex, 0);
                             browser.prepare();
+                            QueueWindow.attach(window);
 
                             Player.Listener timelineListener = new Player.Listener() {
                                 @Override
                                 public void onTimelineChanged(@NonNull Timeline timeline, int reason) {
 
                                     int itemCount = browser.getMediaItemCount();
-                                    if (startIndex >= 0 && startIndex < itemCount) {
-                                        browser.seekTo(startIndex, 0);
+                                    if (playerIndex >= 0 && playerIndex < itemCount) {
+                                        browser.seekTo(playerIndex, 0);
                                         browser.play();
                                         browser.removeListener(this);
                                     } else {
-                                        Log.d(TAG, "Cannot start playback: itemCount=" + itemCount + ", startIndex=" + startIndex);
+                                        Log.d(TAG, "Cannot start playback: itemCount=" + itemCount + ", startIndex=" + playerIndex);
                                     }
                                 }
                             };
@@ -368,6 +379,7 @@ public class MediaManager {
                         browser.setMediaItem(MappingUtil.mapMediaItem(media));
                         browser.prepare();
                         browser.play();
+                        QueueWindow.reset(1);
                         getQueueRepository().insert(media,true,0);
                     }
                 } catch (ExecutionException | InterruptedException e) {
@@ -388,6 +400,7 @@ public class MediaManager {
                         mediaBrowser.setMediaItem(mediaItem);
                         mediaBrowser.prepare();
                         mediaBrowser.play();
+                        QueueWindow.reset(0);
                         clearDatabase();
                     }
                 } catch (ExecutionException | InterruptedException e) {
@@ -438,11 +451,11 @@ public class MediaManager {
     public static void enqueue(ListenableFuture<MediaBrowser> mediaBrowserListenableFuture, List<Child> media, boolean playImmediatelyAfter, boolean switchImmediately) {
         addListener(mediaBrowserListenableFuture, (f,browser)->{
             if (playImmediatelyAfter && browser.getNextMediaItemIndex() != -1) {
-                getQueueRepository().insertAll(media, false, browser.getNextMediaItemIndex());
-                browser.addMediaItems(browser.getNextMediaItemIndex(), MappingUtil.mapMediaItems(media));
+                getQueueRepository().insertAll(media, false, QueueWindow.toQueueIndex(browser.getNextMediaItemIndex()));
+                QueueWindow.insert(browser, browser.getNextMediaItemIndex(), media);
             } else {
-                getQueueRepository().insertAll(media, false, browser.getMediaItemCount());
-                browser.addMediaItems(MappingUtil.mapMediaItems(media));
+                getQueueRepository().insertAll(media, false, QueueWindow.queueSize(browser));
+                QueueWindow.insert(browser, browser.getMediaItemCount(), media);
             }
             if(switchImmediately && browser.hasNextMediaItem()){
                 browser.seekToNext();
@@ -455,11 +468,11 @@ public class MediaManager {
     public static void enqueue(ListenableFuture<MediaBrowser> mediaBrowserListenableFuture, Child media, boolean playImmediatelyAfter, boolean switchImmediately) {
         addListener(mediaBrowserListenableFuture, (f,browser)->{
             if (playImmediatelyAfter && browser.getNextMediaItemIndex() != -1) {
-                getQueueRepository().insert(media, false, browser.getNextMediaItemIndex());
-                browser.addMediaItem(browser.getNextMediaItemIndex(), MappingUtil.mapMediaItem(media));
+                getQueueRepository().insert(media, false, QueueWindow.toQueueIndex(browser.getNextMediaItemIndex()));
+                QueueWindow.insert(browser, browser.getNextMediaItemIndex(), Collections.singletonList(media));
             } else {
-                getQueueRepository().insert(media, false, browser.getMediaItemCount());
-                browser.addMediaItem(MappingUtil.mapMediaItem(media));
+                getQueueRepository().insert(media, false, QueueWindow.queueSize(browser));
+                QueueWindow.insert(browser, browser.getMediaItemCount(), Collections.singletonList(media));
             }
             if(switchImmediately && browser.hasNextMediaItem()){
                 browser.seekToNext();
@@ -485,9 +498,14 @@ public class MediaManager {
                         Log.d(TAG, "shuffle");
                         MediaBrowser browser = mediaBrowserListenableFuture.get();
                         assert browser != null;
-                        browser.removeMediaItems(startIndex, endIndex + 1);
-                        browser.addMediaItems(MappingUtil.mapMediaItems(media).subList(startIndex, endIndex + 1));
-                        swapDatabase(media);
+                        replaceDatabase(media);
+                        if (QueueWindow.queueSize(browser) > browser.getMediaItemCount()) {
+                            // The shuffled tail is only in the database, read back the part around the current item.
+                            QueueWindow.refill(browser, QueueWindow.toQueueIndex(browser.getCurrentMediaItemIndex()));
+                        } else {
+                            browser.removeMediaItems(startIndex, endIndex + 1);
+                            browser.addMediaItems(MappingUtil.mapMediaItems(media.subList(startIndex, endIndex + 1)));
+                        }
                     }
                 } catch (ExecutionException | InterruptedException e) {
                     Log.e(TAG, "shuffle",e);
@@ -502,8 +520,8 @@ public class MediaManager {
                 try {
                     if (mediaBrowserListenableFuture.isDone()) {
                         Log.d(TAG, "swap");
-                        Objects.requireNonNull(mediaBrowserListenableFuture.get()).moveMediaItem(from, to);
-                        swapDatabase(media);
+                        moveDatabase(from, to);
+                        QueueWindow.move(Objects.requireNonNull(mediaBrowserListenableFuture.get()), from, to);
                     }
                 } catch (ExecutionException | InterruptedException e) {
                     Log.e(TAG, "swap",e);
@@ -520,8 +538,8 @@ public class MediaManager {
                         Log.e(TAG, "remove");
                         MediaBrowser mediaBrowser = mediaBrowserListenableFuture.get();
                         assert  mediaBrowser != null;
-                        if (mediaBrowser.getMediaItemCount() > 1 && mediaBrowser.getCurrentMediaItemIndex() != toRemove) {
-                            mediaBrowser.removeMediaItem(toRemove);
+                        if (QueueWindow.queueSize(mediaBrowser) > 1 && QueueWindow.toQueueIndex(mediaBrowser.getCurrentMediaItemIndex()) != toRemove) {
+                            QueueWindow.remove(mediaBrowser, toRemove, toRemove + 1);
                             removeDatabase(media, toRemove);
                         } else {
                             removeDatabase(media, -1);
@@ -540,7 +558,7 @@ public class MediaManager {
                 try {
                     if (mediaBrowserListenableFuture.isDone()) {
                         Log.e(TAG, "remove range");
-                        Objects.requireNonNull(mediaBrowserListenableFuture.get()).removeMediaItems(fromItem, toItem);
+                        QueueWindow.remove(Objects.requireNonNull(mediaBrowserListenableFuture.get()), fromItem, toItem);
                         removeRangeDatabase(media, fromItem, toItem);
                     }
                 } catch (ExecutionException | InterruptedException e) {
@@ -555,7 +573,7 @@ public class MediaManager {
             mediaBrowserListenableFuture.addListener(() -> {
                 try {
                     if (mediaBrowserListenableFuture.isDone()) {
-                        callback.onRecovery(Objects.requireNonNull(mediaBrowserListenableFuture.get()).getCurrentMediaItemIndex());
+                        callback.onRecovery(QueueWindow.toQueueIndex(Objects.requireNonNull(mediaBrowserListenableFuture.get()).getCurrentMediaItemIndex()));
                     }
                 } catch (ExecutionException | InterruptedException e) {
                     Log.e(TAG, "getCurrentIndex",e);
@@ -576,7 +594,7 @@ public class MediaManager {
     public static void scrobble(MediaItem mediaItem, boolean submission) {
         if (mediaItem != null && Preferences.isScrobblingEnabled()) {
             assert mediaItem.mediaMetadata.extras != null;
-            getSongRepository().scrobble(mediaItem.mediaMetadata.extras.getString("id"), submission);
+            ScrobbleOutbox.record(mediaItem.mediaMetadata.extras.getString("id"), submission);
         }
     }
 
@@ -601,12 +619,17 @@ public class MediaManager {
         }
     }
 
-    public static void saveChronology(MediaItem mediaItem) {
+    public static void saveChronology(MediaItem mediaItem, long playedDuration) {
         if (mediaItem != null) {
-            getChronologyRepository().insert(new Chronology(mediaItem));
+            getChronologyRepository().insert(new Chronology(mediaItem), playedDuration, getPlaySource(mediaItem));
         }
     }
 
+    private static String getPlaySource(MediaItem mediaItem) {
+        String scheme = mediaItem.localConfiguration != null ? mediaItem.localConfiguration.uri.getScheme() : null;
+        return "http".equals(scheme) || "https".equals(scheme) ? PlayEvent.SOURCE_STREAM : PlayEvent.SOURCE_DOWNLOAD;
+    }
+
     private static QueueRepository getQueueRepository() {
         return new QueueRepository();
     }
@@ -623,23 +646,25 @@ public class MediaManager {
         getQueueRepository().insert(media, true, 0);
     }
 
-    private static void swapDatabase(List<Child> media) {
+    private static void replaceDatabase(List<Child> media) {
         getQueueRepository().insertAll(media, true, 0);
     }
 
+    private static void moveDatabase(int from, int to) {
+        getQueueRepository().move(from, to);
+    }
+
     private static void removeDatabase(List<Child> media, int toRemove) {
         if (toRemove != -1) {
             media.remove(toRemove);
-            getQueueRepository().insertAll(media, true, 0);
+            getQueueRepository().delete(toRemove);
         }
     }
 
     private static void removeRangeDatabase(List<Child> media, int fromItem, int toItem) {
-        List<Child> toRemove = media.subList(fromItem, toItem);
+        media.subList(fromItem, toItem).clear();
 
-        media.removeAll(toRemove);
-
-        getQueueRepository().insertAll(media, true, 0);
+        getQueueRepository().deleteRange(fromItem, toItem);
     }
 
     public static void clearDatabase() {
@@ -0,0 +1,279 @@
+package com.cappielloantonio.tempo.service
+
+import android.util.Log
+import androidx.media3.common.MediaItem
+import androidx.media3.common.Player
+import com.cappielloantonio.tempo.repository.QueueRepository
+import com.cappielloantonio.tempo.subsonic.models.Child
+import com.cappielloantonio.tempo.util.MappingUtil
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.withContext
+
+/**
+ * Keeps only a slice of a long play queue materialised in the player.
+ *
+ * The `queue` table stays the source of truth for the whole queue, the player holds the rows
+ * `[offset, offset + mediaItemCount)` of it. Queues that fit in [WINDOW_SIZE] are loaded whole and
+ * keep `offset == 0`, so every index translation below is a no-op for them.
+ *
+ * All methods taking a [Player] must be called on the main thread.
+ */
+object QueueWindow {
+    private const val TAG = "QueueWindow"
+
+    const val WINDOW_SIZE = 200
+    private const val WINDOW_BEFORE = 50
+    private const val REFILL_MARGIN = 20
+
+    private val scope = CoroutineScope(SupervisorJob() + Dispatchers.Main)
+    private val queueRepository = QueueRepository()
+    private var refillJob: Job? = null
+
+    @Volatile
+    private var offset = 0
+
+    @Volatile
+    private var size = 0
+
+    class Window(
+        val mediaItems: List<MediaItem>,
+        val offset: Int,
+        val startIndex: Int,
+        val size: Int
+    )
+
+    /** Converts a player index into a position of the stored queue. */
+    @JvmStatic
+    fun toQueueIndex(playerIndex: Int): Int = if (playerIndex < 0) playerIndex else playerIndex + offset
+
+    /** Converts a position of the stored queue into a player index, which may be out of range. */
+    @JvmStatic
+    fun toPlayerIndex(queueIndex: Int): Int = queueIndex - offset
+
+    /** Number of rows in the stored queue; falls back to the player when nothing was attached. */
+    @JvmStatic
+    fun queueSize(player: Player): Int = maxOf(size, offset + player.mediaItemCount)
+
+    /**
+     * Reads the window around [queueIndex] from the stored queue. Blocking, call it off the main
+     * thread.
+     */
+    @JvmStatic
+    fun load(queueIndex: Int): Window? {
+        val total = queueRepository.count()
+        if (total <= 0) return null
+
+        val center = queueIndex.coerceIn(0, total - 1)
+        val start = windowStart(total, center)
+        val media = queueRepository.getMedia(start, WINDOW_SIZE)
+        if (media.isEmpty()) return null
+
+        return Window(MappingUtil.mapMediaItems(media), start, (center - start).coerceAtMost(media.size - 1), total)
+    }
+
+    /** Maps only the window around [startIndex] of a queue that is being started. */
+    @JvmStatic
+    fun slice(media: List<Child?>, startIndex: Int): Window {
+        val total = media.size
+        val center = startIndex.coerceIn(0, maxOf(total - 1, 0))
+        val start = windowStart(total, center)
+        val end = minOf(start + WINDOW_SIZE, total)
+
+        return Window(MappingUtil.mapMediaItems(media.subList(start, end)), start, center - start, total)
+    }
+
+    /** Records that [window] is now the content of the player. */
+    @JvmStatic
+    fun attach(window: Window) {
+        refillJob?.cancel()
+        offset = window.offset
+        size = window.size
+    }
+
+    /** Records that the player holds [count] items which are not windowed. */
+    @JvmStatic
+    fun reset(count: Int) {
+        refillJob?.cancel()
+        offset = 0
+        size = count
+    }
+
+    /**
+     * Moves playback to [queueIndex], reading a new window from the stored queue when the index is
+     * not materialised in the player.
+     */
+    @JvmStatic
+    fun seekTo(player: Player, queueIndex: Int, play: Boolean) {
+        val playerIndex = toPlayerIndex(queueIndex)
+
+        if (playerIndex in 0 until player.mediaItemCount) {
+            player.seekTo(playerIndex, 0)
+            if (play) player.play()
+            return
+        }
+
+        refillJob?.cancel()
+        refillJob = scope.launch {
+            val window = withContext(Dispatchers.IO) { load(queueIndex) } ?: return@launch
+
+            player.setMediaItems(window.mediaItems, window.startIndex, 0)
+            player.prepare()
+            attach(window)
+            if (play) player.play()
+        }
+    }
+
+    /** Slides the window when playback gets close to one of its edges. */
+    @JvmStatic
+    fun onMediaItemTransition(player: Player, reason: Int) {
+        if (size <= WINDOW_SIZE && offset == 0) return
+
+        val current = player.currentMediaItemIndex
+        val count = player.mediaItemCount
+
+        // Repeat-all wrapped around the window rather than the queue.
+        if (reason == Player.MEDIA_ITEM_TRANSITION_REASON_AUTO && current == 0 && offset > 0
+            && player.repeatMode == Player.REPEAT_MODE_ALL && !player.shuffleModeEnabled
+        ) {
+            seekTo(player, 0, player.playWhenReady)
+            return
+        }
+
+        val nearStart = current < REFILL_MARGIN && offset > 0
+        val nearEnd = count - 1 - current < REFILL_MARGIN && offset + count < size
+
+        if (nearStart || nearEnd) refill(player, toQueueIndex(current))
+    }
+
+    /**
+     * Replaces the items around the current one with the window centred on [queueIndex], which
+     * must be the stored position of the current item. Playback is not interrupted.
+     */
+    @JvmStatic
+    fun refill(player: Player, queueIndex: Int) {
+        refillJob?.cancel()
+        refillJob = scope.launch {
+            val window = withContext(Dispatchers.IO) { load(queueIndex) } ?: return@launch
+
+            val current = player.currentMediaItemIndex
+            val expected = window.mediaItems.getOrNull(window.startIndex)
+            if (current < 0 || player.currentMediaItem?.mediaId != expected?.mediaId) {
+                Log.d(TAG, "Queue changed while loading window at $queueIndex")
+                return@launch
+            }
+
+            val items = window.mediaItems
+            player.replaceMediaItems(current + 1, player.mediaItemCount, items.subList(window.startIndex + 1, items.size))
+            player.replaceMediaItems(0, current, items.subList(0, window.startIndex))
+
+            offset = window.offset
+            size = window.size
+        }
+    }
+
+    /**
+     * Adds [media], already written at the player position [playerIndex] of the stored queue, to
+     * the player when that position is materialised.
+     */
+    @JvmStatic
+    fun insert(player: Player, playerIndex: Int, media: List<Child?>) {
+        val count = player.mediaItemCount
+        val coversEnd = offset + count >= size
+        size = queueSize(player) + media.size
+
+        if (playerIndex >= count && !coversEnd) return
+
+        if (size <= WINDOW_SIZE || media.size <= WINDOW_SIZE - count) {
+            player.addMediaItems(playerIndex, MappingUtil.mapMediaItems(media))
+            return
+        }
+
+        val fit = minOf(media.size, WINDOW_SIZE)
+        val current = player.currentMediaItemIndex
+
+        when {
+            fit == media.size -> player.addMediaItems(playerIndex, MappingUtil.mapMediaItems(media))
+            current < playerIndex -> {
+                // Only a window's worth of the new items is materialised, what followed the insert
+                // point would no longer be contiguous with the stored queue, so it is dropped.
+                if (playerIndex < count) player.removeMediaItems(playerIndex, count)
+                player.addMediaItems(playerIndex, MappingUtil.mapMediaItems(media.subList(0, fit)))
+            }
+            else -> {
+                // The current item follows the insert point: keep it with the last of the new
+                // items, and drop what came before them instead.
+                player.addMediaItems(playerIndex, MappingUtil.mapMediaItems(media.subList(media.size - fit, media.size)))
+                player.removeMediaItems(0, playerIndex)
+                offset += playerIndex + media.size - fit
+            }
+        }
+
+        trim(player)
+    }
+
+    /**
+     * Brings the player back to [WINDOW_SIZE] items, taking from the edge farthest from the current
+     * item first. The current item is never removed.
+     */
+    private fun trim(player: Player) {
+        val count = player.mediaItemCount
+        val overflow = count - WINDOW_SIZE
+        if (overflow <= 0) return
+
+        val current = player.currentMediaItemIndex.coerceAtLeast(0)
+        val after = count - 1 - current
+        val fromStart = if (after >= current) (overflow - after).coerceAtLeast(0) else minOf(overflow, current)
+        val fromEnd = overflow - fromStart
+
+        if (fromEnd > 0) player.removeMediaItems(count - fromEnd, count)
+        if (fromStart > 0) {
+            player.removeMediaItems(0, fromStart)
+            offset += fromStart
+        }
+    }
+
+    /** Removes the stored positions `[fromQueue, toQueue)` from the player. */
+    @JvmStatic
+    fun remove(player: Player, fromQueue: Int, toQueue: Int) {
+        val count = player.mediaItemCount
+        val from = toPlayerIndex(fromQueue).coerceIn(0, count)
+        val to = toPlayerIndex(toQueue).coerceIn(0, count)
+
+        size = queueSize(player) - (toQueue - fromQueue)
+        offset -= (minOf(toQueue, offset) - fromQueue).coerceAtLeast(0)
+
+        if (from < to) player.removeMediaItems(from, to)
+    }
+
+    /** Applies a move of the stored queue to the player. */
+    @JvmStatic
+    fun move(player: Player, fromQueue: Int, toQueue: Int) {
+        val count = player.mediaItemCount
+        val from = toPlayerIndex(fromQueue)
+        val to = toPlayerIndex(toQueue)
+
+        if (from in 0 until count && to in 0 until count) {
+            player.moveMediaItem(from, to)
+            return
+        }
+
+        val current = toQueueIndex(player.currentMediaItemIndex)
+        val moved = when {
+            fromQueue == current -> toQueue
+            fromQueue < current && toQueue >= current -> current - 1
+            fromQueue > current && toQueue <= current -> current + 1
+            else -> current
+        }
+
+        refill(player, moved)
+    }
+
+    private fun windowStart(total: Int, center: Int): Int {
+        if (total <= WINDOW_SIZE) return 0
+        return (center - WINDOW_BEFORE).coerceIn(0, total - WINDOW_SIZE)
+    }
+}
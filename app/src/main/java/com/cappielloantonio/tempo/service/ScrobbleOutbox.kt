@@ -0,0 +1,40 @@
+package com.cappielloantonio.tempo.service
+
+import android.content.Context
+import com.cappielloantonio.tempo.model.ScrobbleEvent
+import com.cappielloantonio.tempo.repository.ScrobbleRepository
+import com.cappielloantonio.tempo.util.Preferences
+
+/**
+ * Records scrobbles in the database and sends them in batches.
+ *
+ * Events are flushed a few seconds after they are recorded, so that the submission of a track and
+ * the now playing of the next one go out together.
+ */
+object ScrobbleOutbox {
+    private const val FLUSH_DELAY_MS = 5_000L
+
+    private val repository by lazy { ScrobbleRepository() }
+    private val scheduler = SyncScheduler(::flush)
+
+    @JvmStatic
+    fun record(songId: String, submission: Boolean) {
+        val server = Preferences.getServerId() ?: return
+        val event = ScrobbleEvent(songId = songId, server = server, time = System.currentTimeMillis(), submission = submission)
+
+        scheduler.execute { repository.insert(event) }
+        scheduler.request(FLUSH_DELAY_MS)
+    }
+
+    /** Starts watching the network and sends whatever was left in the outbox. */
+    @JvmStatic
+    fun start(context: Context) = scheduler.start(context)
+
+    @JvmStatic
+    fun stop() = scheduler.stop()
+
+    private fun flush(): Boolean {
+        val server = Preferences.getServerId() ?: return true
+        return repository.flush(server)
+    }
+}
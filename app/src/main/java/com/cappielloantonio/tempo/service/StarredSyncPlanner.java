@@ -0,0 +1,246 @@
+package com.cappielloantonio.tempo.service;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.core.content.ContextCompat;
+import androidx.media3.common.MediaItem;
+import androidx.media3.common.util.UnstableApi;
+
+import com.cappielloantonio.tempo.database.AppDatabase;
+import com.cappielloantonio.tempo.database.DatabaseExecutor;
+import com.cappielloantonio.tempo.database.dao.DownloadDao;
+import com.cappielloantonio.tempo.model.Download;
+import com.cappielloantonio.tempo.subsonic.models.Child;
+import com.cappielloantonio.tempo.util.DownloadUtil;
+import com.cappielloantonio.tempo.util.ExternalAudioReader;
+import com.cappielloantonio.tempo.util.ExternalAudioWriter;
+import com.cappielloantonio.tempo.util.MappingUtil;
+import com.cappielloantonio.tempo.util.Preferences;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Works out what a starred sync has to download and remove, in the background and with one query
+ * to the download table, then applies it in one database transaction and hands the downloads to
+ * the download manager in one go.
+ * <p>
+ * The downloads a sync queues remember it, so that un-starring removes them again without
+ * touching the songs the user downloaded by hand.
+ */
+@UnstableApi
+public final class StarredSyncPlanner {
+    private static final String TAG = "StarredSyncPlanner";
+
+    // A sync queues at most this much, the rest is left for the next one
+    private static final long BYTE_BUDGET = 2L * 1024 * 1024 * 1024;
+    // Kept free on the storage of the app's own downloads
+    private static final long FREE_SPACE_MARGIN = 512L * 1024 * 1024;
+    // For songs the server gives neither a size nor a bitrate for
+    private static final long DEFAULT_SONG_BYTES = 8L * 1024 * 1024;
+
+    public enum Source {
+        SONGS("starred_songs", Child::getId),
+        ALBUMS("starred_albums", Child::getAlbumId),
+        ARTISTS("starred_artists", Child::getArtistId);
+
+        private final String key;
+        // What has to stay starred for a song to be kept
+        private final Function<Child, String> starredId;
+
+        Source(String key, Function<Child, String> starredId) {
+            this.key = key;
+            this.starredId = starredId;
+        }
+    }
+
+    private StarredSyncPlanner() {
+    }
+
+    /**
+     * Compares {@code songs} with what is downloaded. Downloads of this sync whose song, album or
+     * artist is not in {@code starredIds} any more are removed, all of them when it is empty. Pass
+     * null when the full starred list isn't known, a failed request must not look like everything
+     * was un-starred.
+     */
+    public static ListenableFuture<Plan> plan(Context context, Source source, List<Child> songs, Collection<String> starredIds) {
+        Context appContext = context.getApplicationContext();
+        boolean external = Preferences.getDownloadDirectoryUri() != null;
+        Set<String> starred = starredIds != null ? new HashSet<>(starredIds) : null;
+
+        return DatabaseExecutor.submit("starred_sync.plan", () -> computePlan(appContext, source, songs, starred, external));
+    }
+
+    /**
+     * Queues the downloads and removals of {@code plan}. The future holds the number of songs
+     * queued, the removals happen in the same transaction.
+     */
+    public static ListenableFuture<Integer> apply(Context context, Plan plan) {
+        Context appContext = context.getApplicationContext();
+
+        List<Download> added = new ArrayList<>();
+        List<String> removedIds = new ArrayList<>();
+
+        for (Child song : plan.toDownload) {
+            Download download = new Download(song);
+            download.setSyncSource(plan.source.key);
+            added.add(download);
+        }
+
+        for (Download download : plan.toRemove) {
+            removedIds.add(download.getId());
+        }
+
+        if (plan.external) {
+            boolean canDownload = DownloadUtil.getDownloadRequirements().getNotMetRequirements(appContext) == 0;
+
+            return DatabaseExecutor.submit("starred_sync.apply", () -> {
+                for (Download download : plan.toRemove) {
+                    ExternalAudioReader.delete(download);
+                }
+
+                getDao().applySync(canDownload ? added : new ArrayList<>(), removedIds);
+
+                if (!canDownload) {
+                    Log.d(TAG, "Requirements not met, " + added.size() + " downloads left for later");
+                    return 0;
+                }
+
+                for (Child song : plan.toDownload) {
+                    ExternalAudioWriter.downloadToUserDirectory(appContext, song);
+                }
+
+                return added.size();
+            });
+        }
+
+        List<MediaItem> mediaItems = new ArrayList<>(added.size());
+        for (Download download : added) {
+            MediaItem mediaItem = MappingUtil.mapDownload(download);
+            download.setDownloadUri(mediaItem.requestMetadata.mediaUri.toString());
+            mediaItems.add(mediaItem);
+        }
+
+        ListenableFuture<Void> stored = DatabaseExecutor.submit("starred_sync.apply", () -> {
+            getDao().applySync(added, removedIds);
+            return null;
+        });
+
+        return Futures.transform(stored, ignored -> {
+            DownloadUtil.getDownloadTracker(appContext).enqueue(mediaItems, removedIds);
+            return added.size();
+        }, ContextCompat.getMainExecutor(appContext));
+    }
+
+    private static Plan computePlan(Context context, Source source, List<Child> songs, Set<String> starredIds, boolean external) {
+        Set<String> downloadedIds = new HashSet<>(getDao().getCompletedIds());
+
+        Map<String, Child> wanted = new LinkedHashMap<>();
+        for (Child song : songs) {
+            if (song.getId() != null) wanted.putIfAbsent(song.getId(), song);
+        }
+
+        List<Child> missing = new ArrayList<>();
+        for (Child song : wanted.values()) {
+            boolean present = external ? ExternalAudioReader.getUri(song) != null : downloadedIds.contains(song.getId());
+            if (!present) missing.add(song);
+        }
+
+        List<Download> toRemove = new ArrayList<>();
+        if (starredIds != null) {
+            for (Download download : getDao().getBySyncSource(source.key)) {
+                String starredId = source.starredId.apply(download);
+                if (starredId == null || !starredIds.contains(starredId)) {
+                    toRemove.add(download);
+                }
+            }
+        }
+
+        long budget = BYTE_BUDGET;
+        if (!external) {
+            budget = Math.min(budget, DownloadUtil.getDownloadStorageFreeSpace(context) - FREE_SPACE_MARGIN);
+        }
+
+        List<Child> toDownload = new ArrayList<>();
+        long bytes = 0;
+        for (Child song : missing) {
+            long size = estimateSize(song);
+            if (bytes + size > budget) break;
+
+            toDownload.add(song);
+            bytes += size;
+        }
+
+        return new Plan(source, external, missing, toDownload, toRemove, bytes);
+    }
+
+    private static long estimateSize(Child song) {
+        if (song.getSize() != null && song.getSize() > 0) {
+            return song.getSize();
+        }
+
+        if (song.getDuration() != null && song.getBitrate() != null && song.getBitrate() > 0) {
+            // kbit/s to bytes
+            return (long) song.getDuration() * song.getBitrate() * 125;
+        }
+
+        return DEFAULT_SONG_BYTES;
+    }
+
+    private static DownloadDao getDao() {
+        return AppDatabase.getInstance().downloadDao();
+    }
+
+    public static final class Plan {
+        private final Source source;
+        private final boolean external;
+        private final List<Child> missing;
+        private final List<Child> toDownload;
+        private final List<Download> toRemove;
+        private final long bytes;
+
+        Plan(Source source, boolean external, List<Child> missing, List<Child> toDownload, List<Download> toRemove, long bytes) {
+            this.source = source;
+            this.external = external;
+            this.missing = missing;
+            this.toDownload = toDownload;
+            this.toRemove = toRemove;
+            this.bytes = bytes;
+        }
+
+        /**
+         * Every starred song that isn't downloaded, including those over the byte budget.
+         */
+        public List<Child> getMissing() {
+            return missing;
+        }
+
+        /**
+         * The songs the next {@link #apply} queues, within the byte budget.
+         */
+        public List<Child> getToDownload() {
+            return toDownload;
+        }
+
+        public List<Download> getToRemove() {
+            return toRemove;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public boolean isEmpty() {
+            return toDownload.isEmpty() && toRemove.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.cappielloantonio.tempo.service
+
+import android.content.Context
+import android.net.ConnectivityManager
+import android.net.NetworkCapabilities
+import android.os.Handler
+import android.os.Looper
+import cn.sffzh.tempus.util.NetworkCallbackImpl
+import cn.sffzh.tempus.util.NetworkUtil
+import com.cappielloantonio.tempo.database.DatabaseExecutor
+import com.cappielloantonio.tempo.database.LimitedExecutor
+
+/**
+ * Runs a background sync with the server on the shared IO pool, one step at a time. Delays are
+ * kept on the main thread's handler, so that no thread waits through them.
+ *
+ * [sync] returns false when the server could not be reached; it is then retried with an
+ * exponential backoff, and right away once a validated network comes back.
+ */
+class SyncScheduler(private val sync: () -> Boolean) {
+    companion object {
+        private const val MIN_BACKOFF_MS = 30_000L
+        private const val MAX_BACKOFF_MS = 60 * 60 * 1000L
+    }
+
+    private var connectivityManager: ConnectivityManager? = null
+
+    private val handler = Handler(Looper.getMainLooper())
+
+    // The fields below are only touched on this executor.
+    private val executor = LimitedExecutor(DatabaseExecutor.getIoExecutor(), 1)
+    private var syncTask: Runnable? = null
+    private var backoff = 0L
+    private var waitingForNetwork = false
+
+    private val networkCallback = NetworkCallbackImpl(
+        onAvailable = {},
+        onLost = {},
+        onCapabilitiesChanged = { capabilities ->
+            if (capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_VALIDATED)) {
+                executor.execute {
+                    if (waitingForNetwork) {
+                        backoff = 0
+                        schedule(0, true)
+                    }
+                }
+            }
+        }
+    )
+
+    /** Starts watching the network and syncs whatever was left over. */
+    fun start(context: Context) {
+        if (connectivityManager != null) return
+
+        connectivityManager = context.applicationContext.getSystemService(ConnectivityManager::class.java).also {
+            it.registerDefaultNetworkCallback(networkCallback)
+        }
+
+        request(0)
+    }
+
+    fun stop() {
+        connectivityManager?.unregisterNetworkCallback(networkCallback)
+        connectivityManager = null
+    }
+
+    /** Syncs in [delayMs], unless a sync is already due sooner or the scheduler is backing off. */
+    fun request(delayMs: Long) {
+        executor.execute {
+            if (backoff == 0L) schedule(delayMs, false)
+        }
+    }
+
+    /** Runs [block] on the sync executor, ordered with the syncs. */
+    fun execute(block: Runnable) {
+        executor.execute(block)
+    }
+
+    private fun schedule(delayMs: Long, replace: Boolean) {
+        val pending = syncTask
+        if (pending != null) {
+            if (!replace) return
+            handler.removeCallbacks(pending)
+        }
+
+        val task = object : Runnable {
+            override fun run() {
+                executor.execute {
+                    // Replaced after it was already posted
+                    if (syncTask !== this) return@execute
+
+                    syncTask = null
+                    runSync()
+                }
+            }
+        }
+
+        syncTask = task
+        handler.postDelayed(task, delayMs)
+    }
+
+    private fun runSync() {
+        if (NetworkUtil.isOffline()) {
+            waitingForNetwork = true
+            return
+        }
+
+        if (sync()) {
+            backoff = 0
+            waitingForNetwork = false
+            return
+        }
+
+        backoff = if (backoff == 0L) MIN_BACKOFF_MS else minOf(backoff * 2, MAX_BACKOFF_MS)
+        waitingForNetwork = true
+        schedule(backoff, true)
+    }
+}
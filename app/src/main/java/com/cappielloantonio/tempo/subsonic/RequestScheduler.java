@@ -0,0 +1,191 @@
+package com.cappielloantonio.tempo.subsonic;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.cappielloantonio.tempo.subsonic.base.ApiResponse;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import okhttp3.HttpUrl;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * Runs Subsonic calls with a bounded number in flight per host.
+ * <p>
+ * A call for the same endpoint and params as one already queued or running is not sent again,
+ * both callers get the same response. Queued calls are started foreground first, then in the order
+ * they were submitted.
+ */
+public final class RequestScheduler {
+    private static final String TAG = "RequestScheduler";
+
+    // OkHttp allows 5 per host, this leaves one free for playback and images
+    private static final int DEFAULT_MAX_IN_FLIGHT_PER_HOST = 4;
+
+    // The auth params change with every salt, they don't tell requests apart
+    private static final String[] AUTH_PARAMS = {"u", "p", "s", "t", "v", "c", "f"};
+
+    private static final RequestScheduler instance = new RequestScheduler(DEFAULT_MAX_IN_FLIGHT_PER_HOST);
+
+    public enum Priority {
+        /** The result is shown, or waited for, by the screen in front of the user. */
+        FOREGROUND,
+        /** Prefetching, syncing and downloads. */
+        BACKGROUND
+    }
+
+    private final Map<String, Host> hosts = new HashMap<>();
+    private final Map<String, Request> requests = new HashMap<>();
+
+    private final int maxInFlightPerHost;
+    private long sequence;
+
+    RequestScheduler(int maxInFlightPerHost) {
+        this.maxInFlightPerHost = maxInFlightPerHost;
+    }
+
+    public static RequestScheduler getInstance() {
+        return instance;
+    }
+
+    /**
+     * Queues {@code call}, unless the same request is already queued or running. The future fails
+     * with an {@link IOException} if the server doesn't answer with a response body.
+     * <p>
+     * Cancelling the future doesn't cancel the request, which may be shared.
+     */
+    public ListenableFuture<ApiResponse> submit(Call<ApiResponse> call, Priority priority) {
+        HttpUrl url = call.request().url();
+        String key = getKey(url);
+
+        synchronized (this) {
+            Request request = requests.get(key);
+
+            if (request == null) {
+                Host host = hosts.get(getHostKey(url));
+
+                if (host == null) {
+                    host = new Host(getHostKey(url));
+                    hosts.put(host.key, host);
+                }
+
+                request = new Request(key, host, call, priority, sequence++);
+                requests.put(key, request);
+                host.queue.add(request);
+                dispatch(host);
+            } else if (priority.ordinal() < request.priority.ordinal() && request.host.queue.remove(request)) {
+                // Still queued, move it ahead of the background work
+                request.priority = priority;
+                request.host.queue.add(request);
+            }
+
+            return Futures.nonCancellationPropagating(request.result);
+        }
+    }
+
+    /**
+     * The results of {@code futures} in the same order, with null for the ones that failed.
+     */
+    public static <T> ListenableFuture<List<T>> inOrder(List<ListenableFuture<T>> futures) {
+        return Futures.successfulAsList(futures);
+    }
+
+    private void dispatch(Host host) {
+        while (host.inFlight < maxInFlightPerHost && !host.queue.isEmpty()) {
+            Request request = host.queue.poll();
+            host.inFlight++;
+            request.start();
+        }
+    }
+
+    private synchronized void finish(Request request) {
+        requests.remove(request.key, request);
+        request.host.inFlight--;
+        dispatch(request.host);
+
+        if (request.host.inFlight == 0 && request.host.queue.isEmpty()) {
+            hosts.remove(request.host.key);
+        }
+    }
+
+    private static String getKey(HttpUrl url) {
+        HttpUrl.Builder builder = url.newBuilder();
+
+        for (String param : AUTH_PARAMS) {
+            builder.removeAllQueryParameters(param);
+        }
+
+        return builder.build().toString();
+    }
+
+    private static String getHostKey(HttpUrl url) {
+        return url.host() + ":" + url.port();
+    }
+
+    private static class Host {
+        private final String key;
+        private final PriorityQueue<Request> queue = new PriorityQueue<>(Comparator
+                .comparingInt((Request request) -> request.priority.ordinal())
+                .thenComparingLong(request -> request.sequence));
+        private int inFlight;
+
+        Host(String key) {
+            this.key = key;
+        }
+    }
+
+    private class Request implements Callback<ApiResponse> {
+        private final String key;
+        private final Host host;
+        private final Call<ApiResponse> call;
+        private final long sequence;
+        private final SettableFuture<ApiResponse> result = SettableFuture.create();
+        private Priority priority;
+
+        Request(String key, Host host, Call<ApiResponse> call, Priority priority, long sequence) {
+            this.key = key;
+            this.host = host;
+            this.call = call;
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+
+        void start() {
+            try {
+                call.enqueue(this);
+            } catch (RuntimeException e) {
+                onFailure(call, e);
+            }
+        }
+
+        @Override
+        public void onResponse(@NonNull Call<ApiResponse> call, @NonNull Response<ApiResponse> response) {
+            finish(this);
+
+            if (response.isSuccessful() && response.body() != null) {
+                result.set(response.body());
+            } else {
+                result.setException(new IOException("Request failed with status code: " + response.code()));
+            }
+        }
+
+        @Override
+        public void onFailure(@NonNull Call<ApiResponse> call, @NonNull Throwable t) {
+            Log.d(TAG, "Request failed: " + t.getMessage());
+            finish(this);
+            result.setException(t);
+        }
+    }
+}
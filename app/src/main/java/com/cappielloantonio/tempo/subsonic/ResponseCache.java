@@ -0,0 +1,352 @@
+package com.cappielloantonio.tempo.subsonic;
+
+import android.util.Log;
+import android.util.LruCache;
+
+import androidx.annotation.NonNull;
+import androidx.core.content.ContextCompat;
+
+import com.cappielloantonio.tempo.App;
+import com.cappielloantonio.tempo.database.AppDatabase;
+import com.cappielloantonio.tempo.database.DatabaseExecutor;
+import com.cappielloantonio.tempo.database.dao.ResponseCacheDao;
+import com.cappielloantonio.tempo.model.CachedResponse;
+import com.cappielloantonio.tempo.subsonic.base.ApiResponse;
+import com.cappielloantonio.tempo.subsonic.utils.EmptyDateTypeAdapter;
+import com.cappielloantonio.tempo.util.Preferences;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.JsonSerializer;
+
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import okhttp3.HttpUrl;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * Keeps the responses of slow-changing endpoints in memory and in the database, keyed by the
+ * server, the endpoint and the params that select the data, so that the rotating auth params
+ * don't defeat it.
+ * <p>
+ * A fresh response is returned without a request. A stale one is returned at once and then
+ * revalidated, the callback is called a second time only if the response changed. Only use it
+ * with callbacks that replace what they show rather than add to it.
+ */
+public final class ResponseCache {
+    private static final String TAG = "ResponseCache";
+
+    private static final long SECOND = 1000L;
+    private static final long MINUTE = 60 * SECOND;
+    private static final long HOUR = 60 * MINUTE;
+    private static final long DAY = 24 * HOUR;
+
+    // Stale responses are still better than nothing when offline
+    private static final long MAX_STALE_MS = 30 * DAY;
+
+    private static final int MEMORY_CACHE_CHARS = 2 * 1024 * 1024;
+
+    // Only the user selects data, the others are auth and format params
+    private static final Set<String> IGNORED_PARAMS = new HashSet<>(Arrays.asList("p", "s", "t", "v", "c", "f"));
+
+    private static final Map<String, Policy> POLICIES = new HashMap<>();
+
+    static {
+        POLICIES.put("getGenres", new Policy(DAY, MAX_STALE_MS));
+        POLICIES.put("getMusicFolders", new Policy(DAY, MAX_STALE_MS));
+        POLICIES.put("getArtistInfo2", new Policy(7 * DAY, MAX_STALE_MS));
+        POLICIES.put("getAlbumInfo2", new Policy(7 * DAY, MAX_STALE_MS));
+        POLICIES.put("getTopSongs", new Policy(DAY, MAX_STALE_MS));
+        POLICIES.put("getInternetRadioStations", new Policy(HOUR, MAX_STALE_MS));
+        POLICIES.put("getPodcasts", new Policy(15 * MINUTE, MAX_STALE_MS));
+        POLICIES.put("getPlaylists", new Policy(5 * MINUTE, MAX_STALE_MS));
+        POLICIES.put("getStarred2", new Policy(5 * MINUTE, MAX_STALE_MS));
+        // Who is playing what is wrong within a song, there is no point showing it offline
+        POLICIES.put("getNowPlaying", new Policy(10 * SECOND, MINUTE));
+    }
+
+    private static final Gson gson = new GsonBuilder()
+            .registerTypeAdapter(Date.class, new EmptyDateTypeAdapter())
+            .registerTypeAdapter(Date.class, (JsonSerializer<Date>) (date, type, context) -> new JsonPrimitive(formatDate(date)))
+            .create();
+
+    private static final LruCache<String, Entry> memory = new LruCache<String, Entry>(MEMORY_CACHE_CHARS) {
+        @Override
+        protected int sizeOf(String key, Entry entry) {
+            return key.length() + entry.payload.length();
+        }
+    };
+
+    private static final Map<String, Stats> stats = new ConcurrentHashMap<>();
+    private static final AtomicBoolean pruned = new AtomicBoolean();
+
+    private ResponseCache() {
+    }
+
+    /**
+     * Wraps {@code call} so that it is answered from the cache when its endpoint has a policy, and
+     * sent as is otherwise.
+     */
+    public static CachedCall cached(Call<ApiResponse> call) {
+        return new CachedCall(call);
+    }
+
+    /**
+     * Drops the responses of {@code endpoint}, e.g. {@code getStarred2} after a star.
+     */
+    public static void invalidate(String endpoint) {
+        String server = Preferences.getServerId();
+        if (server == null) return;
+
+        String prefix = server + "|" + endpoint + "?";
+
+        for (String key : memory.snapshot().keySet()) {
+            if (key.startsWith(prefix)) memory.remove(key);
+        }
+
+        DatabaseExecutor.execute("response_cache.invalidate", () -> getDao().delete(server, endpoint));
+    }
+
+    /**
+     * Logs the hits and misses recorded for every endpoint so far.
+     */
+    public static void dumpStats() {
+        for (Map.Entry<String, Stats> entry : stats.entrySet()) {
+            Log.i(TAG, entry.getKey() + ": " + entry.getValue());
+        }
+    }
+
+    private static void enqueue(Call<ApiResponse> call, Callback<ApiResponse> callback) {
+        HttpUrl url = call.request().url();
+        List<String> segments = url.pathSegments();
+        String endpoint = segments.get(segments.size() - 1);
+        Policy policy = POLICIES.get(endpoint);
+        String server = Preferences.getServerId();
+
+        if (policy == null || server == null) {
+            call.enqueue(callback);
+            return;
+        }
+
+        Target target = new Target(server, endpoint, getKey(server, endpoint, url), policy);
+        Entry entry = memory.get(target.key);
+
+        if (entry != null) {
+            serve(call, callback, target, entry);
+            return;
+        }
+
+        Futures.addCallback(DatabaseExecutor.submit("response_cache.get", () -> getDao().get(target.key)), new FutureCallback<CachedResponse>() {
+            @Override
+            public void onSuccess(CachedResponse cachedResponse) {
+                Entry entry = null;
+
+                if (cachedResponse != null) {
+                    entry = new Entry(cachedResponse.getPayload(), cachedResponse.getFetchedAt());
+                    memory.put(target.key, entry);
+                }
+
+                serve(call, callback, target, entry);
+            }
+
+            @Override
+            public void onFailure(@NonNull Throwable t) {
+                serve(call, callback, target, null);
+            }
+        }, getMainExecutor());
+    }
+
+    private static void serve(Call<ApiResponse> call, Callback<ApiResponse> callback, Target target, Entry entry) {
+        Stats endpointStats = stats.computeIfAbsent(target.endpoint, key -> new Stats());
+        long age = entry != null ? System.currentTimeMillis() - entry.fetchedAt : Long.MAX_VALUE;
+
+        if (age < target.policy.ttl && deliver(call, callback, entry)) {
+            endpointStats.hit();
+        } else if (age < target.policy.maxStale && deliver(call, callback, entry)) {
+            endpointStats.stale();
+            fetch(call, callback, target, entry, true);
+        } else {
+            endpointStats.miss();
+            fetch(call, callback, target, entry, false);
+        }
+    }
+
+    private static void fetch(Call<ApiResponse> call, Callback<ApiResponse> callback, Target target, Entry previous, boolean delivered) {
+        RequestScheduler.Priority priority = delivered ? RequestScheduler.Priority.BACKGROUND : RequestScheduler.Priority.FOREGROUND;
+
+        Futures.addCallback(RequestScheduler.getInstance().submit(call, priority), new FutureCallback<ApiResponse>() {
+            @Override
+            public void onSuccess(ApiResponse response) {
+                if ("ok".equals(response.getSubsonicResponse().getStatus())) {
+                    String payload = gson.toJson(response);
+                    store(target, payload);
+
+                    if (delivered && previous.payload.equals(payload)) return;
+                } else if (delivered) {
+                    // Keep what is shown rather than replace it with an error
+                    return;
+                }
+
+                callback.onResponse(call, Response.success(response));
+            }
+
+            @Override
+            public void onFailure(@NonNull Throwable t) {
+                if (delivered) return;
+
+                // Offline, a response older than the policy allows is better than nothing
+                if (previous != null && deliver(call, callback, previous)) return;
+
+                callback.onFailure(call, t);
+            }
+        }, getMainExecutor());
+    }
+
+    private static boolean deliver(Call<ApiResponse> call, Callback<ApiResponse> callback, Entry entry) {
+        ApiResponse response;
+
+        try {
+            // Parsed every time, callers are free to shuffle or trim the lists they get
+            response = gson.fromJson(entry.payload, ApiResponse.class);
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Dropping unreadable cached response", e);
+            return false;
+        }
+
+        callback.onResponse(call, Response.success(response));
+        return true;
+    }
+
+    private static void store(Target target, String payload) {
+        long now = System.currentTimeMillis();
+        memory.put(target.key, new Entry(payload, now));
+
+        DatabaseExecutor.execute("response_cache.put", () -> {
+            if (pruned.compareAndSet(false, true)) {
+                getDao().deleteOlderThan(now - MAX_STALE_MS);
+            }
+
+            getDao().insert(new CachedResponse(target.key, target.server, target.endpoint, payload, now));
+        });
+    }
+
+    private static String getKey(String server, String endpoint, HttpUrl url) {
+        StringBuilder key = new StringBuilder(server).append('|').append(endpoint).append('?');
+
+        for (String name : new TreeSet<>(url.queryParameterNames())) {
+            if (IGNORED_PARAMS.contains(name)) continue;
+
+            for (String value : url.queryParameterValues(name)) {
+                key.append(name).append('=').append(value).append('&');
+            }
+        }
+
+        return key.toString();
+    }
+
+    private static String formatDate(Date date) {
+        // The first format EmptyDateTypeAdapter reads
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return format.format(date);
+    }
+
+    private static ResponseCacheDao getDao() {
+        return AppDatabase.getInstance().responseCacheDao();
+    }
+
+    private static Executor getMainExecutor() {
+        return ContextCompat.getMainExecutor(App.getContext());
+    }
+
+    public static final class CachedCall {
+        private final Call<ApiResponse> call;
+
+        private CachedCall(Call<ApiResponse> call) {
+            this.call = call;
+        }
+
+        /**
+         * Like {@link Call#enqueue}, the callback runs on the main thread.
+         */
+        public void enqueue(Callback<ApiResponse> callback) {
+            ResponseCache.enqueue(call, callback);
+        }
+    }
+
+    private static class Policy {
+        private final long ttl;
+        private final long maxStale;
+
+        Policy(long ttl, long maxStale) {
+            this.ttl = ttl;
+            this.maxStale = maxStale;
+        }
+    }
+
+    private static class Target {
+        private final String server;
+        private final String endpoint;
+        private final String key;
+        private final Policy policy;
+
+        Target(String server, String endpoint, String key, Policy policy) {
+            this.server = server;
+            this.endpoint = endpoint;
+            this.key = key;
+            this.policy = policy;
+        }
+    }
+
+    private static class Entry {
+        private final String payload;
+        private final long fetchedAt;
+
+        Entry(String payload, long fetchedAt) {
+            this.payload = payload;
+            this.fetchedAt = fetchedAt;
+        }
+    }
+
+    private static class Stats {
+        private long hits;
+        private long staleHits;
+        private long misses;
+
+        synchronized void hit() {
+            hits++;
+        }
+
+        synchronized void stale() {
+            staleHits++;
+        }
+
+        synchronized void miss() {
+            misses++;
+        }
+
+        @NonNull
+        @Override
+        public synchronized String toString() {
+            long total = hits + staleHits + misses;
+            return hits + " hits, " + staleHits + " stale, " + misses + " misses, hit rate " + (total > 0 ? (hits + staleHits) * 100 / total : 0) + "%";
+        }
+    }
+}
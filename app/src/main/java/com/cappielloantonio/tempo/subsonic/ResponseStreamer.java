@@ -0,0 +1,210 @@
+package com.cappielloantonio.tempo.subsonic;
+
+import com.cappielloantonio.tempo.database.DatabaseExecutor;
+import com.cappielloantonio.tempo.database.LimitedExecutor;
+import com.google.gson.Strictness;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+import okhttp3.ResponseBody;
+import retrofit2.Call;
+import retrofit2.Response;
+
+/**
+ * Decodes one list of a Subsonic response item by item as it is downloaded, instead of building
+ * the whole response first, for the lists that run into the thousands (a long playlist).
+ * <p>
+ * The call must return the raw body, see {@code @Streaming}. Such responses don't go through the
+ * Retrofit converter, so they are not seen by the response listeners.
+ */
+public final class ResponseStreamer {
+    // At most two responses are read at a time
+    private static final Executor executor = new LimitedExecutor(DatabaseExecutor.getIoExecutor(), 2);
+
+    private ResponseStreamer() {
+    }
+
+    public interface BatchCallback<T> {
+        /**
+         * Called on a background thread, with at most the requested number of items.
+         */
+        void onBatch(List<T> items);
+
+        void onComplete(int count);
+
+        void onFailure(Throwable t);
+    }
+
+    /**
+     * Sends {@code call} in the background and hands the items of the list at {@code path} to
+     * {@code callback} in batches. The path starts inside {@code subsonic-response}, e.g.
+     * {@code "playlist", "entry"}.
+     */
+    public static <T> void enqueue(Call<ResponseBody> call, Class<T> type, int batchSize, BatchCallback<T> callback, String... path) {
+        executor.execute(() -> {
+            int count;
+
+            try {
+                Response<ResponseBody> response = call.execute();
+
+                try (ResponseBody body = response.body()) {
+                    if (!response.isSuccessful() || body == null) {
+                        throw new IOException("Request failed with status code: " + response.code());
+                    }
+
+                    count = read(body, type, batchSize, callback::onBatch, path);
+                }
+            } catch (Exception e) {
+                callback.onFailure(e);
+                return;
+            }
+
+            callback.onComplete(count);
+        });
+    }
+
+    /**
+     * Blocking version of {@link #enqueue}, returns the number of items read.
+     *
+     * @throws IOException if the body can't be read, or the server answered with an error.
+     */
+    public static <T> int read(ResponseBody body, Class<T> type, int batchSize, Consumer<List<T>> onBatch, String... path) throws IOException {
+        TypeAdapter<T> adapter = RetrofitManager.getGson().getAdapter(type);
+
+        try (JsonReader reader = new JsonReader(body.charStream())) {
+            reader.setStrictness(Strictness.LENIENT);
+            reader.beginObject();
+
+            while (reader.hasNext()) {
+                if ("subsonic-response".equals(reader.nextName())) {
+                    return readResponse(reader, adapter, batchSize, onBatch, path);
+                }
+
+                reader.skipValue();
+            }
+        } catch (IllegalStateException e) {
+            throw new IOException("Malformed response", e);
+        }
+
+        throw new IOException("Not a Subsonic response");
+    }
+
+    private static <T> int readResponse(JsonReader reader, TypeAdapter<T> adapter, int batchSize, Consumer<List<T>> onBatch, String[] path) throws IOException {
+        String status = null;
+        String error = null;
+
+        reader.beginObject();
+
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+
+            if ("status".equals(name)) {
+                status = reader.nextString();
+            } else if ("error".equals(name)) {
+                error = readErrorMessage(reader);
+            } else if (name.equals(path[0])) {
+                // The rest of the response is not needed once the list is read
+                return readPath(reader, adapter, batchSize, onBatch, path, 1);
+            } else {
+                reader.skipValue();
+            }
+        }
+
+        if ("failed".equals(status)) {
+            throw new IOException(error != null ? error : "Request failed");
+        }
+
+        // Subsonic leaves out empty lists
+        return 0;
+    }
+
+    private static <T> int readPath(JsonReader reader, TypeAdapter<T> adapter, int batchSize, Consumer<List<T>> onBatch, String[] path, int depth) throws IOException {
+        if (depth == path.length) {
+            return readList(reader, adapter, batchSize, onBatch);
+        }
+
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return 0;
+        }
+
+        reader.beginObject();
+
+        while (reader.hasNext()) {
+            if (reader.nextName().equals(path[depth])) {
+                return readPath(reader, adapter, batchSize, onBatch, path, depth + 1);
+            }
+
+            reader.skipValue();
+        }
+
+        return 0;
+    }
+
+    private static <T> int readList(JsonReader reader, TypeAdapter<T> adapter, int batchSize, Consumer<List<T>> onBatch) throws IOException {
+        // Some servers send a list of one as the item itself
+        if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+            T item = adapter.read(reader);
+            if (item == null) return 0;
+
+            List<T> batch = new ArrayList<>(1);
+            batch.add(item);
+            onBatch.accept(batch);
+            return 1;
+        }
+
+        int count = 0;
+        List<T> batch = new ArrayList<>(batchSize);
+
+        reader.beginArray();
+
+        while (reader.hasNext()) {
+            T item = adapter.read(reader);
+            if (item == null) continue;
+
+            batch.add(item);
+            count++;
+
+            if (batch.size() >= batchSize) {
+                onBatch.accept(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+
+        reader.endArray();
+
+        if (!batch.isEmpty()) onBatch.accept(batch);
+
+        return count;
+    }
+
+    private static String readErrorMessage(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return null;
+        }
+
+        String message = null;
+
+        reader.beginObject();
+
+        while (reader.hasNext()) {
+            if ("message".equals(reader.nextName())) {
+                message = reader.nextString();
+            } else {
+                reader.skipValue();
+            }
+        }
+
+        reader.endObject();
+
+        return message;
+    }
+}
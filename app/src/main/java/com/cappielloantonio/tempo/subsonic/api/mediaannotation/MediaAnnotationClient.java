@@ -6,6 +6,8 @@ import com.cappielloantonio.tempo.subsonic.RetrofitManager;
 import com.cappielloantonio.tempo.subsonic.Subsonic;
 import com.cappielloantonio.tempo.subsonic.base.ApiResponse;
 
+import java.util.List;
+
 import retrofit2.Call;
 
 public class MediaAnnotationClient {
@@ -29,6 +31,16 @@ public class MediaAnnotationClient {
         return mediaAnnotationService.unstar(subsonic.getParams(), id, albumId, artistId);
     }
 
+    public Call<ApiResponse> star(List<String> ids, List<String> albumIds, List<String> artistIds) {
+        Log.d(TAG, "star()");
+        return mediaAnnotationService.star(subsonic.getParams(), ids, albumIds, artistIds);
+    }
+
+    public Call<ApiResponse> unstar(List<String> ids, List<String> albumIds, List<String> artistIds) {
+        Log.d(TAG, "unstar()");
+        return mediaAnnotationService.unstar(subsonic.getParams(), ids, albumIds, artistIds);
+    }
+
     public Call<ApiResponse> setRating(String id, int rating) {
         Log.d(TAG, "setRating()");
         return mediaAnnotationService.setRating(subsonic.getParams(), id, rating);
@@ -38,4 +50,9 @@ public class MediaAnnotationClient {
         Log.d(TAG, "scrobble()");
         return mediaAnnotationService.scrobble(subsonic.getParams(), id, submission);
     }
+
+    public Call<ApiResponse> scrobble(List<String> ids, List<Long> times, boolean submission) {
+        Log.d(TAG, "scrobble()");
+        return mediaAnnotationService.scrobble(subsonic.getParams(), ids, times, submission);
+    }
 }
@@ -2,6 +2,7 @@ package com.cappielloantonio.tempo.subsonic.api.mediaannotation;
 
 import com.cappielloantonio.tempo.subsonic.base.ApiResponse;
 
+import java.util.List;
 import java.util.Map;
 
 import retrofit2.Call;
@@ -16,9 +17,18 @@ public interface MediaAnnotationService {
     @GET("unstar")
     Call<ApiResponse> unstar(@QueryMap Map<String, String> params, @Query("id") String id, @Query("albumId") String albumId, @Query("artistId") String artistId);
 
+    @GET("star")
+    Call<ApiResponse> star(@QueryMap Map<String, String> params, @Query("id") List<String> ids, @Query("albumId") List<String> albumIds, @Query("artistId") List<String> artistIds);
+
+    @GET("unstar")
+    Call<ApiResponse> unstar(@QueryMap Map<String, String> params, @Query("id") List<String> ids, @Query("albumId") List<String> albumIds, @Query("artistId") List<String> artistIds);
+
     @GET("setRating")
     Call<ApiResponse> setRating(@QueryMap Map<String, String> params, @Query("id") String id, @Query("rating") int rating);
 
     @GET("scrobble")
     Call<ApiResponse> scrobble(@QueryMap Map<String, String> params, @Query("id") String id, @Query("submission") Boolean submission);
+
+    @GET("scrobble")
+    Call<ApiResponse> scrobble(@QueryMap Map<String, String> params, @Query("id") List<String> ids, @Query("time") List<Long> times, @Query("submission") Boolean submission);
 }
@@ -8,6 +8,7 @@ import com.cappielloantonio.tempo.subsonic.base.ApiResponse;
 
 import java.util.ArrayList;
 
+import okhttp3.ResponseBody;
 import retrofit2.Call;
 
 public class PlaylistClient {
@@ -31,6 +32,11 @@ public class PlaylistClient {
         return playlistService.getPlaylist(subsonic.getParams(), id);
     }
 
+    public Call<ResponseBody> getPlaylistStream(String id) {
+        Log.d(TAG, "getPlaylistStream()");
+        return playlistService.getPlaylistStream(subsonic.getParams(), id);
+    }
+
     public Call<ApiResponse> createPlaylist(String playlistId, String name, ArrayList<String> songsId) {
         Log.d(TAG, "createPlaylist()");
         return playlistService.createPlaylist(subsonic.getParams(), playlistId, name, songsId);
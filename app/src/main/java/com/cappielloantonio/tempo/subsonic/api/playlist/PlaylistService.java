@@ -5,10 +5,12 @@ import com.cappielloantonio.tempo.subsonic.base.ApiResponse;
 import java.util.ArrayList;
 import java.util.Map;
 
+import okhttp3.ResponseBody;
 import retrofit2.Call;
 import retrofit2.http.GET;
 import retrofit2.http.Query;
 import retrofit2.http.QueryMap;
+import retrofit2.http.Streaming;
 
 public interface PlaylistService {
     @GET("getPlaylists")
@@ -17,6 +19,10 @@ public interface PlaylistService {
     @GET("getPlaylist")
     Call<ApiResponse> getPlaylist(@QueryMap Map<String, String> params, @Query("id") String id);
 
+    @Streaming
+    @GET("getPlaylist")
+    Call<ResponseBody> getPlaylistStream(@QueryMap Map<String, String> params, @Query("id") String id);
+
     @GET("createPlaylist")
     Call<ApiResponse> createPlaylist(@QueryMap Map<String, String> params, @Query("playlistId") String playlistId, @Query("name") String name, @Query("songId") ArrayList<String> songsId);
 
@@ -0,0 +1,305 @@
+package com.cappielloantonio.tempo.subsonic.utils
+
+import com.cappielloantonio.tempo.subsonic.models.AlbumID3
+import com.cappielloantonio.tempo.subsonic.models.ArtistID3
+import com.cappielloantonio.tempo.subsonic.models.Child
+import com.cappielloantonio.tempo.subsonic.models.DiscTitle
+import com.cappielloantonio.tempo.subsonic.models.ItemDate
+import com.cappielloantonio.tempo.subsonic.models.ItemGenre
+import com.google.gson.Gson
+import com.google.gson.TypeAdapter
+import com.google.gson.TypeAdapterFactory
+import com.google.gson.reflect.TypeToken
+import com.google.gson.stream.JsonReader
+import com.google.gson.stream.JsonToken
+import com.google.gson.stream.JsonWriter
+import java.util.Date
+
+/**
+ * Hand-written readers for the models that come by the thousand (songs, albums, artists), so that
+ * long lists are decoded field by field from the stream without reflection. Fields the app never
+ * reads are skipped. Writing is left to Gson's reflective adapters.
+ *
+ * Only the exact classes are handled, subclasses such as NowPlayingEntry are read reflectively.
+ */
+class ModelTypeAdapterFactory : TypeAdapterFactory {
+
+    @Suppress("UNCHECKED_CAST")
+    override fun <T> create(gson: Gson, type: TypeToken<T>): TypeAdapter<T>? {
+        val rawType = type.rawType
+        if (rawType != Child::class.java && rawType != AlbumID3::class.java && rawType != ArtistID3::class.java) return null
+
+        val delegate = gson.getDelegateAdapter(this, type)
+        val dates = gson.getAdapter(Date::class.java)
+
+        return when (rawType) {
+            Child::class.java -> ChildAdapter(delegate as TypeAdapter<Child>, dates)
+            AlbumID3::class.java -> AlbumAdapter(delegate as TypeAdapter<AlbumID3>, gson, dates)
+            else -> ArtistAdapter(delegate as TypeAdapter<ArtistID3>, dates)
+        } as TypeAdapter<T>
+    }
+
+    private class ChildAdapter(
+        private val delegate: TypeAdapter<Child>,
+        private val dates: TypeAdapter<Date>
+    ) : TypeAdapter<Child>() {
+
+        override fun write(out: JsonWriter, value: Child?) = delegate.write(out, value)
+
+        override fun read(reader: JsonReader): Child? {
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull()
+                return null
+            }
+
+            var id: String? = null
+            var parentId: String? = null
+            var isDir = false
+            var title: String? = null
+            var album: String? = null
+            var artist: String? = null
+            var track: Int? = null
+            var year: Int? = null
+            var genre: String? = null
+            var coverArtId: String? = null
+            var size: Long? = null
+            var contentType: String? = null
+            var suffix: String? = null
+            var transcodedContentType: String? = null
+            var transcodedSuffix: String? = null
+            var duration: Int? = null
+            var bitrate: Int? = null
+            var samplingRate: Int? = null
+            var bitDepth: Int? = null
+            var path: String? = null
+            var isVideo = false
+            var userRating: Int? = null
+            var averageRating: Double? = null
+            var playCount: Long? = null
+            var discNumber: Int? = null
+            var created: Date? = null
+            var starred: Date? = null
+            var albumId: String? = null
+            var artistId: String? = null
+            var type: String? = null
+            var bookmarkPosition: Long? = null
+            var originalWidth: Int? = null
+            var originalHeight: Int? = null
+
+            reader.beginObject()
+
+            while (reader.hasNext()) {
+                when (reader.nextName()) {
+                    "id" -> id = reader.nextStringOrNull()
+                    "parent" -> parentId = reader.nextStringOrNull()
+                    "isDir" -> isDir = reader.nextBooleanOrNull() ?: false
+                    "title" -> title = reader.nextStringOrNull()
+                    "album" -> album = reader.nextStringOrNull()
+                    "artist" -> artist = reader.nextStringOrNull()
+                    "track" -> track = reader.nextIntOrNull()
+                    "year" -> year = reader.nextIntOrNull()
+                    "genre" -> genre = reader.nextStringOrNull()
+                    "coverArt" -> coverArtId = reader.nextStringOrNull()
+                    "size" -> size = reader.nextLongOrNull()
+                    "contentType" -> contentType = reader.nextStringOrNull()
+                    "suffix" -> suffix = reader.nextStringOrNull()
+                    "transcodedContentType" -> transcodedContentType = reader.nextStringOrNull()
+                    "transcodedSuffix" -> transcodedSuffix = reader.nextStringOrNull()
+                    "duration" -> duration = reader.nextIntOrNull()
+                    "bitRate" -> bitrate = reader.nextIntOrNull()
+                    "samplingRate" -> samplingRate = reader.nextIntOrNull()
+                    "bitDepth" -> bitDepth = reader.nextIntOrNull()
+                    "path" -> path = reader.nextStringOrNull()
+                    "isVideo" -> isVideo = reader.nextBooleanOrNull() ?: false
+                    "userRating" -> userRating = reader.nextIntOrNull()
+                    "averageRating" -> averageRating = reader.nextDoubleOrNull()
+                    "playCount" -> playCount = reader.nextLongOrNull()
+                    "discNumber" -> discNumber = reader.nextIntOrNull()
+                    "created" -> created = dates.read(reader)
+                    "starred" -> starred = dates.read(reader)
+                    "albumId" -> albumId = reader.nextStringOrNull()
+                    "artistId" -> artistId = reader.nextStringOrNull()
+                    "type" -> type = reader.nextStringOrNull()
+                    "bookmarkPosition" -> bookmarkPosition = reader.nextLongOrNull()
+                    "originalWidth" -> originalWidth = reader.nextIntOrNull()
+                    "originalHeight" -> originalHeight = reader.nextIntOrNull()
+                    else -> reader.skipValue()
+                }
+            }
+
+            reader.endObject()
+
+            return Child(
+                id = id ?: "",
+                parentId = parentId,
+                isDir = isDir,
+                title = title,
+                album = album,
+                artist = artist,
+                track = track,
+                year = year,
+                genre = genre,
+                coverArtId = coverArtId,
+                size = size,
+                contentType = contentType,
+                suffix = suffix,
+                transcodedContentType = transcodedContentType,
+                transcodedSuffix = transcodedSuffix,
+                duration = duration,
+                bitrate = bitrate,
+                samplingRate = samplingRate,
+                bitDepth = bitDepth,
+                path = path,
+                isVideo = isVideo,
+                userRating = userRating,
+                averageRating = averageRating,
+                playCount = playCount,
+                discNumber = discNumber,
+                created = created,
+                starred = starred,
+                albumId = albumId,
+                artistId = artistId,
+                type = type,
+                bookmarkPosition = bookmarkPosition,
+                originalWidth = originalWidth,
+                originalHeight = originalHeight
+            )
+        }
+    }
+
+    private class AlbumAdapter(
+        private val delegate: TypeAdapter<AlbumID3>,
+        gson: Gson,
+        private val dates: TypeAdapter<Date>
+    ) : TypeAdapter<AlbumID3>() {
+        private val genres = gson.getAdapter(object : TypeToken<List<ItemGenre>>() {})
+        private val artists = gson.getAdapter(object : TypeToken<List<ArtistID3>>() {})
+        private val discTitles = gson.getAdapter(object : TypeToken<List<DiscTitle>>() {})
+        private val itemDates = gson.getAdapter(ItemDate::class.java)
+
+        override fun write(out: JsonWriter, value: AlbumID3?) = delegate.write(out, value)
+
+        override fun read(reader: JsonReader): AlbumID3? {
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull()
+                return null
+            }
+
+            val album = AlbumID3()
+
+            reader.beginObject()
+
+            while (reader.hasNext()) {
+                when (reader.nextName()) {
+                    "id" -> album.id = reader.nextStringOrNull()
+                    "name" -> album.name = reader.nextStringOrNull()
+                    "artist" -> album.artist = reader.nextStringOrNull()
+                    "artistId" -> album.artistId = reader.nextStringOrNull()
+                    "coverArt" -> album.coverArtId = reader.nextStringOrNull()
+                    "songCount" -> album.songCount = reader.nextIntOrNull()
+                    "duration" -> album.duration = reader.nextIntOrNull()
+                    "playCount" -> album.playCount = reader.nextLongOrNull()
+                    "created" -> album.created = dates.read(reader)
+                    "starred" -> album.starred = dates.read(reader)
+                    "year" -> album.year = reader.nextIntOrNull() ?: 0
+                    "genre" -> album.genre = reader.nextStringOrNull()
+                    "played" -> album.played = dates.read(reader)
+                    "userRating" -> album.userRating = reader.nextIntOrNull()
+                    "genres" -> album.genres = genres.read(reader)
+                    "artists" -> album.artists = artists.read(reader)
+                    "originalReleaseDate" -> album.originalReleaseDate = itemDates.read(reader)
+                    "releaseDate" -> album.releaseDate = itemDates.read(reader)
+                    "discTitles" -> album.discTitles = discTitles.read(reader)
+                    else -> reader.skipValue()
+                }
+            }
+
+            reader.endObject()
+
+            return album
+        }
+    }
+
+    private class ArtistAdapter(
+        private val delegate: TypeAdapter<ArtistID3>,
+        private val dates: TypeAdapter<Date>
+    ) : TypeAdapter<ArtistID3>() {
+
+        override fun write(out: JsonWriter, value: ArtistID3?) = delegate.write(out, value)
+
+        override fun read(reader: JsonReader): ArtistID3? {
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull()
+                return null
+            }
+
+            val artist = ArtistID3()
+
+            reader.beginObject()
+
+            while (reader.hasNext()) {
+                when (reader.nextName()) {
+                    "id" -> artist.id = reader.nextStringOrNull()
+                    "name" -> artist.name = reader.nextStringOrNull()
+                    "coverArt" -> artist.coverArtId = reader.nextStringOrNull()
+                    "albumCount" -> artist.albumCount = reader.nextIntOrNull() ?: 0
+                    "starred" -> artist.starred = dates.read(reader)
+                    else -> reader.skipValue()
+                }
+            }
+
+            reader.endObject()
+
+            return artist
+        }
+    }
+}
+
+// Lenient like Gson's own adapters: numbers and booleans may come quoted
+
+private fun JsonReader.nextStringOrNull(): String? {
+    if (peek() == JsonToken.NULL) {
+        nextNull()
+        return null
+    }
+
+    return nextString()
+}
+
+private fun JsonReader.nextIntOrNull(): Int? {
+    if (peek() == JsonToken.NULL) {
+        nextNull()
+        return null
+    }
+
+    return nextInt()
+}
+
+private fun JsonReader.nextLongOrNull(): Long? {
+    if (peek() == JsonToken.NULL) {
+        nextNull()
+        return null
+    }
+
+    return nextLong()
+}
+
+private fun JsonReader.nextDoubleOrNull(): Double? {
+    if (peek() == JsonToken.NULL) {
+        nextNull()
+        return null
+    }
+
+    return nextDouble()
+}
+
+private fun JsonReader.nextBooleanOrNull(): Boolean? {
+    return when (peek()) {
+        JsonToken.NULL -> {
+            nextNull()
+            null
+        }
+        JsonToken.STRING -> nextString().toBoolean()
+        else -> nextBoolean()
+    }
+}
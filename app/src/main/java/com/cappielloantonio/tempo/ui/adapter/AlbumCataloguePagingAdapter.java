@@ -0,0 +1,116 @@
+package com.cappielloantonio.tempo.ui.adapter;
+
+import android.os.Bundle;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.annotation.NonNull;
+import androidx.paging.PagingDataAdapter;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.bumptech.glide.Glide;
+import com.cappielloantonio.tempo.databinding.ItemLibraryCatalogueAlbumBinding;
+import com.cappielloantonio.tempo.glide.CustomGlideRequest;
+import com.cappielloantonio.tempo.interfaces.ClickCallback;
+import com.cappielloantonio.tempo.subsonic.models.AlbumID3;
+import com.cappielloantonio.tempo.util.Constants;
+
+import java.util.Objects;
+
+/**
+ * The album catalogue, loaded page by page. Items not loaded yet are bound as empty placeholders.
+ */
+public class AlbumCataloguePagingAdapter extends PagingDataAdapter<AlbumID3, AlbumCataloguePagingAdapter.ViewHolder> {
+    private static final DiffUtil.ItemCallback<AlbumID3> DIFF_CALLBACK = new DiffUtil.ItemCallback<AlbumID3>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull AlbumID3 oldItem, @NonNull AlbumID3 newItem) {
+            return Objects.equals(oldItem.getId(), newItem.getId());
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull AlbumID3 oldItem, @NonNull AlbumID3 newItem) {
+            return Objects.equals(oldItem.getName(), newItem.getName())
+                    && Objects.equals(oldItem.getArtist(), newItem.getArtist())
+                    && Objects.equals(oldItem.getCoverArtId(), newItem.getCoverArtId());
+        }
+    };
+
+    private final ClickCallback click;
+    private final boolean showArtist;
+
+    public AlbumCataloguePagingAdapter(ClickCallback click, boolean showArtist) {
+        super(DIFF_CALLBACK);
+
+        this.click = click;
+        this.showArtist = showArtist;
+    }
+
+    @NonNull
+    @Override
+    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        ItemLibraryCatalogueAlbumBinding view = ItemLibraryCatalogueAlbumBinding.inflate(LayoutInflater.from(parent.getContext()), parent, false);
+        return new ViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+        AlbumID3 album = getItem(position);
+
+        holder.item.artistNameLabel.setVisibility(showArtist ? View.VISIBLE : View.GONE);
+
+        if (album == null) {
+            holder.item.albumNameLabel.setText(null);
+            holder.item.artistNameLabel.setText(null);
+            Glide.with(holder.itemView).clear(holder.item.albumCatalogueCoverImageView);
+            return;
+        }
+
+        holder.item.albumNameLabel.setText(album.getName());
+        holder.item.artistNameLabel.setText(album.getArtist());
+
+        CustomGlideRequest.Builder
+                .from(holder.itemView.getContext(), album.getCoverArtId(), CustomGlideRequest.ResourceType.Album)
+                .build()
+                .into(holder.item.albumCatalogueCoverImageView);
+    }
+
+    public class ViewHolder extends RecyclerView.ViewHolder {
+        ItemLibraryCatalogueAlbumBinding item;
+
+        ViewHolder(ItemLibraryCatalogueAlbumBinding item) {
+            super(item.getRoot());
+
+            this.item = item;
+
+            item.albumNameLabel.setSelected(true);
+            item.artistNameLabel.setSelected(true);
+
+            itemView.setOnClickListener(v -> onClick());
+            itemView.setOnLongClickListener(v -> onLongClick());
+        }
+
+        private void onClick() {
+            AlbumID3 album = getItem(getBindingAdapterPosition());
+            if (album == null) return;
+
+            Bundle bundle = new Bundle();
+            bundle.putParcelable(Constants.ALBUM_OBJECT, album);
+
+            click.onAlbumClick(bundle);
+        }
+
+        private boolean onLongClick() {
+            AlbumID3 album = getItem(getBindingAdapterPosition());
+            if (album == null) return false;
+
+            Bundle bundle = new Bundle();
+            bundle.putParcelable(Constants.ALBUM_OBJECT, album);
+
+            click.onAlbumLongClick(bundle);
+
+            return true;
+        }
+    }
+}
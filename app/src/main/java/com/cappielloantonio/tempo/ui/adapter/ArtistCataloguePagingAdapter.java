@@ -0,0 +1,107 @@
+package com.cappielloantonio.tempo.ui.adapter;
+
+import android.os.Bundle;
+import android.view.LayoutInflater;
+import android.view.ViewGroup;
+
+import androidx.annotation.NonNull;
+import androidx.paging.PagingDataAdapter;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.bumptech.glide.Glide;
+import com.cappielloantonio.tempo.databinding.ItemLibraryCatalogueArtistBinding;
+import com.cappielloantonio.tempo.glide.CustomGlideRequest;
+import com.cappielloantonio.tempo.interfaces.ClickCallback;
+import com.cappielloantonio.tempo.subsonic.models.ArtistID3;
+import com.cappielloantonio.tempo.util.Constants;
+
+import java.util.Objects;
+
+/**
+ * The artist catalogue, loaded page by page. Items not loaded yet are bound as empty placeholders.
+ */
+public class ArtistCataloguePagingAdapter extends PagingDataAdapter<ArtistID3, ArtistCataloguePagingAdapter.ViewHolder> {
+    private static final DiffUtil.ItemCallback<ArtistID3> DIFF_CALLBACK = new DiffUtil.ItemCallback<ArtistID3>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull ArtistID3 oldItem, @NonNull ArtistID3 newItem) {
+            return Objects.equals(oldItem.getId(), newItem.getId());
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull ArtistID3 oldItem, @NonNull ArtistID3 newItem) {
+            return Objects.equals(oldItem.getName(), newItem.getName())
+                    && Objects.equals(oldItem.getCoverArtId(), newItem.getCoverArtId());
+        }
+    };
+
+    private final ClickCallback click;
+
+    public ArtistCataloguePagingAdapter(ClickCallback click) {
+        super(DIFF_CALLBACK);
+
+        this.click = click;
+    }
+
+    @NonNull
+    @Override
+    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        ItemLibraryCatalogueArtistBinding view = ItemLibraryCatalogueArtistBinding.inflate(LayoutInflater.from(parent.getContext()), parent, false);
+        return new ViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+        ArtistID3 artist = getItem(position);
+
+        if (artist == null) {
+            holder.item.artistNameLabel.setText(null);
+            Glide.with(holder.itemView).clear(holder.item.artistCatalogueCoverImageView);
+            return;
+        }
+
+        holder.item.artistNameLabel.setText(artist.getName());
+
+        CustomGlideRequest.Builder
+                .from(holder.itemView.getContext(), artist.getCoverArtId(), CustomGlideRequest.ResourceType.Artist)
+                .build()
+                .into(holder.item.artistCatalogueCoverImageView);
+    }
+
+    public class ViewHolder extends RecyclerView.ViewHolder {
+        ItemLibraryCatalogueArtistBinding item;
+
+        ViewHolder(ItemLibraryCatalogueArtistBinding item) {
+            super(item.getRoot());
+
+            this.item = item;
+
+            item.artistNameLabel.setSelected(true);
+
+            itemView.setOnClickListener(v -> onClick());
+            itemView.setOnLongClickListener(v -> onLongClick());
+        }
+
+        private void onClick() {
+            ArtistID3 artist = getItem(getBindingAdapterPosition());
+            if (artist == null) return;
+
+            Bundle bundle = new Bundle();
+            bundle.putParcelable(Constants.ARTIST_OBJECT, artist);
+
+            click.onArtistClick(bundle);
+        }
+
+        private boolean onLongClick() {
+            ArtistID3 artist = getItem(getBindingAdapterPosition());
+            if (artist == null) return false;
+
+            Bundle bundle = new Bundle();
+            bundle.putParcelable(Constants.ARTIST_OBJECT, artist);
+
+            click.onArtistLongClick(bundle);
+
+            return true;
+        }
+    }
+}
@@ -20,6 +20,7 @@ import com.cappielloantonio.tempo.interfaces.ClickCallback;
 import com.cappielloantonio.tempo.interfaces.MediaIndexCallback;
 import com.cappielloantonio.tempo.service.DownloaderManager;
 import com.cappielloantonio.tempo.service.MediaManager;
+import com.cappielloantonio.tempo.service.QueueWindow;
 import com.cappielloantonio.tempo.subsonic.models.Child;
 import com.cappielloantonio.tempo.util.DownloadUtil;
 import com.cappielloantonio.tempo.util.Constants;
@@ -146,8 +147,7 @@ public class PlayerSongQueueAdapter extends RecyclerView.Adapter<PlayerSongQueue
                             mediaBrowser.play();
                         }
                     } else {
-                        mediaBrowser.seekTo(pos, 0);
-                        mediaBrowser.play();
+                        QueueWindow.seekTo(mediaBrowser, pos, true);
                     }
                 } catch (Exception e) {
                     Log.w(TAG, "Error obtaining MediaBrowser", e);
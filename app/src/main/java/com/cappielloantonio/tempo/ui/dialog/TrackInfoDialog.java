@@ -11,7 +11,9 @@ import androidx.media3.common.MediaMetadata;
 import com.cappielloantonio.tempo.R;
 import com.cappielloantonio.tempo.databinding.DialogTrackInfoBinding;
 import com.cappielloantonio.tempo.glide.CustomGlideRequest;
+import com.cappielloantonio.tempo.subsonic.models.Child;
 import com.cappielloantonio.tempo.util.AssetLinkUtil;
+import com.cappielloantonio.tempo.util.ChildStore;
 import com.cappielloantonio.tempo.util.Constants;
 import com.cappielloantonio.tempo.util.MusicUtil;
 import com.cappielloantonio.tempo.util.Preferences;
@@ -73,8 +75,6 @@ public class TrackInfoDialog extends DialogFragment {
             songLink = AssetLinkUtil.buildAssetLink(AssetLinkUtil.TYPE_SONG, mediaMetadata.extras.getString("id"));
             albumLink = AssetLinkUtil.buildAssetLink(AssetLinkUtil.TYPE_ALBUM, mediaMetadata.extras.getString("albumId"));
             artistLink = AssetLinkUtil.buildAssetLink(AssetLinkUtil.TYPE_ARTIST, mediaMetadata.extras.getString("artistId"));
-            genreLink = AssetLinkUtil.parseLinkString(mediaMetadata.extras.getString("assetLinkGenre"));
-            yearLink = AssetLinkUtil.parseLinkString(mediaMetadata.extras.getString("assetLinkYear"));
 
             CustomGlideRequest.Builder
                     .from(requireContext(), mediaMetadata.extras.getString("coverArtId", ""), CustomGlideRequest.ResourceType.Song)
@@ -85,13 +85,16 @@ public class TrackInfoDialog extends DialogFragment {
             bindAssetLink(bind.trakTitleInfoTextView, songLink);
             bindAssetLink(bind.trakArtistInfoTextView, artistLink != null ? artistLink : songLink);
 
-            String titleValue = mediaMetadata.extras.getString("title", getString(R.string.label_placeholder));
-            String albumValue = mediaMetadata.extras.getString("album", getString(R.string.label_placeholder));
-            String artistValue = mediaMetadata.extras.getString("artist", getString(R.string.label_placeholder));
-            String genreValue = mediaMetadata.extras.getString("genre", getString(R.string.label_placeholder));
-            int yearValue = mediaMetadata.extras.getInt("year", 0);
+            Child media = ChildStore.get(mediaMetadata.extras);
+            String placeholder = getString(R.string.label_placeholder);
 
-            if (genreLink == null && genreValue != null && !genreValue.isEmpty() && !getString(R.string.label_placeholder).contentEquals(genreValue)) {
+            String titleValue = valueOrPlaceholder(media.getTitle());
+            String albumValue = valueOrPlaceholder(media.getAlbum());
+            String artistValue = valueOrPlaceholder(media.getArtist());
+            String genreValue = valueOrPlaceholder(media.getGenre());
+            int yearValue = valueOrZero(media.getYear());
+
+            if (genreLink == null && genreValue != null && !genreValue.isEmpty() && !placeholder.contentEquals(genreValue)) {
                 genreLink = AssetLinkUtil.buildAssetLink(AssetLinkUtil.TYPE_GENRE, genreValue);
             }
 
@@ -102,20 +105,20 @@ public class TrackInfoDialog extends DialogFragment {
             bind.titleValueSector.setText(titleValue);
             bind.albumValueSector.setText(albumValue);
             bind.artistValueSector.setText(artistValue);
-            bind.trackNumberValueSector.setText(mediaMetadata.extras.getInt("track", 0) != 0 ? String.valueOf(mediaMetadata.extras.getInt("track", 0)) : getString(R.string.label_placeholder));
-            bind.yearValueSector.setText(yearValue != 0 ? String.valueOf(yearValue) : getString(R.string.label_placeholder));
+            bind.trackNumberValueSector.setText(valueOrZero(media.getTrack()) != 0 ? String.valueOf(media.getTrack()) : placeholder);
+            bind.yearValueSector.setText(yearValue != 0 ? String.valueOf(yearValue) : placeholder);
             bind.genreValueSector.setText(genreValue);
-            bind.sizeValueSector.setText(mediaMetadata.extras.getLong("size", 0) != 0 ? MusicUtil.getReadableByteCount(mediaMetadata.extras.getLong("size", 0)) : getString(R.string.label_placeholder));
-            bind.contentTypeValueSector.setText(mediaMetadata.extras.getString("contentType", getString(R.string.label_placeholder)));
-            bind.suffixValueSector.setText(mediaMetadata.extras.getString("suffix", getString(R.string.label_placeholder)));
-            bind.transcodedContentTypeValueSector.setText(mediaMetadata.extras.getString("transcodedContentType", getString(R.string.label_placeholder)));
-            bind.transcodedSuffixValueSector.setText(mediaMetadata.extras.getString("transcodedSuffix", getString(R.string.label_placeholder)));
-            bind.durationValueSector.setText(mediaMetadata.extras.getInt("duration", 0) != 0 ? MusicUtil.getReadableDurationString(mediaMetadata.extras.getInt("duration", 0), false) : getString(R.string.label_placeholder));
-            bind.bitrateValueSector.setText(mediaMetadata.extras.getInt("bitrate", 0) != 0 ? mediaMetadata.extras.getInt("bitrate", 0) + " kbps" : getString(R.string.label_placeholder));
-            bind.samplingRateValueSector.setText(mediaMetadata.extras.getInt("samplingRate", 0) != 0 ? mediaMetadata.extras.getInt("samplingRate", 0) + " Hz" : getString(R.string.label_placeholder));
-            bind.bitDepthValueSector.setText(mediaMetadata.extras.getInt("bitDepth", 0) != 0 ? mediaMetadata.extras.getInt("bitDepth", 0) + " bits" : getString(R.string.label_placeholder));
-            bind.pathValueSector.setText(mediaMetadata.extras.getString("path", getString(R.string.label_placeholder)));
-            bind.discNumberValueSector.setText(mediaMetadata.extras.getInt("discNumber", 0) != 0 ? String.valueOf(mediaMetadata.extras.getInt("discNumber", 0)) : getString(R.string.label_placeholder));
+            bind.sizeValueSector.setText(media.getSize() != null && media.getSize() != 0 ? MusicUtil.getReadableByteCount(media.getSize()) : placeholder);
+            bind.contentTypeValueSector.setText(valueOrPlaceholder(media.getContentType()));
+            bind.suffixValueSector.setText(valueOrPlaceholder(media.getSuffix()));
+            bind.transcodedContentTypeValueSector.setText(valueOrPlaceholder(media.getTranscodedContentType()));
+            bind.transcodedSuffixValueSector.setText(valueOrPlaceholder(media.getTranscodedSuffix()));
+            bind.durationValueSector.setText(valueOrZero(media.getDuration()) != 0 ? MusicUtil.getReadableDurationString(media.getDuration(), false) : placeholder);
+            bind.bitrateValueSector.setText(valueOrZero(media.getBitrate()) != 0 ? media.getBitrate() + " kbps" : placeholder);
+            bind.samplingRateValueSector.setText(valueOrZero(media.getSamplingRate()) != 0 ? media.getSamplingRate() + " Hz" : placeholder);
+            bind.bitDepthValueSector.setText(valueOrZero(media.getBitDepth()) != 0 ? media.getBitDepth() + " bits" : placeholder);
+            bind.pathValueSector.setText(valueOrPlaceholder(media.getPath()));
+            bind.discNumberValueSector.setText(valueOrZero(media.getDiscNumber()) != 0 ? String.valueOf(media.getDiscNumber()) : placeholder);
 
             bindAssetLink(bind.titleValueSector, songLink);
             bindAssetLink(bind.albumValueSector, albumLink);
@@ -175,6 +178,14 @@ public class TrackInfoDialog extends DialogFragment {
         }
     }
 
+    private String valueOrPlaceholder(String value) {
+        return value != null ? value : getString(R.string.label_placeholder);
+    }
+
+    private static int valueOrZero(Integer value) {
+        return value != null ? value : 0;
+    }
+
     private void bindAssetLink(android.view.View view, AssetLinkUtil.AssetLink assetLink) {
         if (view == null) return;
         if (assetLink == null) {
@@ -3,7 +3,6 @@ package com.cappielloantonio.tempo.ui.fragment;
 import android.annotation.SuppressLint;
 import android.content.Context;
 import android.os.Bundle;
-import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.Menu;
 import android.view.MenuInflater;
@@ -23,6 +22,7 @@ import androidx.fragment.app.Fragment;
 import androidx.lifecycle.ViewModelProvider;
 import androidx.media3.common.util.UnstableApi;
 import androidx.navigation.Navigation;
+import androidx.paging.LoadState;
 import androidx.recyclerview.widget.GridLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
@@ -30,15 +30,14 @@ import com.cappielloantonio.tempo.R;
 import com.cappielloantonio.tempo.databinding.FragmentAlbumCatalogueBinding;
 import com.cappielloantonio.tempo.helper.recyclerview.GridItemDecoration;
 import com.cappielloantonio.tempo.interfaces.ClickCallback;
+import com.cappielloantonio.tempo.service.LibrarySync;
 import com.cappielloantonio.tempo.ui.activity.MainActivity;
-import com.cappielloantonio.tempo.ui.adapter.AlbumCatalogueAdapter;
+import com.cappielloantonio.tempo.ui.adapter.AlbumCataloguePagingAdapter;
 import com.cappielloantonio.tempo.util.Constants;
 import com.cappielloantonio.tempo.util.Preferences;
 import com.cappielloantonio.tempo.viewmodel.AlbumCatalogueViewModel;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import kotlin.Unit;
 
 @OptIn(markerClass = UnstableApi.class)
 public class AlbumCatalogueFragment extends Fragment implements ClickCallback {
@@ -48,9 +47,9 @@ public class AlbumCatalogueFragment extends Fragment implements ClickCallback {
     private MainActivity activity;
     private AlbumCatalogueViewModel albumCatalogueViewModel;
 
-    private AlbumCatalogueAdapter albumAdapter;
+    private AlbumCataloguePagingAdapter albumAdapter;
+    private boolean isRefreshing;
     private String currentSortOrder;
-    private List<com.cappielloantonio.tempo.subsonic.models.AlbumID3> originalAlbums;
 
     @Override
     public void onCreate(@Nullable Bundle savedInstanceState) {
@@ -65,22 +64,14 @@ public class AlbumCatalogueFragment extends Fragment implements ClickCallback {
     public void onResume() {
         super.onResume();
         String latestSort = Preferences.getAlbumSortOrder();
-        
-        if (!latestSort.equals(currentSortOrder)) {
-            currentSortOrder = latestSort;
-        }
-        // Re-apply sort when returning to fragment
-        if (originalAlbums != null && currentSortOrder != null) {
-            applySortToAlbums(currentSortOrder);
-        } else {
-            Log.d(TAG, "onResume - Cannot re-sort, missing data");
+
+        // The order may have been changed elsewhere, re-applying the same one would reshuffle
+        if (!latestSort.equals(albumCatalogueViewModel.getOrder())) {
+            albumCatalogueViewModel.setOrder(latestSort);
         }
-    }
 
-    @Override
-    public void onDestroy() {
-        super.onDestroy();
-        albumCatalogueViewModel.stopLoading();
+        currentSortOrder = latestSort;
+        updateSortIndicator();
     }
 
     @Override
@@ -105,7 +96,6 @@ public class AlbumCatalogueFragment extends Fragment implements ClickCallback {
 
     private void initData() {
         albumCatalogueViewModel = new ViewModelProvider(requireActivity()).get(AlbumCatalogueViewModel.class);
-        albumCatalogueViewModel.loadAlbums();
     }
 
     private void initAppBar() {
@@ -137,15 +127,10 @@ public class AlbumCatalogueFragment extends Fragment implements ClickCallback {
         bind.albumCatalogueRecyclerView.addItemDecoration(new GridItemDecoration(2, 20, false));
         bind.albumCatalogueRecyclerView.setHasFixedSize(true);
 
-        albumAdapter = new AlbumCatalogueAdapter(this, true);
+        albumAdapter = new AlbumCataloguePagingAdapter(this, true);
         albumAdapter.setStateRestorationPolicy(RecyclerView.Adapter.StateRestorationPolicy.PREVENT_WHEN_EMPTY);
         bind.albumCatalogueRecyclerView.setAdapter(albumAdapter);
-        albumCatalogueViewModel.getAlbumList().observe(getViewLifecycleOwner(), albums -> {
-            originalAlbums = albums;
-            currentSortOrder = Preferences.getAlbumSortOrder();
-            applySortToAlbums(currentSortOrder);
-            updateSortIndicator();
-        });
+        albumCatalogueViewModel.getAlbumList().observe(getViewLifecycleOwner(), albums -> albumAdapter.submitData(getViewLifecycleOwner().getLifecycle(), albums));
 
         bind.albumCatalogueRecyclerView.setOnTouchListener((v, event) -> {
             hideKeyboard(v);
@@ -155,26 +140,28 @@ public class AlbumCatalogueFragment extends Fragment implements ClickCallback {
         bind.albumListSortImageView.setOnClickListener(view -> showPopupMenu(view, R.menu.sort_album_popup_menu));
     }
 
-    private void applySortToAlbums(String sortOrder) {
-        if (originalAlbums == null) {
-            return;
-        }
-        albumAdapter.setItemsWithoutFilter(originalAlbums);
-        if (sortOrder != null) {
-            albumAdapter.sort(sortOrder);
-        }
-    }
-
     private void initProgressLoader() {
-        albumCatalogueViewModel.getLoadingStatus().observe(getViewLifecycleOwner(), isLoading -> {
-            if (isLoading) {
-                bind.albumListSortImageView.setEnabled(false);
-                bind.albumListProgressLoader.setVisibility(View.VISIBLE);
-            } else {
-                bind.albumListSortImageView.setEnabled(true);
-                bind.albumListProgressLoader.setVisibility(View.GONE);
-            }
+        albumAdapter.addLoadStateListener(loadStates -> {
+            if (bind == null) return Unit.INSTANCE;
+
+            isRefreshing = loadStates.getRefresh() instanceof LoadState.Loading;
+
+            bind.albumListSortImageView.setEnabled(!isRefreshing);
+            updateProgressLoader();
+
+            return Unit.INSTANCE;
         });
+
+        // The library sync runs outside of the page loads, it only holds the loader up while
+        // there is nothing of the mirror to show yet
+        LibrarySync.isSyncing().observe(getViewLifecycleOwner(), syncing -> updateProgressLoader());
+    }
+
+    private void updateProgressLoader() {
+        if (bind == null) return;
+
+        boolean isBuilding = Boolean.TRUE.equals(LibrarySync.isSyncing().getValue()) && albumAdapter.getItemCount() == 0;
+        bind.albumListProgressLoader.setVisibility(isRefreshing || isBuilding ? View.VISIBLE : View.GONE);
     }
 
     private void updateSortIndicator() {
@@ -225,7 +212,7 @@ public class AlbumCatalogueFragment extends Fragment implements ClickCallback {
 
             @Override
             public boolean onQueryTextChange(String newText) {
-                albumAdapter.getFilter().filter(newText);
+                albumCatalogueViewModel.setFilter(newText);
                 return false;
             }
         });
@@ -264,7 +251,7 @@ public class AlbumCatalogueFragment extends Fragment implements ClickCallback {
             if (newSortOrder != null) {
                 currentSortOrder = newSortOrder;
                 Preferences.setAlbumSortOrder(newSortOrder);
-                applySortToAlbums(newSortOrder);
+                albumCatalogueViewModel.setOrder(newSortOrder);
                 updateSortIndicator();
                 return true;
             }
@@ -32,14 +32,9 @@ import com.cappielloantonio.tempo.databinding.FragmentArtistCatalogueBinding;
 import com.cappielloantonio.tempo.helper.recyclerview.GridItemDecoration;
 import com.cappielloantonio.tempo.interfaces.ClickCallback;
 import com.cappielloantonio.tempo.ui.activity.MainActivity;
-import com.cappielloantonio.tempo.ui.adapter.ArtistCatalogueAdapter;
+import com.cappielloantonio.tempo.ui.adapter.ArtistCataloguePagingAdapter;
 import com.cappielloantonio.tempo.util.Constants;
-import com.cappielloantonio.tempo.util.Preferences;
 import com.cappielloantonio.tempo.viewmodel.ArtistCatalogueViewModel;
-import com.cappielloantonio.tempo.subsonic.models.ArtistID3;
-
-import java.util.ArrayList;
-import java.util.List;
 
 @UnstableApi
 public class ArtistCatalogueFragment extends Fragment implements ClickCallback {
@@ -49,7 +44,7 @@ public class ArtistCatalogueFragment extends Fragment implements ClickCallback {
     private MainActivity activity;
     private ArtistCatalogueViewModel artistCatalogueViewModel;
 
-    private ArtistCatalogueAdapter artistAdapter;
+    private ArtistCataloguePagingAdapter artistAdapter;
 
     @Override
     public void onCreate(@Nullable Bundle savedInstanceState) {
@@ -80,7 +75,6 @@ public class ArtistCatalogueFragment extends Fragment implements ClickCallback {
 
     private void initData() {
         artistCatalogueViewModel = new ViewModelProvider(requireActivity()).get(ArtistCatalogueViewModel.class);
-        artistCatalogueViewModel.loadArtists();
     }
 
     private void initAppBar() {
@@ -112,13 +106,10 @@ public class ArtistCatalogueFragment extends Fragment implements ClickCallback {
         bind.artistCatalogueRecyclerView.addItemDecoration(new GridItemDecoration(2, 20, false));
         bind.artistCatalogueRecyclerView.setHasFixedSize(true);
 
-        artistAdapter = new ArtistCatalogueAdapter(this);
+        artistAdapter = new ArtistCataloguePagingAdapter(this);
         artistAdapter.setStateRestorationPolicy(RecyclerView.Adapter.StateRestorationPolicy.PREVENT_WHEN_EMPTY);
         bind.artistCatalogueRecyclerView.setAdapter(artistAdapter);
-        artistCatalogueViewModel.getArtistList().observe(getViewLifecycleOwner(), artistList -> {
-            artistAdapter.setItems(artistList);
-            artistAdapter.sort(Preferences.getArtistSortOrder());
-        });
+        artistCatalogueViewModel.getArtistList().observe(getViewLifecycleOwner(), artistList -> artistAdapter.submitData(getViewLifecycleOwner().getLifecycle(), artistList));
 
         bind.artistCatalogueRecyclerView.setOnTouchListener((v, event) -> {
             hideKeyboard(v);
@@ -158,26 +149,7 @@ public class ArtistCatalogueFragment extends Fragment implements ClickCallback {
     }
 
     private void filterArtists(String query) {
-        List<ArtistID3> allArtists = artistCatalogueViewModel.getArtistList().getValue();
-        
-        if (allArtists == null || allArtists.isEmpty()) {
-            return;
-        }
-        
-        if (query == null || query.trim().isEmpty()) {
-            artistAdapter.setItems(allArtists);
-        } else {
-            String searchQuery = query.toLowerCase().trim();
-            List<ArtistID3> filteredArtists = new ArrayList<>();
-            
-            for (ArtistID3 artist : allArtists) {
-                if (artist.getName() != null && 
-                    artist.getName().toLowerCase().contains(searchQuery)) {
-                    filteredArtists.add(artist);
-                }
-            }
-            artistAdapter.setItems(filteredArtists);
-        }
+        artistCatalogueViewModel.setFilter(query);
     }
 
     private void hideKeyboard(View view) {
@@ -191,13 +163,13 @@ public class ArtistCatalogueFragment extends Fragment implements ClickCallback {
 
         popup.setOnMenuItemClickListener(menuItem -> {
             if (menuItem.getItemId() == R.id.menu_artist_sort_name) {
-                artistAdapter.sort(Constants.ARTIST_ORDER_BY_NAME);
+                artistCatalogueViewModel.setOrder(Constants.ARTIST_ORDER_BY_NAME);
                 return true;
             } else if (menuItem.getItemId() == R.id.menu_artist_sort_random) {
-                artistAdapter.sort(Constants.ARTIST_ORDER_BY_RANDOM);
+                artistCatalogueViewModel.setOrder(Constants.ARTIST_ORDER_BY_RANDOM);
                 return true;
             } else if (menuItem.getItemId() == R.id.menu_artist_sort_album_count) {
-                artistAdapter.sort(Constants.ARTIST_ORDER_BY_ALBUM_COUNT);
+                artistCatalogueViewModel.setOrder(Constants.ARTIST_ORDER_BY_ALBUM_COUNT);
                 return true;
             }
 
@@ -1,6 +1,7 @@
 package com.cappielloantonio.tempo.ui.fragment;
 
 import android.content.ComponentName;
+import android.content.Context;
 import android.content.Intent;
 import android.net.Uri;
 import android.os.Bundle;
@@ -10,12 +11,16 @@ import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
 import android.widget.PopupMenu;
+import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.core.content.ContextCompat;
 import androidx.core.view.ViewCompat;
+import androidx.core.widget.NestedScrollView;
 import androidx.fragment.app.Fragment;
 import androidx.lifecycle.Observer;
 import androidx.lifecycle.ViewModelProvider;
@@ -35,13 +40,10 @@ import com.cappielloantonio.tempo.helper.recyclerview.CustomLinearSnapHelper;
 import com.cappielloantonio.tempo.helper.recyclerview.DotsIndicatorDecoration;
 import com.cappielloantonio.tempo.interfaces.ClickCallback;
 import com.cappielloantonio.tempo.interfaces.PlaylistCallback;
-import com.cappielloantonio.tempo.model.Download;
 import com.cappielloantonio.tempo.model.HomeSector;
-import com.cappielloantonio.tempo.service.DownloaderManager;
 import com.cappielloantonio.tempo.service.MediaManager;
 import com.cappielloantonio.tempo.service.MediaService;
-import com.cappielloantonio.tempo.subsonic.models.AlbumID3;
-import com.cappielloantonio.tempo.subsonic.models.ArtistID3;
+import com.cappielloantonio.tempo.service.StarredSyncPlanner;
 import com.cappielloantonio.tempo.subsonic.models.Child;
 import com.cappielloantonio.tempo.subsonic.models.Share;
 import com.cappielloantonio.tempo.ui.activity.MainActivity;
@@ -58,26 +60,51 @@ import com.cappielloantonio.tempo.ui.adapter.YearAdapter;
 import com.cappielloantonio.tempo.ui.dialog.HomeRearrangementDialog;
 import com.cappielloantonio.tempo.ui.dialog.PlaylistEditorDialog;
 import com.cappielloantonio.tempo.util.Constants;
-import com.cappielloantonio.tempo.util.DownloadUtil;
-import com.cappielloantonio.tempo.util.ExternalAudioReader;
-import com.cappielloantonio.tempo.util.ExternalAudioWriter;
-import com.cappielloantonio.tempo.util.MappingUtil;
 import com.cappielloantonio.tempo.util.MusicUtil;
 import com.cappielloantonio.tempo.util.Preferences;
 import com.cappielloantonio.tempo.util.UIUtil;
 import com.cappielloantonio.tempo.viewmodel.HomeViewModel;
 import com.cappielloantonio.tempo.viewmodel.PlaybackViewModel;
 import com.google.android.material.snackbar.Snackbar;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @UnstableApi
 public class HomeTabMusicFragment extends Fragment implements ClickCallback {
     private static final String TAG = "HomeFragment";
 
+    // How far below the screen, in screens, sectors are fetched ahead of a scroll
+    private static final float SECTOR_PRELOAD_SCREENS = 1f;
+
+    private static final List<String> SECTOR_IDS = Arrays.asList(
+            Constants.HOME_SECTOR_DISCOVERY,
+            Constants.HOME_SECTOR_MADE_FOR_YOU,
+            Constants.HOME_SECTOR_BEST_OF,
+            Constants.HOME_SECTOR_RADIO_STATION,
+            Constants.HOME_SECTOR_TOP_SONGS,
+            Constants.HOME_SECTOR_STARRED_TRACKS,
+            Constants.HOME_SECTOR_STARRED_ALBUMS,
+            Constants.HOME_SECTOR_STARRED_ARTISTS,
+            Constants.HOME_SECTOR_NEW_RELEASES,
+            Constants.HOME_SECTOR_FLASHBACK,
+            Constants.HOME_SECTOR_MOST_PLAYED,
+            Constants.HOME_SECTOR_LAST_PLAYED,
+            Constants.HOME_SECTOR_RECENTLY_ADDED,
+            Constants.HOME_SECTOR_PINNED_PLAYLISTS,
+            Constants.HOME_SECTOR_SHARED
+    );
+
     private FragmentHomeTabMusicBinding bind;
     private MainActivity activity;
     private HomeViewModel homeViewModel;
@@ -99,8 +126,14 @@ public class HomeTabMusicFragment extends Fragment implements ClickCallback {
     private PlaylistHorizontalAdapter playlistHorizontalAdapter;
     private ShareHorizontalAdapter shareHorizontalAdapter;
 
+    private StarredSyncPlanner.Plan starredSongsPlan;
+    private StarredSyncPlanner.Plan starredAlbumsPlan;
+    private StarredSyncPlanner.Plan starredArtistsPlan;
+
     private ListenableFuture<MediaBrowser> mediaBrowserListenableFuture;
 
+    private final ViewTreeObserver.OnGlobalLayoutListener sectorLayoutListener = this::loadNearSectors;
+
     @Nullable
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater, @Nullable ViewGroup container, @Nullable Bundle savedInstanceState) {
@@ -141,6 +174,7 @@ public class HomeTabMusicFragment extends Fragment implements ClickCallback {
         initHomeReorganizer();
 
         reorder();
+        initSectorLoading();
     }
 
     @Override
@@ -171,6 +205,7 @@ public class HomeTabMusicFragment extends Fragment implements ClickCallback {
     @Override
     public void onDestroyView() {
         super.onDestroyView();
+        bind.homeLinearLayoutContainer.getViewTreeObserver().removeOnGlobalLayoutListener(sectorLayoutListener);
         bind = null;
     }
 
@@ -291,60 +326,16 @@ public class HomeTabMusicFragment extends Fragment implements ClickCallback {
             homeViewModel.getAllStarredTracks().observe(getViewLifecycleOwner(), new Observer<List<Child>>() {
                 @Override
                 public void onChanged(List<Child> songs) {
-                    if (songs != null && !songs.isEmpty()) {
-                        int songsToSyncCount = 0;
-                        List<String> toSyncSample = new ArrayList<>();
-
-                        if (Preferences.getDownloadDirectoryUri() == null) {
-                            DownloaderManager manager = DownloadUtil.getDownloadTracker(requireContext());
-                            for (Child song : songs) {
-                                if (!manager.isDownloaded(song.getId())) {
-                                    songsToSyncCount++;
-                                    if (toSyncSample.size() < 3) {
-                                        toSyncSample.add(song.getTitle());
-                                    }
-                                }
-                            }
-                        } else {
-                            for (Child song : songs) {
-                                if (ExternalAudioReader.getUri(song) == null) {
-                                    songsToSyncCount++;
-                                    if (toSyncSample.size() < 3) {
-                                        toSyncSample.add(song.getTitle());
-                                    }
-                                }
-                            }
-                        }
+                    // Also with nothing starred, the downloads of the sync are then all removed
+                    if (songs != null) {
+                        List<String> songIds = songs.stream().map(Child::getId).collect(Collectors.toList());
 
-                        if (songsToSyncCount > 0) {
-                            bind.homeSyncStarredCard.setVisibility(View.VISIBLE);
-
-                            StringBuilder displayText = new StringBuilder();
-                            if (!toSyncSample.isEmpty()) {
-                                displayText.append(String.join(", ", toSyncSample));
-                                if (songsToSyncCount > 3) {
-                                    displayText.append("...");
-                                }
-                            }
-
-                            String countText = getResources().getQuantityString(
-                                    R.plurals.home_sync_starred_songs_count,
-                                    songsToSyncCount,
-                                    songsToSyncCount
-                            );
-
-                            if (displayText.length() > 0) {
-                                bind.homeSyncStarredTracksToSync.setText(displayText.toString() + "\n" + countText);
-                            } else {
-                                bind.homeSyncStarredTracksToSync.setText(countText);
-                            }
-
-                            if (getActivity() != null) {
-                                getActivity().runOnUiThread(() -> reorder());
-                            }
-                        } else {
-                            bind.homeSyncStarredCard.setVisibility(View.GONE);
-                        }
+                        planStarredSync(StarredSyncPlanner.Source.SONGS, songs, songIds, plan -> {
+                            starredSongsPlan = plan;
+
+                            List<String> titles = plan.getMissing().stream().map(Child::getTitle).collect(Collectors.toList());
+                            showSyncCard(bind.homeSyncStarredCard, bind.homeSyncStarredTracksToSync, titles, R.plurals.home_sync_starred_songs_count);
+                        });
                     }
                 }
             });
@@ -357,60 +348,14 @@ public class HomeTabMusicFragment extends Fragment implements ClickCallback {
             }
         });
 
-        bind.homeSyncStarredDownload.setOnClickListener(new View.OnClickListener() {
-            @Override
-            public void onClick(View v) {
-                homeViewModel.getAllStarredTracks().observe(getViewLifecycleOwner(), new Observer<List<Child>>() {
-                    @Override
-                    public void onChanged(List<Child> songs) {
-                        if (songs != null && !songs.isEmpty()) {
-                            int downloadedCount = 0;
-
-                            if (Preferences.getDownloadDirectoryUri() == null) {
-                                DownloaderManager manager = DownloadUtil.getDownloadTracker(requireContext());
-                                for (Child song : songs) {
-                                    if (!manager.isDownloaded(song.getId())) {
-                                        manager.download(MappingUtil.mapDownload(song), new Download(song));
-                                        downloadedCount++;
-                                    }
-                                }
-                            } else {
-                                for (Child song : songs) {
-                                    if (ExternalAudioReader.getUri(song) == null) {
-                                        ExternalAudioWriter.downloadToUserDirectory(requireContext(), song);
-                                        downloadedCount++;
-                                    }
-                                }
-                            }
-
-                            if (downloadedCount > 0) {
-                                Toast.makeText(requireContext(),
-                                        getResources().getQuantityString(R.plurals.songs_download_started, downloadedCount, downloadedCount),
-                                        Toast.LENGTH_SHORT).show();
-                            }
-                        }
-
-                        bind.homeSyncStarredCard.setVisibility(View.GONE);
-                        if (getActivity() != null) {
-                            getActivity().runOnUiThread(() -> reorder());
-                        }
-                    }
-                });
-            }
-        });
+        bind.homeSyncStarredDownload.setOnClickListener(v -> applyStarredSync(starredSongsPlan, bind.homeSyncStarredCard));
     }
 
     private void initSyncStarredAlbumsView() {
 
         if (Preferences.isStarredAlbumsSyncEnabled()) {
-            homeViewModel.getStarredAlbums(getViewLifecycleOwner()).observe(getViewLifecycleOwner(), new Observer<List<AlbumID3>>() {
-                @Override
-                public void onChanged(List<AlbumID3> albums) {
-                    if (albums != null && !albums.isEmpty()) {
-                        checkIfAlbumsNeedSync(albums);
-                    }
-                }
-            });
+            homeViewModel.pinSector(Constants.HOME_SECTOR_STARRED_ALBUMS);
+            checkIfAlbumsNeedSync();
         }
 
         bind.homeSyncStarredAlbumsCancel.setOnClickListener(v -> {
@@ -420,121 +365,24 @@ public class HomeTabMusicFragment extends Fragment implements ClickCallback {
             }
         });
 
-        bind.homeSyncStarredAlbumsDownload.setOnClickListener(v -> {
-            homeViewModel.getAllStarredAlbumSongs().observe(getViewLifecycleOwner(), new Observer<List<Child>>() {
-                @Override
-                public void onChanged(List<Child> allSongs) {
-                    if (allSongs != null && !allSongs.isEmpty()) {
-                        int songsToDownload = 0;
-
-                        if (Preferences.getDownloadDirectoryUri() == null) {
-                            DownloaderManager manager = DownloadUtil.getDownloadTracker(requireContext());
-                            for (Child song : allSongs) {
-                                if (!manager.isDownloaded(song.getId())) {
-                                    manager.download(MappingUtil.mapDownload(song), new Download(song));
-                                    songsToDownload++;
-                                }
-                            }
-                        } else {
-                            for (Child song : allSongs) {
-                                if (ExternalAudioReader.getUri(song) == null) {
-                                    ExternalAudioWriter.downloadToUserDirectory(requireContext(), song);
-                                    songsToDownload++;
-                                }
-                            }
-                        }
-
-                        if (songsToDownload > 0) {
-                            Toast.makeText(requireContext(),
-                                getResources().getQuantityString(R.plurals.songs_download_started, songsToDownload, songsToDownload),
-                                Toast.LENGTH_SHORT).show();
-                        }
-                    }
-
-                    bind.homeSyncStarredAlbumsCard.setVisibility(View.GONE);
-                    if (getActivity() != null) {
-                        getActivity().runOnUiThread(() -> reorder());
-                    }
-                }
-            });
-        });
+        bind.homeSyncStarredAlbumsDownload.setOnClickListener(v -> applyStarredSync(starredAlbumsPlan, bind.homeSyncStarredAlbumsCard));
     }
 
-    private void checkIfAlbumsNeedSync(List<AlbumID3> albums) {
+    private void checkIfAlbumsNeedSync() {
         homeViewModel.getAllStarredAlbumSongs().observe(getViewLifecycleOwner(), new Observer<List<Child>>() {
             @Override
             public void onChanged(List<Child> allSongs) {
                 if (allSongs != null) {
-                    int songsToDownload = 0;
-                    List<String> albumsNeedingSync = new ArrayList<>();
-
-                    if (Preferences.getDownloadDirectoryUri() == null) {
-                        DownloaderManager manager = DownloadUtil.getDownloadTracker(requireContext());
-                        
-                        for (AlbumID3 album : albums) {
-                            boolean albumNeedsSync = false;
-                            for (Child song : allSongs) {
-                                if (song.getAlbumId() != null && song.getAlbumId().equals(album.getId()) &&
-                                        !manager.isDownloaded(song.getId())) {
-                                    songsToDownload++;
-                                    albumNeedsSync = true;
-                                }
-                            }
-                            if (albumNeedsSync) {
-                                albumsNeedingSync.add(album.getName());
-                            }
-                        }
-                    } else {
-                        for (AlbumID3 album : albums) {
-                            boolean albumNeedsSync = false;
-                            for (Child song : allSongs) {
-                                if (song.getAlbumId() != null && song.getAlbumId().equals(album.getId()) &&
-                                        ExternalAudioReader.getUri(song) == null) {
-                                    songsToDownload++;
-                                    albumNeedsSync = true;
-                                }
-                            }
-                            if (albumNeedsSync) {
-                                albumsNeedingSync.add(album.getName());
-                            }
-                        }
-                    }
+                    planStarredSync(StarredSyncPlanner.Source.ALBUMS, allSongs, homeViewModel.getStarredAlbumIds(), plan -> {
+                        starredAlbumsPlan = plan;
 
-                    if (songsToDownload > 0) {
-                        bind.homeSyncStarredAlbumsCard.setVisibility(View.VISIBLE);
-                        
-                        StringBuilder displayText = new StringBuilder();
-                        List<String> sampleAlbums = new ArrayList<>();
-                        
-                        for (int i = 0; i < Math.min(albumsNeedingSync.size(), 3); i++) {
-                            sampleAlbums.add(albumsNeedingSync.get(i));
-                        }
-                        
-                        if (!sampleAlbums.isEmpty()) {
-                            displayText.append(String.join(", ", sampleAlbums));
-                            if (albumsNeedingSync.size() > 3) {
-                                displayText.append("...");
-                            }
-                        }
-                        
-                        String countText = getResources().getQuantityString(
-                            R.plurals.home_sync_starred_albums_count,
-                            albumsNeedingSync.size(),
-                            albumsNeedingSync.size()
-                        );
-                        
-                        if (displayText.length() > 0) {
-                            bind.homeSyncStarredAlbumsToSync.setText(displayText.toString() + "\n" + countText);
-                        } else {
-                            bind.homeSyncStarredAlbumsToSync.setText(countText);
-                        }
-                        
-                        if (getActivity() != null) {
-                            getActivity().runOnUiThread(() -> reorder());
+                        Map<String, String> albumsNeedingSync = new LinkedHashMap<>();
+                        for (Child song : plan.getMissing()) {
+                            if (song.getAlbumId() != null) albumsNeedingSync.putIfAbsent(song.getAlbumId(), song.getAlbum());
                         }
-                    } else {
-                        bind.homeSyncStarredAlbumsCard.setVisibility(View.GONE);
-                    }
+
+                        showSyncCard(bind.homeSyncStarredAlbumsCard, bind.homeSyncStarredAlbumsToSync, new ArrayList<>(albumsNeedingSync.values()), R.plurals.home_sync_starred_albums_count);
+                    });
                 }
             }
         });
@@ -542,14 +390,8 @@ public class HomeTabMusicFragment extends Fragment implements ClickCallback {
 
     private void initSyncStarredArtistsView() {
         if (Preferences.isStarredArtistsSyncEnabled()) {
-            homeViewModel.getStarredArtists(getViewLifecycleOwner()).observe(getViewLifecycleOwner(), new Observer<List<ArtistID3>>() {
-                @Override
-                public void onChanged(List<ArtistID3> artists) {
-                    if (artists != null && !artists.isEmpty()) {
-                        checkIfArtistsNeedSync(artists);
-                    }
-                }
-            });
+            homeViewModel.pinSector(Constants.HOME_SECTOR_STARRED_ARTISTS);
+            checkIfArtistsNeedSync();
         }
 
         bind.homeSyncStarredArtistsCancel.setOnClickListener(v -> {
@@ -559,126 +401,105 @@ public class HomeTabMusicFragment extends Fragment implements ClickCallback {
             }
         });
 
-        bind.homeSyncStarredArtistsDownload.setOnClickListener(v -> {
-            homeViewModel.getAllStarredArtistSongs().observe(getViewLifecycleOwner(), new Observer<List<Child>>() {
-                @Override
-                public void onChanged(List<Child> allSongs) {
-                    if (allSongs != null && !allSongs.isEmpty()) {
-                        int songsToDownload = 0;
-
-                        if (Preferences.getDownloadDirectoryUri() == null) {
-                            DownloaderManager manager = DownloadUtil.getDownloadTracker(requireContext());
-                            for (Child song : allSongs) {
-                                if (!manager.isDownloaded(song.getId())) {
-                                    manager.download(MappingUtil.mapDownload(song), new Download(song));
-                                    songsToDownload++;
-                                }
-                            }
-                        } else {
-                            for (Child song : allSongs) {
-                                if (ExternalAudioReader.getUri(song) == null) {
-                                    ExternalAudioWriter.downloadToUserDirectory(requireContext(), song);
-                                    songsToDownload++;
-                                }
-                            }
-                        }
-
-                        if (songsToDownload > 0) {
-                            Toast.makeText(requireContext(),
-                                getResources().getQuantityString(R.plurals.songs_download_started, songsToDownload, songsToDownload),
-                                Toast.LENGTH_SHORT).show();
-                        }
-                    }
-
-                    bind.homeSyncStarredArtistsCard.setVisibility(View.GONE);
-                    if (getActivity() != null) {
-                        getActivity().runOnUiThread(() -> reorder());
-                    }
-                }
-            });
-        });
+        bind.homeSyncStarredArtistsDownload.setOnClickListener(v -> applyStarredSync(starredArtistsPlan, bind.homeSyncStarredArtistsCard));
     }
 
-    private void checkIfArtistsNeedSync(List<ArtistID3> artists) {
+    private void checkIfArtistsNeedSync() {
         homeViewModel.getAllStarredArtistSongs().observe(getViewLifecycleOwner(), new Observer<List<Child>>() {
             @Override
             public void onChanged(List<Child> allSongs) {
                 if (allSongs != null) {
-                    int songsToDownload = 0;
-                    List<String> artistsNeedingSync = new ArrayList<>();
-
-                    if (Preferences.getDownloadDirectoryUri() == null) {
-                        DownloaderManager manager = DownloadUtil.getDownloadTracker(requireContext());
-                        
-                        for (ArtistID3 artist : artists) {
-                            boolean artistNeedsSync = false;
-                            for (Child song : allSongs) {
-                                if (song.getArtistId() != null && song.getArtistId().equals(artist.getId()) &&
-                                        !manager.isDownloaded(song.getId())) {
-                                    songsToDownload++;
-                                    artistNeedsSync = true;
-                                }
-                            }
-                            if (artistNeedsSync) {
-                                artistsNeedingSync.add(artist.getName());
-                            }
-                        }
-                    } else {
-                        for (ArtistID3 artist : artists) {
-                            boolean artistNeedsSync = false;
-                            for (Child song : allSongs) {
-                                if (song.getArtistId() != null && song.getArtistId().equals(artist.getId()) &&
-                                        ExternalAudioReader.getUri(song) == null) {
-                                    songsToDownload++;
-                                    artistNeedsSync = true;
-                                }
-                            }
-                            if (artistNeedsSync) {
-                                artistsNeedingSync.add(artist.getName());
-                            }
-                        }
-                    }
+                    planStarredSync(StarredSyncPlanner.Source.ARTISTS, allSongs, homeViewModel.getStarredArtistIds(), plan -> {
+                        starredArtistsPlan = plan;
 
-                    if (songsToDownload > 0) {
-                        bind.homeSyncStarredArtistsCard.setVisibility(View.VISIBLE);
-                        
-                        StringBuilder displayText = new StringBuilder();
-                        List<String> sampleArtists = new ArrayList<>();
-                        
-                        for (int i = 0; i < Math.min(artistsNeedingSync.size(), 3); i++) {
-                            sampleArtists.add(artistsNeedingSync.get(i));
-                        }
-                        
-                        if (!sampleArtists.isEmpty()) {
-                            displayText.append(String.join(", ", sampleArtists));
-                            if (artistsNeedingSync.size() > 3) {
-                                displayText.append("...");
-                            }
-                        }
-                        
-                        String countText = getResources().getQuantityString(
-                            R.plurals.home_sync_starred_artists_count,
-                            artistsNeedingSync.size(),
-                            artistsNeedingSync.size()
-                        );
-                        
-                        if (displayText.length() > 0) {
-                            bind.homeSyncStarredArtistsToSync.setText(displayText.toString() + "\n" + countText);
-                        } else {
-                            bind.homeSyncStarredArtistsToSync.setText(countText);
+                        Map<String, String> artistsNeedingSync = new LinkedHashMap<>();
+                        for (Child song : plan.getMissing()) {
+                            if (song.getArtistId() != null) artistsNeedingSync.putIfAbsent(song.getArtistId(), song.getArtist());
                         }
-                        
-                        if (getActivity() != null) {
-                            getActivity().runOnUiThread(() -> reorder());
-                        }
-                    } else {
-                        bind.homeSyncStarredArtistsCard.setVisibility(View.GONE);
-                    }
+
+                        showSyncCard(bind.homeSyncStarredArtistsCard, bind.homeSyncStarredArtistsToSync, new ArrayList<>(artistsNeedingSync.values()), R.plurals.home_sync_starred_artists_count);
+                    });
                 }
             }
         });
     }
 
+    private void planStarredSync(StarredSyncPlanner.Source source, List<Child> songs, Collection<String> starredIds, Consumer<StarredSyncPlanner.Plan> onPlan) {
+        Futures.addCallback(StarredSyncPlanner.plan(requireContext(), source, songs, starredIds), new FutureCallback<StarredSyncPlanner.Plan>() {
+            @Override
+            public void onSuccess(StarredSyncPlanner.Plan plan) {
+                if (bind == null) return;
+
+                // Un-starring alone doesn't ask, the downloads of the sync just go
+                if (plan.getMissing().isEmpty() && !plan.getToRemove().isEmpty()) {
+                    StarredSyncPlanner.apply(requireContext(), plan);
+                }
+
+                onPlan.accept(plan);
+            }
+
+            @Override
+            public void onFailure(@NonNull Throwable t) {
+                Log.e(TAG, "Cannot plan the starred sync", t);
+            }
+        }, ContextCompat.getMainExecutor(requireContext()));
+    }
+
+    private void showSyncCard(View card, TextView textView, List<String> names, int countPlural) {
+        if (names.isEmpty()) {
+            card.setVisibility(View.GONE);
+            return;
+        }
+
+        card.setVisibility(View.VISIBLE);
+
+        StringBuilder displayText = new StringBuilder(String.join(", ", names.subList(0, Math.min(names.size(), 3))));
+        if (names.size() > 3) {
+            displayText.append("...");
+        }
+
+        String countText = getResources().getQuantityString(countPlural, names.size(), names.size());
+
+        if (displayText.length() > 0) {
+            textView.setText(displayText.toString() + "\n" + countText);
+        } else {
+            textView.setText(countText);
+        }
+
+        if (getActivity() != null) {
+            getActivity().runOnUiThread(() -> reorder());
+        }
+    }
+
+    private void applyStarredSync(StarredSyncPlanner.Plan plan, View card) {
+        card.setVisibility(View.GONE);
+        if (getActivity() != null) {
+            getActivity().runOnUiThread(() -> reorder());
+        }
+
+        if (plan == null) return;
+
+        Context context = requireContext();
+
+        Futures.addCallback(StarredSyncPlanner.apply(context, plan), new FutureCallback<Integer>() {
+            @Override
+            public void onSuccess(Integer count) {
+                if (count > 0) {
+                    Toast.makeText(context,
+                            context.getResources().getQuantityString(R.plurals.songs_download_started, count, count),
+                            Toast.LENGTH_SHORT).show();
+                } else if (!plan.getToDownload().isEmpty()) {
+                    Toast.makeText(context, R.string.songs_download_waiting, Toast.LENGTH_SHORT).show();
+                }
+            }
+
+            @Override
+            public void onFailure(@NonNull Throwable t) {
+                Log.e(TAG, "Cannot start the starred sync", t);
+            }
+        }, ContextCompat.getMainExecutor(context));
+    }
+
     private void initDiscoverSongSlideView() {
         if (homeViewModel.checkHomeSectorVisibility(Constants.HOME_SECTOR_DISCOVERY)) return;
 
@@ -687,7 +508,7 @@ public class HomeTabMusicFragment extends Fragment implements ClickCallback {
         discoverSongAdapter = new DiscoverSongAdapter(this);
         bind.discoverSongViewPager.setAdapter(discoverSongAdapter);
         bind.discoverSongViewPager.setOffscreenPageLimit(1);
-        homeViewModel.getDiscoverSongSample(getViewLifecycleOwner()).observe(getViewLifecycleOwner(), songs -> {
+        homeViewModel.getDiscoverSongSample().observe(getViewLifecycleOwner(), songs -> {
             MusicUtil.ratingFilter(songs);
 
             if (songs == null) {
@@ -711,7 +532,7 @@ public class HomeTabMusicFragment extends Fragment implements ClickCallback {
 
         similarMusicAdapter = new SimilarTrackAdapter(this);
         bind.similarTracksRecyclerView.setAdapter(similarMusicAdapter);
-        homeViewModel.getStarredTracksSample(getViewLifecycleOwner()).observe(getViewLifecycleOwner(), songs -> {
+        homeViewModel.getStarredTracksSample().observe(getViewLifecycleOwner(), songs -> {
             MusicUtil.ratingFilter(songs);
 
             if (songs == null) {
@@ -736,7 +557,7 @@ public class HomeTabMusicFragment extends Fragment implements ClickCallback {
 
         bestOfArtistAdapter = new ArtistAdapter(this, false, true);
         bind.bestOfArtistRecyclerView.setAdapter(bestOfArtistAdapter);
-        homeViewModel.getBestOfArtists(getViewLifecycleOwner()).observe(getViewLifecycleOwner(), artists -> {
+        homeViewModel.getBestOfArtists().observe(getViewLifecycleOwner(), artists -> {
             if (artists == null) {
                 if (bind != null) bind.homeBestOfArtistSector.setVisibility(View.GONE);
             } else {
@@ -759,7 +580,7 @@ public class HomeTabMusicFragment extends Fragment implements ClickCallback {
 
         radioArtistAdapter = new ArtistAdapter(this, true, false);
         bind.radioArtistRecyclerView.setAdapter(radioArtistAdapter);
-        homeViewModel.getStarredArtistsSample(getViewLifecycleOwner()).observe(getViewLifecycleOwner(), artists -> {
+        homeViewModel.getStarredArtistsSample().observe(getViewLifecycleOwner(), artists -> {
             if (artists == null) {
                 if (bind != null) bind.homeRadioArtistSector.setVisibility(View.GONE);
             } else {
@@ -826,7 +647,7 @@ public class HomeTabMusicFragment extends Fragment implements ClickCallback {
         bind.starredTracksRecyclerView.setAdapter(starredSongAdapter);
         setStarredSongsMediaBrowserListenableFuture();
         reapplyStarredSongsPlayback();
-        homeViewModel.getStarredTracks(getViewLifecycleOwner()).observe(getViewLifecycleOwner(), songs -> {
+        homeViewModel.getStarredTracks().observe(getViewLifecycleOwner(), songs -> {
             if (songs == null) {
                 if (bind != null) bind.starredTracksSector.setVisibility(View.GONE);
             } else {
@@ -860,7 +681,7 @@ public class HomeTabMusicFragment extends Fragment implements ClickCallback {
 
         starredAlbumAdapter = new AlbumHorizontalAdapter(this, false);
         bind.starredAlbumsRecyclerView.setAdapter(starredAlbumAdapter);
-        homeViewModel.getStarredAlbums(getViewLifecycleOwner()).observe(getViewLifecycleOwner(), albums -> {
+        homeViewModel.getStarredAlbums().observe(getViewLifecycleOwner(), albums -> {
             if (albums == null) {
                 if (bind != null) bind.starredAlbumsSector.setVisibility(View.GONE);
             } else {
@@ -893,7 +714,7 @@ public class HomeTabMusicFragment extends Fragment implements ClickCallback {
 
         starredArtistAdapter = new ArtistHorizontalAdapter(this);
         bind.starredArtistsRecyclerView.setAdapter(starredArtistAdapter);
-        homeViewModel.getStarredArtists(getViewLifecycleOwner()).observe(getViewLifecycleOwner(), artists -> {
+        homeViewModel.getStarredArtists().observe(getViewLifecycleOwner(), artists -> {
             if (artists == null) {
                 if (bind != null) bind.starredArtistsSector.setVisibility(View.GONE);
             } else {
@@ -928,7 +749,7 @@ public class HomeTabMusicFragment extends Fragment implements ClickCallback {
 
         newReleasesAlbumAdapter = new AlbumHorizontalAdapter(this, false);
         bind.newReleasesRecyclerView.setAdapter(newReleasesAlbumAdapter);
-        homeViewModel.getRecentlyReleasedAlbums(getViewLifecycleOwner()).observe(getViewLifecycleOwner(), albums -> {
+        homeViewModel.getRecentlyReleasedAlbums().observe(getViewLifecycleOwner(), albums -> {
             if (albums == null) {
                 if (bind != null) bind.homeNewReleasesSector.setVisibility(View.GONE);
             } else {
@@ -962,7 +783,7 @@ public class HomeTabMusicFragment extends Fragment implements ClickCallback {
 
         yearAdapter = new YearAdapter(this);
         bind.yearsRecyclerView.setAdapter(yearAdapter);
-        homeViewModel.getYearList(getViewLifecycleOwner()).observe(getViewLifecycleOwner(), years -> {
+        homeViewModel.getYearList().observe(getViewLifecycleOwner(), years -> {
             if (years == null) {
                 if (bind != null) bind.homeFlashbackSector.setVisibility(View.GONE);
             } else {
@@ -985,7 +806,7 @@ public class HomeTabMusicFragment extends Fragment implements ClickCallback {
 
         mostPlayedAlbumAdapter = new AlbumAdapter(this);
         bind.mostPlayedAlbumsRecyclerView.setAdapter(mostPlayedAlbumAdapter);
-        homeViewModel.getMostPlayedAlbums(getViewLifecycleOwner()).observe(getViewLifecycleOwner(), albums -> {
+        homeViewModel.getMostPlayedAlbums().observe(getViewLifecycleOwner(), albums -> {
             if (albums == null) {
                 if (bind != null) bind.homeMostPlayedAlbumsSector.setVisibility(View.GONE);
             } else {
@@ -1008,7 +829,7 @@ public class HomeTabMusicFragment extends Fragment implements ClickCallback {
 
         recentlyPlayedAlbumAdapter = new AlbumAdapter(this);
         bind.recentlyPlayedAlbumsRecyclerView.setAdapter(recentlyPlayedAlbumAdapter);
-        homeViewModel.getRecentlyPlayedAlbumList(getViewLifecycleOwner()).observe(getViewLifecycleOwner(), albums -> {
+        homeViewModel.getRecentlyPlayedAlbumList().observe(getViewLifecycleOwner(), albums -> {
             if (albums == null) {
                 if (bind != null) bind.homeRecentlyPlayedAlbumsSector.setVisibility(View.GONE);
             } else {
@@ -1031,7 +852,7 @@ public class HomeTabMusicFragment extends Fragment implements ClickCallback {
 
         recentlyAddedAlbumAdapter = new AlbumAdapter(this);
         bind.recentlyAddedAlbumsRecyclerView.setAdapter(recentlyAddedAlbumAdapter);
-        homeViewModel.getMostRecentlyAddedAlbums(getViewLifecycleOwner()).observe(getViewLifecycleOwner(), albums -> {
+        homeViewModel.getMostRecentlyAddedAlbums().observe(getViewLifecycleOwner(), albums -> {
             if (albums == null) {
                 if (bind != null) bind.homeRecentlyAddedAlbumsSector.setVisibility(View.GONE);
             } else {
@@ -1054,7 +875,7 @@ public class HomeTabMusicFragment extends Fragment implements ClickCallback {
 
         playlistHorizontalAdapter = new PlaylistHorizontalAdapter(this);
         bind.pinnedPlaylistsRecyclerView.setAdapter(playlistHorizontalAdapter);
-        homeViewModel.getPinnedPlaylists(getViewLifecycleOwner()).observe(getViewLifecycleOwner(), playlists -> {
+        homeViewModel.getPinnedPlaylists().observe(getViewLifecycleOwner(), playlists -> {
             if (playlists == null) {
                 if (bind != null) bind.pinnedPlaylistsSector.setVisibility(View.GONE);
             } else {
@@ -1074,7 +895,7 @@ public class HomeTabMusicFragment extends Fragment implements ClickCallback {
         shareHorizontalAdapter = new ShareHorizontalAdapter(this);
         bind.sharesRecyclerView.setAdapter(shareHorizontalAdapter);
         if (Preferences.isSharingEnabled()) {
-            homeViewModel.getShares(getViewLifecycleOwner()).observe(getViewLifecycleOwner(), shares -> {
+            homeViewModel.getShares().observe(getViewLifecycleOwner(), shares -> {
                 if (shares == null) {
                     if (bind != null) bind.sharesSector.setVisibility(View.GONE);
                 } else {
@@ -1101,6 +922,11 @@ public class HomeTabMusicFragment extends Fragment implements ClickCallback {
         );
     }
 
+    private void initSectorLoading() {
+        bind.getRoot().setOnScrollChangeListener((NestedScrollView.OnScrollChangeListener) (v, scrollX, scrollY, oldScrollX, oldScrollY) -> loadNearSectors());
+        bind.homeLinearLayoutContainer.getViewTreeObserver().addOnGlobalLayoutListener(sectorLayoutListener);
+    }
+
     private void initHomeReorganizer() {
         final Handler handler = new Handler();
         final Runnable runnable = () -> {
@@ -1158,59 +984,89 @@ public class HomeTabMusicFragment extends Fragment implements ClickCallback {
             for (HomeSector sector : homeViewModel.getHomeSectorList()) {
                 if (!sector.isVisible()) continue;
 
-                switch (sector.getId()) {
-                    case Constants.HOME_SECTOR_DISCOVERY:
-                        bind.homeLinearLayoutContainer.addView(bind.homeDiscoverSector);
-                        break;
-                    case Constants.HOME_SECTOR_MADE_FOR_YOU:
-                        bind.homeLinearLayoutContainer.addView(bind.homeSimilarTracksSector);
-                        break;
-                    case Constants.HOME_SECTOR_BEST_OF:
-                        bind.homeLinearLayoutContainer.addView(bind.homeBestOfArtistSector);
-                        break;
-                    case Constants.HOME_SECTOR_RADIO_STATION:
-                        bind.homeLinearLayoutContainer.addView(bind.homeRadioArtistSector);
-                        break;
-                    case Constants.HOME_SECTOR_TOP_SONGS:
-                        bind.homeLinearLayoutContainer.addView(bind.homeGridTracksSector);
-                        break;
-                    case Constants.HOME_SECTOR_STARRED_TRACKS:
-                        bind.homeLinearLayoutContainer.addView(bind.starredTracksSector);
-                        break;
-                    case Constants.HOME_SECTOR_STARRED_ALBUMS:
-                        bind.homeLinearLayoutContainer.addView(bind.starredAlbumsSector);
-                        break;
-                    case Constants.HOME_SECTOR_STARRED_ARTISTS:
-                        bind.homeLinearLayoutContainer.addView(bind.starredArtistsSector);
-                        break;
-                    case Constants.HOME_SECTOR_NEW_RELEASES:
-                        bind.homeLinearLayoutContainer.addView(bind.homeNewReleasesSector);
-                        break;
-                    case Constants.HOME_SECTOR_FLASHBACK:
-                        bind.homeLinearLayoutContainer.addView(bind.homeFlashbackSector);
-                        break;
-                    case Constants.HOME_SECTOR_MOST_PLAYED:
-                        bind.homeLinearLayoutContainer.addView(bind.homeMostPlayedAlbumsSector);
-                        break;
-                    case Constants.HOME_SECTOR_LAST_PLAYED:
-                        bind.homeLinearLayoutContainer.addView(bind.homeRecentlyPlayedAlbumsSector);
-                        break;
-                    case Constants.HOME_SECTOR_RECENTLY_ADDED:
-                        bind.homeLinearLayoutContainer.addView(bind.homeRecentlyAddedAlbumsSector);
-                        break;
-                    case Constants.HOME_SECTOR_PINNED_PLAYLISTS:
-                        bind.homeLinearLayoutContainer.addView(bind.pinnedPlaylistsSector);
-                        break;
-                    case Constants.HOME_SECTOR_SHARED:
-                        bind.homeLinearLayoutContainer.addView(bind.sharesSector);
-                        break;
-                }
+                View sectorView = getSectorView(sector.getId());
+                if (sectorView != null) bind.homeLinearLayoutContainer.addView(sectorView);
             }
 
             bind.homeLinearLayoutContainer.addView(bind.homeSectorRearrangementButton);
         }
     }
 
+    private View getSectorView(String sectorId) {
+        switch (sectorId) {
+            case Constants.HOME_SECTOR_DISCOVERY:
+                return bind.homeDiscoverSector;
+            case Constants.HOME_SECTOR_MADE_FOR_YOU:
+                return bind.homeSimilarTracksSector;
+            case Constants.HOME_SECTOR_BEST_OF:
+                return bind.homeBestOfArtistSector;
+            case Constants.HOME_SECTOR_RADIO_STATION:
+                return bind.homeRadioArtistSector;
+            case Constants.HOME_SECTOR_TOP_SONGS:
+                return bind.homeGridTracksSector;
+            case Constants.HOME_SECTOR_STARRED_TRACKS:
+                return bind.starredTracksSector;
+            case Constants.HOME_SECTOR_STARRED_ALBUMS:
+                return bind.starredAlbumsSector;
+            case Constants.HOME_SECTOR_STARRED_ARTISTS:
+                return bind.starredArtistsSector;
+            case Constants.HOME_SECTOR_NEW_RELEASES:
+                return bind.homeNewReleasesSector;
+            case Constants.HOME_SECTOR_FLASHBACK:
+                return bind.homeFlashbackSector;
+            case Constants.HOME_SECTOR_MOST_PLAYED:
+                return bind.homeMostPlayedAlbumsSector;
+            case Constants.HOME_SECTOR_LAST_PLAYED:
+                return bind.homeRecentlyPlayedAlbumsSector;
+            case Constants.HOME_SECTOR_RECENTLY_ADDED:
+                return bind.homeRecentlyAddedAlbumsSector;
+            case Constants.HOME_SECTOR_PINNED_PLAYLISTS:
+                return bind.pinnedPlaylistsSector;
+            case Constants.HOME_SECTOR_SHARED:
+                return bind.sharesSector;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Asks for the sectors on screen, or less than a screen below it, top first. Called whenever
+     * the home screen scrolls or its layout changes, e.g. because a sector above got its items.
+     */
+    private void loadNearSectors() {
+        if (bind == null) return;
+
+        NestedScrollView scrollView = bind.getRoot();
+        int height = scrollView.getHeight();
+        if (height == 0) return;
+
+        int bottom = scrollView.getScrollY() + (int) (height * (1 + SECTOR_PRELOAD_SCREENS));
+
+        Map<View, String> sectorIds = new HashMap<>();
+        for (String sectorId : SECTOR_IDS) {
+            sectorIds.put(getSectorView(sectorId), sectorId);
+        }
+
+        List<String> nearIds = new ArrayList<>();
+        // Where the next sector starts, or would once it has something to show
+        int top = 0;
+
+        for (int i = 0; i < bind.homeLinearLayoutContainer.getChildCount(); i++) {
+            View child = bind.homeLinearLayoutContainer.getChildAt(i);
+            boolean shown = child.getVisibility() != View.GONE;
+
+            if (shown) top = child.getTop();
+            if (top > bottom) break;
+
+            String sectorId = sectorIds.get(child);
+            if (sectorId != null) nearIds.add(sectorId);
+
+            if (shown) top = child.getBottom();
+        }
+
+        homeViewModel.loadSectors(nearIds);
+    }
+
     private void showPopupMenu(View view, int menuResource) {
         PopupMenu popup = new PopupMenu(requireContext(), view);
         popup.getMenuInflater().inflate(menuResource, popup.getMenu());
@@ -1241,7 +1097,7 @@ public class HomeTabMusicFragment extends Fragment implements ClickCallback {
 
         final Runnable runnable = () -> {
             if (getView() != null && bind != null && homeViewModel != null)
-                homeViewModel.getPinnedPlaylists(getViewLifecycleOwner());
+                homeViewModel.refreshPinnedPlaylists(getViewLifecycleOwner());
         };
 
         handler.postDelayed(runnable, 100);
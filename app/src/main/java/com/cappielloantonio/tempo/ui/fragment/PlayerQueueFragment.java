@@ -27,6 +27,7 @@ import com.cappielloantonio.tempo.interfaces.ClickCallback;
 import com.cappielloantonio.tempo.service.DownloaderManager;
 import com.cappielloantonio.tempo.service.MediaManager;
 import com.cappielloantonio.tempo.service.MediaService;
+import com.cappielloantonio.tempo.service.QueueWindow;
 import com.cappielloantonio.tempo.subsonic.models.Child;
 import com.cappielloantonio.tempo.subsonic.models.PlayQueue;
 import com.cappielloantonio.tempo.ui.adapter.PlayerSongQueueAdapter;
@@ -120,7 +121,7 @@ public class PlayerQueueFragment extends Fragment implements ClickCallback {
         updateNowPlayingItem();
         mediaBrowserListenableFuture.addListener(() -> {
             try {
-                long position = mediaBrowserListenableFuture.get().getCurrentMediaItemIndex();
+                long position = QueueWindow.toQueueIndex(mediaBrowserListenableFuture.get().getCurrentMediaItemIndex());
                 requireActivity().runOnUiThread(() -> {
                     bind.playerQueueRecyclerView.scrollToPosition((int) position);
                 });
@@ -301,7 +302,7 @@ public class PlayerQueueFragment extends Fragment implements ClickCallback {
         mediaBrowserListenableFuture.addListener(() -> {
             try {
                 MediaBrowser mediaBrowser = mediaBrowserListenableFuture.get();
-                int startPosition = mediaBrowser.getCurrentMediaItemIndex() + 1;
+                int startPosition = QueueWindow.toQueueIndex(mediaBrowser.getCurrentMediaItemIndex()) + 1;
                 int endPosition = playerSongQueueAdapter.getItems().size() - 1;
 
                 if (startPosition < endPosition) {
@@ -341,7 +342,7 @@ public class PlayerQueueFragment extends Fragment implements ClickCallback {
         mediaBrowserListenableFuture.addListener(() -> {
             try {
                 MediaBrowser mediaBrowser = mediaBrowserListenableFuture.get();
-                int startPosition = mediaBrowser.getCurrentMediaItemIndex() + 1;
+                int startPosition = QueueWindow.toQueueIndex(mediaBrowser.getCurrentMediaItemIndex()) + 1;
                 int endPosition = playerSongQueueAdapter.getItems().size();
 
                 MediaManager.removeRange(mediaBrowserListenableFuture, playerSongQueueAdapter.getItems(), startPosition, endPosition);
@@ -36,6 +36,7 @@ import com.cappielloantonio.tempo.interfaces.ClickCallback;
 import com.cappielloantonio.tempo.model.Download;
 import com.cappielloantonio.tempo.service.MediaManager;
 import com.cappielloantonio.tempo.service.MediaService;
+import com.cappielloantonio.tempo.subsonic.models.Child;
 import com.cappielloantonio.tempo.ui.activity.MainActivity;
 import com.cappielloantonio.tempo.ui.adapter.SongHorizontalAdapter;
 import com.cappielloantonio.tempo.util.Constants;
@@ -48,7 +49,9 @@ import com.cappielloantonio.tempo.viewmodel.PlaybackViewModel;
 import com.cappielloantonio.tempo.viewmodel.PlaylistPageViewModel;
 import com.google.common.util.concurrent.ListenableFuture;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
 import java.util.stream.Collectors;
 
@@ -62,6 +65,9 @@ public class PlaylistPageFragment extends Fragment implements ClickCallback {
     private SongHorizontalAdapter songHorizontalAdapter;
     private ListenableFuture<MediaBrowser> mediaBrowserListenableFuture;
 
+    private List<Child> previewSongs;
+    private Bundle pendingMediaClick;
+
     @Override
     public void onCreate(@Nullable Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -315,12 +321,39 @@ public class PlaylistPageFragment extends Fragment implements ClickCallback {
         Log.d(TAG, "initSongsView");
         bind.getRoot().findViewById(R.id.playlist_page_button_layout).setVisibility(View.GONE);
 //        playlist_page_button_layout
-        playlistPageViewModel.getPlaylistSongLiveList().observe(getViewLifecycleOwner(), songs -> {
+        playlistPageViewModel.getPlaylistSongPreviewLiveList().observe(getViewLifecycleOwner(), songs -> {
             Log.d(TAG, "getPlaylistSongLiveList finished");
+            previewSongs = songs;
             songHorizontalAdapter.setItems(songs);
             bind.getRoot().findViewById(R.id.playlist_page_button_layout).setVisibility(View.VISIBLE);
             reapplyPlayback();
         });
+
+        playlistPageViewModel.isPlaylistSongPreviewDone().observe(getViewLifecycleOwner(), done -> {
+            if (Boolean.TRUE.equals(done)) onPreviewDone();
+        });
+    }
+
+    /**
+     * Queues a song tapped while the playlist was still streaming in, from the whole playlist
+     * rather than the songs that had been shown then.
+     */
+    private void onPreviewDone() {
+        if (pendingMediaClick == null) return;
+
+        Bundle bundle = pendingMediaClick;
+        pendingMediaClick = null;
+
+        List<Child> tracks = bundle.getParcelableArrayList(Constants.TRACKS_OBJECT);
+        int position = bundle.getInt(Constants.ITEM_POSITION);
+
+        // Unless the list was filtered, the tapped songs are the start of the playlist
+        if (previewSongs != null && tracks != null && position < tracks.size() && position < previewSongs.size()
+                && Objects.equals(tracks.get(position).getId(), previewSongs.get(position).getId())) {
+            bundle.putParcelableArrayList(Constants.TRACKS_OBJECT, new ArrayList<>(previewSongs));
+        }
+
+        onMediaClick(bundle);
     }
 
     private void initializeMediaBrowser() {
@@ -333,6 +366,11 @@ public class PlaylistPageFragment extends Fragment implements ClickCallback {
 
     @Override
     public void onMediaClick(Bundle bundle) {
+        if (!Boolean.TRUE.equals(playlistPageViewModel.isPlaylistSongPreviewDone().getValue())) {
+            pendingMediaClick = bundle;
+            return;
+        }
+
         MediaManager.startQueue(mediaBrowserListenableFuture, bundle.getParcelableArrayList(Constants.TRACKS_OBJECT), bundle.getInt(Constants.ITEM_POSITION));
         activity.setBottomSheetInPeek(true);
     }
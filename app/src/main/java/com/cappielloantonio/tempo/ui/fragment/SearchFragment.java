@@ -172,27 +172,29 @@ public class SearchFragment extends Fragment implements ClickCallback {
     }
 
     public void setRecentSuggestions() {
-        bind.searchViewSuggestionContainer.removeAllViews();
+        searchViewModel.getRecentSearchSuggestion().observe(getViewLifecycleOwner(), suggestions -> {
+            bind.searchViewSuggestionContainer.removeAllViews();
 
-        for (String suggestion : searchViewModel.getRecentSearchSuggestion()) {
-            View view = LayoutInflater.from(bind.searchViewSuggestionContainer.getContext()).inflate(R.layout.item_search_suggestion, bind.searchViewSuggestionContainer, false);
+            for (String suggestion : suggestions) {
+                View view = LayoutInflater.from(bind.searchViewSuggestionContainer.getContext()).inflate(R.layout.item_search_suggestion, bind.searchViewSuggestionContainer, false);
 
-            ImageView leadingImageView = view.findViewById(R.id.search_suggestion_icon);
-            TextView titleView = view.findViewById(R.id.search_suggestion_title);
-            ImageView tailingImageView = view.findViewById(R.id.search_suggestion_delete_icon);
+                ImageView leadingImageView = view.findViewById(R.id.search_suggestion_icon);
+                TextView titleView = view.findViewById(R.id.search_suggestion_title);
+                ImageView tailingImageView = view.findViewById(R.id.search_suggestion_delete_icon);
 
-            leadingImageView.setImageDrawable(ResourcesCompat.getDrawable(getResources(), R.drawable.ic_history, null));
-            titleView.setText(suggestion);
+                leadingImageView.setImageDrawable(ResourcesCompat.getDrawable(getResources(), R.drawable.ic_history, null));
+                titleView.setText(suggestion);
 
-            view.setOnClickListener(v -> search(suggestion));
+                view.setOnClickListener(v -> search(suggestion));
 
-            tailingImageView.setOnClickListener(v -> {
-                searchViewModel.deleteRecentSearch(suggestion);
-                setRecentSuggestions();
-            });
+                tailingImageView.setOnClickListener(v -> {
+                    searchViewModel.deleteRecentSearch(suggestion);
+                    bind.searchViewSuggestionContainer.removeView(view);
+                });
 
-            bind.searchViewSuggestionContainer.addView(view);
-        }
+                bind.searchViewSuggestionContainer.addView(view);
+            }
+        });
     }
 
     public void setSearchSuggestions(String query) {
@@ -48,6 +48,7 @@ import com.cappielloantonio.tempo.ui.dialog.StarredSyncDialog;
 import com.cappielloantonio.tempo.ui.dialog.StarredAlbumSyncDialog;
 import com.cappielloantonio.tempo.ui.dialog.StarredArtistSyncDialog;
 import com.cappielloantonio.tempo.ui.dialog.StreamingCacheStorageDialog;
+import com.cappielloantonio.tempo.util.BandwidthLimiter;
 import com.cappielloantonio.tempo.util.DownloadUtil;
 import com.cappielloantonio.tempo.util.Preferences;
 import com.cappielloantonio.tempo.util.UIUtil;
@@ -154,6 +155,7 @@ public class SettingsFragment extends PreferenceFragmentCompat {
         actionSyncStarredAlbums();
         actionSyncStarredTracks();
         actionSyncStarredArtists();
+        actionDownloadRequirements();
         actionChangeStreamingCacheStorage();
         actionChangeDownloadStorage();
         actionSetDownloadDirectory();
@@ -247,10 +249,12 @@ public class SettingsFragment extends PreferenceFragmentCompat {
     private void checkDownloadDirectory() {
         Preference storage = findPreference("download_storage");
         Preference directory = findPreference("set_download_directory");
+        Preference concurrency = findPreference("external_download_concurrency");
 
         if (directory == null) return;
 
         String current = Preferences.getDownloadDirectoryUri();
+        if (concurrency != null) concurrency.setVisible(current != null);
         if (current != null) {
             if (storage != null) storage.setVisible(false);
             directory.setVisible(true);
@@ -393,6 +397,30 @@ public class SettingsFragment extends PreferenceFragmentCompat {
         });
     }
 
+    private void actionDownloadRequirements() {
+        findPreference("download_unmetered_only").setOnPreferenceChangeListener((preference, newValue) -> {
+            DownloadUtil.getDownloadManager(requireContext()).setRequirements(
+                    DownloadUtil.buildDownloadRequirements((Boolean) newValue, Preferences.isDownloadChargingOnly()));
+            return true;
+        });
+
+        findPreference("download_charging_only").setOnPreferenceChangeListener((preference, newValue) -> {
+            DownloadUtil.getDownloadManager(requireContext()).setRequirements(
+                    DownloadUtil.buildDownloadRequirements(Preferences.isDownloadUnmeteredOnly(), (Boolean) newValue));
+            return true;
+        });
+
+        findPreference("download_max_parallel").setOnPreferenceChangeListener((preference, newValue) -> {
+            DownloadUtil.getDownloadScheduler(requireContext()).setMaxParallel(Integer.parseInt((String) newValue));
+            return true;
+        });
+
+        findPreference("download_bandwidth_limit").setOnPreferenceChangeListener((preference, newValue) -> {
+            BandwidthLimiter.setLimit(Integer.parseInt((String) newValue));
+            return true;
+        });
+    }
+
     private void actionChangeStreamingCacheStorage() {
         findPreference("streaming_cache_storage").setOnPreferenceClickListener(preference -> {
             StreamingCacheStorageDialog dialog = new StreamingCacheStorageDialog(new DialogClickCallback() {
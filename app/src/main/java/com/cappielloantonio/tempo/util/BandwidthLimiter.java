@@ -0,0 +1,93 @@
+package com.cappielloantonio.tempo.util;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Caps the bandwidth all downloads use together, from the download bandwidth setting. Playback
+ * and streaming are not limited.
+ * <p>
+ * Readers take what they read from one shared budget, and sleep once it runs into debt until it
+ * is paid back, so the cap holds however many downloads run at once.
+ */
+public final class BandwidthLimiter {
+    // At most a second's worth of unused budget is saved up for a burst
+    private static final long MAX_BURST_NANOS = 1_000_000_000L;
+
+    private static long bytesPerSecond = -1;
+    private static double budget;
+    private static long refilledAt;
+
+    private BandwidthLimiter() {
+    }
+
+    /**
+     * Sets the cap in KB/s, 0 for none.
+     */
+    public static synchronized void setLimit(int kilobytesPerSecond) {
+        bytesPerSecond = Math.max(0, kilobytesPerSecond) * 1024L;
+        budget = 0;
+        refilledAt = System.nanoTime();
+    }
+
+    /**
+     * Takes {@code bytes} from the budget, sleeping if it ran out.
+     *
+     * @throws InterruptedIOException if the download is cancelled while waiting.
+     */
+    public static void acquire(int bytes) throws InterruptedIOException {
+        if (bytes <= 0) return;
+
+        long waitNanos;
+
+        synchronized (BandwidthLimiter.class) {
+            if (bytesPerSecond < 0) {
+                setLimit(Preferences.getDownloadBandwidthLimit());
+            }
+
+            if (bytesPerSecond == 0) return;
+
+            long now = System.nanoTime();
+            budget = Math.min(budget + (now - refilledAt) * bytesPerSecond / 1e9, bytesPerSecond * MAX_BURST_NANOS / 1e9);
+            refilledAt = now;
+            budget -= bytes;
+
+            waitNanos = budget < 0 ? (long) (-budget * 1e9 / bytesPerSecond) : 0;
+        }
+
+        if (waitNanos <= 0) return;
+
+        try {
+            Thread.sleep(waitNanos / 1_000_000, (int) (waitNanos % 1_000_000));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while throttled");
+        }
+    }
+
+    /**
+     * {@code channel}, with what is read from it taken from the budget.
+     */
+    public static ReadableByteChannel limit(ReadableByteChannel channel) {
+        return new ReadableByteChannel() {
+            @Override
+            public int read(ByteBuffer buffer) throws IOException {
+                int read = channel.read(buffer);
+                acquire(read);
+                return read;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return channel.isOpen();
+            }
+
+            @Override
+            public void close() throws IOException {
+                channel.close();
+            }
+        };
+    }
+}
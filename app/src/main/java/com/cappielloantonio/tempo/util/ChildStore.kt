@@ -0,0 +1,104 @@
+package com.cappielloantonio.tempo.util
+
+import android.os.Bundle
+import android.util.LruCache
+import com.cappielloantonio.tempo.subsonic.models.Child
+import java.util.Date
+
+/**
+ * Process-local, id-keyed store of the songs mapped to [androidx.media3.common.MediaItem]s.
+ *
+ * MediaItem extras only carry the keys read on every player update (see
+ * [MappingUtil.mapMediaItem]); screens that need the rest of the song look it up here.
+ *
+ * Songs in the player's timeline are pinned (see [pin]) and only released once they leave it,
+ * however many other songs are mapped in the meantime. The rest are kept on a least recently used
+ * basis.
+ */
+object ChildStore {
+    private const val MAX_SIZE = 2000
+
+    private val pinned = HashMap<String, Child>()
+    private var pinnedIds: Set<String> = emptySet()
+
+    private val recent = object : LruCache<String, Child>(MAX_SIZE) {
+        override fun entryRemoved(evicted: Boolean, key: String, oldValue: Child, newValue: Child?) {
+            if (evicted && key in pinnedIds) pinned[key] = oldValue
+        }
+    }
+
+    @JvmStatic
+    @Synchronized
+    fun put(media: Child?) {
+        if (media == null) return
+
+        if (media.id in pinnedIds) pinned[media.id] = media else recent.put(media.id, media)
+    }
+
+    @JvmStatic
+    @Synchronized
+    fun get(id: String?): Child? = id?.let { pinned[it] ?: recent.get(it) }
+
+    /**
+     * Pins the songs with the given ids, the ones in the player's timeline, in place of the
+     * previously pinned ones. Those go back to the least recently used ones.
+     */
+    @JvmStatic
+    @Synchronized
+    fun pin(ids: Set<String>) {
+        val previous = HashMap(pinned)
+
+        pinned.clear()
+        pinnedIds = ids
+
+        for (id in ids) {
+            (previous.remove(id) ?: recent.get(id))?.let { pinned[id] = it }
+        }
+
+        for ((id, media) in previous) {
+            recent.put(id, media)
+        }
+    }
+
+    /**
+     * Returns the song behind the given extras. When it is no longer stored it is rebuilt from
+     * whatever keys the extras carry, missing fields are left empty.
+     */
+    @JvmStatic
+    fun get(extras: Bundle): Child {
+        val id = extras.getString("id")
+        return get(id) ?: fromExtras(id ?: "", extras)
+    }
+
+    private fun fromExtras(id: String, extras: Bundle) = Child(id).apply {
+        parentId = extras.getString("parentId")
+        isDir = extras.getBoolean("isDir")
+        title = extras.getString("title")
+        album = extras.getString("album")
+        artist = extras.getString("artist")
+        track = extras.getIntOrNull("track")
+        year = extras.getIntOrNull("year")
+        genre = extras.getString("genre")
+        coverArtId = extras.getString("coverArtId")
+        size = extras.getLongOrNull("size")
+        contentType = extras.getString("contentType")
+        suffix = extras.getString("suffix")
+        transcodedContentType = extras.getString("transcodedContentType")
+        transcodedSuffix = extras.getString("transcodedSuffix")
+        duration = extras.getIntOrNull("duration")
+        bitrate = extras.getIntOrNull("bitrate")
+        samplingRate = extras.getIntOrNull("samplingRate")
+        bitDepth = extras.getIntOrNull("bitDepth")
+        path = extras.getString("path")
+        isVideo = extras.getBoolean("isVideo")
+        discNumber = extras.getIntOrNull("discNumber")
+        created = extras.getLongOrNull("created")?.let { Date(it) }
+        albumId = extras.getString("albumId")
+        artistId = extras.getString("artistId")
+        type = extras.getString("type")
+    }
+
+    private fun Bundle.getIntOrNull(key: String): Int? = if (containsKey(key)) getInt(key) else null
+
+    private fun Bundle.getLongOrNull(key: String): Long? = if (containsKey(key)) getLong(key) else null
+}
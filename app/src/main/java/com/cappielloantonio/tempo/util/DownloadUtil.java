@@ -21,7 +21,10 @@ import androidx.media3.exoplayer.DefaultRenderersFactory;
 import androidx.media3.exoplayer.RenderersFactory;
 import androidx.media3.exoplayer.offline.DownloadManager;
 import androidx.media3.exoplayer.offline.DownloadNotificationHelper;
+import androidx.media3.exoplayer.scheduler.Requirements;
 
+import com.cappielloantonio.tempo.database.DatabaseExecutor;
+import com.cappielloantonio.tempo.service.DownloadScheduler;
 import com.cappielloantonio.tempo.service.DownloaderManager;
 
 import java.io.File;
@@ -50,6 +53,7 @@ public final class DownloadUtil {
     private static SimpleCache streamingCache;
     private static DownloadManager downloadManager;
     private static DownloaderManager downloaderManager;
+    private static DownloadScheduler downloadScheduler;
     private static DownloadNotificationHelper downloadNotificationHelper;
 
     public static boolean useExtensionRenderers() {
@@ -87,6 +91,7 @@ public final class DownloadUtil {
     public static synchronized DataSource.Factory getCacheDataSourceFactory(Context context) {
         CacheDataSource.Factory streamCacheFactory = new CacheDataSource.Factory()
                 .setCache(getStreamingCache(context))
+                .setCacheKeyFactory(StreamingCacheKeyFactory.INSTANCE)
                 .setUpstreamDataSourceFactory(getUpstreamDataSourceFactory(context));
 
         ResolvingDataSource.Factory resolvingFactory = new ResolvingDataSource.Factory(
@@ -101,6 +106,16 @@ public final class DownloadUtil {
         return dataSourceFactory;
     }
 
+    /**
+     * Factory writing straight into the streaming cache, for filling it outside of playback.
+     */
+    public static synchronized CacheDataSource.Factory getStreamingCacheWriterFactory(Context context) {
+        return new CacheDataSource.Factory()
+                .setCache(getStreamingCache(context))
+                .setCacheKeyFactory(StreamingCacheKeyFactory.INSTANCE)
+                .setUpstreamDataSourceFactory(new DefaultDataSource.Factory(context, getHttpDataSourceFactory()));
+    }
+
     public static synchronized DownloadNotificationHelper getDownloadNotificationHelper(Context context) {
         if (downloadNotificationHelper == null) {
             downloadNotificationHelper = new DownloadNotificationHelper(context, DOWNLOAD_NOTIFICATION_CHANNEL_ID);
@@ -119,6 +134,31 @@ public final class DownloadUtil {
         return downloaderManager;
     }
 
+    public static synchronized DownloadScheduler getDownloadScheduler(Context context) {
+        ensureDownloadManagerInitialized(context);
+        return downloadScheduler;
+    }
+
+    /**
+     * What downloads wait for, from the Wi-Fi and charging settings.
+     */
+    public static Requirements getDownloadRequirements() {
+        return buildDownloadRequirements(Preferences.isDownloadUnmeteredOnly(), Preferences.isDownloadChargingOnly());
+    }
+
+    public static Requirements buildDownloadRequirements(boolean unmeteredOnly, boolean chargingOnly) {
+        int flags = unmeteredOnly ? Requirements.NETWORK_UNMETERED : Requirements.NETWORK;
+        if (chargingOnly) flags |= Requirements.DEVICE_CHARGING;
+        return new Requirements(flags);
+    }
+
+    /**
+     * Free space left where the app keeps its own downloads.
+     */
+    public static long getDownloadStorageFreeSpace(Context context) {
+        return getDownloadDirectory(context).getUsableSpace();
+    }
+
     private static synchronized Cache getDownloadCache(Context context) {
         if (downloadCache == null) {
             File downloadContentDirectory = new File(getDownloadDirectory(context), DOWNLOAD_CONTENT_DIRECTORY);
@@ -137,6 +177,11 @@ public final class DownloadUtil {
                     new LeastRecentlyUsedCacheEvictor(Preferences.getStreamingCacheSize() * 1024 * 1024),
                     getDatabaseProvider(context)
             );
+
+            if (!Preferences.isStreamingCacheKeyMigrated()) {
+                SimpleCache cache = streamingCache;
+                DatabaseExecutor.execute("streaming_cache.migrateLegacyKeys", () -> StreamingCacheKeyFactory.migrateLegacyKeys(cache));
+            }
         }
 
         return streamingCache;
@@ -148,11 +193,13 @@ public final class DownloadUtil {
                     context,
                     getDatabaseProvider(context),
                     getDownloadCache(context),
-                    getHttpDataSourceFactory(),
-                    Executors.newFixedThreadPool(6)
+                    new ThrottledDataSource.Factory(getHttpDataSourceFactory()),
+                    Executors.newFixedThreadPool(DownloadScheduler.MAX_PARALLEL_DOWNLOADS)
             );
+            downloadManager.setRequirements(getDownloadRequirements());
 
-            downloaderManager = new DownloaderManager(context, getHttpDataSourceFactory(), downloadManager);
+            downloadScheduler = new DownloadScheduler(downloadManager);
+            downloaderManager = new DownloaderManager(context, getHttpDataSourceFactory(), downloadManager, downloadScheduler);
         }
     }
 
@@ -3,18 +3,24 @@ package com.cappielloantonio.tempo.util;
 import android.net.Uri;
 import android.os.Looper;
 import android.os.SystemClock;
+import android.provider.DocumentsContract;
 
-import androidx.documentfile.provider.DocumentFile;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 
 import com.cappielloantonio.tempo.App;
+import com.cappielloantonio.tempo.database.AppDatabase;
+import com.cappielloantonio.tempo.database.DatabaseExecutor;
+import com.cappielloantonio.tempo.database.dao.ExternalFileDao;
+import com.cappielloantonio.tempo.model.ExternalFile;
 import com.cappielloantonio.tempo.subsonic.models.Child;
 import com.cappielloantonio.tempo.subsonic.models.PodcastEpisode;
 
 import java.text.Normalizer;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
@@ -22,14 +28,23 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
+/**
+ * Finds the songs downloaded to the user's folder. The folder is listed once per process by
+ * {@link ExternalDirectoryScanner} and the listing kept in the database, so it is usable at once
+ * on the next start; the files {@link ExternalAudioWriter} adds or deletes update it in place.
+ */
 public class ExternalAudioReader {
 
-    private static final Map<String, DocumentFile> cache = new ConcurrentHashMap<>();
+    // Downloads whose size matches the one recorded, by normalized name without extension
+    private static final Map<String, ExternalFile> cache = new ConcurrentHashMap<>();
+    // Every file in the folder, by normalized name
+    private static final Map<String, ExternalFile> files = new ConcurrentHashMap<>();
     private static final Object LOCK = new Object();
     private static final ExecutorService REFRESH_EXECUTOR = Executors.newSingleThreadExecutor();
     private static final MutableLiveData<Long> refreshEvents = new MutableLiveData<>();
 
     private static volatile String cachedDirUri;
+    private static volatile String scannedDirUri;
     private static volatile boolean refreshInProgress = false;
     private static volatile boolean refreshQueued = false;
 
@@ -39,7 +54,10 @@ public class ExternalAudioReader {
         return sanitized;
     }
 
-    private static String normalizeForComparison(String name) {
+    /**
+     * Folds {@code name} for loose matching: diacritics are stripped and case is ignored.
+     */
+    public static String normalizeForComparison(String name) {
         String s = sanitizeFileName(name);
         s = Normalizer.normalize(s, Normalizer.Form.NFKD);
         s = s.replaceAll("\\p{InCombiningDiacriticalMarks}+", "");
@@ -51,6 +69,7 @@ public class ExternalAudioReader {
         if (uriString == null) {
             synchronized (LOCK) {
                 cache.clear();
+                files.clear();
                 cachedDirUri = null;
             }
             ExternalDownloadMetadataStore.clear();
@@ -89,10 +108,15 @@ public class ExternalAudioReader {
         refreshCacheAsync();
     }
 
+    /**
+     * Lists the folder again, for changes made outside the app.
+     */
     public static void refreshCacheAsync() {
         synchronized (LOCK) {
             cachedDirUri = null;
+            scannedDirUri = null;
             cache.clear();
+            files.clear();
         }
         requestRefresh();
     }
@@ -111,8 +135,8 @@ public class ExternalAudioReader {
         ensureCache();
         if (cachedDirUri == null) return null;
 
-        DocumentFile file = cache.get(buildKey(artist, title, album));
-        return file != null && file.exists() ? file.getUri() : null;
+        ExternalFile file = cache.get(buildKey(artist, title, album));
+        return file != null ? ExternalDirectoryScanner.getDocumentUri(file) : null;
     }
 
     public static Uri getUri(Child media) {
@@ -138,18 +162,87 @@ public class ExternalAudioReader {
         if (cachedDirUri == null) return false;
 
         String key = buildKey(media.getArtist(), media.getTitle(), media.getAlbum());
-        DocumentFile file = cache.get(key);
-        boolean deleted = false;
-        if (file != null && file.exists()) {
-            deleted = file.delete();
-        }
+        ExternalFile file = cache.get(key);
+        boolean deleted = file != null && deleteDocument(file);
         if (deleted) {
-            cache.remove(key);
             ExternalDownloadMetadataStore.remove(key);
         }
         return deleted;
     }
 
+    /**
+     * The file named {@code fileName} in the download folder, compared loosely, whether or not it
+     * is a complete download. Must not be called on the main thread.
+     */
+    static ExternalFile findFile(String treeUri, String fileName) {
+        String normalized = normalizeForComparison(fileName);
+
+        ensureCache();
+        if (treeUri.equals(cachedDirUri)) {
+            return files.get(normalized);
+        }
+
+        // Still being listed, don't wait for it
+        List<ExternalFile> listing = ExternalDirectoryScanner.scan(App.getContext(), treeUri);
+        if (listing == null) return null;
+
+        for (ExternalFile file : listing) {
+            if (normalizeForComparison(file.getName()).equals(normalized)) {
+                return file;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Adds a file written by {@link ExternalAudioWriter} to the index, after its size was recorded.
+     */
+    static void addFile(ExternalFile file) {
+        synchronized (LOCK) {
+            if (file.getTreeUri().equals(cachedDirUri)) {
+                index(file, ExternalDownloadMetadataStore.snapshot(), null);
+            }
+        }
+
+        DatabaseExecutor.execute("external_file.insert", () -> getDao().insert(file));
+    }
+
+    /**
+     * Deletes {@code file} from the folder and the index.
+     */
+    static boolean deleteDocument(ExternalFile file) {
+        boolean deleted;
+        try {
+            deleted = DocumentsContract.deleteDocument(App.getContext().getContentResolver(), ExternalDirectoryScanner.getDocumentUri(file));
+        } catch (Exception e) {
+            deleted = false;
+        }
+
+        if (deleted) {
+            removeFile(file);
+        }
+        return deleted;
+    }
+
+    /**
+     * Drops {@code file} from the index, e.g. after it was renamed.
+     */
+    static void removeFile(ExternalFile file) {
+        synchronized (LOCK) {
+            String key = getKey(file);
+            ExternalFile cached = cache.get(key);
+            if (cached != null && cached.getDocumentId().equals(file.getDocumentId())) {
+                cache.remove(key);
+            }
+            ExternalFile listed = files.get(normalizeForComparison(file.getName()));
+            if (listed != null && listed.getDocumentId().equals(file.getDocumentId())) {
+                files.remove(normalizeForComparison(file.getName()));
+            }
+        }
+
+        DatabaseExecutor.execute("external_file.delete", () -> getDao().delete(file.getDocumentId()));
+    }
+
     private static void requestRefresh() {
         synchronized (LOCK) {
             scheduleRefreshLocked();
@@ -177,37 +270,40 @@ public class ExternalAudioReader {
         if (uriString == null) {
             synchronized (LOCK) {
                 cache.clear();
+                files.clear();
                 cachedDirUri = null;
             }
             ExternalDownloadMetadataStore.clear();
             return;
         }
 
-        DocumentFile directory = DocumentFile.fromTreeUri(App.getContext(), Uri.parse(uriString));
-        Map<String, Long> expectedSizes = ExternalDownloadMetadataStore.snapshot();
-        Set<String> verifiedKeys = new HashSet<>();
-        Map<String, DocumentFile> newEntries = new HashMap<>();
-
-        if (directory != null && directory.canRead()) {
-            for (DocumentFile file : directory.listFiles()) {
-                if (file == null || file.isDirectory()) continue;
-                String existing = file.getName();
-                if (existing == null) continue;
-
-                String base = existing.replaceFirst("\\.[^\\.]+$", "");
-                String key = normalizeForComparison(base);
-                Long expected = expectedSizes.get(key);
-                long actualLength = file.length();
-
-                if (expected != null && expected > 0 && actualLength == expected) {
-                    newEntries.put(key, file);
-                    verifiedKeys.add(key);
-                } else {
-                    ExternalDownloadMetadataStore.remove(key);
-                }
+        if (!uriString.equals(cachedDirUri)) {
+            // Good enough to start with, the listing below corrects it
+            List<ExternalFile> indexed = getDao().getAll(uriString);
+            if (!indexed.isEmpty()) {
+                publish(uriString, indexed, ExternalDownloadMetadataStore.snapshot(), null);
+                refreshEvents.postValue(SystemClock.elapsedRealtime());
             }
         }
 
+        if (uriString.equals(scannedDirUri)) {
+            return;
+        }
+
+        List<ExternalFile> listing = ExternalDirectoryScanner.scan(App.getContext(), uriString);
+        if (listing == null) {
+            // Unreachable for now, e.g. the SD card is out: keep the index for when it is back
+            publish(uriString, Collections.emptyList(), Collections.emptyMap(), null);
+            return;
+        }
+
+        getDao().replaceAll(listing);
+
+        Map<String, Long> expectedSizes = ExternalDownloadMetadataStore.snapshot();
+        Set<String> verifiedKeys = new HashSet<>();
+        publish(uriString, listing, expectedSizes, verifiedKeys);
+        scannedDirUri = uriString;
+
         if (!expectedSizes.isEmpty()) {
             if (verifiedKeys.isEmpty()) {
                 ExternalDownloadMetadataStore.clear();
@@ -219,14 +315,38 @@ public class ExternalAudioReader {
                 }
             }
         }
+    }
 
+    private static void publish(String uriString, List<ExternalFile> listing, Map<String, Long> expectedSizes, Set<String> verifiedKeys) {
         synchronized (LOCK) {
             cache.clear();
-            cache.putAll(newEntries);
+            files.clear();
+            for (ExternalFile file : listing) {
+                index(file, expectedSizes, verifiedKeys);
+            }
             cachedDirUri = uriString;
         }
     }
 
+    private static void index(ExternalFile file, Map<String, Long> expectedSizes, Set<String> verifiedKeys) {
+        files.put(normalizeForComparison(file.getName()), file);
+
+        String key = getKey(file);
+        Long expected = expectedSizes.get(key);
+        if (expected != null && expected > 0 && file.getSize() == expected) {
+            cache.put(key, file);
+            if (verifiedKeys != null) verifiedKeys.add(key);
+        }
+    }
+
+    private static String getKey(ExternalFile file) {
+        return normalizeForComparison(file.getName().replaceFirst("\\.[^\\.]+$", ""));
+    }
+
+    private static ExternalFileDao getDao() {
+        return AppDatabase.getInstance().externalFileDao();
+    }
+
     private static void onRefreshFinished() {
         boolean runAgain;
         synchronized (LOCK) {
@@ -5,36 +5,68 @@ import android.app.PendingIntent;
 import android.content.Context;
 import android.content.Intent;
 import android.net.Uri;
+import android.os.ParcelFileDescriptor;
+import android.os.SystemClock;
+import android.provider.DocumentsContract;
 import android.provider.Settings;
+import android.text.format.Formatter;
+import android.util.Log;
 import android.webkit.MimeTypeMap;
 
 import androidx.core.app.NotificationCompat;
 import androidx.documentfile.provider.DocumentFile;
 import androidx.media3.common.MediaItem;
 
+import com.cappielloantonio.tempo.database.DatabaseExecutor;
+import com.cappielloantonio.tempo.database.LimitedExecutor;
 import com.cappielloantonio.tempo.model.Download;
+import com.cappielloantonio.tempo.model.ExternalFile;
 import com.cappielloantonio.tempo.repository.DownloadRepository;
+import com.cappielloantonio.tempo.subsonic.RetrofitManager;
 import com.cappielloantonio.tempo.subsonic.models.Child;
 import com.cappielloantonio.tempo.ui.activity.MainActivity;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.text.Normalizer;
 import java.util.Locale;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * Downloads songs to the folder the user picked. A few songs are downloaded at a time, over the
+ * connections the Subsonic calls use. Each song is first written to a {@code .part} file that a
+ * dropped connection, or a later attempt, resumes with an HTTP range request.
+ */
 public class ExternalAudioWriter {
 
-    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor();
-    private static final int BUFFER_SIZE = 8192;
-    private static final int CONNECT_TIMEOUT_MS = 15_000;
-    private static final int READ_TIMEOUT_MS = 60_000;
+    private static final String TAG = "ExternalAudioWriter";
+
+    private static final int BUFFER_SIZE = 256 * 1024;
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long RETRY_DELAY_MS = 2_000;
+    private static final long PROGRESS_INTERVAL_MS = 1_000;
+    private static final int PROGRESS_NOTIFICATION_ID = 1012;
+    private static final String PARTIAL_SUFFIX = ".part";
+
+    private static final LimitedExecutor EXECUTOR = new LimitedExecutor(DatabaseExecutor.getIoExecutor(), 1);
+    private static final ThreadLocal<ByteBuffer> BUFFERS = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(BUFFER_SIZE));
+    // Songs queued or downloading, by id
+    private static final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+    private static final Throughput throughput = new Throughput();
 
     private ExternalAudioWriter() {
     }
@@ -52,18 +84,6 @@ public class ExternalAudioWriter {
         return s.toLowerCase(Locale.ROOT);
     }
 
-    private static DocumentFile findFile(DocumentFile dir, String fileName) {
-        String normalized = normalizeForComparison(fileName);
-        for (DocumentFile file : dir.listFiles()) {
-            if (file.isDirectory()) continue;
-            String existing = file.getName();
-            if (existing != null && normalizeForComparison(existing).equals(normalized)) {
-                return file;
-            }
-        }
-        return null;
-    }
-
     public static void downloadToUserDirectory(Context context, Child child) {
         if (context == null || child == null) {
             return;
@@ -71,9 +91,28 @@ public class ExternalAudioWriter {
         Context appContext = context.getApplicationContext();
         MediaItem mediaItem = MappingUtil.mapDownload(child);
         String fallbackName = child.getTitle() != null ? child.getTitle() : child.getId();
-        EXECUTOR.execute(() -> performDownload(appContext, mediaItem, fallbackName, child));
+
+        String requestKey = child.getId() != null ? child.getId() : fallbackName;
+        if (requestKey != null && !inFlight.add(requestKey)) {
+            // Already queued or downloading
+            return;
+        }
+
+        EXECUTOR.setLimit(Preferences.getExternalDownloadConcurrency());
+        throughput.enqueue();
+        EXECUTOR.execute(() -> {
+            try {
+                performDownload(appContext, mediaItem, fallbackName, child);
+            } finally {
+                if (requestKey != null) inFlight.remove(requestKey);
+                if (throughput.finish() == 0) {
+                    cancelProgress(appContext);
+                }
+            }
+        });
     }
 
+
     private static void performDownload(Context context, MediaItem mediaItem, String fallbackName, Child child) {
         String uriString = Preferences.getDownloadDirectoryUri();
         if (uriString == null) {
@@ -107,164 +146,232 @@ public class ExternalAudioWriter {
         }
 
         String scheme = mediaUri.getScheme() != null ? mediaUri.getScheme().toLowerCase(Locale.ROOT) : "";
+        if (!scheme.equals("http") && !scheme.equals("https") && !scheme.equals("content") && !scheme.equals("file")) {
+            notifyFailure(context, "Unsupported media URI.");
+            ExternalDownloadMetadataStore.remove(metadataKey);
+            return;
+        }
 
-        HttpURLConnection connection = null;
-        DocumentFile sourceDocument = null;
-        File sourceFile = null;
-        long remoteLength = -1;
-        String mimeType = null;
-        DocumentFile targetFile = null;
+        String sanitized = sanitizeFileName(baseName);
+        if (sanitized.isEmpty()) sanitized = sanitizeFileName(fallbackName);
+        if (sanitized.isEmpty()) sanitized = "download";
 
-        try {
-            if (scheme.equals("http") || scheme.equals("https")) {
-                connection = (HttpURLConnection) new URL(mediaUri.toString()).openConnection();
-                connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
-                connection.setReadTimeout(READ_TIMEOUT_MS);
-                connection.setRequestProperty("Accept-Encoding", "identity");
-                connection.connect();
-
-                int responseCode = connection.getResponseCode();
-                if (responseCode >= HttpURLConnection.HTTP_BAD_REQUEST) {
-                    notifyFailure(context, "Server returned " + responseCode);
-                    ExternalDownloadMetadataStore.remove(metadataKey);
-                    return;
-                }
+        // Named before the type is known, so that the next attempt finds it whatever the type
+        String partialName = sanitized + PARTIAL_SUFFIX;
+        ExternalFile partial = ExternalAudioReader.findFile(uriString, partialName);
+        long offset = partial != null ? getLength(context, partial) : 0;
 
-                mimeType = connection.getContentType();
-                remoteLength = connection.getContentLengthLong();
-            } else if (scheme.equals("content")) {
-                sourceDocument = DocumentFile.fromSingleUri(context, mediaUri);
-                mimeType = context.getContentResolver().getType(mediaUri);
-                if (sourceDocument != null) {
-                    remoteLength = sourceDocument.length();
+        String fileName = null;
+        long startedAt = SystemClock.elapsedRealtime();
+        long transferred = 0;
+        IOException lastError = null;
+
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            try (Source source = openSource(context, mediaUri, scheme, offset)) {
+                if (!source.resumed) {
+                    offset = 0;
                 }
-            } else if (scheme.equals("file")) {
-                String path = mediaUri.getPath();
-                if (path != null) {
-                    sourceFile = new File(path);
-                    if (sourceFile.exists()) {
-                        remoteLength = sourceFile.length();
+
+                if (fileName == null) {
+                    fileName = sanitized + "." + getExtension(source, child);
+
+                    if (matchesExisting(context, uriString, fileName, source.length, metadataKey, child)) {
+                        if (partial != null) ExternalAudioReader.deleteDocument(partial);
+                        return;
                     }
                 }
-                String ext = MimeTypeMap.getFileExtensionFromUrl(mediaUri.toString());
-                if (ext != null && !ext.isEmpty()) {
-                    mimeType = MimeTypeMap.getSingleton().getMimeTypeFromExtension(ext);
+
+                if (partial == null) {
+                    DocumentFile created = directory.createFile("application/octet-stream", partialName);
+                    if (created == null) {
+                        notifyFailure(context, "Failed to create file.");
+                        return;
+                    }
+                    partial = new ExternalFile(DocumentsContract.getDocumentId(created.getUri()), uriString, partialName, 0, System.currentTimeMillis());
                 }
-            } else {
-                notifyFailure(context, "Unsupported media URI.");
-                ExternalDownloadMetadataStore.remove(metadataKey);
-                return;
-            }
 
-            if (mimeType == null || mimeType.isEmpty()) {
-                mimeType = "application/octet-stream";
-            }
+                long copied = copy(context, source, partial, offset);
+                transferred += copied;
+                offset += copied;
 
-            String extension = MimeTypeMap.getSingleton().getExtensionFromMimeType(mimeType);
-            if ((extension == null || extension.isEmpty()) && sourceDocument != null && sourceDocument.getName() != null) {
-                String name = sourceDocument.getName();
-                int dot = name.lastIndexOf('.');
-                if (dot >= 0 && dot < name.length() - 1) {
-                    extension = name.substring(dot + 1);
-                }
-            }
-            if ((extension == null || extension.isEmpty()) && sourceFile != null) {
-                String name = sourceFile.getName();
-                int dot = name.lastIndexOf('.');
-                if (dot >= 0 && dot < name.length() - 1) {
-                    extension = name.substring(dot + 1);
-                }
-            }
-            if (extension == null || extension.isEmpty()) {
-                String suffix = child.getSuffix();
-                if (suffix != null && !suffix.isEmpty()) {
-                    extension = suffix;
-                } else {
-                    extension = "bin";
+                if (offset <= 0) {
+                    ExternalAudioReader.deleteDocument(partial);
+                    ExternalDownloadMetadataStore.remove(metadataKey);
+                    notifyFailure(context, "Empty download.");
+                    return;
                 }
-            }
 
-            String sanitized = sanitizeFileName(baseName);
-            if (sanitized.isEmpty()) sanitized = sanitizeFileName(fallbackName);
-            if (sanitized.isEmpty()) sanitized = "download";
-            String fileName = sanitized + "." + extension;
-
-            DocumentFile existingFile = findFile(directory, fileName);
-            Long recordedSize = ExternalDownloadMetadataStore.getSize(metadataKey);
-            if (existingFile != null && existingFile.exists()) {
-                long localLength = existingFile.length();
-                boolean matches = false;
-                if (remoteLength > 0 && localLength == remoteLength) {
-                    matches = true;
-                } else if (remoteLength <= 0 && recordedSize != null && localLength == recordedSize) {
-                    matches = true;
+                if (source.length > 0 && offset != source.length) {
+                    throw new IOException("Incomplete download.");
                 }
-                if (matches) {
-                    ExternalDownloadMetadataStore.recordSize(metadataKey, localLength);
-                    recordDownload(child, existingFile.getUri());
-                    ExternalAudioReader.refreshCacheAsync();
-                    notifyExists(context, fileName);
-                    return;
-                } else {
-                    existingFile.delete();
-                    ExternalDownloadMetadataStore.remove(metadataKey);
+
+                finish(context, uriString, partial, fileName, offset, metadataKey, child);
+                logThroughput(context, fileName, transferred, SystemClock.elapsedRealtime() - startedAt);
+                return;
+            } catch (ServerException e) {
+                if (partial != null) ExternalAudioReader.deleteDocument(partial);
+                ExternalDownloadMetadataStore.remove(metadataKey);
+                notifyFailure(context, e.getMessage());
+                return;
+            } catch (IOException e) {
+                lastError = e;
+                Log.w(TAG, "Attempt " + attempt + " of " + partialName + " failed at " + offset + " bytes", e);
+
+                if (partial != null) {
+                    offset = getLength(context, partial);
                 }
+            } catch (Exception e) {
+                if (partial != null) ExternalAudioReader.deleteDocument(partial);
+                ExternalDownloadMetadataStore.remove(metadataKey);
+                notifyFailure(context, e.getMessage() != null ? e.getMessage() : "Download failed");
+                return;
             }
 
-            targetFile = directory.createFile(mimeType, fileName);
-            if (targetFile == null) {
-                notifyFailure(context, "Failed to create file.");
-                return;
+            if (attempt < MAX_ATTEMPTS) {
+                SystemClock.sleep(RETRY_DELAY_MS * attempt);
             }
+        }
 
-            Uri targetUri = targetFile.getUri();
-            try (InputStream in = openInputStream(context, mediaUri, scheme, connection, sourceFile);
-                 OutputStream out = context.getContentResolver().openOutputStream(targetUri)) {
-                if (out == null) {
-                    notifyFailure(context, "Cannot open output stream.");
-                    targetFile.delete();
-                    return;
-                }
+        // The partial file is kept, downloading the song again resumes it
+        if (partial != null) {
+            partial.setSize(offset);
+            ExternalAudioReader.addFile(partial);
+        }
+        ExternalDownloadMetadataStore.remove(metadataKey);
+        notifyFailure(context, lastError != null && lastError.getMessage() != null ? lastError.getMessage() : "Download failed");
+    }
 
-                byte[] buffer = new byte[BUFFER_SIZE];
-                int len;
-                long total = 0;
-                while ((len = in.read(buffer)) != -1) {
-                    out.write(buffer, 0, len);
-                    total += len;
-                }
-                out.flush();
+    private static boolean matchesExisting(Context context, String uriString, String fileName, long remoteLength, String metadataKey, Child child) {
+        ExternalFile existingFile = ExternalAudioReader.findFile(uriString, fileName);
+        if (existingFile == null) {
+            return false;
+        }
 
-                if (total <= 0) {
-                    targetFile.delete();
-                    ExternalDownloadMetadataStore.remove(metadataKey);
-                    notifyFailure(context, "Empty download.");
-                    return;
-                }
+        Long recordedSize = ExternalDownloadMetadataStore.getSize(metadataKey);
+        long localLength = existingFile.getSize();
+        boolean matches = false;
+        if (remoteLength > 0 && localLength == remoteLength) {
+            matches = true;
+        } else if (remoteLength <= 0 && recordedSize != null && localLength == recordedSize) {
+            matches = true;
+        }
 
-                if (remoteLength > 0 && total != remoteLength) {
-                    targetFile.delete();
-                    ExternalDownloadMetadataStore.remove(metadataKey);
-                    notifyFailure(context, "Incomplete download.");
-                    return;
+        if (matches) {
+            ExternalDownloadMetadataStore.recordSize(metadataKey, localLength);
+            ExternalAudioReader.addFile(existingFile);
+            recordDownload(child, ExternalDirectoryScanner.getDocumentUri(existingFile));
+            notifyExists(context, fileName);
+            return true;
+        }
+
+        ExternalAudioReader.deleteDocument(existingFile);
+        ExternalDownloadMetadataStore.remove(metadataKey);
+        return false;
+    }
+
+    /**
+     * Writes {@code source} into {@code partial} from {@code offset} on, returns the bytes written.
+     */
+    private static long copy(Context context, Source source, ExternalFile partial, long offset) throws IOException {
+        Uri partialUri = ExternalDirectoryScanner.getDocumentUri(partial);
+        ByteBuffer buffer = BUFFERS.get();
+        long copied = 0;
+
+        try (ParcelFileDescriptor descriptor = context.getContentResolver().openFileDescriptor(partialUri, "rw")) {
+            if (descriptor == null) {
+                throw new ServerException("Cannot open output stream.");
+            }
+
+            try (FileChannel out = new FileOutputStream(descriptor.getFileDescriptor()).getChannel()) {
+                out.truncate(offset);
+                out.position(offset);
+
+                buffer.clear();
+                int read;
+                while ((read = source.channel.read(buffer)) != -1) {
+                    buffer.flip();
+                    while (buffer.hasRemaining()) {
+                        out.write(buffer);
+                    }
+                    buffer.clear();
+
+                    copied += read;
+                    if (throughput.add(read)) {
+                        notifyProgress(context);
+                    }
                 }
 
-                ExternalDownloadMetadataStore.recordSize(metadataKey, total);
-                recordDownload(child, targetUri);
-                notifySuccess(context, fileName, child, targetUri);
-                ExternalAudioReader.refreshCacheAsync();
+                out.force(false);
             }
-        } catch (Exception e) {
-            if (targetFile != null) {
-                targetFile.delete();
+        }
+
+        return copied;
+    }
+
+    private static void finish(Context context, String uriString, ExternalFile partial, String fileName, long size, String metadataKey, Child child) throws IOException {
+        Uri renamed = DocumentsContract.renameDocument(context.getContentResolver(), ExternalDirectoryScanner.getDocumentUri(partial), fileName);
+        if (renamed == null) {
+            throw new ServerException("Cannot rename " + partial.getName());
+        }
+
+        // The provider may have picked another name, e.g. for a file that appeared meanwhile
+        DocumentFile document = DocumentFile.fromSingleUri(context, renamed);
+        String name = document != null && document.getName() != null ? document.getName() : fileName;
+        String documentId = DocumentsContract.getDocumentId(renamed);
+        Uri targetUri = DocumentsContract.buildDocumentUriUsingTree(Uri.parse(uriString), documentId);
+
+        ExternalAudioReader.removeFile(partial);
+        ExternalDownloadMetadataStore.recordSize(metadataKey, size);
+        ExternalAudioReader.addFile(new ExternalFile(documentId, uriString, name, size, System.currentTimeMillis()));
+        recordDownload(child, targetUri);
+        notifySuccess(context, fileName, child, targetUri);
+    }
+
+    private static String getExtension(Source source, Child child) {
+        String extension = MimeTypeMap.getSingleton().getExtensionFromMimeType(source.mimeType);
+        if ((extension == null || extension.isEmpty()) && source.name != null) {
+            int dot = source.name.lastIndexOf('.');
+            if (dot >= 0 && dot < source.name.length() - 1) {
+                extension = source.name.substring(dot + 1);
             }
-            ExternalDownloadMetadataStore.remove(metadataKey);
-            notifyFailure(context, e.getMessage() != null ? e.getMessage() : "Download failed");
-        } finally {
-            if (connection != null) {
-                connection.disconnect();
+        }
+        if (extension == null || extension.isEmpty()) {
+            String suffix = child.getSuffix();
+            if (suffix != null && !suffix.isEmpty()) {
+                extension = suffix;
+            } else {
+                extension = "bin";
             }
         }
+        return extension;
+    }
+
+    private static long getLength(Context context, ExternalFile file) {
+        DocumentFile document = DocumentFile.fromSingleUri(context, ExternalDirectoryScanner.getDocumentUri(file));
+        return document != null ? Math.max(0, document.length()) : 0;
+    }
+
+    private static void logThroughput(Context context, String fileName, long bytes, long elapsedMs) {
+        long perSecond = bytes * 1000 / Math.max(1, elapsedMs);
+        Log.i(TAG, fileName + ": " + Formatter.formatShortFileSize(context, bytes) + " in " + elapsedMs + " ms, "
+                + Formatter.formatShortFileSize(context, perSecond) + "/s");
+    }
+
+    private static void notifyProgress(Context context) {
+        NotificationManager manager = (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
+        NotificationCompat.Builder builder = new NotificationCompat.Builder(context, DownloadUtil.DOWNLOAD_NOTIFICATION_CHANNEL_ID)
+                .setContentTitle("Downloading " + throughput.getPending() + " songs")
+                .setContentText(Formatter.formatShortFileSize(context, throughput.getBytesPerSecond()) + "/s")
+                .setSmallIcon(android.R.drawable.stat_sys_download)
+                .setProgress(0, 0, true)
+                .setOngoing(true)
+                .setSilent(true);
+        manager.notify(PROGRESS_NOTIFICATION_ID, builder.build());
+    }
+
+    private static void cancelProgress(Context context) {
+        NotificationManager manager = (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
+        manager.cancel(PROGRESS_NOTIFICATION_ID);
     }
 
     private static void notifyUnavailable(Context context) {
@@ -323,7 +430,7 @@ public class ExternalAudioWriter {
             download.setDownloadUri(fileUri.toString());
         }
 
-        new DownloadRepository().insert(download);
+        new DownloadRepository().complete(download);
     }
 
     private static void notifyExists(Context context, String name) {
@@ -363,31 +470,149 @@ public class ExternalAudioWriter {
         );
     }
 
-    private static InputStream openInputStream(Context context,
-                                               Uri mediaUri,
-                                               String scheme,
-                                               HttpURLConnection connection,
-                                               File sourceFile) throws IOException {
+    private static Source openSource(Context context, Uri mediaUri, String scheme, long offset) throws IOException {
         switch (scheme) {
             case "http":
             case "https":
-                if (connection == null) {
-                    throw new IOException("Connection not initialized");
+                Request.Builder request = new Request.Builder()
+                        .url(mediaUri.toString())
+                        .header("Accept-Encoding", "identity");
+                if (offset > 0) {
+                    request.header("Range", "bytes=" + offset + "-");
+                }
+
+                Response response = RetrofitManager.getDownloadClient().newCall(request.build()).execute();
+                if (response.code() == 416 && offset > 0) {
+                    // The partial file is no use, e.g. the server transcodes differently now
+                    response.close();
+                    return openSource(context, mediaUri, scheme, 0);
                 }
-                return connection.getInputStream();
+                if (!response.isSuccessful()) {
+                    response.close();
+                    throw new ServerException("Server returned " + response.code());
+                }
+
+                ResponseBody body = response.body();
+                MediaType contentType = body.contentType();
+                boolean resumed = response.code() == 206;
+                long length = resumed ? getTotalLength(response.header("Content-Range")) : body.contentLength();
+
+                return new Source(BandwidthLimiter.limit(body.source()), body,
+                        contentType != null ? contentType.type() + "/" + contentType.subtype() : null,
+                        null, length, resumed);
             case "content":
                 InputStream contentStream = context.getContentResolver().openInputStream(mediaUri);
                 if (contentStream == null) {
                     throw new IOException("Cannot open content stream");
                 }
-                return contentStream;
+                DocumentFile sourceDocument = DocumentFile.fromSingleUri(context, mediaUri);
+                return new Source(Channels.newChannel(contentStream), contentStream,
+                        context.getContentResolver().getType(mediaUri),
+                        sourceDocument != null ? sourceDocument.getName() : null,
+                        sourceDocument != null ? sourceDocument.length() : -1, false);
             case "file":
+                String path = mediaUri.getPath();
+                File sourceFile = path != null ? new File(path) : null;
                 if (sourceFile == null || !sourceFile.exists()) {
                     throw new IOException("Missing source file");
                 }
-                return new FileInputStream(sourceFile);
+                String ext = MimeTypeMap.getFileExtensionFromUrl(mediaUri.toString());
+                FileInputStream fileStream = new FileInputStream(sourceFile);
+                return new Source(fileStream.getChannel(), fileStream,
+                        ext != null && !ext.isEmpty() ? MimeTypeMap.getSingleton().getMimeTypeFromExtension(ext) : null,
+                        sourceFile.getName(), sourceFile.length(), false);
             default:
-                throw new IOException("Unsupported scheme " + scheme);
+                throw new ServerException("Unsupported scheme " + scheme);
+        }
+    }
+
+    /**
+     * The total from a {@code bytes 100-199/200} header, -1 if unknown.
+     */
+    private static long getTotalLength(String contentRange) {
+        if (contentRange == null) return -1;
+
+        int slash = contentRange.lastIndexOf('/');
+        if (slash < 0) return -1;
+
+        try {
+            return Long.parseLong(contentRange.substring(slash + 1).trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * A failure that trying again won't fix.
+     */
+    private static class ServerException extends IOException {
+        ServerException(String message) {
+            super(message);
+        }
+    }
+
+    private static class Source implements Closeable {
+        private final ReadableByteChannel channel;
+        private final Closeable closeable;
+        private final String mimeType;
+        private final String name;
+        private final long length;
+        private final boolean resumed;
+
+        Source(ReadableByteChannel channel, Closeable closeable, String mimeType, String name, long length, boolean resumed) {
+            this.channel = channel;
+            this.closeable = closeable;
+            this.mimeType = mimeType != null && !mimeType.isEmpty() ? mimeType : "application/octet-stream";
+            this.name = name;
+            this.length = length;
+            this.resumed = resumed;
+        }
+
+        @Override
+        public void close() throws IOException {
+            closeable.close();
+        }
+    }
+
+    /**
+     * Bytes downloaded by all workers since the queue was last empty.
+     */
+    private static class Throughput {
+        private int pending;
+        private long bytes;
+        private long startedAt;
+        private long notifiedAt;
+
+        synchronized void enqueue() {
+            if (pending++ == 0) {
+                bytes = 0;
+                startedAt = SystemClock.elapsedRealtime();
+            }
+        }
+
+        synchronized int finish() {
+            return --pending;
+        }
+
+        /**
+         * Returns whether it is time to update the notification.
+         */
+        synchronized boolean add(long count) {
+            bytes += count;
+
+            long now = SystemClock.elapsedRealtime();
+            if (now - notifiedAt < PROGRESS_INTERVAL_MS) return false;
+
+            notifiedAt = now;
+            return true;
+        }
+
+        synchronized int getPending() {
+            return pending;
+        }
+
+        synchronized long getBytesPerSecond() {
+            return bytes * 1000 / Math.max(1, SystemClock.elapsedRealtime() - startedAt);
         }
     }
 }
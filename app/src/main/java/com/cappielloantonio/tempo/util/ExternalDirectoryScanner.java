@@ -0,0 +1,83 @@
+package com.cappielloantonio.tempo.util;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.provider.DocumentsContract;
+import android.util.Log;
+
+import com.cappielloantonio.tempo.model.ExternalFile;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lists the download folder with a single query to its documents provider. Going through
+ * {@code DocumentFile} costs one more query per file for its name and one for its size, which
+ * takes minutes on an SD card with thousands of files.
+ */
+public final class ExternalDirectoryScanner {
+    private static final String TAG = "ExternalDirectoryScanner";
+
+    private static final String[] PROJECTION = {
+            DocumentsContract.Document.COLUMN_DOCUMENT_ID,
+            DocumentsContract.Document.COLUMN_DISPLAY_NAME,
+            DocumentsContract.Document.COLUMN_SIZE,
+            DocumentsContract.Document.COLUMN_LAST_MODIFIED,
+            DocumentsContract.Document.COLUMN_MIME_TYPE
+    };
+
+    private ExternalDirectoryScanner() {
+    }
+
+    /**
+     * The files directly in {@code treeUri}, folders are left out. Returns null if the folder
+     * can't be read, e.g. the permission was revoked or the SD card removed.
+     */
+    public static List<ExternalFile> scan(Context context, String treeUri) {
+        Uri tree = Uri.parse(treeUri);
+        Uri children;
+
+        try {
+            children = DocumentsContract.buildChildDocumentsUriUsingTree(tree, DocumentsContract.getTreeDocumentId(tree));
+        } catch (IllegalArgumentException e) {
+            Log.w(TAG, "Not a tree uri: " + treeUri, e);
+            return null;
+        }
+
+        ContentResolver resolver = context.getContentResolver();
+        List<ExternalFile> files = new ArrayList<>();
+
+        try (Cursor cursor = resolver.query(children, PROJECTION, null, null, null)) {
+            if (cursor == null) return null;
+
+            while (cursor.moveToNext()) {
+                String documentId = cursor.getString(0);
+                String name = cursor.getString(1);
+                String mimeType = cursor.getString(4);
+
+                if (documentId == null || name == null || DocumentsContract.Document.MIME_TYPE_DIR.equals(mimeType)) {
+                    continue;
+                }
+
+                long size = cursor.isNull(2) ? 0 : cursor.getLong(2);
+                long lastModified = cursor.isNull(3) ? 0 : cursor.getLong(3);
+
+                files.add(new ExternalFile(documentId, treeUri, name, size, lastModified));
+            }
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Cannot list " + treeUri, e);
+            return null;
+        }
+
+        return files;
+    }
+
+    /**
+     * The uri to open or delete {@code file} with, granted through the tree permission.
+     */
+    public static Uri getDocumentUri(ExternalFile file) {
+        return DocumentsContract.buildDocumentUriUsingTree(Uri.parse(file.getTreeUri()), file.getDocumentId());
+    }
+}
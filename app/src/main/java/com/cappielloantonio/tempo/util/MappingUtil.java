@@ -14,12 +14,10 @@ import androidx.media3.common.HeartRating;
 
 import com.cappielloantonio.tempo.App;
 import com.cappielloantonio.tempo.glide.CustomGlideRequest;
-import com.cappielloantonio.tempo.model.Download;
-import com.cappielloantonio.tempo.repository.DownloadRepository;
+import com.cappielloantonio.tempo.service.DownloaderManager;
 import com.cappielloantonio.tempo.subsonic.models.Child;
 import com.cappielloantonio.tempo.subsonic.models.InternetRadioStation;
 import com.cappielloantonio.tempo.subsonic.models.PodcastEpisode;
-import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableList;
 
 import java.util.ArrayList;
@@ -30,8 +28,21 @@ public class MappingUtil {
     public static List<MediaItem> mapMediaItems(List<Child> items) {
         ArrayList<MediaItem> mediaItems = new ArrayList<>(items.size());
 
+        if (Preferences.getDownloadDirectoryUri() != null) {
+            for (int i = 0; i < items.size(); i++) {
+                mediaItems.add(mapMediaItem(items.get(i)));
+            }
+
+            return mediaItems;
+        }
+
+        DownloaderManager downloadTracker = DownloadUtil.getDownloadTracker(App.getContext());
+
         for (int i = 0; i < items.size(); i++) {
-            mediaItems.add(mapMediaItem(items.get(i)));
+            Child media = items.get(i);
+            Uri downloadUri = downloadTracker.getDownloadUri(media.getId());
+
+            mediaItems.add(mapMediaItem(media, downloadUri != null ? downloadUri : MusicUtil.getStreamUri(media.getId())));
         }
 
         return mediaItems;
@@ -40,8 +51,11 @@ public class MappingUtil {
     private static final String TAG = "MappingUtil";
 
     public static MediaItem mapMediaItem(Child media) {
+        return mapMediaItem(media, getUri(media));
+    }
+
+    private static MediaItem mapMediaItem(Child media, Uri uri) {
         try {
-            Uri uri = getUri(media);
             String coverArtId = media.getCoverArtId();
             Uri artworkUri = null;
 
@@ -49,50 +63,24 @@ public class MappingUtil {
                 artworkUri = Uri.parse(CustomGlideRequest.createUrl(coverArtId, Preferences.getImageSize()));
             }
 
+            ChildStore.put(media);
+
+            // Only the keys read on every player update; the full song is in ChildStore.
             Bundle bundle = new Bundle();
             bundle.putString("id", media.getId());
-            bundle.putString("parentId", media.getParentId());
-            bundle.putBoolean("isDir", media.isDir());
-            
+            bundle.putString("type", Constants.MEDIA_TYPE_MUSIC);
+            bundle.putString("uri", uri.toString());
             bundle.putString("title", media.getTitle());
             bundle.putString("album", media.getAlbum());
             bundle.putString("artist", media.getArtist());
-
-            bundle.putInt("track", media.getTrack() != null ? media.getTrack() : 0);
-            bundle.putInt("year", media.getYear() != null ? media.getYear() : 0);
-            bundle.putString("genre", media.getGenre());
             bundle.putString("coverArtId", coverArtId);
-            bundle.putLong("size", media.getSize() != null ? media.getSize() : 0);
-            bundle.putString("contentType", media.getContentType());
+            bundle.putString("albumId", media.getAlbumId());
+            bundle.putString("artistId", media.getArtistId());
             bundle.putString("suffix", media.getSuffix());
-            bundle.putString("transcodedContentType", media.getTranscodedContentType());
-            bundle.putString("transcodedSuffix", media.getTranscodedSuffix());
             bundle.putInt("duration", media.getDuration() != null ? media.getDuration() : 0);
             bundle.putInt("bitrate", media.getBitrate() != null ? media.getBitrate() : 0);
             bundle.putInt("samplingRate", media.getSamplingRate() != null ? media.getSamplingRate() : 0);
             bundle.putInt("bitDepth", media.getBitDepth() != null ? media.getBitDepth() : 0);
-            bundle.putString("path", media.getPath());
-            bundle.putBoolean("isVideo", media.isVideo());
-            bundle.putInt("userRating", media.getUserRating() != null ? media.getUserRating() : 0);
-            bundle.putDouble("averageRating", media.getAverageRating() != null ? media.getAverageRating() : 0);
-            bundle.putLong("playCount", media.getPlayCount() != null ? media.getPlayCount() : 0);
-            bundle.putInt("discNumber", media.getDiscNumber() != null ? media.getDiscNumber() : 0);
-            bundle.putLong("created", media.getCreated() != null ? media.getCreated().getTime() : 0);
-            bundle.putLong("starred", media.getStarred() != null ? media.getStarred().getTime() : 0);
-            bundle.putString("albumId", media.getAlbumId());
-            bundle.putString("artistId", media.getArtistId());
-            bundle.putString("type", Constants.MEDIA_TYPE_MUSIC);
-            bundle.putLong("bookmarkPosition", media.getBookmarkPosition() != null ? media.getBookmarkPosition() : 0);
-            bundle.putInt("originalWidth", media.getOriginalWidth() != null ? media.getOriginalWidth() : 0);
-            bundle.putInt("originalHeight", media.getOriginalHeight() != null ? media.getOriginalHeight() : 0);
-            bundle.putString("uri", uri.toString());
-
-            bundle.putString("assetLinkSong", AssetLinkUtil.buildLink(AssetLinkUtil.TYPE_SONG, media.getId()));
-            bundle.putString("assetLinkAlbum", media.getAlbumId() != null ? AssetLinkUtil.buildLink(AssetLinkUtil.TYPE_ALBUM, media.getAlbumId()) : null);
-            bundle.putString("assetLinkArtist", media.getArtistId() != null ? AssetLinkUtil.buildLink(AssetLinkUtil.TYPE_ARTIST, media.getArtistId()) : null);
-            bundle.putString("assetLinkGenre", AssetLinkUtil.buildLink(AssetLinkUtil.TYPE_GENRE, media.getGenre()));
-            Integer year = media.getYear();
-            bundle.putString("assetLinkYear", year != null && year != 0 ? AssetLinkUtil.buildLink(AssetLinkUtil.TYPE_YEAR, String.valueOf(year)) : null);
 
             return new MediaItem.Builder()
                     .setMediaId(media.getId())
@@ -307,8 +295,8 @@ public class MappingUtil {
     }
 
     private static Uri getDownloadUri(String id) {
-        Download download = new DownloadRepository().getDownload(id);
-        return download != null && !Strings.isNullOrEmpty(download.getDownloadUri()) ? Uri.parse(download.getDownloadUri()) : MusicUtil.getDownloadUri(id);
+        Uri downloadUri = DownloadUtil.getDownloadTracker(App.getContext()).getDownloadUri(id);
+        return downloadUri != null ? downloadUri : MusicUtil.getServerDownloadUri(id);
     }
 
     public static void observeExternalAudioRefresh(LifecycleOwner owner, Runnable onRefresh) {
@@ -10,8 +10,6 @@ import android.util.Log;
 
 import com.cappielloantonio.tempo.App;
 import com.cappielloantonio.tempo.R;
-import com.cappielloantonio.tempo.model.Download;
-import com.cappielloantonio.tempo.repository.DownloadRepository;
 import com.cappielloantonio.tempo.subsonic.models.Child;
 
 import java.text.CharacterIterator;
@@ -91,35 +89,35 @@ public class MusicUtil {
     }
 
     public static Uri getDownloadUri(String id) {
-        StringBuilder uri = new StringBuilder();
+        // The tracker's in-memory index, so this is safe to call while mapping on the main thread
+        Uri downloadUri = DownloadUtil.getDownloadTracker(App.getContext()).getDownloadUri(id);
+        return downloadUri != null ? downloadUri : getServerDownloadUri(id);
+    }
 
-        Download download = new DownloadRepository().getDownload(id);
+    public static Uri getServerDownloadUri(String id) {
+        Map<String, String> params = App.getSubsonicClientInstance(false).getParams();
 
-        if (download == null || download.getDownloadUri().isEmpty()) {
-            Map<String, String> params = App.getSubsonicClientInstance(false).getParams();
+        StringBuilder uri = new StringBuilder();
 
-            uri.append(App.getSubsonicClientInstance(false).getUrl());
-            uri.append("download");
+        uri.append(App.getSubsonicClientInstance(false).getUrl());
+        uri.append("download");
 
-            if (params.containsKey("u") && params.get("u") != null)
-                uri.append("?u=").append(Util.encode(params.get("u")));
-            if (params.containsKey("p") && params.get("p") != null)
-                uri.append("&p=").append(params.get("p"));
-            if (params.containsKey("s") && params.get("s") != null)
-                uri.append("&s=").append(params.get("s"));
-            if (params.containsKey("t") && params.get("t") != null)
-                uri.append("&t=").append(params.get("t"));
-            if (params.containsKey("v") && params.get("v") != null)
-                uri.append("&v=").append(params.get("v"));
-            if (params.containsKey("c") && params.get("c") != null)
-                uri.append("&c=").append(params.get("c"));
+        if (params.containsKey("u") && params.get("u") != null)
+            uri.append("?u=").append(Util.encode(params.get("u")));
+        if (params.containsKey("p") && params.get("p") != null)
+            uri.append("&p=").append(params.get("p"));
+        if (params.containsKey("s") && params.get("s") != null)
+            uri.append("&s=").append(params.get("s"));
+        if (params.containsKey("t") && params.get("t") != null)
+            uri.append("&t=").append(params.get("t"));
+        if (params.containsKey("v") && params.get("v") != null)
+            uri.append("&v=").append(params.get("v"));
+        if (params.containsKey("c") && params.get("c") != null)
+            uri.append("&c=").append(params.get("c"));
 
-            uri.append("&id=").append(id);
-        } else {
-            uri.append(download.getDownloadUri());
-        }
+        uri.append("&id=").append(id);
 
-        Log.d(TAG, "getDownloadUri: " + uri);
+        Log.d(TAG, "getServerDownloadUri: " + uri);
 
         return Uri.parse(uri.toString());
     }
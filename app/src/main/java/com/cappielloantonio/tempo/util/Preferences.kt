@@ -190,6 +190,10 @@ private object PrefKeys {
     const val DATA_SAVING_MODE = "data_saving_mode"
     const val SERVER_UNREACHABLE = "server_unreachable"
     const val SYNC_STARRED_ARTISTS_FOR_OFFLINE_USE = "sync_starred_artists_for_offline_use"
+    const val DOWNLOAD_UNMETERED_ONLY = "download_unmetered_only"
+    const val DOWNLOAD_CHARGING_ONLY = "download_charging_only"
+    const val DOWNLOAD_MAX_PARALLEL = "download_max_parallel"
+    const val DOWNLOAD_BANDWIDTH_LIMIT = "download_bandwidth_limit"
     const val SYNC_STARRED_ALBUMS_FOR_OFFLINE_USE = "sync_starred_albums_for_offLINE_USE"
     const val SYNC_STARRED_TRACKS_FOR_OFFLINE_USE = "sync_starred_tracks_for_offline_use"
     const val QUEUE_SYNCING = "queue_syncing"
@@ -203,8 +207,10 @@ private object PrefKeys {
     const val REPLAY_GAIN_MODE = "replay_gain_mode"
     const val AUDIO_TRANSCODE_PRIORITY = "audio_transcode_priority"
     const val STREAMING_CACHE_STORAGE = "streaming_cache_storage"
+    const val STREAMING_CACHE_KEY_MIGRATED = "streaming_cache_key_migrated"
     const val DOWNLOAD_STORAGE = "download_storage"
     const val DOWNLOAD_DIRECTORY_URI = "download_directory_uri"
+    const val EXTERNAL_DOWNLOAD_CONCURRENCY = "external_download_concurrency"
     const val DEFAULT_DOWNLOAD_VIEW_TYPE = "default_download_view_type"
     const val AUDIO_TRANSCODE_DOWNLOAD = "audio_transcode_download"
     const val AUDIO_TRANSCODE_DOWNLOAD_PRIORITY = "audio_transcode_download_priority"
@@ -225,6 +231,8 @@ private object PrefKeys {
     const val GITHUB_UPDATE_CHECK = "github_update_check"
     const val CONTINUOUS_PLAY = "continuous_play"
     const val LAST_INSTANT_MIX = "last_instant_mix"
+    const val LAST_LIBRARY_SYNC = "last_library_sync"
+    const val LIBRARY_LAST_MODIFIED = "library_last_modified"
     const val ALLOW_PLAYLIST_DUPLICATES = "allow_playlist_duplicates"
     const val HOME_SORT_PLAYLISTS = "home_sort_playlists"
     const val DEFAULT_HOME_SORT_PLAYLISTS_SORT_ORDER = Constants.PLAYLIST_ORDER_BY_RANDOM
@@ -603,6 +611,26 @@ object Preferences {
         }
     }
 
+    @JvmStatic
+    fun isDownloadUnmeteredOnly(): Boolean {
+        return generalPrefs.getBoolean(PrefKeys.DOWNLOAD_UNMETERED_ONLY, false)
+    }
+
+    @JvmStatic
+    fun isDownloadChargingOnly(): Boolean {
+        return generalPrefs.getBoolean(PrefKeys.DOWNLOAD_CHARGING_ONLY, false)
+    }
+
+    @JvmStatic
+    fun getDownloadMaxParallel(): Int {
+        return generalPrefs.getString(PrefKeys.DOWNLOAD_MAX_PARALLEL, "0")!!.toInt()
+    }
+
+    @JvmStatic
+    fun getDownloadBandwidthLimit(): Int {
+        return generalPrefs.getString(PrefKeys.DOWNLOAD_BANDWIDTH_LIMIT, "0")!!.toInt()
+    }
+
     @JvmStatic
     fun isStarredAlbumsSyncEnabled(): Boolean {
         return generalPrefs.getBoolean(PrefKeys.SYNC_STARRED_ALBUMS_FOR_OFFLINE_USE, false)
@@ -723,6 +751,16 @@ object Preferences {
         }
     }
 
+    @JvmStatic
+    fun isStreamingCacheKeyMigrated(): Boolean {
+        return generalPrefs.getBoolean(PrefKeys.STREAMING_CACHE_KEY_MIGRATED, false)
+    }
+
+    @JvmStatic
+    fun setStreamingCacheKeyMigrated() {
+        generalPrefs.edit { putBoolean(PrefKeys.STREAMING_CACHE_KEY_MIGRATED, true) }
+    }
+
     @JvmStatic
     fun getDownloadStoragePreference(): Int {
         return generalPrefs.getString(PrefKeys.DOWNLOAD_STORAGE, "0")!!.toInt()
@@ -752,6 +790,11 @@ object Preferences {
         generalPrefs.edit { putString(PrefKeys.DOWNLOAD_DIRECTORY_URI, uri) }
     }
 
+    @JvmStatic
+    fun getExternalDownloadConcurrency(): Int {
+        return generalPrefs.getString(PrefKeys.EXTERNAL_DOWNLOAD_CONCURRENCY, "3")!!.toInt()
+    }
+
     @JvmStatic
     fun getDefaultDownloadViewType(): String {
         return generalPrefs.getString(
@@ -879,6 +922,29 @@ object Preferences {
         ) + 5000 < System.currentTimeMillis()
     }
 
+    @JvmStatic
+    fun getLastLibrarySync(server: String): Long {
+        return generalPrefs.getLong(PrefKeys.LAST_LIBRARY_SYNC + "_" + server, 0)
+    }
+
+    @JvmStatic
+    fun setLastLibrarySync(server: String, time: Long) {
+        generalPrefs.edit { putLong(PrefKeys.LAST_LIBRARY_SYNC + "_" + server, time) }
+    }
+
+    /**
+     * The `lastModified` of the library as of the last mirror sync, see [getLastLibrarySync].
+     */
+    @JvmStatic
+    fun getLibraryLastModified(server: String): Long {
+        return generalPrefs.getLong(PrefKeys.LIBRARY_LAST_MODIFIED + "_" + server, 0)
+    }
+
+    @JvmStatic
+    fun setLibraryLastModified(server: String, lastModified: Long) {
+        generalPrefs.edit { putLong(PrefKeys.LIBRARY_LAST_MODIFIED + "_" + server, lastModified) }
+    }
+
     @JvmStatic
     fun setAllowPlaylistDuplicates(allowDuplicates: Boolean) {
         return generalPrefs.edit {
@@ -43,7 +43,7 @@ public class ReplayGainUtil {
         return metadata;
     }
 
-    private static List<ReplayGain> getReplayGains(List<Metadata> metadata) {
+    static List<ReplayGain> getReplayGains(List<Metadata> metadata) {
         List<ReplayGain> gains = new ArrayList<>();
 
         if (metadata != null) {
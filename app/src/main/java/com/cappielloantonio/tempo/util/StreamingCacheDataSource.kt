@@ -48,14 +48,26 @@ class StreamingCacheDataSource private constructor(
         val dataSpec = currentDataSpec
 
         if (dataSpec != null) {
-            val cacheKey = cacheDataSource.cacheKeyFactory.buildCacheKey(dataSpec)
+            val cacheKey = StreamingCacheKeyFactory.buildCacheKey(dataSpec)
             val contentLength = ContentMetadata.getContentLength(cacheDataSource.cache.getContentMetadata(cacheKey));
 
-            if (contentLength == C.LENGTH_UNSET.toLong()) {
-                Log.d(TAG, "Removing partial cache for $cacheKey")
-                cacheDataSource.cache.removeResource(cacheKey)
-            } else {
-                Log.d(TAG, "Key $cacheKey has been fully cached")
+            when {
+                StreamingCacheKeyFactory.isByteStable(dataSpec.uri) -> {
+                    // Holes are filled with range requests later, eviction is left to the LRU evictor.
+                    Log.d(TAG, "Keeping cached spans for $cacheKey")
+                }
+
+                contentLength != C.LENGTH_UNSET.toLong()
+                        && cacheDataSource.cache.getCachedBytes(cacheKey, 0, contentLength) == contentLength -> {
+                    Log.d(TAG, "Key $cacheKey has been fully cached")
+                }
+
+                else -> {
+                    // A transcoded stream can't be completed from another encode, and its length may
+                    // only be the server's estimate: keep it only once it was read to the end.
+                    Log.d(TAG, "Removing partial cache for $cacheKey")
+                    cacheDataSource.cache.removeResource(cacheKey)
+                }
             }
         }
     }
@@ -0,0 +1,169 @@
+package com.cappielloantonio.tempo.util
+
+import android.net.Uri
+import android.util.Log
+import androidx.media3.common.util.UnstableApi
+import androidx.media3.datasource.DataSpec
+import androidx.media3.datasource.cache.Cache
+import androidx.media3.datasource.cache.CacheDataSink
+import androidx.media3.datasource.cache.CacheKeyFactory
+import androidx.media3.datasource.cache.ContentMetadata
+import androidx.media3.datasource.cache.ContentMetadataMutations
+import java.io.File
+import java.io.FileInputStream
+import java.io.IOException
+
+/**
+ * Builds streaming cache keys that survive auth rotation.
+ *
+ * A Subsonic `stream` URI carries the `u`/`p`/`s`/`t`/`v`/`c` auth params, which change every time
+ * [cn.sffzh.tempus.util.SubsonicManager] rebuilds the client. Only the server, the song id, the
+ * effective transcoding profile (`format` + `maxBitRate`) and the `timeOffset` affect the bytes we
+ * receive, so those are the only parts that end up in the key.
+ */
+@UnstableApi
+object StreamingCacheKeyFactory : CacheKeyFactory {
+    private const val TAG = "StreamingCacheKey"
+
+    private const val KEY_PREFIX = "stream"
+    private const val SEPARATOR = "|"
+
+    override fun buildCacheKey(dataSpec: DataSpec): String {
+        return dataSpec.key ?: buildKey(dataSpec.uri) ?: dataSpec.uri.toString()
+    }
+
+    /**
+     * Returns the canonical key for a Subsonic stream URI, or null if the URI is not one
+     * (local files, radio stations, HLS playlists...).
+     */
+    @JvmStatic
+    fun buildKey(uri: Uri): String? {
+        if (uri.isOpaque || uri.lastPathSegment != "stream") return null
+
+        val id = uri.getQueryParameter("id")
+        if (id.isNullOrEmpty()) return null
+
+        val format = uri.getQueryParameter("format") ?: ""
+        val maxBitRate = uri.getQueryParameter("maxBitRate") ?: ""
+        val timeOffset = uri.getQueryParameter("timeOffset") ?: "0"
+
+        return buildString {
+            append(KEY_PREFIX).append(SEPARATOR)
+            append(uri.authority).append(uri.path?.removeSuffix("stream") ?: "").append(SEPARATOR)
+            append(id).append(SEPARATOR)
+            append(format).append(SEPARATOR)
+            append(maxBitRate).append(SEPARATOR)
+            append(timeOffset)
+        }
+    }
+
+    /**
+     * Whether two requests for the URI return the same bytes, so that a partially cached stream
+     * can be completed with range requests. Only `format=raw` guarantees the original file; any
+     * other stream may be transcoded, and `estimateContentLength` then only yields an estimate.
+     */
+    @JvmStatic
+    fun isByteStable(uri: Uri): Boolean {
+        return !uri.isOpaque && uri.getQueryParameter("format") == "raw"
+    }
+
+    /**
+     * Moves spans cached under the legacy full-URI keys to their canonical key, so that the cache
+     * built up before this key scheme existed stays usable. Runs once per installation: it is
+     * marked done even if it fails, what could not be moved is only a cache.
+     */
+    @JvmStatic
+    fun migrateLegacyKeys(cache: Cache) {
+        if (Preferences.isStreamingCacheKeyMigrated()) return
+
+        var migrated = 0
+
+        try {
+            for (oldKey in HashSet(cache.keys)) {
+                if (oldKey.startsWith(KEY_PREFIX + SEPARATOR)) continue
+
+                val newKey = buildKey(Uri.parse(oldKey)) ?: continue
+
+                try {
+                    copyResource(cache, oldKey, newKey)
+                    migrated++
+                } catch (exception: IOException) {
+                    Log.w(TAG, "Failed to migrate $oldKey", exception)
+                }
+
+                cache.removeResource(oldKey)
+            }
+        } catch (exception: RuntimeException) {
+            Log.e(TAG, "Streaming cache key migration aborted", exception)
+        } finally {
+            Log.d(TAG, "Migrated $migrated streaming cache entries")
+            Preferences.setStreamingCacheKeyMigrated()
+        }
+    }
+
+    private fun copyResource(cache: Cache, oldKey: String, newKey: String) {
+        for (span in cache.getCachedSpans(oldKey)) {
+            val file = span.file ?: continue
+            if (!span.isCached) continue
+
+            val end = span.position + span.length
+            var position = span.position
+
+            // A hole ends where the next span cached under the new key starts, so one span can
+            // take several holes to copy.
+            while (position < end) {
+                val hole = cache.startReadWriteNonBlocking(newKey, position, end - position) ?: break
+
+                // Another legacy URI with the same canonical key got there first. Only a hole is
+                // locked, a cached span must not be released.
+                if (hole.isCached) {
+                    position = hole.position + hole.length
+                    continue
+                }
+
+                try {
+                    copyRange(cache, file, newKey, hole.position - span.position, hole.position, hole.length)
+                } finally {
+                    cache.releaseHoleSpan(hole)
+                }
+
+                position = hole.position + hole.length
+            }
+        }
+
+        val contentLength = ContentMetadata.getContentLength(cache.getContentMetadata(oldKey))
+        if (contentLength >= 0) {
+            val mutations = ContentMetadataMutations()
+            ContentMetadataMutations.setContentLength(mutations, contentLength)
+            cache.applyContentMetadataMutations(newKey, mutations)
+        }
+    }
+
+    private fun copyRange(cache: Cache, file: File, key: String, offset: Long, position: Long, length: Long) {
+        val sink = CacheDataSink(cache, CacheDataSink.DEFAULT_FRAGMENT_SIZE)
+        sink.open(
+            DataSpec.Builder()
+                .setUri(Uri.fromFile(file))
+                .setKey(key)
+                .setPosition(position)
+                .setLength(length)
+                .build()
+        )
+
+        FileInputStream(file).use { input ->
+            input.skip(offset)
+
+            val buffer = ByteArray(64 * 1024)
+            var remaining = length
+
+            while (remaining > 0) {
+                val read = input.read(buffer, 0, minOf(buffer.size.toLong(), remaining).toInt())
+                if (read < 0) break
+                sink.write(buffer, 0, read)
+                remaining -= read
+            }
+        }
+
+        sink.close()
+    }
+}
@@ -0,0 +1,170 @@
+package com.cappielloantonio.tempo.util
+
+import android.content.Context
+import android.net.ConnectivityManager
+import android.net.NetworkCapabilities
+import android.util.Log
+import androidx.media3.common.C
+import androidx.media3.common.Player
+import androidx.media3.common.util.UnstableApi
+import androidx.media3.datasource.DataSpec
+import androidx.media3.datasource.cache.CacheWriter
+import cn.sffzh.tempus.util.NetworkCallbackImpl
+import com.cappielloantonio.tempo.database.DatabaseExecutor
+import com.cappielloantonio.tempo.database.LimitedExecutor
+import java.io.IOException
+import java.io.InterruptedIOException
+import java.util.concurrent.Callable
+import java.util.concurrent.Future
+import java.util.concurrent.FutureTask
+
+/**
+ * Pulls the upcoming queue entries into the streaming cache once the current track is fully
+ * buffered, so that track boundaries do not depend on the network.
+ *
+ * Only Subsonic `stream` URIs are prefetched, under the same key the player will read them with
+ * (see [StreamingCacheKeyFactory]). Each run downloads at most [MAX_BUDGET_BYTES] and nothing is
+ * fetched on metered networks or in data saving mode.
+ */
+@UnstableApi
+class StreamingCachePrefetcher(private val context: Context) {
+    companion object {
+        private const val TAG = "StreamingCachePrefetch"
+
+        private const val PREFETCH_COUNT = 2
+        private const val MAX_BUDGET_BYTES = 64L * 1024 * 1024
+    }
+
+    // One run at a time: a cancelled run may still be winding down when the next one is queued
+    private val executor = LimitedExecutor(DatabaseExecutor.getIoExecutor(), 1)
+    private val connectivityManager = context.getSystemService(ConnectivityManager::class.java)
+
+    @Volatile
+    private var unmetered = !connectivityManager.isActiveNetworkMetered
+
+    @Volatile
+    private var prefetchedFor: String? = null
+
+    @Volatile
+    private var task: Future<*>? = null
+
+    @Volatile
+    private var writer: CacheWriter? = null
+
+    private val networkCallback = NetworkCallbackImpl(
+        onAvailable = {},
+        onLost = { cancel() },
+        onCapabilitiesChanged = { capabilities ->
+            unmetered = capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_NOT_METERED)
+            if (!unmetered) cancel()
+        }
+    )
+
+    init {
+        connectivityManager.registerDefaultNetworkCallback(networkCallback)
+    }
+
+    /** Starts a prefetch run when the current item of [player] has been loaded to its end. */
+    fun onLoadingChanged(player: Player) {
+        if (player.isLoading) return
+
+        val current = player.currentMediaItem ?: return
+        val duration = player.duration
+        if (duration == C.TIME_UNSET || player.bufferedPosition < duration) return
+        if (current.mediaId == prefetchedFor) return
+
+        val cacheSize = Preferences.getStreamingCacheSize()
+        if (!unmetered || Preferences.isDataSavingMode() || cacheSize <= 0) return
+
+        val dataSpecs = nextDataSpecs(player)
+        if (dataSpecs.isEmpty()) return
+
+        cancel()
+        prefetchedFor = current.mediaId
+
+        val budget = minOf(MAX_BUDGET_BYTES, cacheSize * 1024 * 1024 / 4)
+        task = FutureTask(Callable { prefetch(dataSpecs, budget) }).also(executor::execute)
+    }
+
+    fun cancel() {
+        prefetchedFor = null
+        writer?.cancel()
+        task?.cancel(true)
+    }
+
+    fun release() {
+        cancel()
+        connectivityManager.unregisterNetworkCallback(networkCallback)
+    }
+
+    private fun nextDataSpecs(player: Player): List<DataSpec> {
+        val timeline = player.currentTimeline
+        if (timeline.isEmpty) return emptyList()
+
+        // Repeat-one would only ever return the current item.
+        val repeatMode = if (player.repeatMode == Player.REPEAT_MODE_ONE) Player.REPEAT_MODE_OFF else player.repeatMode
+        val currentIndex = player.currentMediaItemIndex
+        val dataSpecs = ArrayList<DataSpec>(PREFETCH_COUNT)
+        var index = currentIndex
+
+        repeat(PREFETCH_COUNT) {
+            index = timeline.getNextWindowIndex(index, repeatMode, player.shuffleModeEnabled)
+            if (index == C.INDEX_UNSET || index == currentIndex) return dataSpecs
+
+            val mediaItem = player.getMediaItemAt(index)
+            if (mediaItem.mediaMetadata.extras?.getString("type") == Constants.MEDIA_TYPE_RADIO) return@repeat
+
+            val uri = mediaItem.localConfiguration?.uri ?: return@repeat
+            val key = StreamingCacheKeyFactory.buildKey(uri) ?: return@repeat
+
+            dataSpecs.add(DataSpec.Builder().setUri(uri).setKey(key).build())
+        }
+
+        return dataSpecs
+    }
+
+    private fun prefetch(dataSpecs: List<DataSpec>, budget: Long) {
+        val factory = DownloadUtil.getStreamingCacheWriterFactory(context)
+        var remaining = budget
+
+        for (dataSpec in dataSpecs) {
+            if (remaining <= 0 || Thread.currentThread().isInterrupted) break
+
+            // A prefix of a transcoded stream could not be completed by the player later, so those
+            // are fetched whole and dropped if they don't fit in the budget.
+            val byteStable = StreamingCacheKeyFactory.isByteStable(dataSpec.uri)
+            val itemBudget = remaining
+            var downloaded = 0L
+            var overBudget = false
+
+            val cacheWriter = CacheWriter(
+                factory.createDataSource(),
+                if (byteStable) dataSpec.subrange(0, itemBudget) else dataSpec,
+                null
+            ) { _, _, newBytesCached ->
+                downloaded += newBytesCached
+                if (downloaded > itemBudget) {
+                    overBudget = true
+                    writer?.cancel()
+                }
+            }
+
+            writer = cacheWriter
+
+            try {
+                cacheWriter.cache()
+                Log.d(TAG, "Prefetched ${dataSpec.key}: $downloaded bytes")
+            } catch (exception: InterruptedIOException) {
+                if (!byteStable) factory.cache?.removeResource(dataSpec.key!!)
+                if (!overBudget) break
+            } catch (exception: IOException) {
+                Log.w(TAG, "Failed to prefetch ${dataSpec.key}", exception)
+                if (!byteStable) factory.cache?.removeResource(dataSpec.key!!)
+            } finally {
+                writer = null
+            }
+
+            remaining -= downloaded
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.cappielloantonio.tempo.util
+
+import android.net.Uri
+import androidx.media3.common.C
+import androidx.media3.common.util.UnstableApi
+import androidx.media3.datasource.DataSource
+import androidx.media3.datasource.DataSpec
+import androidx.media3.datasource.TransferListener
+
+/**
+ * Takes what the download manager reads from the [BandwidthLimiter] budget.
+ */
+@UnstableApi
+class ThrottledDataSource private constructor(
+    private val upstream: DataSource,
+) : DataSource {
+
+    class Factory(private val upstreamFactory: DataSource.Factory) : DataSource.Factory {
+        override fun createDataSource(): DataSource {
+            return ThrottledDataSource(upstreamFactory.createDataSource())
+        }
+    }
+
+    override fun read(buffer: ByteArray, offset: Int, length: Int): Int {
+        val read = upstream.read(buffer, offset, length)
+        if (read != C.RESULT_END_OF_INPUT) BandwidthLimiter.acquire(read)
+        return read
+    }
+
+    override fun addTransferListener(transferListener: TransferListener) {
+        upstream.addTransferListener(transferListener)
+    }
+
+    override fun open(dataSpec: DataSpec): Long {
+        return upstream.open(dataSpec)
+    }
+
+    override fun getUri(): Uri? {
+        return upstream.uri
+    }
+
+    override fun getResponseHeaders(): Map<String, List<String>> {
+        return upstream.responseHeaders
+    }
+
+    override fun close() {
+        upstream.close()
+    }
+}
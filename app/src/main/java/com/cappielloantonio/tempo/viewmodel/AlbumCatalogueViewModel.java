@@ -3,103 +3,74 @@ package com.cappielloantonio.tempo.viewmodel;
 import android.app.Application;
 
 import androidx.annotation.NonNull;
+import androidx.core.util.Pair;
 import androidx.lifecycle.AndroidViewModel;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.Transformations;
+import androidx.lifecycle.ViewModelKt;
+import androidx.paging.PagingData;
+import androidx.paging.PagingLiveData;
 
-import com.cappielloantonio.tempo.App;
-import com.cappielloantonio.tempo.interfaces.MediaCallback;
-import com.cappielloantonio.tempo.subsonic.base.ApiResponse;
+import com.cappielloantonio.tempo.repository.AlbumRepository;
+import com.cappielloantonio.tempo.repository.LibraryRepository;
 import com.cappielloantonio.tempo.subsonic.models.AlbumID3;
+import com.cappielloantonio.tempo.util.Constants;
+import com.cappielloantonio.tempo.util.Preferences;
 
-import java.util.ArrayList;
-import java.util.List;
-
-import retrofit2.Call;
-import retrofit2.Callback;
+import java.util.Objects;
 
 public class AlbumCatalogueViewModel extends AndroidViewModel {
-    private final MutableLiveData<List<AlbumID3>> albumList = new MutableLiveData<>(new ArrayList<>());
-    private final MutableLiveData<Boolean> loading = new MutableLiveData<>(true);
+    private final LibraryRepository libraryRepository = new LibraryRepository();
+    private final AlbumRepository albumRepository = new AlbumRepository();
 
-    private int page = 0;
-    private Status status = Status.STOPPED;
+    // The sort order and the name filter
+    private final MutableLiveData<Pair<String, String>> query = new MutableLiveData<>(Pair.create(Preferences.getAlbumSortOrder(), ""));
+    private final LiveData<PagingData<AlbumID3>> albumList;
 
     public AlbumCatalogueViewModel(@NonNull Application application) {
         super(application);
-    }
 
-    public LiveData<List<AlbumID3>> getAlbumList() {
-        return albumList;
+        albumList = Transformations.switchMap(query, query -> PagingLiveData.cachedIn(getAlbumPages(query.first, query.second), ViewModelKt.getViewModelScope(this)));
     }
 
-    public LiveData<Boolean> getLoadingStatus() {
-        return loading;
+    public LiveData<PagingData<AlbumID3>> getAlbumList() {
+        return albumList;
     }
 
-    public void loadAlbums() {
-        page = 0;
-        status = Status.RUNNING;
-        albumList.setValue(new ArrayList<>());
-        loadAlbums(500);
+    public String getOrder() {
+        return query.getValue().first;
     }
 
-    public void stopLoading() {
-        status = Status.STOPPED;
+    /**
+     * Applies {@code order}, or shuffles again if it is the random order.
+     */
+    public void setOrder(String order) {
+        if (!order.equals(query.getValue().first) || Constants.ALBUM_ORDER_BY_RANDOM.equals(order)) {
+            query.setValue(Pair.create(order, query.getValue().second));
+        }
     }
 
-    private void loadAlbums(int size) {
-        retrieveAlbums(new MediaCallback() {
-            @Override
-            public void onError(Exception exception) {
-            }
-
-            @Override
-            public void onLoadMedia(List<?> media) {
-                if (status == Status.STOPPED) {
-                    loading.setValue(false);
-                    return;
-                }
-
-                List<AlbumID3> liveAlbum = albumList.getValue();
+    public void setFilter(String filter) {
+        String trimmed = filter != null ? filter.trim() : "";
 
-                liveAlbum.addAll((List<AlbumID3>) media);
-                albumList.setValue(liveAlbum);
-
-                if (media.size() == size) {
-                    loadAlbums(size);
-                    loading.setValue(true);
-                } else {
-                    status = Status.STOPPED;
-                    loading.setValue(false);
-                }
-            }
-        }, size, size * page++);
+        if (!Objects.equals(trimmed, query.getValue().second)) {
+            query.setValue(Pair.create(query.getValue().first, trimmed));
+        }
     }
 
+    private LiveData<PagingData<AlbumID3>> getAlbumPages(String order, String filter) {
+        // Play counts and dates change without a rescan, only the server sorts on them reliably.
+        // The server can't filter a list by name though, so a filter falls back to the mirror,
+        // sorted by name.
+        if (filter.isEmpty()) {
+            if (Constants.ALBUM_ORDER_BY_RECENTLY_PLAYED.equals(order)) {
+                return albumRepository.getAlbumPages("recent");
+            } else if (Constants.ALBUM_ORDER_BY_MOST_PLAYED.equals(order)) {
+                return albumRepository.getAlbumPages("frequent");
+            }
+        }
 
-    private void retrieveAlbums(MediaCallback callback, int size, int offset) {
-        App.getSubsonicClientInstance(false)
-                .getAlbumSongListClient()
-                .getAlbumList2("alphabeticalByName", size, offset, null, null)
-                .enqueue(new Callback<ApiResponse>() {
-                    @Override
-                    public void onResponse(@NonNull Call<ApiResponse> call, @NonNull retrofit2.Response<ApiResponse> response) {
-                        if (response.isSuccessful() && response.body() != null && response.body().getSubsonicResponse().getAlbumList2() != null && response.body().getSubsonicResponse().getAlbumList2().getAlbums() != null) {
-                            List<AlbumID3> albumList = new ArrayList<>(response.body().getSubsonicResponse().getAlbumList2().getAlbums());
-                            callback.onLoadMedia(albumList);
-                        }
-                    }
-
-                    @Override
-                    public void onFailure(@NonNull Call<ApiResponse> call, @NonNull Throwable t) {
-                        callback.onError(new Exception(t.getMessage()));
-                    }
-                });
-    }
-
-    private enum Status {
-        RUNNING,
-        STOPPED
+        return libraryRepository.getAlbumPages(order, filter);
     }
-}
\ No newline at end of file
+}
@@ -3,54 +3,53 @@ package com.cappielloantonio.tempo.viewmodel;
 import android.app.Application;
 
 import androidx.annotation.NonNull;
+import androidx.core.util.Pair;
 import androidx.lifecycle.AndroidViewModel;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.Transformations;
+import androidx.lifecycle.ViewModelKt;
+import androidx.paging.PagingData;
+import androidx.paging.PagingLiveData;
 
-import com.cappielloantonio.tempo.App;
-import com.cappielloantonio.tempo.subsonic.base.ApiResponse;
+import com.cappielloantonio.tempo.repository.LibraryRepository;
 import com.cappielloantonio.tempo.subsonic.models.ArtistID3;
-import com.cappielloantonio.tempo.subsonic.models.IndexID3;
+import com.cappielloantonio.tempo.util.Constants;
+import com.cappielloantonio.tempo.util.Preferences;
 
-import java.util.ArrayList;
-import java.util.List;
-
-import retrofit2.Call;
-import retrofit2.Callback;
+import java.util.Objects;
 
 public class ArtistCatalogueViewModel extends AndroidViewModel {
-    private final MutableLiveData<List<ArtistID3>> artistList = new MutableLiveData<>(new ArrayList<>());
+    private final LibraryRepository libraryRepository = new LibraryRepository();
+
+    // The sort order and the name filter
+    private final MutableLiveData<Pair<String, String>> query = new MutableLiveData<>(Pair.create(Preferences.getArtistSortOrder(), ""));
+    private final LiveData<PagingData<ArtistID3>> artistList;
 
     public ArtistCatalogueViewModel(@NonNull Application application) {
         super(application);
+
+        artistList = Transformations.switchMap(query, query -> PagingLiveData.cachedIn(libraryRepository.getArtistPages(query.first, query.second), ViewModelKt.getViewModelScope(this)));
     }
 
-    public LiveData<List<ArtistID3>> getArtistList() {
+    public LiveData<PagingData<ArtistID3>> getArtistList() {
         return artistList;
     }
 
-    public void loadArtists() {
-        App.getSubsonicClientInstance(false)
-                .getBrowsingClient()
-                .getArtists()
-                .enqueue(new Callback<ApiResponse>() {
-                    @Override
-                    public void onResponse(@NonNull Call<ApiResponse> call, @NonNull retrofit2.Response<ApiResponse> response) {
-                        if (response.isSuccessful() && response.body() != null && response.body().getSubsonicResponse().getArtists() != null) {
-                            List<ArtistID3> artists = new ArrayList<>();
-
-                            for (IndexID3 index : response.body().getSubsonicResponse().getArtists().getIndices()) {
-                                artists.addAll(index.getArtists());
-                            }
-
-                            artistList.setValue(artists);
-                        }
-                    }
-
-                    @Override
-                    public void onFailure(@NonNull Call<ApiResponse> call, @NonNull Throwable t) {
-
-                    }
-                });
+    /**
+     * Applies {@code order}, or shuffles again if it is the random order.
+     */
+    public void setOrder(String order) {
+        if (!order.equals(query.getValue().first) || Constants.ARTIST_ORDER_BY_RANDOM.equals(order)) {
+            query.setValue(Pair.create(order, query.getValue().second));
+        }
+    }
+
+    public void setFilter(String filter) {
+        String trimmed = filter != null ? filter.trim() : "";
+
+        if (!Objects.equals(trimmed, query.getValue().second)) {
+            query.setValue(Pair.create(query.getValue().first, trimmed));
+        }
     }
 }
@@ -0,0 +1,103 @@
+package com.cappielloantonio.tempo.viewmodel;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Loads the sectors of the home screen, each once, those the user is about to see first.
+ * <p>
+ * The screen says which sectors are on it or close to it, top first, and they are started in
+ * that order, a few at a time, so the top of the screen is not waiting behind requests for
+ * sectors far below it. A sector that does not answer gives its place back after a while. Main
+ * thread only.
+ */
+class HomeFeed {
+    private static final int MAX_IN_FLIGHT = 3;
+    private static final long TIMEOUT_MS = 10_000;
+
+    interface Loader {
+        /**
+         * Starts loading, and calls {@code done} once the sector has something to show or failed.
+         */
+        void load(Runnable done);
+    }
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+
+    private final Map<String, Loader> loaders = new HashMap<>();
+    private final Set<String> pinned = new HashSet<>();
+    private final Set<String> started = new HashSet<>();
+    private final List<String> pending = new ArrayList<>();
+
+    private int inFlight;
+
+    void register(String id, Loader loader) {
+        loaders.put(id, loader);
+    }
+
+    /**
+     * Loads {@code id} whether it is near or not, e.g. because more than its view depends on it.
+     */
+    void pin(String id) {
+        if (pinned.add(id)) request(new ArrayList<>(pending));
+    }
+
+    boolean isStarted(String id) {
+        return started.contains(id);
+    }
+
+    /**
+     * The sectors near the screen now, in the order to load them, in place of those asked for
+     * before and not started yet. Pinned sectors go after them.
+     */
+    void request(Collection<String> nearIds) {
+        Set<String> wanted = new LinkedHashSet<>(nearIds);
+        wanted.addAll(pinned);
+        wanted.removeAll(started);
+        wanted.retainAll(loaders.keySet());
+
+        pending.clear();
+        pending.addAll(wanted);
+
+        startNext();
+    }
+
+    /**
+     * Stops starting anything, what is in flight is left to finish.
+     */
+    void cancel() {
+        pending.clear();
+        handler.removeCallbacksAndMessages(null);
+    }
+
+    private void startNext() {
+        while (inFlight < MAX_IN_FLIGHT && !pending.isEmpty()) {
+            String id = pending.remove(0);
+            started.add(id);
+            inFlight++;
+
+            boolean[] finished = {false};
+            Runnable done = () -> {
+                if (finished[0]) return;
+                finished[0] = true;
+                inFlight--;
+                startNext();
+            };
+
+            handler.postDelayed(done, TIMEOUT_MS);
+            loaders.get(id).load(() -> {
+                handler.removeCallbacks(done);
+                done.run();
+            });
+        }
+    }
+}
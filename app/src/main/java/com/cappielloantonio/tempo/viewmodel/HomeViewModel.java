@@ -1,21 +1,22 @@
 package com.cappielloantonio.tempo.viewmodel;
 
 import android.app.Application;
+import android.util.Log;
 
 import androidx.annotation.NonNull;
+import androidx.core.content.ContextCompat;
 import androidx.lifecycle.AndroidViewModel;
 import androidx.lifecycle.LifecycleOwner;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.Observer;
 
-import com.cappielloantonio.tempo.interfaces.StarCallback;
 import com.cappielloantonio.tempo.model.Chronology;
-import com.cappielloantonio.tempo.model.Favorite;
 import com.cappielloantonio.tempo.model.HomeSector;
 import com.cappielloantonio.tempo.repository.AlbumRepository;
 import com.cappielloantonio.tempo.repository.ArtistRepository;
 import com.cappielloantonio.tempo.repository.ChronologyRepository;
-import com.cappielloantonio.tempo.repository.FavoriteRepository;
+import com.cappielloantonio.tempo.repository.HomeSnapshotRepository;
 import com.cappielloantonio.tempo.repository.PlaylistRepository;
 import com.cappielloantonio.tempo.repository.SharingRepository;
 import com.cappielloantonio.tempo.repository.SongRepository;
@@ -28,15 +29,26 @@ import com.cappielloantonio.tempo.util.Constants;
 import com.cappielloantonio.tempo.util.Constants.SeedType;
 import com.cappielloantonio.tempo.util.Preferences;
 import com.google.common.reflect.TypeToken;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
 import com.google.gson.Gson;
 
+import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
-
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * The content of the home screen. Each sector first shows what it showed last time, from its
+ * snapshot, and is fetched again through a {@link HomeFeed} once the screen gets near it.
+ */
 public class HomeViewModel extends AndroidViewModel {
     private static final String TAG = "HomeViewModel";
 
@@ -44,9 +56,9 @@ public class HomeViewModel extends AndroidViewModel {
     private final AlbumRepository albumRepository;
     private final ArtistRepository artistRepository;
     private final ChronologyRepository chronologyRepository;
-    private final FavoriteRepository favoriteRepository;
     private final PlaylistRepository playlistRepository;
     private final SharingRepository sharingRepository;
+    private final HomeSnapshotRepository snapshotRepository;
 
     private final StarredAlbumsSyncViewModel albumsSyncViewModel;
     private final StarredArtistsSyncViewModel artistSyncViewModel;
@@ -71,6 +83,14 @@ public class HomeViewModel extends AndroidViewModel {
     private final MutableLiveData<List<Playlist>> pinnedPlaylists = new MutableLiveData<>(null);
     private final MutableLiveData<List<Share>> shares = new MutableLiveData<>(null);
 
+    private final HomeFeed feed = new HomeFeed();
+
+    private final Map<String, MutableLiveData<?>> sectorData = new HashMap<>();
+    private final Map<String, Type> sectorTypes = new HashMap<>();
+    // The values restored from the snapshots, which are not saved back
+    private final Map<String, Object> restored = new HashMap<>();
+    private final List<Runnable> detachers = new ArrayList<>();
+
     private List<HomeSector> sectors;
 
     public HomeViewModel(@NonNull Application application) {
@@ -82,21 +102,40 @@ public class HomeViewModel extends AndroidViewModel {
         albumRepository = new AlbumRepository();
         artistRepository = new ArtistRepository();
         chronologyRepository = new ChronologyRepository();
-        favoriteRepository = new FavoriteRepository();
         playlistRepository = new PlaylistRepository();
         sharingRepository = new SharingRepository();
+        snapshotRepository = new HomeSnapshotRepository();
 
         albumsSyncViewModel = new StarredAlbumsSyncViewModel(application);
         artistSyncViewModel = new StarredArtistsSyncViewModel(application);
 
-        setOfflineFavorite();
+        registerSectors();
+        restoreSnapshots();
     }
 
-    public LiveData<List<Child>> getDiscoverSongSample(LifecycleOwner owner) {
-        if (dicoverSongSample.getValue() == null) {
-            songRepository.getRandomSample(10, null, null).observe(owner, dicoverSongSample::postValue);
-        }
+    @Override
+    protected void onCleared() {
+        feed.cancel();
+        for (Runnable detacher : detachers) detacher.run();
+        detachers.clear();
+        super.onCleared();
+    }
+
+    /**
+     * Fetches the sectors near the screen, {@code sectorIds} in the order they should come.
+     */
+    public void loadSectors(Collection<String> sectorIds) {
+        feed.request(sectorIds);
+    }
 
+    /**
+     * Fetches {@code sectorId} even away from the screen, for what else depends on it.
+     */
+    public void pinSector(String sectorId) {
+        feed.pin(sectorId);
+    }
+
+    public LiveData<List<Child>> getDiscoverSongSample() {
         return dicoverSongSample;
     }
 
@@ -105,71 +144,31 @@ public class HomeViewModel extends AndroidViewModel {
     }
 
     public LiveData<List<Chronology>> getChronologySample(LifecycleOwner owner) {
-        Calendar cal = Calendar.getInstance();
-        String server = Preferences.getServerId();
-
-        int currentWeek = cal.get(Calendar.WEEK_OF_YEAR);
-        long start = cal.getTimeInMillis();
-
-        cal.set(Calendar.WEEK_OF_YEAR, currentWeek - 1);
-        long end = cal.getTimeInMillis();
-
-        chronologyRepository.getChronology(server, start, end).observe(owner, thisGridTopSong::postValue);
+        chronologyRepository.getMostPlayed(Preferences.getServerId(), 7).observe(owner, thisGridTopSong::postValue);
         return thisGridTopSong;
     }
 
-    public LiveData<List<AlbumID3>> getRecentlyReleasedAlbums(LifecycleOwner owner) {
-        if (newReleasedAlbum.getValue() == null) {
-            int currentYear = Calendar.getInstance().get(Calendar.YEAR);
-
-            albumRepository.getAlbums("byYear", 500, currentYear, currentYear).observe(owner, albums -> {
-                if (albums != null) {
-                    albums.sort(Comparator.comparing(AlbumID3::getCreated).reversed());
-                    newReleasedAlbum.postValue(albums.subList(0, Math.min(20, albums.size())));
-                }
-            });
-        }
-
+    public LiveData<List<AlbumID3>> getRecentlyReleasedAlbums() {
         return newReleasedAlbum;
     }
 
-    public LiveData<List<Child>> getStarredTracksSample(LifecycleOwner owner) {
-        if (starredTracksSample.getValue() == null) {
-            songRepository.getStarredSongs(true, 10).observe(owner, starredTracksSample::postValue);
-        }
-
+    public LiveData<List<Child>> getStarredTracksSample() {
         return starredTracksSample;
     }
 
-    public LiveData<List<ArtistID3>> getStarredArtistsSample(LifecycleOwner owner) {
-        if (starredArtistsSample.getValue() == null) {
-            artistRepository.getStarredArtists(true, 10).observe(owner, starredArtistsSample::postValue);
-        }
-
+    public LiveData<List<ArtistID3>> getStarredArtistsSample() {
         return starredArtistsSample;
     }
 
-    public LiveData<List<ArtistID3>> getBestOfArtists(LifecycleOwner owner) {
-        if (bestOfArtists.getValue() == null) {
-            artistRepository.getStarredArtists(true, 20).observe(owner, bestOfArtists::postValue);
-        }
-
+    public LiveData<List<ArtistID3>> getBestOfArtists() {
         return bestOfArtists;
     }
 
-    public LiveData<List<Child>> getStarredTracks(LifecycleOwner owner) {
-        if (starredTracks.getValue() == null) {
-            songRepository.getStarredSongs(true, 20).observe(owner, starredTracks::postValue);
-        }
-
+    public LiveData<List<Child>> getStarredTracks() {
         return starredTracks;
     }
 
-    public LiveData<List<AlbumID3>> getStarredAlbums(LifecycleOwner owner) {
-        if (starredAlbums.getValue() == null) {
-            albumRepository.getStarredAlbums(true, 20).observe(owner, starredAlbums::postValue);
-        }
-
+    public LiveData<List<AlbumID3>> getStarredAlbums() {
         return starredAlbums;
     }
 
@@ -181,43 +180,31 @@ public class HomeViewModel extends AndroidViewModel {
         return artistSyncViewModel.getAllStarredArtistSongs();
     }
 
-    public LiveData<List<ArtistID3>> getStarredArtists(LifecycleOwner owner) {
-        if (starredArtists.getValue() == null) {
-            artistRepository.getStarredArtists(true, 20).observe(owner, starredArtists::postValue);
-        }
+    public Set<String> getStarredAlbumIds() {
+        return albumsSyncViewModel.getStarredAlbumIds();
+    }
 
-        return starredArtists;
+    public Set<String> getStarredArtistIds() {
+        return artistSyncViewModel.getStarredArtistIds();
     }
 
-    public LiveData<List<Integer>> getYearList(LifecycleOwner owner) {
-        if (years.getValue() == null) {
-            albumRepository.getDecades().observe(owner, years::postValue);
-        }
+    public LiveData<List<ArtistID3>> getStarredArtists() {
+        return starredArtists;
+    }
 
+    public LiveData<List<Integer>> getYearList() {
         return years;
     }
 
-    public LiveData<List<AlbumID3>> getMostPlayedAlbums(LifecycleOwner owner) {
-        if (mostPlayedAlbumSample.getValue() == null) {
-            albumRepository.getAlbums("frequent", 20, null, null).observe(owner, mostPlayedAlbumSample::postValue);
-        }
-
+    public LiveData<List<AlbumID3>> getMostPlayedAlbums() {
         return mostPlayedAlbumSample;
     }
 
-    public LiveData<List<AlbumID3>> getMostRecentlyAddedAlbums(LifecycleOwner owner) {
-        if (recentlyAddedAlbumSample.getValue() == null) {
-            albumRepository.getAlbums("newest", 20, null, null).observe(owner, recentlyAddedAlbumSample::postValue);
-        }
-
+    public LiveData<List<AlbumID3>> getMostRecentlyAddedAlbums() {
         return recentlyAddedAlbumSample;
     }
 
-    public LiveData<List<AlbumID3>> getRecentlyPlayedAlbumList(LifecycleOwner owner) {
-        if (recentlyPlayedAlbumSample.getValue() == null) {
-            albumRepository.getAlbums("recent", 20, null, null).observe(owner, recentlyPlayedAlbumSample::postValue);
-        }
-
+    public LiveData<List<AlbumID3>> getRecentlyPlayedAlbumList() {
         return recentlyPlayedAlbumSample;
     }
 
@@ -245,66 +232,28 @@ public class HomeViewModel extends AndroidViewModel {
         return artistBestOf;
     }
 
-    public LiveData<List<Playlist>> getPinnedPlaylists(LifecycleOwner owner) {
-        pinnedPlaylists.setValue(Collections.emptyList());
-
-        playlistRepository.getPlaylists(false, -1).observe(owner, remotes -> {
-            if (remotes != null && !remotes.isEmpty()) {
-                List<Playlist> playlists = new ArrayList<>(remotes);
-                String result = Preferences.getHomeSortPlaylists();
-                if (Preferences.getHomeSortPlaylists().equals(Constants.PLAYLIST_ORDER_BY_RANDOM))
-                {
-                    Collections.shuffle(playlists);
-                }
-                else {
-                    playlists.sort(Comparator.comparing(Playlist::getName));
-                }
-                List<Playlist> subsetPlaylists = playlists.size() > 5
-                        ? playlists.subList(0, 5)
-                        : playlists;
-
-                pinnedPlaylists.setValue(subsetPlaylists);
-            }
-        });
-
+    public LiveData<List<Playlist>> getPinnedPlaylists() {
         return pinnedPlaylists;
     }
 
-    public LiveData<List<Share>> getShares(LifecycleOwner owner) {
-        if (shares.getValue() == null) {
-            sharingRepository.getShares().observe(owner, shares::postValue);
-        }
-
+    public LiveData<List<Share>> getShares() {
         return shares;
     }
 
     public LiveData<List<Child>> getAllStarredTracks() {
-        return songRepository.getStarredSongs(false, -1);
+        return songRepository.getAllStarredSongs();
     }
 
     public void changeChronologyPeriod(LifecycleOwner owner, int period) {
-        Calendar cal = Calendar.getInstance();
-        String server = Preferences.getServerId();
-        int currentWeek = cal.get(Calendar.WEEK_OF_YEAR);
-
-        long start = 0;
-        long end = 0;
-
-        if (period == 0) {
-            start = cal.getTimeInMillis();
-            cal.set(Calendar.WEEK_OF_YEAR, currentWeek - 1);
-            end = cal.getTimeInMillis();
-        } else if (period == 1) {
-            start = cal.getTimeInMillis();
-            cal.set(Calendar.WEEK_OF_YEAR, currentWeek - 4);
-            end = cal.getTimeInMillis();
+        int days = 7;
+
+        if (period == 1) {
+            days = 4 * 7;
         } else if (period == 2) {
-            start = cal.getTimeInMillis();
-            cal.set(Calendar.WEEK_OF_YEAR, currentWeek - 52);
-            end = cal.getTimeInMillis();
+            days = 52 * 7;
         }
 
-        chronologyRepository.getChronology(server, start, end).observe(owner, thisGridTopSong::postValue);
+        chronologyRepository.getMostPlayed(Preferences.getServerId(), days).observe(owner, thisGridTopSong::postValue);
     }
 
     public void refreshDiscoverySongSample(LifecycleOwner owner) {
@@ -347,132 +296,165 @@ public class HomeViewModel extends AndroidViewModel {
         albumRepository.getAlbums("recent", 20, null, null).observe(owner, recentlyPlayedAlbumSample::postValue);
     }
 
-    public void refreshShares(LifecycleOwner owner) {
-        sharingRepository.getShares().observe(owner, this.shares::postValue);
-    }
+    public void refreshPinnedPlaylists(LifecycleOwner owner) {
+        // Not loaded yet, it will be once the screen gets near it
+        if (!feed.isStarted(Constants.HOME_SECTOR_PINNED_PLAYLISTS)) return;
 
-    private void setHomeSectorList() {
-        if (Preferences.getHomeSectorList() != null && !Preferences.getHomeSectorList().equals("null")) {
-            sectors = new Gson().fromJson(
-                    Preferences.getHomeSectorList(),
-                    new TypeToken<List<HomeSector>>() {
-                    }.getType()
-            );
-        }
+        playlistRepository.getPlaylists(false, -1).observe(owner, this::setPinnedPlaylists);
     }
 
-    public List<HomeSector> getHomeSectorList() {
-        return sectors;
+    public void refreshShares(LifecycleOwner owner) {
+        if (!feed.isStarted(Constants.HOME_SECTOR_SHARED)) return;
+
+        sharingRepository.getShares().observe(owner, this.shares::postValue);
     }
 
-    public boolean checkHomeSectorVisibility(String sectorId) {
-        return sectors != null && sectors.stream().filter(sector -> sector.getId().equals(sectorId))
-                .findAny()
-                .orElse(null) == null;
+    private void registerSectors() {
+        int currentYear = Calendar.getInstance().get(Calendar.YEAR);
+
+        register(Constants.HOME_SECTOR_DISCOVERY, dicoverSongSample, new TypeToken<List<Child>>() {}.getType(),
+                done -> fetch(songRepository.getRandomSample(10, null, null), dicoverSongSample::setValue, done));
+        register(Constants.HOME_SECTOR_MADE_FOR_YOU, starredTracksSample, new TypeToken<List<Child>>() {}.getType(),
+                done -> fetch(songRepository.getStarredSongs(true, 10), starredTracksSample::setValue, done));
+        register(Constants.HOME_SECTOR_BEST_OF, bestOfArtists, new TypeToken<List<ArtistID3>>() {}.getType(),
+                done -> fetch(artistRepository.getStarredArtists(true, 20), bestOfArtists::setValue, done));
+        register(Constants.HOME_SECTOR_RADIO_STATION, starredArtistsSample, new TypeToken<List<ArtistID3>>() {}.getType(),
+                done -> fetch(artistRepository.getStarredArtists(true, 10), starredArtistsSample::setValue, done));
+        register(Constants.HOME_SECTOR_STARRED_TRACKS, starredTracks, new TypeToken<List<Child>>() {}.getType(),
+                done -> fetch(songRepository.getStarredSongs(true, 20), starredTracks::setValue, done));
+        register(Constants.HOME_SECTOR_STARRED_ALBUMS, starredAlbums, new TypeToken<List<AlbumID3>>() {}.getType(),
+                done -> fetch(albumRepository.getStarredAlbums(true, 20), starredAlbums::setValue, done));
+        register(Constants.HOME_SECTOR_STARRED_ARTISTS, starredArtists, new TypeToken<List<ArtistID3>>() {}.getType(),
+                done -> fetch(artistRepository.getStarredArtists(true, 20), starredArtists::setValue, done));
+        register(Constants.HOME_SECTOR_NEW_RELEASES, newReleasedAlbum, new TypeToken<List<AlbumID3>>() {}.getType(),
+                done -> fetch(albumRepository.getAlbums("byYear", 500, currentYear, currentYear), albums -> {
+                    if (albums != null) {
+                        albums.sort(Comparator.comparing(AlbumID3::getCreated).reversed());
+                        newReleasedAlbum.setValue(albums.subList(0, Math.min(20, albums.size())));
+                    }
+                }, done));
+        register(Constants.HOME_SECTOR_FLASHBACK, years, new TypeToken<List<Integer>>() {}.getType(),
+                done -> fetch(albumRepository.getDecades(), years::setValue, done));
+        register(Constants.HOME_SECTOR_MOST_PLAYED, mostPlayedAlbumSample, new TypeToken<List<AlbumID3>>() {}.getType(),
+                done -> fetch(albumRepository.getAlbums("frequent", 20, null, null), mostPlayedAlbumSample::setValue, done));
+        register(Constants.HOME_SECTOR_LAST_PLAYED, recentlyPlayedAlbumSample, new TypeToken<List<AlbumID3>>() {}.getType(),
+                done -> fetch(albumRepository.getAlbums("recent", 20, null, null), recentlyPlayedAlbumSample::setValue, done));
+        register(Constants.HOME_SECTOR_RECENTLY_ADDED, recentlyAddedAlbumSample, new TypeToken<List<AlbumID3>>() {}.getType(),
+                done -> fetch(albumRepository.getAlbums("newest", 20, null, null), recentlyAddedAlbumSample::setValue, done));
+        register(Constants.HOME_SECTOR_PINNED_PLAYLISTS, pinnedPlaylists, new TypeToken<List<Playlist>>() {}.getType(),
+                done -> fetch(playlistRepository.getPlaylists(false, -1), this::setPinnedPlaylists, done));
+        register(Constants.HOME_SECTOR_SHARED, shares, new TypeToken<List<Share>>() {}.getType(), done -> {
+            if (Preferences.isSharingEnabled()) {
+                fetch(sharingRepository.getShares(), shares::setValue, done);
+            } else {
+                done.run();
+            }
+        });
     }
 
-    public void setOfflineFavorite() {
-        ArrayList<Favorite> favorites = getFavorites();
-        ArrayList<Favorite> favoritesToSave = getFavoritesToSave(favorites);
-        ArrayList<Favorite> favoritesToDelete = getFavoritesToDelete(favorites, favoritesToSave);
+    /**
+     * Adds a sector to the feed, and keeps what it shows as its snapshot.
+     */
+    private <T> void register(String sectorId, MutableLiveData<T> data, Type type, HomeFeed.Loader loader) {
+        feed.register(sectorId, loader);
+        sectorData.put(sectorId, data);
+        sectorTypes.put(sectorId, type);
 
-        manageFavoriteToSave(favoritesToSave);
-        manageFavoriteToDelete(favoritesToDelete);
-    }
+        Observer<T> snapshotter = value -> {
+            String server = Preferences.getServerId();
 
-    private ArrayList<Favorite> getFavorites() {
-        return new ArrayList<>(favoriteRepository.getFavorites());
-    }
+            if (server != null && value != null && value != restored.get(sectorId)) {
+                snapshotRepository.save(server, sectorId, value);
+            }
+        };
 
-    private ArrayList<Favorite> getFavoritesToSave(ArrayList<Favorite> favorites) {
-        HashMap<String, Favorite> filteredMap = new HashMap<>();
+        data.observeForever(snapshotter);
+        detachers.add(() -> data.removeObserver(snapshotter));
+    }
 
-        for (Favorite favorite : favorites) {
-            String key = favorite.toString();
+    /**
+     * Passes on what {@code source} loads, and calls {@code done} with the first result. The source
+     * stays observed until the view model is cleared, as a cached response may be followed by a
+     * fresher one.
+     */
+    private <T> void fetch(LiveData<T> source, Consumer<T> onResult, Runnable done) {
+        boolean[] attached = {false};
 
-            if (!filteredMap.containsKey(key) || favorite.getTimestamp() > filteredMap.get(key).getTimestamp()) {
-                filteredMap.put(key, favorite);
+        Observer<T> observer = value -> {
+            // What the source holds when observed is the empty placeholder the repository starts
+            // with, unless a cached response already answered
+            if (!attached[0] && (value == null || value instanceof Collection && ((Collection<?>) value).isEmpty())) {
+                return;
             }
-        }
 
-        return new ArrayList<>(filteredMap.values());
+            onResult.accept(value);
+            done.run();
+        };
+
+        source.observeForever(observer);
+        attached[0] = true;
+        detachers.add(() -> source.removeObserver(observer));
     }
 
-    private ArrayList<Favorite> getFavoritesToDelete(ArrayList<Favorite> favorites, ArrayList<Favorite> favoritesToSave) {
-        ArrayList<Favorite> favoritesToDelete = new ArrayList<>();
+    @SuppressWarnings("unchecked")
+    private void restoreSnapshots() {
+        String server = Preferences.getServerId();
+        if (server == null) return;
+
+        Futures.addCallback(snapshotRepository.load(server, sectorTypes), new FutureCallback<Map<String, Object>>() {
+            @Override
+            public void onSuccess(Map<String, Object> snapshots) {
+                for (Map.Entry<String, Object> snapshot : snapshots.entrySet()) {
+                    MutableLiveData<Object> data = (MutableLiveData<Object>) sectorData.get(snapshot.getKey());
 
-        for (Favorite favorite : favorites) {
-            if (!favoritesToSave.contains(favorite)) {
-                favoritesToDelete.add(favorite);
+                    // Already fetched, which is newer
+                    if (data == null || data.getValue() != null) continue;
+
+                    restored.put(snapshot.getKey(), snapshot.getValue());
+                    data.setValue(snapshot.getValue());
+                }
             }
-        }
 
-        return favoritesToDelete;
+            @Override
+            public void onFailure(@NonNull Throwable t) {
+                Log.w(TAG, "Could not restore the home snapshots", t);
+            }
+        }, ContextCompat.getMainExecutor(getApplication()));
     }
 
-    private void manageFavoriteToSave(ArrayList<Favorite> favoritesToSave) {
-        for (Favorite favorite : favoritesToSave) {
-            if (favorite.getToStar()) {
-                favoriteToStar(favorite);
+    private void setPinnedPlaylists(List<Playlist> remotes) {
+        if (remotes != null && !remotes.isEmpty()) {
+            List<Playlist> playlists = new ArrayList<>(remotes);
+            if (Preferences.getHomeSortPlaylists().equals(Constants.PLAYLIST_ORDER_BY_RANDOM)) {
+                Collections.shuffle(playlists);
             } else {
-                favoriteToUnstar(favorite);
+                playlists.sort(Comparator.comparing(Playlist::getName));
             }
+            List<Playlist> subsetPlaylists = playlists.size() > 5
+                    ? playlists.subList(0, 5)
+                    : playlists;
+
+            pinnedPlaylists.setValue(subsetPlaylists);
         }
     }
 
-    private void manageFavoriteToDelete(ArrayList<Favorite> favoritesToDelete) {
-        for (Favorite favorite : favoritesToDelete) {
-            favoriteRepository.delete(favorite);
+    private void setHomeSectorList() {
+        if (Preferences.getHomeSectorList() != null && !Preferences.getHomeSectorList().equals("null")) {
+            sectors = new Gson().fromJson(
+                    Preferences.getHomeSectorList(),
+                    new TypeToken<List<HomeSector>>() {
+                    }.getType()
+            );
         }
     }
 
-    private void favoriteToStar(Favorite favorite) {
-        if (favorite.getSongId() != null) {
-            favoriteRepository.star(favorite.getSongId(), null, null, new StarCallback() {
-                @Override
-                public void onSuccess() {
-                    favoriteRepository.delete(favorite);
-                }
-            });
-        } else if (favorite.getAlbumId() != null) {
-            favoriteRepository.star(null, favorite.getAlbumId(), null, new StarCallback() {
-                @Override
-                public void onSuccess() {
-                    favoriteRepository.delete(favorite);
-                }
-            });
-        } else if (favorite.getArtistId() != null) {
-            favoriteRepository.star(null, null, favorite.getArtistId(), new StarCallback() {
-                @Override
-                public void onSuccess() {
-                    favoriteRepository.delete(favorite);
-                }
-            });
-        }
+    public List<HomeSector> getHomeSectorList() {
+        return sectors;
     }
 
-    private void favoriteToUnstar(Favorite favorite) {
-        if (favorite.getSongId() != null) {
-            favoriteRepository.unstar(favorite.getSongId(), null, null, new StarCallback() {
-                @Override
-                public void onSuccess() {
-                    favoriteRepository.delete(favorite);
-                }
-            });
-        } else if (favorite.getAlbumId() != null) {
-            favoriteRepository.unstar(null, favorite.getAlbumId(), null, new StarCallback() {
-                @Override
-                public void onSuccess() {
-                    favoriteRepository.delete(favorite);
-                }
-            });
-        } else if (favorite.getArtistId() != null) {
-            favoriteRepository.unstar(null, null, favorite.getArtistId(), new StarCallback() {
-                @Override
-                public void onSuccess() {
-                    favoriteRepository.delete(favorite);
-                }
-            });
-        }
+    public boolean checkHomeSectorVisibility(String sectorId) {
+        return sectors != null && sectors.stream().filter(sector -> sector.getId().equals(sectorId))
+                .findAny()
+                .orElse(null) == null;
     }
 }
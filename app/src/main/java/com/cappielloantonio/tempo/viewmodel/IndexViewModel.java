@@ -22,7 +22,7 @@ public class IndexViewModel extends AndroidViewModel {
     }
 
     public MutableLiveData<Indexes> getIndexes(String musicFolderId) {
-        return directoryRepository.getIndexes(musicFolderId, null);
+        return directoryRepository.getMirroredIndexes(musicFolderId);
     }
 
     public String getMusicFolderName() {
@@ -58,7 +58,7 @@ public class LibraryViewModel extends AndroidViewModel {
 
     public LiveData<Indexes> getIndexes(LifecycleOwner owner) {
         if (indexes.getValue() == null) {
-            directoryRepository.getIndexes("0", null).observe(owner, indexes::postValue);
+            directoryRepository.getMirroredIndexes("0").observe(owner, indexes::postValue);
         }
 
         return indexes;
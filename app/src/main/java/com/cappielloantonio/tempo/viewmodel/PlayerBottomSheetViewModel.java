@@ -170,11 +170,6 @@ public class PlayerBottomSheetViewModel extends AndroidViewModel {
 
         observeCachedLyrics(owner, songId);
 
-        LyricsCache cachedLyrics = lyricsRepository.getLyrics(songId);
-        if (cachedLyrics != null) {
-            onCachedLyricsChanged(cachedLyrics);
-        }
-
         if (NetworkUtil.isOffline() || media == null) {
             return;
         }
@@ -19,6 +19,8 @@ import java.util.List;
 public class PlaylistPageViewModel extends AndroidViewModel {
     private final PlaylistRepository playlistRepository;
 
+    private final MutableLiveData<Boolean> playlistSongPreviewDone = new MutableLiveData<>(false);
+
     private Playlist playlist;
     private boolean isOffline;
 
@@ -32,6 +34,23 @@ public class PlaylistPageViewModel extends AndroidViewModel {
         return playlistRepository.getPlaylistSongs(playlist.getId());
     }
 
+    /**
+     * Like {@link #getPlaylistSongLiveList}, but also posts the first songs of a long playlist while
+     * the rest downloads. Only for showing the list, see {@link #isPlaylistSongPreviewDone}.
+     */
+    public LiveData<List<Child>> getPlaylistSongPreviewLiveList() {
+        playlistSongPreviewDone.setValue(false);
+        return playlistRepository.getPlaylistSongs(playlist.getId(), playlistSongPreviewDone);
+    }
+
+    /**
+     * Whether the preview list has stopped growing. Before that it is only the start of the
+     * playlist.
+     */
+    public LiveData<Boolean> isPlaylistSongPreviewDone() {
+        return playlistSongPreviewDone;
+    }
+
     public Playlist getPlaylist() {
         return playlist;
     }
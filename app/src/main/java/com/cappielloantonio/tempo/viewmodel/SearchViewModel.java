@@ -8,10 +8,10 @@ import androidx.lifecycle.LiveData;
 
 import com.cappielloantonio.tempo.model.RecentSearch;
 import com.cappielloantonio.tempo.repository.SearchingRepository;
+import com.cappielloantonio.tempo.service.LibrarySync;
 import com.cappielloantonio.tempo.subsonic.models.SearchResult2;
 import com.cappielloantonio.tempo.subsonic.models.SearchResult3;
 
-import java.util.ArrayList;
 import java.util.List;
 
 public class SearchViewModel extends AndroidViewModel {
@@ -25,6 +25,9 @@ public class SearchViewModel extends AndroidViewModel {
         super(application);
 
         searchingRepository = new SearchingRepository();
+
+        // The index may never have been built if the app was started logged out
+        LibrarySync.request();
     }
 
     public String getQuery() {
@@ -59,10 +62,7 @@ public class SearchViewModel extends AndroidViewModel {
         return searchingRepository.getSuggestions(query);
     }
 
-    public List<String> getRecentSearchSuggestion() {
-        ArrayList<String> suggestions = new ArrayList<>();
-        suggestions.addAll(searchingRepository.getRecentSearchSuggestion());
-
-        return suggestions;
+    public LiveData<List<String>> getRecentSearchSuggestion() {
+        return searchingRepository.getRecentSearchSuggestion();
     }
 }
@@ -16,7 +16,9 @@ import com.cappielloantonio.tempo.subsonic.models.Child;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.CountDownLatch;
+import java.util.stream.Collectors;
 
 public class StarredAlbumsSyncViewModel extends AndroidViewModel {
     private final AlbumRepository albumRepository;
@@ -24,6 +26,9 @@ public class StarredAlbumsSyncViewModel extends AndroidViewModel {
     private final MutableLiveData<List<AlbumID3>> starredAlbums = new MutableLiveData<>(null);
     private final MutableLiveData<List<Child>> starredAlbumSongs = new MutableLiveData<>(null);
 
+    // Every starred album, empty when there is none; null until the server answered
+    private volatile Set<String> starredAlbumIds;
+
     public StarredAlbumsSyncViewModel(@NonNull Application application) {
         super(application);
         albumRepository = new AlbumRepository();
@@ -35,21 +40,32 @@ public class StarredAlbumsSyncViewModel extends AndroidViewModel {
     }
 
     public LiveData<List<Child>> getAllStarredAlbumSongs() {
-        albumRepository.getStarredAlbums(false, -1).observeForever(new Observer<List<AlbumID3>>() {
+        LiveData<List<AlbumID3>> allAlbums = albumRepository.getAllStarredAlbums();
+        allAlbums.observeForever(new Observer<List<AlbumID3>>() {
             @Override
             public void onChanged(List<AlbumID3> albums) {
-                if (albums != null && !albums.isEmpty()) {
+                starredAlbumIds = albums.stream().map(AlbumID3::getId).collect(Collectors.toSet());
+
+                if (!albums.isEmpty()) {
                     collectAllAlbumSongs(albums, starredAlbumSongs::postValue);
                 } else {
                     starredAlbumSongs.postValue(new ArrayList<>());
                 }
-                albumRepository.getStarredAlbums(false, -1).removeObserver(this);
+                allAlbums.removeObserver(this);
             }
         });
         
         return starredAlbumSongs;
     }
 
+    /**
+     * The ids of all starred albums, null until {@link #getAllStarredAlbumSongs} has loaded them
+     * and empty when nothing is starred.
+     */
+    public Set<String> getStarredAlbumIds() {
+        return starredAlbumIds;
+    }
+
     public LiveData<List<Child>> getStarredAlbumSongs(Activity activity) {
         albumRepository.getStarredAlbums(false, -1).observe((LifecycleOwner) activity, albums -> {
             if (albums != null && !albums.isEmpty()) {
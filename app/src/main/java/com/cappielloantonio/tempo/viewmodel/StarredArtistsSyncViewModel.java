@@ -16,7 +16,9 @@ import com.cappielloantonio.tempo.subsonic.models.Child;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.CountDownLatch;
+import java.util.stream.Collectors;
 import java.util.concurrent.atomic.AtomicInteger;
 
 public class StarredArtistsSyncViewModel extends AndroidViewModel {
@@ -25,6 +27,9 @@ public class StarredArtistsSyncViewModel extends AndroidViewModel {
     private final MutableLiveData<List<ArtistID3>> starredArtists = new MutableLiveData<>(null);
     private final MutableLiveData<List<Child>> starredArtistSongs = new MutableLiveData<>(null);
 
+    // Every starred artist, empty when there is none; null until the server answered
+    private volatile Set<String> starredArtistIds;
+
     public StarredArtistsSyncViewModel(@NonNull Application application) {
         super(application);
         artistRepository = new ArtistRepository();
@@ -36,21 +41,32 @@ public class StarredArtistsSyncViewModel extends AndroidViewModel {
     }
 
     public LiveData<List<Child>> getAllStarredArtistSongs() {
-        artistRepository.getStarredArtists(false, -1).observeForever(new Observer<List<ArtistID3>>() {
+        LiveData<List<ArtistID3>> allArtists = artistRepository.getAllStarredArtists();
+        allArtists.observeForever(new Observer<List<ArtistID3>>() {
             @Override
             public void onChanged(List<ArtistID3> artists) {
-                if (artists != null && !artists.isEmpty()) {
+                starredArtistIds = artists.stream().map(ArtistID3::getId).collect(Collectors.toSet());
+
+                if (!artists.isEmpty()) {
                     collectAllArtistSongs(artists, starredArtistSongs::postValue);
                 } else {
                     starredArtistSongs.postValue(new ArrayList<>());
                 }
-                artistRepository.getStarredArtists(false, -1).removeObserver(this);
+                allArtists.removeObserver(this);
             }
         });
         
         return starredArtistSongs;
     }
 
+    /**
+     * The ids of all starred artists, null until {@link #getAllStarredArtistSongs} has loaded them
+     * and empty when nothing is starred.
+     */
+    public Set<String> getStarredArtistIds() {
+        return starredArtistIds;
+    }
+
     public LiveData<List<Child>> getStarredArtistSongs(Activity activity) {
         artistRepository.getStarredArtists(false, -1).observe((LifecycleOwner) activity, artists -> {
             if (artists != null && !artists.isEmpty()) {
@@ -0,0 +1,99 @@
+package com.cappielloantonio.tempo.benchmark;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Times a piece of work the way every benchmark here does: a fixed number of warm-up runs, then a
+ * fixed number of measured ones, reported as their median and minimum. The setup of each run is
+ * left out of the time.
+ * <p>
+ * Benchmarks only run with {@code ./gradlew testDebugUnitTest -Pbenchmark}, see {@link #ENABLED}.
+ * Their results are written to {@code build/benchmark/results.tsv}, one line per measurement.
+ */
+public final class Benchmark {
+    public static final boolean ENABLED = Boolean.getBoolean("tempo.benchmark");
+
+    private static final String RESULTS = System.getProperty("tempo.benchmark.results", "build/benchmark/results.tsv");
+
+    private static final int WARMUP_RUNS = 3;
+    private static final int MEASURED_RUNS = 5;
+
+    private static boolean resultsStarted;
+
+    public interface Run {
+        /**
+         * Prepares one run and returns the work to time.
+         */
+        Runnable setUp() throws Exception;
+    }
+
+    public static final class Result {
+        public final String name;
+        public final int size;
+        public final double medianMs;
+        public final double minMs;
+
+        Result(String name, int size, double medianMs, double minMs) {
+            this.name = name;
+            this.size = size;
+            this.medianMs = medianMs;
+            this.minMs = minMs;
+        }
+    }
+
+    private Benchmark() {
+    }
+
+    /**
+     * Runs {@code run} and records its name, size, median and minimum in milliseconds as one
+     * tab separated line of the results.
+     */
+    public static Result measure(String name, int size, Run run) throws Exception {
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            run.setUp().run();
+        }
+
+        long[] times = new long[MEASURED_RUNS];
+
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            Runnable work = run.setUp();
+            long start = System.nanoTime();
+            work.run();
+            times[i] = System.nanoTime() - start;
+        }
+
+        Arrays.sort(times);
+
+        Result result = new Result(name, size, times[MEASURED_RUNS / 2] / 1e6, times[0] / 1e6);
+        record(result);
+        return result;
+    }
+
+    /**
+     * Appends {@code result} to the results file, which the first result of a test run starts over.
+     */
+    private static synchronized void record(Result result) throws IOException {
+        File file = new File(RESULTS);
+        File directory = file.getParentFile();
+
+        if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory);
+        }
+
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file, resultsStarted), StandardCharsets.UTF_8)) {
+            if (!resultsStarted) {
+                writer.write("name\tsize\tmedian_ms\tmin_ms\n");
+                resultsStarted = true;
+            }
+
+            writer.write(String.format(Locale.ROOT, "%s\t%d\t%.1f\t%.1f\n", result.name, result.size, result.medianMs, result.minMs));
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.cappielloantonio.tempo.benchmark
+
+import com.cappielloantonio.tempo.subsonic.models.Child
+import java.util.Date
+import java.util.Random
+
+/**
+ * Synthetic songs laid out like a real library: albums of 12 songs, artists of 5 albums. The same
+ * count always gives the same songs, so runs on different builds measure the same work.
+ */
+object ChildFixtures {
+    @JvmField
+    val SIZES = intArrayOf(1_000, 10_000, 100_000)
+
+    private const val SEED = 42L
+    private const val SONGS_PER_ALBUM = 12
+    private const val ALBUMS_PER_ARTIST = 5
+    private const val EPOCH = 1_500_000_000_000L
+
+    private val suffixes = arrayOf("flac", "mp3", "opus", "m4a")
+    private val genres = arrayOf("Rock", "Jazz", "Electronic", "Classical", "Hip-Hop", "Folk")
+    private val words = arrayOf(
+        "night", "river", "light", "summer", "ghost", "heart", "glass", "city", "dream", "fire",
+        "blue", "silent", "golden", "broken", "electric", "wild", "last", "northern", "paper", "echo"
+    )
+
+    @JvmStatic
+    fun songs(count: Int): List<Child> {
+        val random = Random(SEED)
+        val songs = ArrayList<Child>(count)
+
+        for (i in 0 until count) {
+            val album = i / SONGS_PER_ALBUM
+            val artist = album / ALBUMS_PER_ARTIST
+            val suffix = suffixes[album % suffixes.size]
+            val duration = 60 + random.nextInt(540)
+            val bitrate = if (suffix == "flac") 900 + random.nextInt(600) else 128 + random.nextInt(192)
+
+            songs.add(Child(
+                id = "so-$i",
+                parentId = "al-$album",
+                title = title(random),
+                album = "Album $album",
+                artist = "Artist $artist",
+                track = i % SONGS_PER_ALBUM + 1,
+                year = 1960 + album % 64,
+                genre = genres[artist % genres.size],
+                coverArtId = "al-$album",
+                size = duration.toLong() * bitrate * 125,
+                contentType = "audio/$suffix",
+                suffix = suffix,
+                duration = duration,
+                bitrate = bitrate,
+                samplingRate = 44_100,
+                bitDepth = 16,
+                path = "Artist $artist/Album $album/${i % SONGS_PER_ALBUM + 1}.$suffix",
+                playCount = random.nextInt(50).toLong(),
+                discNumber = 1,
+                created = Date(EPOCH + i * 1000L),
+                starred = if (random.nextInt(10) == 0) Date(EPOCH + i * 2000L) else null,
+                albumId = "al-$album",
+                artistId = "ar-$artist",
+                type = "music",
+            ))
+        }
+
+        return songs
+    }
+
+    private fun title(random: Random): String {
+        val length = 1 + random.nextInt(4)
+        return (0 until length).joinToString(" ") { words[random.nextInt(words.size)] }
+    }
+}
@@ -0,0 +1,94 @@
+package com.cappielloantonio.tempo.benchmark;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+import android.app.Application;
+
+import androidx.room.Room;
+
+import com.cappielloantonio.tempo.database.AppDatabase;
+import com.cappielloantonio.tempo.database.dao.QueueDao;
+import com.cappielloantonio.tempo.model.Queue;
+import com.cappielloantonio.tempo.subsonic.models.Child;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The work of {@link com.cappielloantonio.tempo.repository.QueueRepository#insertAll} on its
+ * executor: songs turned into queue rows, then written over the queue or into the middle of it.
+ * Runs on an in-memory database, with a plain application so that none of the app's services
+ * start.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 35, application = Application.class)
+public class QueueBenchmark {
+    private static final int INSERTED = 100;
+
+    private AppDatabase database;
+    private QueueDao queueDao;
+
+    @Before
+    public void setUp() {
+        assumeTrue("Run with -Pbenchmark", Benchmark.ENABLED);
+
+        database = Room.inMemoryDatabaseBuilder(RuntimeEnvironment.getApplication(), AppDatabase.class)
+                .allowMainThreadQueries()
+                .build();
+        queueDao = database.queueDao();
+    }
+
+    @After
+    public void tearDown() {
+        if (database != null) database.close();
+    }
+
+    @Test
+    public void replaceAll() throws Exception {
+        for (int size : ChildFixtures.SIZES) {
+            List<Child> songs = ChildFixtures.songs(size);
+
+            Benchmark.measure("queue.replaceAll", size, () -> {
+                queueDao.deleteAll();
+                return () -> queueDao.replaceAll(toQueue(songs));
+            });
+
+            assertEquals(size, queueDao.count());
+        }
+    }
+
+    @Test
+    public void insertAt() throws Exception {
+        List<Child> inserted = ChildFixtures.songs(INSERTED);
+
+        for (int size : ChildFixtures.SIZES) {
+            List<Queue> queue = toQueue(ChildFixtures.songs(size));
+
+            Benchmark.measure("queue.insertAt", size, () -> {
+                queueDao.replaceAll(queue);
+                return () -> queueDao.insertAt(size / 2, toQueue(inserted));
+            });
+
+            assertEquals(size + INSERTED, queueDao.count());
+        }
+    }
+
+    private static List<Queue> toQueue(List<Child> songs) {
+        List<Queue> media = new ArrayList<>(songs.size());
+
+        for (Child song : songs) {
+            media.add(new Queue(song));
+        }
+
+        return media;
+    }
+}
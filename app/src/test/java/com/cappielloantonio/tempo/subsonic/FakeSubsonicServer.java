@@ -0,0 +1,545 @@
+package com.cappielloantonio.tempo.subsonic;
+
+import com.cappielloantonio.tempo.benchmark.ChildFixtures;
+import com.cappielloantonio.tempo.subsonic.models.Child;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.JsonSerializer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import mockwebserver3.Dispatcher;
+import mockwebserver3.MockResponse;
+import mockwebserver3.MockWebServer;
+import mockwebserver3.RecordedRequest;
+import okhttp3.HttpUrl;
+import okio.Buffer;
+
+/**
+ * A local stand-in for a Subsonic server, serving a synthetic library of {@link ChildFixtures}
+ * songs so that the network paths can be measured offline.
+ * <p>
+ * The browsing, list, search and starred endpoints answer from the library, {@code stream} and
+ * {@code download} with a generated WAV tone as long as the song, honouring {@code timeOffset}
+ * and byte ranges. Every other endpoint of the {@code *Service} interfaces answers an empty
+ * {@code ok}, which is what the app expects from the write endpoints and reads as an empty list
+ * elsewhere. Credentials are not checked.
+ * <p>
+ * Each response waits {@link #setLatency} before its headers and its body is sent at most at
+ * {@link #setBandwidth}.
+ */
+public class FakeSubsonicServer implements Closeable {
+    private static final String VERSION = "1.16.1";
+
+    // 8 kHz mono 8-bit keeps a 10 minute song under 5 MB
+    private static final int SAMPLE_RATE = 8_000;
+    private static final int WAV_HEADER_SIZE = 44;
+    private static final byte[] SINE = new byte[256];
+
+    private static final Pattern RANGE = Pattern.compile("bytes=(\\d+)-(\\d*)");
+
+    private static final Gson gson = new GsonBuilder()
+            .registerTypeAdapter(Date.class, (JsonSerializer<Date>) (date, type, context) -> {
+                SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", Locale.US);
+                format.setTimeZone(TimeZone.getTimeZone("UTC"));
+                return new JsonPrimitive(format.format(date));
+            })
+            .create();
+
+    static {
+        for (int i = 0; i < SINE.length; i++) {
+            SINE[i] = (byte) (128 + 32 * Math.sin(2 * Math.PI * i / SINE.length));
+        }
+    }
+
+    private final MockWebServer server = new MockWebServer();
+    private final Random random = new Random(42);
+
+    private final List<Child> songs;
+    private final Map<String, Child> songsById = new LinkedHashMap<>();
+    private final Map<String, List<Child>> songsByAlbum = new LinkedHashMap<>();
+    private final Map<String, List<String>> albumsByArtist = new LinkedHashMap<>();
+
+    private volatile long latencyMs;
+    private volatile long bytesPerSecond;
+
+    public FakeSubsonicServer(int songCount) {
+        songs = ChildFixtures.songs(songCount);
+
+        for (Child song : songs) {
+            songsById.put(song.getId(), song);
+
+            List<Child> album = songsByAlbum.get(song.getAlbumId());
+
+            if (album == null) {
+                album = new ArrayList<>();
+                songsByAlbum.put(song.getAlbumId(), album);
+                albumsByArtist.computeIfAbsent(song.getArtistId(), artistId -> new ArrayList<>()).add(song.getAlbumId());
+            }
+
+            album.add(song);
+        }
+
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return respond(request);
+            }
+        });
+    }
+
+    /**
+     * How long each response waits before its headers, 0 by default.
+     */
+    public FakeSubsonicServer setLatency(long latency, TimeUnit unit) {
+        latencyMs = unit.toMillis(latency);
+        return this;
+    }
+
+    /**
+     * The most bytes per second a response body is sent at, 0 for no limit, the default.
+     */
+    public FakeSubsonicServer setBandwidth(long bytesPerSecond) {
+        this.bytesPerSecond = bytesPerSecond;
+        return this;
+    }
+
+    public void start() throws IOException {
+        server.start();
+    }
+
+    /**
+     * The REST base URL, as {@link Subsonic#getUrl()} builds it for a server.
+     */
+    public String getUrl() {
+        return server.url("/rest/").toString();
+    }
+
+    public int getRequestCount() {
+        return server.getRequestCount();
+    }
+
+    public List<Child> getSongs() {
+        return Collections.unmodifiableList(songs);
+    }
+
+    @Override
+    public void close() {
+        server.close();
+    }
+
+    private MockResponse respond(RecordedRequest request) {
+        HttpUrl url = request.getUrl();
+        List<String> segments = url.pathSegments();
+
+        if (segments.size() != 2 || !segments.get(0).equals("rest")) {
+            return delayed(new MockResponse.Builder().code(404)).build();
+        }
+
+        String endpoint = segments.get(1).replace(".view", "");
+
+        if (endpoint.equals("stream") || endpoint.equals("download")) {
+            return stream(url, request.getHeaders().get("Range"));
+        }
+
+        JsonObject body = ok();
+
+        switch (endpoint) {
+            case "getLicense": {
+                JsonObject license = new JsonObject();
+                license.addProperty("valid", true);
+                body.add("license", license);
+                break;
+            }
+            case "getScanStatus":
+            case "startScan": {
+                JsonObject scanStatus = new JsonObject();
+                scanStatus.addProperty("scanning", false);
+                scanStatus.addProperty("count", songs.size());
+                body.add("scanStatus", scanStatus);
+                break;
+            }
+            case "getMusicFolders": {
+                JsonObject folder = new JsonObject();
+                folder.addProperty("id", "1");
+                folder.addProperty("name", "Music");
+                body.add("musicFolders", wrap("musicFolder", array(folder)));
+                break;
+            }
+            case "getGenres":
+                body.add("genres", wrap("genre", genres()));
+                break;
+            case "getArtists":
+                body.add("artists", artistIndex());
+                break;
+            case "getIndexes":
+                body.add("indexes", artistIndex());
+                break;
+            case "getArtist": {
+                JsonObject artist = artist(url.queryParameter("id"));
+                if (artist == null) return notFound();
+                artist.add("album", albums(albumsByArtist.get(url.queryParameter("id"))));
+                body.add("artist", artist);
+                break;
+            }
+            case "getAlbum": {
+                JsonObject album = album(url.queryParameter("id"));
+                if (album == null) return notFound();
+                album.add("song", gson.toJsonTree(songsByAlbum.get(url.queryParameter("id"))));
+                body.add("album", album);
+                break;
+            }
+            case "getMusicDirectory": {
+                JsonObject album = album(url.queryParameter("id"));
+                if (album == null) return notFound();
+                album.add("child", gson.toJsonTree(songsByAlbum.get(url.queryParameter("id"))));
+                body.add("directory", album);
+                break;
+            }
+            case "getSong": {
+                Child song = songsById.get(url.queryParameter("id"));
+                if (song == null) return notFound();
+                body.add("song", gson.toJsonTree(song));
+                break;
+            }
+            case "getAlbumList":
+            case "getAlbumList2": {
+                List<String> albumIds = page(new ArrayList<>(songsByAlbum.keySet()), url, "offset", "size", 10);
+                body.add(endpoint.equals("getAlbumList") ? "albumList" : "albumList2", wrap("album", albums(albumIds)));
+                break;
+            }
+            case "getRandomSongs": {
+                int size = intParameter(url, "size", 10);
+                List<Child> picked = new ArrayList<>(size);
+
+                synchronized (random) {
+                    for (int i = 0; i < size && !songs.isEmpty(); i++) {
+                        picked.add(songs.get(random.nextInt(songs.size())));
+                    }
+                }
+
+                body.add("randomSongs", wrap("song", gson.toJsonTree(picked)));
+                break;
+            }
+            case "getSongsByGenre": {
+                String genre = url.queryParameter("genre");
+                List<Child> matching = filter(songs, song -> song.getGenre() != null && song.getGenre().equals(genre));
+                body.add("songsByGenre", wrap("song", gson.toJsonTree(page(matching, url, "offset", "count", 10))));
+                break;
+            }
+            case "getTopSongs": {
+                String artist = url.queryParameter("artist");
+                List<Child> matching = filter(songs, song -> song.getArtist() != null && song.getArtist().equals(artist));
+                body.add("topSongs", wrap("song", gson.toJsonTree(page(matching, url, null, "count", 50))));
+                break;
+            }
+            case "search2":
+            case "search3":
+                body.add(endpoint.equals("search2") ? "searchResult2" : "searchResult3", search(url));
+                break;
+            case "getStarred":
+            case "getStarred2": {
+                JsonObject starred = new JsonObject();
+                starred.add("song", gson.toJsonTree(filter(songs, song -> song.getStarred() != null)));
+                body.add(endpoint.equals("getStarred") ? "starred" : "starred2", starred);
+                break;
+            }
+            case "getPlaylists":
+                body.add("playlists", wrap("playlist", new JsonArray()));
+                break;
+            case "getPlaylist":
+                return notFound();
+            default:
+                break;
+        }
+
+        return json(body);
+    }
+
+    private JsonObject artistIndex() {
+        Map<String, JsonArray> indices = new LinkedHashMap<>();
+
+        for (String artistId : albumsByArtist.keySet()) {
+            JsonObject artist = artist(artistId);
+            String name = artist.get("name").getAsString();
+            indices.computeIfAbsent(name.substring(0, 1).toUpperCase(Locale.ROOT), letter -> new JsonArray()).add(artist);
+        }
+
+        JsonArray index = new JsonArray();
+
+        for (Map.Entry<String, JsonArray> entry : indices.entrySet()) {
+            JsonObject letter = new JsonObject();
+            letter.addProperty("name", entry.getKey());
+            letter.add("artist", entry.getValue());
+            index.add(letter);
+        }
+
+        JsonObject artists = new JsonObject();
+        artists.addProperty("ignoredArticles", "The El La Los Las Le Les");
+        artists.add("index", index);
+        return artists;
+    }
+
+    private JsonObject artist(String artistId) {
+        List<String> albumIds = albumsByArtist.get(artistId);
+        if (albumIds == null) return null;
+
+        Child first = songsByAlbum.get(albumIds.get(0)).get(0);
+
+        JsonObject artist = new JsonObject();
+        artist.addProperty("id", artistId);
+        artist.addProperty("name", first.getArtist());
+        artist.addProperty("coverArt", artistId);
+        artist.addProperty("albumCount", albumIds.size());
+        return artist;
+    }
+
+    private JsonObject album(String albumId) {
+        List<Child> albumSongs = songsByAlbum.get(albumId);
+        if (albumSongs == null) return null;
+
+        Child first = albumSongs.get(0);
+        int duration = 0;
+
+        for (Child song : albumSongs) {
+            duration += song.getDuration() != null ? song.getDuration() : 0;
+        }
+
+        JsonObject album = new JsonObject();
+        album.addProperty("id", albumId);
+        album.addProperty("name", first.getAlbum());
+        album.addProperty("artist", first.getArtist());
+        album.addProperty("artistId", first.getArtistId());
+        album.addProperty("coverArt", first.getCoverArtId());
+        album.addProperty("songCount", albumSongs.size());
+        album.addProperty("duration", duration);
+        album.addProperty("year", first.getYear());
+        album.addProperty("genre", first.getGenre());
+        album.add("created", gson.toJsonTree(first.getCreated()));
+        return album;
+    }
+
+    private JsonArray albums(List<String> albumIds) {
+        JsonArray albums = new JsonArray();
+
+        for (String albumId : albumIds) {
+            albums.add(album(albumId));
+        }
+
+        return albums;
+    }
+
+    private JsonArray genres() {
+        Map<String, int[]> counts = new LinkedHashMap<>();
+
+        for (List<Child> albumSongs : songsByAlbum.values()) {
+            int[] count = counts.computeIfAbsent(albumSongs.get(0).getGenre(), genre -> new int[2]);
+            count[0] += albumSongs.size();
+            count[1]++;
+        }
+
+        JsonArray genres = new JsonArray();
+
+        for (Map.Entry<String, int[]> entry : counts.entrySet()) {
+            JsonObject genre = new JsonObject();
+            genre.addProperty("value", entry.getKey());
+            genre.addProperty("songCount", entry.getValue()[0]);
+            genre.addProperty("albumCount", entry.getValue()[1]);
+            genres.add(genre);
+        }
+
+        return genres;
+    }
+
+    /**
+     * A case-insensitive substring match on names. An empty query, which the library sync sends to
+     * page through everything, matches every item.
+     */
+    private JsonObject search(HttpUrl url) {
+        String query = url.queryParameter("query");
+        String needle = query == null ? "" : query.replace("\"", "").toLowerCase(Locale.ROOT);
+
+        List<String> artistIds = filter(new ArrayList<>(albumsByArtist.keySet()), artistId ->
+                songsByAlbum.get(albumsByArtist.get(artistId).get(0)).get(0).getArtist().toLowerCase(Locale.ROOT).contains(needle));
+        List<String> albumIds = filter(new ArrayList<>(songsByAlbum.keySet()), albumId ->
+                songsByAlbum.get(albumId).get(0).getAlbum().toLowerCase(Locale.ROOT).contains(needle));
+        List<Child> matchingSongs = filter(songs, song ->
+                song.getTitle() != null && song.getTitle().toLowerCase(Locale.ROOT).contains(needle));
+
+        JsonArray artists = new JsonArray();
+
+        for (String artistId : page(artistIds, url, "artistOffset", "artistCount", 20)) {
+            artists.add(artist(artistId));
+        }
+
+        JsonObject result = new JsonObject();
+        result.add("artist", artists);
+        result.add("album", albums(page(albumIds, url, "albumOffset", "albumCount", 20)));
+        result.add("song", gson.toJsonTree(page(matchingSongs, url, "songOffset", "songCount", 20)));
+        return result;
+    }
+
+    /**
+     * The song as an 8-bit WAV tone, starting {@code timeOffset} seconds in like a transcoded
+     * stream, and cut to {@code range} when there is one.
+     */
+    private MockResponse stream(HttpUrl url, String range) {
+        Child song = songsById.get(url.queryParameter("id"));
+        if (song == null) return notFound();
+
+        int duration = song.getDuration() != null ? song.getDuration() : 0;
+        int seconds = Math.max(0, duration - intParameter(url, "timeOffset", 0));
+        int length = WAV_HEADER_SIZE + seconds * SAMPLE_RATE;
+        // A tone between 220 and 880 Hz, so that songs sound different
+        int frequency = 220 + Math.floorMod(song.getId().hashCode(), 660);
+
+        MockResponse.Builder response = delayed(new MockResponse.Builder())
+                .setHeader("Content-Type", "audio/wav")
+                .setHeader("Accept-Ranges", "bytes");
+
+        Matcher matcher = range != null ? RANGE.matcher(range) : null;
+
+        if (matcher != null && matcher.matches()) {
+            long start = Long.parseLong(matcher.group(1));
+            long end = matcher.group(2).isEmpty() ? length - 1 : Math.min(Long.parseLong(matcher.group(2)), length - 1);
+
+            if (start >= length || start > end) {
+                return response.code(416).setHeader("Content-Range", "bytes */" + length).build();
+            }
+
+            return response.code(206)
+                    .setHeader("Content-Range", "bytes " + start + "-" + end + "/" + length)
+                    .body(new Buffer().write(wav(length, frequency, (int) start, (int) end + 1)))
+                    .build();
+        }
+
+        return response.body(new Buffer().write(wav(length, frequency, 0, length))).build();
+    }
+
+    /**
+     * Bytes {@code from} to {@code to} of a WAV file of {@code length} bytes holding a tone, so
+     * that a range costs no more than its own size to make.
+     */
+    private static byte[] wav(int length, int frequency, int from, int to) {
+        int samples = length - WAV_HEADER_SIZE;
+        byte[] wav = new byte[to - from];
+
+        if (from < WAV_HEADER_SIZE) {
+            byte[] header = new Buffer()
+                    .writeUtf8("RIFF").writeIntLe(36 + samples).writeUtf8("WAVE")
+                    .writeUtf8("fmt ").writeIntLe(16).writeShortLe(1).writeShortLe(1)
+                    .writeIntLe(SAMPLE_RATE).writeIntLe(SAMPLE_RATE).writeShortLe(1).writeShortLe(8)
+                    .writeUtf8("data").writeIntLe(samples)
+                    .readByteArray();
+            System.arraycopy(header, from, wav, 0, Math.min(WAV_HEADER_SIZE, to) - from);
+        }
+
+        // The phase step per sample in 1/65536ths of a table entry
+        long step = (long) frequency * SINE.length * 65536 / SAMPLE_RATE;
+
+        for (int i = Math.max(from, WAV_HEADER_SIZE); i < to; i++) {
+            long sample = i - WAV_HEADER_SIZE;
+            wav[i - from] = SINE[(int) ((sample * step) >> 16) & (SINE.length - 1)];
+        }
+
+        return wav;
+    }
+
+    private MockResponse.Builder delayed(MockResponse.Builder response) {
+        if (latencyMs > 0) response.headersDelay(latencyMs, TimeUnit.MILLISECONDS);
+        // Sent in tenths of a second, so that small bodies are throttled too
+        if (bytesPerSecond > 0) response.throttleBody(Math.max(1, bytesPerSecond / 10), 100, TimeUnit.MILLISECONDS);
+        return response;
+    }
+
+    private MockResponse json(JsonObject body) {
+        JsonObject root = new JsonObject();
+        root.add("subsonic-response", body);
+
+        return delayed(new MockResponse.Builder())
+                .setHeader("Content-Type", "application/json")
+                .body(gson.toJson(root))
+                .build();
+    }
+
+    private MockResponse notFound() {
+        JsonObject error = new JsonObject();
+        error.addProperty("code", 70);
+        error.addProperty("message", "The requested data was not found.");
+
+        JsonObject body = ok();
+        body.addProperty("status", "failed");
+        body.add("error", error);
+        return json(body);
+    }
+
+    private static JsonObject ok() {
+        JsonObject body = new JsonObject();
+        body.addProperty("status", "ok");
+        body.addProperty("version", VERSION);
+        body.addProperty("type", "tempo-fake");
+        body.addProperty("serverVersion", VERSION);
+        body.addProperty("openSubsonic", true);
+        return body;
+    }
+
+    private static JsonObject wrap(String name, JsonElement items) {
+        JsonObject object = new JsonObject();
+        object.add(name, items);
+        return object;
+    }
+
+    private static JsonArray array(JsonElement item) {
+        JsonArray array = new JsonArray();
+        array.add(item);
+        return array;
+    }
+
+    private static <T> List<T> filter(List<T> items, Predicate<T> predicate) {
+        List<T> matching = new ArrayList<>();
+
+        for (T item : items) {
+            if (predicate.test(item)) matching.add(item);
+        }
+
+        return matching;
+    }
+
+    private static <T> List<T> page(List<T> items, HttpUrl url, String offsetParameter, String sizeParameter, int defaultSize) {
+        int offset = offsetParameter != null ? Math.max(0, intParameter(url, offsetParameter, 0)) : 0;
+        int size = Math.max(0, intParameter(url, sizeParameter, defaultSize));
+
+        if (offset >= items.size()) return Collections.emptyList();
+        return items.subList(offset, Math.min(items.size(), offset + size));
+    }
+
+    private static int intParameter(HttpUrl url, String name, int fallback) {
+        String value = url.queryParameter(name);
+        if (value == null) return fallback;
+
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.cappielloantonio.tempo.subsonic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assume.assumeTrue;
+
+import com.cappielloantonio.tempo.benchmark.Benchmark;
+import com.cappielloantonio.tempo.benchmark.ChildFixtures;
+import com.cappielloantonio.tempo.subsonic.api.albumsonglist.AlbumSongListService;
+import com.cappielloantonio.tempo.subsonic.api.browsing.BrowsingService;
+import com.cappielloantonio.tempo.subsonic.api.searching.SearchingService;
+import com.cappielloantonio.tempo.subsonic.base.ApiResponse;
+import com.cappielloantonio.tempo.subsonic.models.SearchResult3;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import retrofit2.Call;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+/**
+ * The app's service interfaces and parser against {@link FakeSubsonicServer}, on a link with
+ * 20 ms of latency and 2 MB/s of bandwidth:
+ * <ul>
+ * <li>cold start, the first artists and album list on a fresh connection,</li>
+ * <li>throughput, every song paged through {@code search3} as the library sync does,</li>
+ * <li>seek latency, the first bytes of a stream restarted at {@code timeOffset}.</li>
+ * </ul>
+ */
+public class SubsonicBenchmark {
+    private static final long LATENCY_MS = 20;
+    private static final long BANDWIDTH = 2 * 1024 * 1024;
+    private static final int PAGE_SIZE = 500;
+
+    private static final Map<String, String> params = Collections.singletonMap("f", "json");
+
+    @Test
+    public void coldStart() throws Exception {
+        assumeTrue("Run with -Pbenchmark", Benchmark.ENABLED);
+
+        for (int size : ChildFixtures.SIZES) {
+            try (FakeSubsonicServer server = start(size)) {
+                Benchmark.measure("subsonic.coldStart", size, () -> {
+                    // A new client, so that every run opens its own connection
+                    Retrofit retrofit = retrofit(server, new OkHttpClient());
+                    BrowsingService browsing = retrofit.create(BrowsingService.class);
+                    AlbumSongListService albums = retrofit.create(AlbumSongListService.class);
+
+                    return () -> {
+                        ApiResponse artists = execute(browsing.getArtists(params));
+                        ApiResponse newest = execute(albums.getAlbumList2(params, "newest", 20, 0, null, null));
+
+                        assertNotNull(artists.subsonicResponse.getArtists());
+                        assertNotNull(newest.subsonicResponse.getAlbumList2());
+                    };
+                });
+            }
+        }
+    }
+
+    @Test
+    public void syncThroughput() throws Exception {
+        assumeTrue("Run with -Pbenchmark", Benchmark.ENABLED);
+
+        for (int size : ChildFixtures.SIZES) {
+            try (FakeSubsonicServer server = start(size)) {
+                SearchingService searching = retrofit(server, new OkHttpClient()).create(SearchingService.class);
+
+                Benchmark.measure("subsonic.syncThroughput", size, () -> () -> {
+                    int songs = 0;
+
+                    while (true) {
+                        SearchResult3 page = execute(searching.search3(params, "", PAGE_SIZE, songs, 0, 0, 0, 0)).subsonicResponse.getSearchResult3();
+                        if (page == null || page.getSongs() == null || page.getSongs().isEmpty()) break;
+                        songs += page.getSongs().size();
+                    }
+
+                    assertEquals(size, songs);
+                });
+            }
+        }
+    }
+
+    @Test
+    public void seekLatency() throws Exception {
+        assumeTrue("Run with -Pbenchmark", Benchmark.ENABLED);
+
+        try (FakeSubsonicServer server = start(ChildFixtures.SIZES[0])) {
+            OkHttpClient client = new OkHttpClient();
+            String id = server.getSongs().get(0).getId();
+
+            Benchmark.measure("subsonic.seekLatency", 1, () -> () -> {
+                Request request = new Request.Builder().url(server.getUrl() + "stream?f=json&id=" + id + "&timeOffset=30").build();
+                okhttp3.Call call = client.newCall(request);
+
+                try (Response response = call.execute()) {
+                    InputStream body = response.body().byteStream();
+                    byte[] firstBytes = new byte[4096];
+                    int read = 0;
+
+                    while (read < firstBytes.length) {
+                        int count = body.read(firstBytes, read, firstBytes.length - read);
+                        if (count < 0) break;
+                        read += count;
+                    }
+
+                    assertEquals(firstBytes.length, read);
+
+                    // Drop the rest like the player does, rather than draining it on close
+                    call.cancel();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    private static FakeSubsonicServer start(int size) throws Exception {
+        FakeSubsonicServer server = new FakeSubsonicServer(size)
+                .setLatency(LATENCY_MS, TimeUnit.MILLISECONDS)
+                .setBandwidth(BANDWIDTH);
+        server.start();
+        return server;
+    }
+
+    private static Retrofit retrofit(FakeSubsonicServer server, OkHttpClient client) {
+        return new Retrofit.Builder()
+                .baseUrl(server.getUrl())
+                .addConverterFactory(GsonConverterFactory.create(RetrofitManager.getGson()))
+                .client(client)
+                .build();
+    }
+
+    private static ApiResponse execute(Call<ApiResponse> call) {
+        try {
+            ApiResponse response = call.execute().body();
+            assertNotNull(response);
+            return response;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.cappielloantonio.tempo.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+import com.cappielloantonio.tempo.benchmark.Benchmark;
+import com.cappielloantonio.tempo.benchmark.ChildFixtures;
+import com.cappielloantonio.tempo.subsonic.models.Artist;
+import com.cappielloantonio.tempo.subsonic.models.Index;
+import com.cappielloantonio.tempo.subsonic.models.Indexes;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link IndexUtil#getArtist} over a {@code getIndexes} response with as many artists as the
+ * fixtures have songs, spread over an index per letter.
+ */
+public class IndexBenchmark {
+    private static final int LETTERS = 26;
+
+    @Test
+    public void getArtist() throws Exception {
+        assumeTrue("Run with -Pbenchmark", Benchmark.ENABLED);
+
+        for (int size : ChildFixtures.SIZES) {
+            Indexes indexes = indexes(size);
+
+            Benchmark.measure("index.getArtist", size, () -> () ->
+                    assertEquals(size, IndexUtil.getArtist(indexes).size()));
+        }
+    }
+
+    private static Indexes indexes(int count) {
+        List<List<Artist>> artists = new ArrayList<>(LETTERS);
+
+        for (int letter = 0; letter < LETTERS; letter++) {
+            artists.add(new ArrayList<>());
+        }
+
+        for (int i = 0; i < count; i++) {
+            artists.get(i % LETTERS).add(new Artist("ar-" + i, "Artist " + i, null, null, null));
+        }
+
+        List<Index> indices = new ArrayList<>(LETTERS);
+
+        for (int letter = 0; letter < LETTERS; letter++) {
+            Index index = new Index();
+            index.setName(String.valueOf((char) ('A' + letter)));
+            index.setArtists(artists.get(letter));
+            indices.add(index);
+        }
+
+        Indexes indexes = new Indexes();
+        indexes.setIndices(indices);
+        return indexes;
+    }
+}
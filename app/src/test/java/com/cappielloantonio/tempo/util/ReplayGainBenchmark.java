@@ -0,0 +1,66 @@
+package com.cappielloantonio.tempo.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+import android.app.Application;
+
+import androidx.media3.common.Metadata;
+import androidx.media3.extractor.metadata.id3.TextInformationFrame;
+
+import com.cappielloantonio.tempo.benchmark.Benchmark;
+import com.cappielloantonio.tempo.benchmark.ChildFixtures;
+import com.cappielloantonio.tempo.subsonic.models.Child;
+import com.google.common.collect.ImmutableList;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * {@link ReplayGainUtil#getReplayGains} over the ID3 frames of one track per song: title, artist
+ * and album, then the track and album gains as {@code TXXX} frames like most taggers write them.
+ * Each song gives one gain per frame.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 35, application = Application.class)
+public class ReplayGainBenchmark {
+    @Test
+    public void getReplayGains() throws Exception {
+        assumeTrue("Run with -Pbenchmark", Benchmark.ENABLED);
+
+        for (int size : ChildFixtures.SIZES) {
+            List<Metadata> metadata = toMetadata(ChildFixtures.songs(size));
+
+            Benchmark.measure("replayGain.getReplayGains", size, () -> () ->
+                    assertEquals(2 * size, ReplayGainUtil.getReplayGains(metadata).size()));
+        }
+    }
+
+    private static List<Metadata> toMetadata(List<Child> songs) {
+        Random random = new Random(42);
+        List<Metadata> metadata = new ArrayList<>(songs.size());
+
+        for (Child song : songs) {
+            metadata.add(new Metadata(
+                    new TextInformationFrame("TIT2", null, ImmutableList.of(song.getTitle())),
+                    new TextInformationFrame("TPE1", null, ImmutableList.of(song.getArtist())),
+                    new TextInformationFrame("TALB", null, ImmutableList.of(song.getAlbum())),
+                    new TextInformationFrame("TXXX", "REPLAYGAIN_TRACK_GAIN", ImmutableList.of(gain(random))),
+                    new TextInformationFrame("TXXX", "REPLAYGAIN_ALBUM_GAIN", ImmutableList.of(gain(random)))
+            ));
+        }
+
+        return metadata;
+    }
+
+    private static String gain(Random random) {
+        return String.format(Locale.ROOT, "%.2f dB", random.nextFloat() * 20 - 14);
+    }
+}